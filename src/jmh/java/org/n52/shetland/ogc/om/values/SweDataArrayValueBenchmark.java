@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.encoding.SweTextEncoding;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.util.DateTimeHelper;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SweDataArrayValueBenchmark {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    private SweDataArrayValue value;
+
+    @Setup
+    public void setup() {
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField("phenomenonTime", new SweTime().setDefinition(OmConstants.PHENOMENON_TIME)));
+        record.addField(new SweField("value", new SweQuantity().setUom("m").setDefinition("value")));
+        SweTextEncoding encoding = new SweTextEncoding();
+        encoding.setTokenSeparator(",");
+        encoding.setBlockSeparator("@@");
+        SweDataArray array = new SweDataArray();
+        array.setElementType(record);
+        array.setEncoding(encoding);
+        for (int i = 0; i < size; i++) {
+            String time = DateTimeHelper.formatDateTime2IsoString(new DateTime(START + i * 60000L, DateTimeZone.UTC));
+            array.add(Arrays.asList(time, Integer.toString(i)));
+        }
+        value = new SweDataArrayValue(array);
+    }
+
+    @Benchmark
+    public Time getPhenomenonTime() {
+        return value.getPhenomenonTime();
+    }
+}
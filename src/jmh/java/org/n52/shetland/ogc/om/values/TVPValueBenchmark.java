@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.TimeValuePair;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TVPValueBenchmark {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    private TimeValuePair[] pairs;
+    private TVPValue value;
+
+    @Setup
+    public void setup() {
+        pairs = new TimeValuePair[size];
+        for (int i = 0; i < size; i++) {
+            pairs[i] = new TimeValuePair(new TimeInstant(new DateTime(START + i * 60000L, DateTimeZone.UTC)),
+                                         new QuantityValue((double) i, "m"));
+        }
+        value = fill();
+    }
+
+    @Benchmark
+    public TVPValue add() {
+        return fill();
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (TimeValuePair pair : value.getValue()) {
+            blackhole.consume(pair.getValue());
+        }
+    }
+
+    @Benchmark
+    public Time getPhenomenonTime() {
+        return value.getPhenomenonTime();
+    }
+
+    private TVPValue fill() {
+        TVPValue tvp = new TVPValue();
+        tvp.setUnit("m");
+        for (TimeValuePair pair : pairs) {
+            tvp.addValue(pair);
+        }
+        return tvp;
+    }
+}
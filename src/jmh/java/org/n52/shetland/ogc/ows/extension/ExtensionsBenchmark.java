@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.ows.extension;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swes.SwesExtension;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtensionsBenchmark {
+
+    @Param({ "1", "10", "100" })
+    private int size;
+
+    private Extensions extensions;
+    private String first;
+    private String last;
+    private String lastMixedCase;
+
+    @Setup
+    public void setup() {
+        extensions = new Extensions();
+        for (int i = 0; i < size; i++) {
+            extensions.addExtension(new SwesExtension<>().setDefinition("definition" + i)
+                    .setValue(new SweBoolean().setValue(i % 2 == 0)));
+        }
+        first = "definition0";
+        last = "definition" + (size - 1);
+        lastMixedCase = "DEFINITION" + (size - 1);
+    }
+
+    @Benchmark
+    public boolean containsFirst() {
+        return extensions.containsExtension(first);
+    }
+
+    @Benchmark
+    public boolean containsLast() {
+        return extensions.containsExtension(last);
+    }
+
+    @Benchmark
+    public Optional<Extension<?>> getLastMixedCase() {
+        return extensions.getExtension(lastMixedCase);
+    }
+
+    @Benchmark
+    public boolean containsMissing() {
+        return extensions.containsExtension("missing");
+    }
+
+    @Benchmark
+    public boolean isBooleanExtensionSet() {
+        return extensions.isBooleanExtensionSet(last);
+    }
+}
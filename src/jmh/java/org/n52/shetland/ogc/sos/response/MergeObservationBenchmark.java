@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Benchmarks {@link AbstractStreaming#mergeObservation()} for a number of
+ * observations distributed over a number of series. Merging modifies the
+ * observations, so they are created per invocation outside of the measured
+ * method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeObservationBenchmark {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    @Param({ "1000", "10000", "100000" })
+    private int size;
+
+    @Param({ "1", "10" })
+    private int series;
+
+    private OmObservationConstellation[] constellations;
+
+    private ListStreaming streaming;
+
+    @Setup
+    public void setup() {
+        constellations = new OmObservationConstellation[series];
+        for (int i = 0; i < series; i++) {
+            OmObservationConstellation constellation = new OmObservationConstellation();
+            constellation.setProcedure(new SamplingFeature(new CodeWithAuthority("procedure")));
+            constellation.setObservableProperty(new OmObservableProperty("property"));
+            constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature" + i)));
+            constellation.setObservationType(OmConstants.OBS_TYPE_MEASUREMENT);
+            constellation.addOffering("offering");
+            constellations[i] = constellation;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createStreaming() {
+        List<OmObservation> observations = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            OmObservation observation = new OmObservation();
+            observation.setObservationConstellation(constellations[i % series]);
+            TimeInstant time = new TimeInstant(new DateTime(START + i * 60000L, DateTimeZone.UTC));
+            observation.setResultTime(time);
+            observation.setValue(new SingleObservationValue<>(time, new QuantityValue((double) i, "m")));
+            observations.add(observation);
+        }
+        streaming = new ListStreaming(observations);
+    }
+
+    @Benchmark
+    public Collection<OmObservation> mergeObservation() throws OwsExceptionReport {
+        return streaming.mergeObservation();
+    }
+
+    /**
+     * {@link AbstractStreaming} that streams a list of observations.
+     */
+    private static class ListStreaming extends AbstractStreaming {
+        private final Iterator<OmObservation> iterator;
+        private Time phenomenonTime;
+
+        ListStreaming(List<OmObservation> observations) {
+            this.iterator = observations.iterator();
+        }
+
+        @Override
+        public boolean hasNextValue() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public OmObservation nextSingleObservation() {
+            return iterator.next();
+        }
+
+        @Override
+        protected void checkForModifications(OmObservation observation) {
+        }
+
+        @Override
+        public Time getPhenomenonTime() {
+            return phenomenonTime;
+        }
+
+        @Override
+        public void setPhenomenonTime(Time phenomenonTime) {
+            this.phenomenonTime = phenomenonTime;
+        }
+
+        @Override
+        public Value<OmObservation> getValue() {
+            return null;
+        }
+
+        @Override
+        public void setValue(Value<OmObservation> value) {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.n52.shetland.ogc.gml.time.Time;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DateTimeHelperBenchmark {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    @Param({ "1000", "10000" })
+    private int size;
+
+    private DateTime[] dateTimes;
+    private String[] strings;
+    private String[] periods;
+    private Time[] times;
+
+    @Setup
+    public void setup() {
+        dateTimes = new DateTime[size];
+        strings = new String[size];
+        periods = new String[size];
+        times = new Time[size];
+        for (int i = 0; i < size; i++) {
+            dateTimes[i] = new DateTime(START + i * 60000L, DateTimeZone.forOffsetHours(i % 3));
+            strings[i] = DateTimeHelper.formatDateTime2IsoString(dateTimes[i]);
+            periods[i] = strings[i] + "/" + DateTimeHelper.formatDateTime2IsoString(dateTimes[i].plusHours(1));
+        }
+        try {
+            for (int i = 0; i < size; i++) {
+                times[i] = DateTimeHelper.parseIsoString2DateTime2Time(periods[i]);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public void parseDateTime(Blackhole blackhole) throws DateTimeParseException {
+        for (String string : strings) {
+            blackhole.consume(DateTimeHelper.parseIsoString2DateTime(string));
+        }
+    }
+
+    @Benchmark
+    public void parseTime(Blackhole blackhole) throws DateTimeParseException {
+        for (String period : periods) {
+            blackhole.consume(DateTimeHelper.parseIsoString2DateTime2Time(period));
+        }
+    }
+
+    @Benchmark
+    public void formatDateTime(Blackhole blackhole) {
+        for (DateTime dateTime : dateTimes) {
+            blackhole.consume(DateTimeHelper.formatDateTime2IsoString(dateTime));
+        }
+    }
+
+    @Benchmark
+    public void formatTime(Blackhole blackhole) {
+        for (Time time : times) {
+            blackhole.consume(DateTimeHelper.format(time));
+        }
+    }
+}
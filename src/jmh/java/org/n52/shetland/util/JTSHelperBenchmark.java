@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JTSHelperBenchmark {
+
+    private static final int SRID = 4326;
+
+    @Param({ "10", "1000", "100000" })
+    private int size;
+
+    private String wkt;
+    private Geometry geometry;
+
+    @Setup
+    public void setup() throws ParseException {
+        StringBuilder builder = new StringBuilder("LINESTRING (");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(52.0 + i * 0.0001).append(' ').append(7.0 + i * 0.0001);
+        }
+        wkt = builder.append(')').toString();
+        geometry = JTSHelper.createGeometryFromWKT(wkt, SRID);
+    }
+
+    @Benchmark
+    public Geometry parseWKT() throws ParseException {
+        return JTSHelper.createGeometryFromWKT(wkt, SRID);
+    }
+
+    @Benchmark
+    public Geometry switchCoordinateAxisOrder() throws OwsExceptionReport {
+        return JTSHelper.switchCoordinateAxisOrder(geometry);
+    }
+}
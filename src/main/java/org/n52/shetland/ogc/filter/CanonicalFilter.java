@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.Hashing;
+
+/**
+ * Normalized filter tree together with its canonical representation. Two
+ * semantically identical filter trees that only differ in nesting, predicate
+ * order, duplicates or double negations produce equal instances, so this class
+ * can be used as a cache key.
+ *
+ * @see FilterNormalizer
+ * @since 1.0.0
+ */
+public final class CanonicalFilter {
+
+    private final Filter<?> filter;
+    private final String key;
+    private final long hash;
+
+    CanonicalFilter(Filter<?> filter, String key) {
+        this.filter = Objects.requireNonNull(filter);
+        this.key = Objects.requireNonNull(key);
+        this.hash = Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Get the normalized filter tree.
+     *
+     * @return the normalized filter
+     */
+    public Filter<?> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get the canonical string representation of the normalized filter.
+     *
+     * @return the canonical key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get a hash of the canonical key that is stable across JVM instances.
+     *
+     * @return the stable hash
+     */
+    public long getStableHash() {
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        CanonicalFilter that = (CanonicalFilter) obj;
+        return this.hash == that.hash && this.key.equals(that.key);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("key", key).toString();
+    }
+}
@@ -38,7 +38,7 @@ public class FesSortBy implements AbstractSortingClause {
     }
 
     public FesSortBy(List<FesSortProperty> sortProperties) {
-        sortProperties.addAll(sortProperties);
+        this.sortProperties.addAll(sortProperties);
     }
 
     /**
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.n52.shetland.ogc.filter.FilterConstants.BinaryLogicOperator;
+import org.n52.shetland.ogc.filter.FilterConstants.ComparisonOperator;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Normalizer and optimizer for FES filter trees.
+ * <p>
+ * The normalizer
+ * <ul>
+ * <li>removes double negations and pushes {@code Not} down to the leaf
+ * predicates using De Morgan's laws,</li>
+ * <li>flattens nested {@code And}/{@code Or} nodes of the same operator,</li>
+ * <li>removes duplicate predicates and replaces single child {@code And}/{@code Or}
+ * nodes by their child and</li>
+ * <li>orders the predicates of each node by their estimated evaluation cost
+ * (id and comparison before temporal before spatial predicates).</li>
+ * </ul>
+ * The input tree is never modified; leaf predicates are shared with the result
+ * where possible.
+ *
+ * @since 1.0.0
+ */
+public final class FilterNormalizer {
+
+    private static final int COST_ID = 1;
+    private static final int COST_COMPARISON = 2;
+    private static final int COST_LIKE = 3;
+    private static final int COST_TEMPORAL = 4;
+    private static final int COST_SPATIAL = 8;
+    private static final int COST_UNKNOWN = 16;
+
+    private static final String NULL = "-";
+
+    private static final Comparator<Node> ORDER = Comparator.comparingInt((Node n) -> n.cost)
+            .thenComparing(n -> n.key);
+
+    private FilterNormalizer() {
+    }
+
+    /**
+     * Normalize the filter tree.
+     *
+     * @param filter the filter
+     *
+     * @return the normalized filter or {@code null} if {@code filter} is {@code null}
+     */
+    public static Filter<?> normalize(Filter<?> filter) {
+        if (filter == null) {
+            return null;
+        }
+        return normalize(filter, false).filter;
+    }
+
+    /**
+     * Normalize the filter tree and create its canonical form.
+     *
+     * @param filter the filter
+     *
+     * @return the canonical filter
+     */
+    public static CanonicalFilter canonicalize(Filter<?> filter) {
+        Objects.requireNonNull(filter);
+        Node node = normalize(filter, false);
+        return new CanonicalFilter(node.filter, node.key);
+    }
+
+    /**
+     * Estimate the relative cost of evaluating the filter. Logic filters cost
+     * the sum of their predicates.
+     *
+     * @param filter the filter
+     *
+     * @return the estimated cost
+     */
+    public static int estimateCost(Filter<?> filter) {
+        if (filter instanceof UnaryLogicFilter) {
+            return estimateCost(((UnaryLogicFilter) filter).getFilterPredicate());
+        } else if (filter instanceof BinaryLogicFilter) {
+            return ((BinaryLogicFilter) filter).getFilterPredicates().stream()
+                    .mapToInt(FilterNormalizer::estimateCost).sum();
+        } else if (filter instanceof IdFilter) {
+            return COST_ID;
+        } else if (filter instanceof ComparisonFilter) {
+            return ((ComparisonFilter) filter).getOperator() == ComparisonOperator.PropertyIsLike
+                           ? COST_LIKE : COST_COMPARISON;
+        } else if (filter instanceof TemporalFilter) {
+            return COST_TEMPORAL;
+        } else if (filter instanceof SpatialFilter) {
+            return COST_SPATIAL;
+        } else {
+            return COST_UNKNOWN;
+        }
+    }
+
+    private static Node normalize(Filter<?> filter, boolean negated) {
+        if (filter instanceof UnaryLogicFilter) {
+            return normalize(((UnaryLogicFilter) filter).getFilterPredicate(), !negated);
+        } else if (filter instanceof BinaryLogicFilter) {
+            return normalize((BinaryLogicFilter) filter, negated);
+        } else {
+            Node leaf = leaf(filter);
+            if (negated) {
+                return new Node(new UnaryLogicFilter(leaf.filter), "Not(" + leaf.key + ")", leaf.cost);
+            }
+            return leaf;
+        }
+    }
+
+    private static Node normalize(BinaryLogicFilter filter, boolean negated) {
+        BinaryLogicOperator operator = negated ? dual(filter.getOperator()) : filter.getOperator();
+        Map<String, Node> children = new LinkedHashMap<>();
+        for (Filter<?> predicate : filter.getFilterPredicates()) {
+            Node child = normalize(predicate, negated);
+            if (child.filter instanceof BinaryLogicFilter &&
+                ((BinaryLogicFilter) child.filter).getOperator() == operator) {
+                child.children.forEach(c -> children.putIfAbsent(c.key, c));
+            } else {
+                children.putIfAbsent(child.key, child);
+            }
+        }
+        if (children.size() == 1) {
+            return children.values().iterator().next();
+        }
+        List<Node> sorted = new ArrayList<>(children.values());
+        sorted.sort(ORDER);
+        BinaryLogicFilter result = new BinaryLogicFilter(operator);
+        sorted.forEach(n -> result.addFilterPredicates(n.filter));
+        String key = sorted.stream().map(n -> n.key)
+                .collect(Collectors.joining(",", operator.name() + "(", ")"));
+        return new Node(result, key, sorted.stream().mapToInt(n -> n.cost).sum(), sorted);
+    }
+
+    private static Node leaf(Filter<?> filter) {
+        if (filter instanceof IdFilter) {
+            IdFilter f = (IdFilter) filter;
+            Set<String> ids = new TreeSet<>(f.getIds());
+            IdFilter copy = new IdFilter(ids);
+            copy.setOperator(f.getOperator());
+            copy.setValueReference(f.getValueReference());
+            StringBuilder key = new StringBuilder("Id[").append(value(f.getOperator()));
+            ids.forEach(id -> key.append(',').append(value(id)));
+            return new Node(copy, key.append(']').toString(), COST_ID);
+        } else if (filter instanceof ComparisonFilter) {
+            ComparisonFilter f = (ComparisonFilter) filter;
+            String key = new StringBuilder("Comparison[")
+                    .append(value(f.getOperator())).append(',')
+                    .append(value(f.getValueReference())).append(',')
+                    .append(value(f.getValue())).append(',')
+                    .append(value(f.getValueUpper())).append(',')
+                    .append(value(f.getEscapeString())).append(',')
+                    .append(value(f.getWildCard())).append(',')
+                    .append(value(f.getSingleChar())).append(',')
+                    .append(f.isMatchCase()).append(']').toString();
+            return new Node(f, key, estimateCost(f));
+        } else if (filter instanceof TemporalFilter) {
+            TemporalFilter f = (TemporalFilter) filter;
+            String key = new StringBuilder("Temporal[")
+                    .append(value(f.getOperator())).append(',')
+                    .append(value(f.getValueReference())).append(',')
+                    .append(time(f.getTime())).append(']').toString();
+            return new Node(f, key, COST_TEMPORAL);
+        } else if (filter instanceof SpatialFilter) {
+            SpatialFilter f = (SpatialFilter) filter;
+            String key = new StringBuilder("Spatial[")
+                    .append(value(f.getOperator())).append(',')
+                    .append(value(f.getValueReference())).append(',')
+                    .append(geometry(f.getGeometry())).append(']').toString();
+            return new Node(f, key, COST_SPATIAL);
+        } else {
+            String key = new StringBuilder(filter.getClass().getName()).append('[')
+                    .append(value(filter.getOperator())).append(',')
+                    .append(value(filter.getValueReference())).append(',')
+                    .append(value(filter.toString())).append(']').toString();
+            return new Node(filter, key, COST_UNKNOWN);
+        }
+    }
+
+    private static BinaryLogicOperator dual(BinaryLogicOperator operator) {
+        return operator == BinaryLogicOperator.And ? BinaryLogicOperator.Or : BinaryLogicOperator.And;
+    }
+
+    private static String time(Time time) {
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            return new StringBuilder("I(")
+                    .append(instant.isSetValue() ? Long.toString(instant.getValue().getMillis()) : NULL)
+                    .append(',').append(indeterminate(instant.getIndeterminateValue()))
+                    .append(')').toString();
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            return new StringBuilder("P(")
+                    .append(period.isSetStart() ? Long.toString(period.getStart().getMillis()) : NULL)
+                    .append(',').append(indeterminate(period.getStartIndet())).append(',')
+                    .append(period.isSetEnd() ? Long.toString(period.getEnd().getMillis()) : NULL)
+                    .append(',').append(indeterminate(period.getEndIndet()))
+                    .append(')').toString();
+        } else {
+            return value(time);
+        }
+    }
+
+    private static String indeterminate(IndeterminateValue value) {
+        return value == null ? NULL : value(value.getValue().toLowerCase());
+    }
+
+    private static String geometry(Geometry geometry) {
+        if (geometry == null) {
+            return NULL;
+        }
+        return new StringBuilder("G(").append(geometry.getSRID()).append(',')
+                .append(value(geometry.norm().toText())).append(')').toString();
+    }
+
+    /**
+     * Length prefixed string representation so that separators inside of
+     * values can not produce ambiguous keys.
+     */
+    private static String value(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        String string = value.toString();
+        return string.length() + ":" + string;
+    }
+
+    private static final class Node {
+        private final Filter<?> filter;
+        private final String key;
+        private final int cost;
+        private final List<Node> children;
+
+        Node(Filter<?> filter, String key, int cost) {
+            this(filter, key, cost, null);
+        }
+
+        Node(Filter<?> filter, String key, int cost, List<Node> children) {
+            this.filter = filter;
+            this.key = key;
+            this.cost = cost;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import org.n52.shetland.ogc.filter.FilterConstants.AdHocQueryParams;
+import org.n52.shetland.ogc.filter.FilterConstants.SortOrder;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.gml.GmlConstants;
+import org.n52.shetland.ogc.gml.GmlConstants.SortingOrder;
+import org.n52.shetland.ogc.gml.SortBy;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.sos.SosConstants;
+
+/**
+ * Compiles {@link FesSortBy} and {@link SortBy} sort orders to chained,
+ * null-safe {@link Comparator}s.
+ * <p>
+ * Every supported value reference is backed by an accessor that extracts a
+ * primitive key (epoch milliseconds, {@code double}) or a {@code String} from
+ * the sorted object. The compiled {@link SortComparator} can extract these
+ * keys once per element into primitive columns before sorting, so the
+ * accessors are not called on every comparison. Missing keys always sort
+ * last, regardless of the sort order.
+ *
+ * @param <T> the type of the sorted objects
+ *
+ * @since 1.0.0
+ */
+public class SortComparatorCompiler<T> {
+
+    private static final String PREFIX_OM = OmConstants.NS_OM_PREFIX + ":";
+    private static final String PREFIX_GML = GmlConstants.NS_GML_PREFIX + ":";
+
+    private final Map<String, SortKey<T>> keys = new HashMap<>();
+
+    /**
+     * Register an accessor for a value reference that extracts epoch
+     * milliseconds. Missing values have to be reported as
+     * {@link Long#MIN_VALUE}.
+     *
+     * @param valueReference the value reference
+     * @param accessor       the accessor
+     *
+     * @return {@code this}
+     */
+    public SortComparatorCompiler<T> registerLong(String valueReference, ToLongFunction<? super T> accessor) {
+        Objects.requireNonNull(accessor);
+        return register(valueReference, new SortKey<T>() {
+            @Override
+            public int compare(T a, T b, int sign) {
+                return compareLongs(accessor.applyAsLong(a), accessor.applyAsLong(b), sign);
+            }
+
+            @Override
+            public Column extract(List<? extends T> elements) {
+                long[] values = new long[elements.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = accessor.applyAsLong(elements.get(i));
+                }
+                return (i, j, sign) -> compareLongs(values[i], values[j], sign);
+            }
+        });
+    }
+
+    /**
+     * Register an accessor for a value reference that extracts a
+     * {@code double}. Missing values have to be reported as {@link Double#NaN}.
+     *
+     * @param valueReference the value reference
+     * @param accessor       the accessor
+     *
+     * @return {@code this}
+     */
+    public SortComparatorCompiler<T> registerDouble(String valueReference, ToDoubleFunction<? super T> accessor) {
+        Objects.requireNonNull(accessor);
+        return register(valueReference, new SortKey<T>() {
+            @Override
+            public int compare(T a, T b, int sign) {
+                return compareDoubles(accessor.applyAsDouble(a), accessor.applyAsDouble(b), sign);
+            }
+
+            @Override
+            public Column extract(List<? extends T> elements) {
+                double[] values = new double[elements.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = accessor.applyAsDouble(elements.get(i));
+                }
+                return (i, j, sign) -> compareDoubles(values[i], values[j], sign);
+            }
+        });
+    }
+
+    /**
+     * Register an accessor for a value reference that extracts a
+     * {@code String}. Missing values have to be reported as {@code null}.
+     *
+     * @param valueReference the value reference
+     * @param accessor       the accessor
+     *
+     * @return {@code this}
+     */
+    public SortComparatorCompiler<T> registerString(String valueReference, Function<? super T, String> accessor) {
+        Objects.requireNonNull(accessor);
+        return register(valueReference, new SortKey<T>() {
+            @Override
+            public int compare(T a, T b, int sign) {
+                return compareStrings(accessor.apply(a), accessor.apply(b), sign);
+            }
+
+            @Override
+            public Column extract(List<? extends T> elements) {
+                String[] values = new String[elements.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = accessor.apply(elements.get(i));
+                }
+                return (i, j, sign) -> compareStrings(values[i], values[j], sign);
+            }
+        });
+    }
+
+    private SortComparatorCompiler<T> register(String valueReference, SortKey<T> key) {
+        this.keys.put(normalize(valueReference), key);
+        return this;
+    }
+
+    /**
+     * Check if the value reference is supported by this compiler.
+     *
+     * @param valueReference the value reference
+     *
+     * @return {@code true} if the value reference can be sorted by
+     */
+    public boolean isSupported(String valueReference) {
+        return valueReference != null && this.keys.containsKey(normalize(valueReference));
+    }
+
+    /**
+     * Compile the {@code fes:SortBy}.
+     *
+     * @param sortBy the sort by
+     *
+     * @return the comparator
+     *
+     * @throws InvalidParameterValueException if a value reference is not supported
+     */
+    public SortComparator<T> compile(FesSortBy sortBy) throws InvalidParameterValueException {
+        List<SortKey<T>> sortKeys = new ArrayList<>(sortBy.getSortProperties().size());
+        List<Integer> signs = new ArrayList<>(sortBy.getSortProperties().size());
+        for (FesSortProperty property : sortBy.getSortProperties()) {
+            sortKeys.add(key(property.getValueReference()));
+            signs.add(property.isSetSortOrder() && property.getSortOrder() == SortOrder.DESC ? -1 : 1);
+        }
+        return new SortComparator<>(sortKeys, signs);
+    }
+
+    /**
+     * Compile the list of {@code gml:sortBy} elements.
+     *
+     * @param sortBy the sort by elements
+     *
+     * @return the comparator
+     *
+     * @throws InvalidParameterValueException if a property is not supported
+     */
+    public SortComparator<T> compile(List<SortBy> sortBy) throws InvalidParameterValueException {
+        List<SortKey<T>> sortKeys = new ArrayList<>(sortBy.size());
+        List<Integer> signs = new ArrayList<>(sortBy.size());
+        for (SortBy property : sortBy) {
+            sortKeys.add(key(property.getProperty()));
+            signs.add(property.getOrder() == SortingOrder.DESC ? -1 : 1);
+        }
+        return new SortComparator<>(sortKeys, signs);
+    }
+
+    private SortKey<T> key(String valueReference) throws InvalidParameterValueException {
+        SortKey<T> key = valueReference == null ? null : this.keys.get(normalize(valueReference));
+        if (key == null) {
+            throw new InvalidParameterValueException(AdHocQueryParams.SortBy, valueReference);
+        }
+        return key;
+    }
+
+    private static int compareLongs(long x, long y, int sign) {
+        if (x == Long.MIN_VALUE || y == Long.MIN_VALUE) {
+            return missing(x == Long.MIN_VALUE, y == Long.MIN_VALUE);
+        }
+        return sign * Long.compare(x, y);
+    }
+
+    private static int compareDoubles(double x, double y, int sign) {
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return missing(Double.isNaN(x), Double.isNaN(y));
+        }
+        return sign * Double.compare(x, y);
+    }
+
+    private static int compareStrings(String x, String y, int sign) {
+        if (x == null || y == null) {
+            return missing(x == null, y == null);
+        }
+        return sign * Integer.signum(x.compareTo(y));
+    }
+
+    private static int missing(boolean x, boolean y) {
+        if (x && y) {
+            return 0;
+        }
+        return x ? 1 : -1;
+    }
+
+    private static String normalize(String valueReference) {
+        return valueReference.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Select a page of the {@code offset + limit} smallest elements without
+     * sorting all elements. Only {@code offset + limit} elements are held in
+     * memory at the same time.
+     *
+     * @param <T>        the element type
+     * @param elements   the elements
+     * @param comparator the comparator
+     * @param offset     the number of elements to skip
+     * @param limit      the maximum number of elements to return
+     *
+     * @return the sorted page
+     */
+    public static <T> List<T> topK(Iterable<? extends T> elements, Comparator<? super T> comparator,
+                                   int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit have to be positive");
+        }
+        int k = offset + limit;
+        if (limit == 0 || k < 0) {
+            return Collections.emptyList();
+        }
+        Comparator<? super T> reversed = Collections.reverseOrder(comparator);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(k, 1024), reversed);
+        for (T element : elements) {
+            if (heap.size() < k) {
+                heap.add(element);
+            } else if (comparator.compare(element, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(element);
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        if (offset >= result.size()) {
+            return Collections.emptyList();
+        }
+        return result.subList(offset, result.size());
+    }
+
+    /**
+     * Create a compiler for {@link OmObservation}s that supports the
+     * phenomenon, result and valid time, numeric results, the observation
+     * identifier and the constellation identifiers.
+     *
+     * @return the compiler
+     */
+    public static SortComparatorCompiler<OmObservation> forObservations() {
+        SortComparatorCompiler<OmObservation> compiler = forFeatures();
+        ToLongFunction<OmObservation> phenomenonTime = o -> o.getValue() == null
+                                                                    ? Long.MIN_VALUE
+                                                                    : millis(o.getPhenomenonTime());
+        ToLongFunction<OmObservation> resultTime = o -> millis(o.getResultTime());
+        ToLongFunction<OmObservation> validTime = o -> millis(o.getValidTime());
+        ToDoubleFunction<OmObservation> result = SortComparatorCompiler::numericResult;
+        Function<OmObservation, String> procedure = o -> constellation(o, OmObservationConstellation::getProcedure);
+        Function<OmObservation, String> observedProperty
+                = o -> constellation(o, OmObservationConstellation::getObservableProperty);
+        Function<OmObservation, String> featureOfInterest
+                = o -> constellation(o, OmObservationConstellation::getFeatureOfInterest);
+        return compiler
+                .registerLong(SosConstants.PHENOMENON_TIME_VALUE_REFERENCE, phenomenonTime)
+                .registerLong(PREFIX_OM + SosConstants.PHENOMENON_TIME_VALUE_REFERENCE, phenomenonTime)
+                .registerLong(SosConstants.RESULT_TIME_VALUE_REFERENCE, resultTime)
+                .registerLong(PREFIX_OM + SosConstants.RESULT_TIME_VALUE_REFERENCE, resultTime)
+                .registerLong(SosConstants.VALID_TIME_VALUE_REFERENCE, validTime)
+                .registerLong(PREFIX_OM + SosConstants.VALID_TIME_VALUE_REFERENCE, validTime)
+                .registerDouble("result", result)
+                .registerDouble(PREFIX_OM + "result", result)
+                .registerString("procedure", procedure)
+                .registerString(PREFIX_OM + "procedure", procedure)
+                .registerString("observedProperty", observedProperty)
+                .registerString(PREFIX_OM + "observedProperty", observedProperty)
+                .registerString("featureOfInterest", featureOfInterest)
+                .registerString(PREFIX_OM + "featureOfInterest", featureOfInterest)
+                .registerString("observationId", OmObservation::getObservationID);
+    }
+
+    /**
+     * Create a compiler for {@link AbstractFeature}s that supports the
+     * identifier, the first name and the description.
+     *
+     * @param <F> the feature type
+     *
+     * @return the compiler
+     */
+    public static <F extends AbstractFeature> SortComparatorCompiler<F> forFeatures() {
+        Function<F, String> identifier = AbstractFeature::getIdentifier;
+        Function<F, String> name = f -> {
+            CodeType first = f.getFirstName();
+            return first == null ? null : first.getValue();
+        };
+        Function<F, String> description = AbstractFeature::getDescription;
+        return new SortComparatorCompiler<F>()
+                .registerString("identifier", identifier)
+                .registerString(PREFIX_GML + "identifier", identifier)
+                .registerString("name", name)
+                .registerString(PREFIX_GML + "name", name)
+                .registerString("description", description)
+                .registerString(GmlConstants.VALUE_REF_GML_DESCRIPTION, description);
+    }
+
+    private static long millis(Time time) {
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            return instant.getValue() == null ? Long.MIN_VALUE : instant.getValue().getMillis();
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            return period.getStart() == null ? Long.MIN_VALUE : period.getStart().getMillis();
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static double numericResult(OmObservation observation) {
+        if (observation.getValue() instanceof SingleObservationValue) {
+            SingleObservationValue<?> value = (SingleObservationValue<?>) observation.getValue();
+            if (value.getValue() != null && value.getValue().getValue() instanceof Number) {
+                return ((Number) value.getValue().getValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static String constellation(OmObservation observation,
+                                        Function<OmObservationConstellation, ? extends AbstractFeature> feature) {
+        OmObservationConstellation constellation = observation.getObservationConstellation();
+        if (constellation == null) {
+            return null;
+        }
+        AbstractFeature f = feature.apply(constellation);
+        return f == null ? null : f.getIdentifier();
+    }
+
+    /**
+     * A compiled sort order. Used as a {@link Comparator}, the keys are
+     * extracted on every comparison. {@link #sort(Collection)} and
+     * {@link #topK(Collection, int, int)} extract the keys of every element
+     * only once into primitive columns and sort the positions of the elements
+     * instead.
+     *
+     * @param <T> the type of the sorted objects
+     */
+    public static final class SortComparator<T> implements Comparator<T> {
+        private final List<SortKey<T>> keys;
+        private final int[] signs;
+
+        SortComparator(List<SortKey<T>> keys, List<Integer> signs) {
+            this.keys = keys;
+            this.signs = signs.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        @Override
+        public int compare(T a, T b) {
+            for (int k = 0; k < signs.length; k++) {
+                int result = keys.get(k).compare(a, b, signs[k]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Sort the elements, extracting the keys of every element once.
+         *
+         * @param elements the elements
+         *
+         * @return the sorted elements
+         */
+        public List<T> sort(Collection<? extends T> elements) {
+            List<T> list = new ArrayList<>(elements);
+            List<Integer> positions = positions(list.size());
+            positions.sort(columns(list));
+            return undecorate(list, positions);
+        }
+
+        /**
+         * Select a page of the {@code offset + limit} smallest elements
+         * without sorting all elements, extracting the keys of every element
+         * once.
+         *
+         * @param elements the elements
+         * @param offset   the number of elements to skip
+         * @param limit    the maximum number of elements to return
+         *
+         * @return the sorted page
+         */
+        public List<T> topK(Collection<? extends T> elements, int offset, int limit) {
+            List<T> list = new ArrayList<>(elements);
+            List<Integer> positions = SortComparatorCompiler.topK(positions(list.size()), columns(list), offset, limit);
+            return undecorate(list, positions);
+        }
+
+        private Comparator<Integer> columns(List<T> elements) {
+            Column[] columns = new Column[signs.length];
+            for (int k = 0; k < columns.length; k++) {
+                columns[k] = keys.get(k).extract(elements);
+            }
+            return (i, j) -> {
+                for (int k = 0; k < columns.length; k++) {
+                    int result = columns[k].compare(i, j, signs[k]);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            };
+        }
+
+        private static List<Integer> positions(int size) {
+            List<Integer> positions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                positions.add(i);
+            }
+            return positions;
+        }
+
+        private static <T> List<T> undecorate(List<T> elements, List<Integer> positions) {
+            List<T> sorted = new ArrayList<>(positions.size());
+            for (Integer position : positions) {
+                sorted.add(elements.get(position));
+            }
+            return sorted;
+        }
+    }
+
+    private interface SortKey<T> {
+        /**
+         * Compare the keys of both objects. Missing keys are always sorted
+         * last, independent of {@code sign}.
+         */
+        int compare(T a, T b, int sign);
+
+        /**
+         * Extract the keys of all elements into a column.
+         */
+        Column extract(List<? extends T> elements);
+    }
+
+    @FunctionalInterface
+    private interface Column {
+        /**
+         * Compare the keys at both positions. Missing keys are always sorted
+         * last, independent of {@code sign}.
+         */
+        int compare(int i, int j, int sign);
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.SimpleBooleanValue;
+import org.n52.shetland.ogc.om.values.SimpleCategoryValue;
+import org.n52.shetland.ogc.om.values.SimpleCountValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.SimpleTextValue;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.Sos2Constants;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweAbstractUomType;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweCategory;
+import org.n52.shetland.ogc.swe.simpleType.SweCount;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.ogc.swe.simpleType.SweTimeRange;
+import org.n52.shetland.util.DateTimeHelper;
+import org.n52.shetland.util.DateTimeParseException;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+/**
+ * Lazily splits an observation with a {@link SweDataArrayValue} into single
+ * observations, one for each block and value field (e.g. for the
+ * {@code SplitDataArrayIntoObservations} extension of
+ * {@code InsertObservation}).
+ * <p>
+ * The fields of the data array are resolved once on construction. The blocks
+ * are walked only once while iterating and every created observation shares
+ * the procedure, offerings, parameters and separators of the split
+ * observation, so the observations can be passed on in batches with constant
+ * memory. Value fields have to be of type {@link SweQuantity},
+ * {@link SweCount}, {@link SweBoolean}, {@link SweCategory} or {@link SweText};
+ * their definition is used as the observable property. An optional text field
+ * with the definition {@link OmConstants#PHEN_FEATURE_OF_INTEREST} (or the
+ * name {@code featureOfInterest}) overrides the feature of interest. Empty
+ * tokens and tokens equal to the no data value are skipped.
+ *
+ * @since 1.0.0
+ */
+public class ObservationSplitter implements Iterable<OmObservation> {
+
+    private static final String START_TIME = "StartTime";
+    private static final String END_TIME = "EndTime";
+
+    private final OmObservation template;
+    private final List<List<String>> blocks;
+    private final List<Column> columns = new ArrayList<>();
+    private int phenomenonTimeIndex = -1;
+    private int startTimeIndex = -1;
+    private int endTimeIndex = -1;
+    private int resultTimeIndex = -1;
+    private int featureIndex = -1;
+
+    /**
+     * Creates a new splitter for the observation.
+     *
+     * @param observation the observation holding a {@link SweDataArrayValue}
+     *
+     * @throws OwsExceptionReport if the observation can not be split
+     */
+    public ObservationSplitter(OmObservation observation) throws OwsExceptionReport {
+        this.template = Objects.requireNonNull(observation);
+        SweDataArray array = getDataArray(observation);
+        this.blocks = array.isSetValues() ? array.getValues() : new ArrayList<>(0);
+        resolveFields((SweDataRecord) array.getElementType());
+    }
+
+    @Override
+    public Iterator<OmObservation> iterator() {
+        return new ObservationIterator();
+    }
+
+    /**
+     * Splits the observation into batches of observations.
+     *
+     * @param size the maximum batch size
+     *
+     * @return the batches
+     */
+    public Iterator<List<OmObservation>> batches(int size) {
+        return Iterators.partition(iterator(), size);
+    }
+
+    /**
+     * Passes the observations in batches to the consumer.
+     *
+     * @param size     the maximum batch size
+     * @param consumer the consumer
+     *
+     * @throws OwsExceptionReport if a block contains an invalid token or the
+     *                            consumer fails
+     */
+    public void forEachBatch(int size, BatchConsumer consumer) throws OwsExceptionReport {
+        Iterator<List<OmObservation>> batches = batches(size);
+        while (true) {
+            List<OmObservation> batch;
+            try {
+                if (!batches.hasNext()) {
+                    return;
+                }
+                batch = batches.next();
+            } catch (IllegalArgumentException e) {
+                throw new InvalidParameterValueException(Sos2Constants.InsertObservationParams.observation,
+                                                         e.getMessage()).causedBy(e);
+            }
+            consumer.accept(batch);
+        }
+    }
+
+    private static SweDataArray getDataArray(OmObservation observation) throws OwsExceptionReport {
+        if (observation.getValue() != null && observation.getValue().getValue() instanceof SweDataArrayValue) {
+            SweDataArray array = ((SweDataArrayValue) observation.getValue().getValue()).getValue();
+            if (array != null && array.getElementType() instanceof SweDataRecord) {
+                return array;
+            }
+        }
+        throw new InvalidParameterValueException().at(Sos2Constants.InsertObservationParams.observation)
+                .withMessage("The observation value is not a swe:DataArray of swe:DataRecords");
+    }
+
+    private void resolveFields(SweDataRecord record) throws OwsExceptionReport {
+        List<SweField> fields = record.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            SweField field = fields.get(i);
+            SweAbstractDataComponent element = field.getElement();
+            String name = field.isSetName() ? field.getName().getValue() : null;
+            String definition = element.getDefinition();
+            if (element instanceof SweTimeRange) {
+                this.phenomenonTimeIndex = i;
+            } else if (element instanceof SweTime) {
+                if (OmConstants.RESULT_TIME.equals(definition) || OmConstants.EN_RESULT_TIME.equals(name)) {
+                    this.resultTimeIndex = i;
+                } else if (START_TIME.equals(name)) {
+                    this.startTimeIndex = i;
+                } else if (END_TIME.equals(name)) {
+                    this.endTimeIndex = i;
+                } else if (this.phenomenonTimeIndex < 0 || OmConstants.PHENOMENON_TIME.equals(definition)) {
+                    this.phenomenonTimeIndex = i;
+                }
+            } else if (OmConstants.PHEN_FEATURE_OF_INTEREST.equals(definition) ||
+                       OmConstants.EN_FEATURE_OF_INTEREST.equals(name)) {
+                this.featureIndex = i;
+            } else {
+                ValueType type = ValueType.of(element);
+                if (type != null) {
+                    String property = Strings.isNullOrEmpty(definition) ? name : definition;
+                    UoM unit = element instanceof SweAbstractUomType
+                                       ? ((SweAbstractUomType<?>) element).getUomObject() : null;
+                    this.columns.add(new Column(i, type, property, unit));
+                }
+            }
+        }
+        if (this.phenomenonTimeIndex < 0 && (this.startTimeIndex < 0 || this.endTimeIndex < 0)) {
+            throw new InvalidParameterValueException().at(Sos2Constants.InsertObservationParams.observation)
+                    .withMessage("The swe:DataRecord does not contain a phenomenon time field");
+        }
+        if (this.columns.isEmpty()) {
+            throw new InvalidParameterValueException().at(Sos2Constants.InsertObservationParams.observation)
+                    .withMessage("The swe:DataRecord does not contain a supported value field");
+        }
+    }
+
+    private Time parseTime(List<String> block, int index) {
+        String token = block.get(index);
+        try {
+            return DateTimeHelper.parseIsoString2DateTime2Time(token);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("Invalid time '%s'", token), e);
+        }
+    }
+
+    private Time getPhenomenonTime(List<String> block) {
+        if (this.phenomenonTimeIndex >= 0) {
+            return parseTime(block, this.phenomenonTimeIndex);
+        }
+        return new TimePeriod(parseTime(block, this.startTimeIndex), parseTime(block, this.endTimeIndex));
+    }
+
+    private TimeInstant getResultTime(List<String> block, Time phenomenonTime) {
+        if (this.resultTimeIndex >= 0) {
+            Time time = parseTime(block, this.resultTimeIndex);
+            if (time instanceof TimeInstant) {
+                return (TimeInstant) time;
+            }
+        } else if (this.template.isSetResultTime() && !this.template.isTemplateResultTime()) {
+            return this.template.getResultTime();
+        }
+        if (phenomenonTime instanceof TimeInstant) {
+            return (TimeInstant) phenomenonTime;
+        }
+        return new TimeInstant(((TimePeriod) phenomenonTime).getEnd());
+    }
+
+    private boolean isNoData(String token) {
+        return Strings.isNullOrEmpty(token) || token.equals(this.template.getNoDataValue());
+    }
+
+    /**
+     * Consumer of observation batches.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+        /**
+         * Accept the batch.
+         *
+         * @param observations the observations
+         *
+         * @throws OwsExceptionReport if the observations could not be processed
+         */
+        void accept(List<OmObservation> observations) throws OwsExceptionReport;
+    }
+
+    /**
+     * The supported value types.
+     */
+    private enum ValueType {
+        QUANTITY(OmConstants.OBS_TYPE_MEASUREMENT) {
+            @Override
+            Value<?> parse(String token, UoM unit) {
+                return new SimpleQuantityValue(Double.valueOf(token), unit);
+            }
+        },
+        COUNT(OmConstants.OBS_TYPE_COUNT_OBSERVATION) {
+            @Override
+            Value<?> parse(String token, UoM unit) {
+                return new SimpleCountValue(Integer.valueOf(token));
+            }
+        },
+        BOOLEAN(OmConstants.OBS_TYPE_TRUTH_OBSERVATION) {
+            @Override
+            Value<?> parse(String token, UoM unit) {
+                if ("true".equalsIgnoreCase(token) || "1".equals(token)) {
+                    return new SimpleBooleanValue(true);
+                } else if ("false".equalsIgnoreCase(token) || "0".equals(token)) {
+                    return new SimpleBooleanValue(false);
+                }
+                throw new IllegalArgumentException(String.format("Invalid boolean '%s'", token));
+            }
+        },
+        CATEGORY(OmConstants.OBS_TYPE_CATEGORY_OBSERVATION) {
+            @Override
+            Value<?> parse(String token, UoM unit) {
+                return new SimpleCategoryValue(token, unit);
+            }
+        },
+        TEXT(OmConstants.OBS_TYPE_TEXT_OBSERVATION) {
+            @Override
+            Value<?> parse(String token, UoM unit) {
+                return new SimpleTextValue(token);
+            }
+        };
+
+        private final String observationType;
+
+        ValueType(String observationType) {
+            this.observationType = observationType;
+        }
+
+        abstract Value<?> parse(String token, UoM unit);
+
+        static ValueType of(SweAbstractDataComponent element) {
+            if (element instanceof SweQuantity) {
+                return QUANTITY;
+            } else if (element instanceof SweCount) {
+                return COUNT;
+            } else if (element instanceof SweBoolean) {
+                return BOOLEAN;
+            } else if (element instanceof SweCategory) {
+                return CATEGORY;
+            } else if (element instanceof SweText) {
+                return TEXT;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A resolved value field.
+     */
+    private static final class Column {
+        private final int index;
+        private final ValueType type;
+        private final OmObservableProperty observableProperty;
+        private final UoM unit;
+
+        Column(int index, ValueType type, String observableProperty, UoM unit) {
+            this.index = index;
+            this.type = type;
+            this.observableProperty = new OmObservableProperty(observableProperty);
+            this.unit = unit;
+        }
+    }
+
+    /**
+     * Iterates the blocks and the value columns of each block.
+     */
+    private class ObservationIterator extends AbstractIterator<OmObservation> {
+        private final Iterator<List<String>> blockIterator = blocks.iterator();
+        private final OmObservationConstellation[] constellations
+                = new OmObservationConstellation[columns.size()];
+        private String feature;
+        private List<String> block;
+        private Time phenomenonTime;
+        private TimeInstant resultTime;
+        private int column = columns.size();
+
+        ObservationIterator() {
+            createConstellations(template.getObservationConstellation().getFeatureOfInterest());
+        }
+
+        @Override
+        protected OmObservation computeNext() {
+            while (true) {
+                while (this.column < columns.size()) {
+                    Column current = columns.get(this.column);
+                    OmObservationConstellation constellation = this.constellations[this.column++];
+                    String token = this.block.get(current.index);
+                    if (!isNoData(token)) {
+                        return createObservation(constellation, current, token);
+                    }
+                }
+                if (!this.blockIterator.hasNext()) {
+                    return endOfData();
+                }
+                nextBlock(this.blockIterator.next());
+            }
+        }
+
+        private void nextBlock(List<String> next) {
+            this.block = next;
+            this.column = 0;
+            this.phenomenonTime = getPhenomenonTime(next);
+            this.resultTime = getResultTime(next, this.phenomenonTime);
+            if (featureIndex >= 0) {
+                String identifier = next.get(featureIndex);
+                if (!isNoData(identifier) && !identifier.equals(this.feature)) {
+                    this.feature = identifier;
+                    createConstellations(new SamplingFeature(new CodeWithAuthority(identifier)));
+                }
+            }
+        }
+
+        private void createConstellations(AbstractFeature featureOfInterest) {
+            for (int i = 0; i < this.constellations.length; i++) {
+                Column current = columns.get(i);
+                this.constellations[i] = template.getObservationConstellation().copy()
+                        .setObservableProperty(current.observableProperty)
+                        .setFeatureOfInterest(featureOfInterest)
+                        .setObservationType(current.type.observationType);
+            }
+        }
+
+        private OmObservation createObservation(OmObservationConstellation constellation, Column current,
+                                                String token) {
+            Value<?> value;
+            try {
+                value = current.type.parse(token, current.unit);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Invalid value '%s'", token), e);
+            }
+            OmObservation observation = template.cloneTemplate();
+            observation.setObservationConstellation(constellation);
+            observation.setNoDataValue(template.getNoDataValue());
+            observation.setResultTime(this.resultTime);
+            observation.setValidTime(template.getValidTime());
+            observation.setValue(new SingleObservationValue<>(this.phenomenonTime, value));
+            return observation;
+        }
+    }
+}
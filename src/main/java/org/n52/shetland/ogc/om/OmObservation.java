@@ -16,11 +16,13 @@
  */
 package org.n52.shetland.ogc.om;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import org.n52.janmayen.Copyable;
 import org.n52.shetland.ogc.gml.AbstractFeature;
 import org.n52.shetland.ogc.gml.CodeWithAuthority;
 import org.n52.shetland.ogc.gml.time.IndeterminateValue;
@@ -44,7 +46,7 @@ import com.vividsolutions.jts.geom.Geometry;
  *
  * @since 4.0.0
  */
-public class OmObservation extends AbstractFeature {
+public class OmObservation extends AbstractFeature implements Copyable<OmObservation> {
 
     /**
      * ID of this observation; in the standard 52n SOS PostgreSQL database, this
@@ -668,6 +670,78 @@ public class OmObservation extends AbstractFeature {
         return clone;
     }
 
+    /**
+     * Creates a copy of this observation that can be modified without
+     * affecting this observation. The feature, phenomenon and value objects
+     * are shared, while the collections holding them, the observation
+     * constellation and the containers of single and time value pair results
+     * are copied.
+     *
+     * @return the copy
+     */
+    @Override
+    public OmObservation copy() {
+        OmObservation copy = new OmObservation();
+        copy.setIdentifier(getIdentifierCodeWithAuthority());
+        copy.setHumanReadableIdentifier(getHumanReadableIdentifierCodeWithAuthority());
+        if (getName() != null) {
+            copy.setName(new ArrayList<>(getName()));
+        }
+        copy.setDescription(getDescription());
+        copy.setGmlId(super.getGmlId());
+        copy.setDefaultElementEncoding(getDefaultElementEncoding());
+        copy.setObservationID(getObservationID());
+        copy.setResultTime(getResultTime());
+        copy.setValidTime(getValidTime());
+        if (getObservationConstellation() != null) {
+            copy.setObservationConstellation(getObservationConstellation().copy());
+        }
+        copy.setResultType(getResultType());
+        if (getParameter() != null) {
+            copy.setParameter(new ArrayList<>(getParameter()));
+        }
+        copy.setValue(copyValue(getValue()));
+        copy.setTokenSeparator(getTokenSeparator());
+        copy.setNoDataValue(getNoDataValue());
+        copy.setTupleSeparator(getTupleSeparator());
+        copy.setDecimalSeparator(getDecimalSeparator());
+        if (getResultQuality() != null) {
+            copy.setResultQuality(Sets.newHashSet(getResultQuality()));
+        }
+        copy.setAdditionalMergeIndicator(getAdditionalMergeIndicator());
+        return copy;
+    }
+
+    private static ObservationValue<?> copyValue(ObservationValue<?> value) {
+        if (value instanceof SingleObservationValue) {
+            return copySingleValue((SingleObservationValue<?>) value);
+        } else if (value instanceof MultiObservationValues &&
+                   ((MultiObservationValues<?>) value).getValue() instanceof TVPValue) {
+            MultiObservationValues<?> multiValue = (MultiObservationValues<?>) value;
+            TVPValue tvpValue = (TVPValue) multiValue.getValue();
+            TVPValue tvpCopy = new TVPValue();
+            tvpCopy.setUnit(tvpValue.getUnitObject());
+            tvpCopy.addValues(tvpValue.getValue());
+            MultiObservationValues<List<TimeValuePair>> copy = new MultiObservationValues<>();
+            copy.setPhenomenonTime(multiValue.getPhenomenonTime());
+            copy.setUnit(multiValue.getUnit());
+            copy.setDecimalSeparator(multiValue.getDecimalSeparator());
+            copy.setValue(tvpCopy);
+            return copy;
+        }
+        return value;
+    }
+
+    private static <T> SingleObservationValue<T> copySingleValue(SingleObservationValue<T> value) {
+        SingleObservationValue<T> copy = new SingleObservationValue<>(value.getPhenomenonTime(), value.getValue());
+        if (value.getQualityList() != null) {
+            copy.addQualityList(value.getQualityList());
+        }
+        copy.setUnit(value.getUnit());
+        copy.setDecimalSeparator(value.getDecimalSeparator());
+        return copy;
+    }
+
     @Override
     public String getGmlId() {
         if (Strings.isNullOrEmpty(super.getGmlId()) && isSetObservationID()) {
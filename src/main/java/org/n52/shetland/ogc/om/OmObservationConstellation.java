@@ -296,7 +296,9 @@ public class OmObservationConstellation implements Copyable<OmObservationConstel
         copy.setFeatureOfInterest(getFeatureOfInterest());
         copy.setObservableProperty(getObservableProperty());
         copy.setObservationType(getObservationType());
-        copy.setOfferings(new HashSet<>(getOfferings()));
+        if (getOfferings() != null) {
+            copy.setOfferings(new HashSet<>(getOfferings()));
+        }
         copy.setProcedure(getProcedure());
         return copy;
     }
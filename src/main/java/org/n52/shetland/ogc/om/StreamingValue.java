@@ -27,6 +27,7 @@ import org.n52.shetland.ogc.gml.time.TimeInstant;
 import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.OWSConstants.AdditionalRequestParams;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.StreamingMetrics;
 //import org.n52.sos.util.GeometryHandler;
 
 import com.vividsolutions.jts.geom.Geometry;
@@ -80,6 +81,25 @@ public abstract class StreamingValue<S> extends AbstractStreaming {
      */
     public abstract TimeValuePair nextValue() throws OwsExceptionReport;
 
+    /**
+     * Hook for implementations of {@link #nextValue()} that adds the value to
+     * the response size budget and records it as a streamed value in the
+     * {@link StreamingMetrics}. Values that are only used to create the
+     * observations of {@link #nextSingleObservation()} should not be passed,
+     * as these observations are already added to the budget.
+     *
+     * @param value
+     *            the value to return from {@link #nextValue()}
+     * @return the value
+     * @throws OwsExceptionReport
+     *             If the response size limit is exceeded
+     */
+    protected TimeValuePair emitValue(TimeValuePair value) throws OwsExceptionReport {
+        checkResponseSize(value);
+        getMetrics().valuesStreamed(1);
+        return value;
+    }
+
     protected GeometryTransformer getGeometryTransformer() {
         return geometryTransformer;
     }
@@ -202,6 +222,7 @@ public abstract class StreamingValue<S> extends AbstractStreaming {
                         spatialFilteringProfileParameter.getValue().setValue(
                                 getGeometryTransformer().transform(
                                         spatialFilteringProfileParameter.getValue().getValue(), targetCRS));
+                        getMetrics().crsTransformed();
                     }
                 }
             }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.binary;
+
+/**
+ * Constants of the compact binary observation format written by
+ * {@link BinaryObservationWriter} and read by {@link BinaryObservationReader}.
+ * <p>
+ * A stream starts with the {@link #MAGIC} bytes followed by the
+ * {@link #VERSION}. Integers are written as (zig-zag encoded) variable length
+ * integers, strings are written once and later referenced by their index in a
+ * dictionary that is shared by all records of a stream and time stamps are
+ * written as the difference to the previous time stamp of the stream.
+ * Geometries are written as extended WKB.
+ * <p>
+ * The format covers the simple, temporal, coverage and profile values. It has
+ * no tags for values that carry arbitrary SWE component trees or objects
+ * ({@link org.n52.shetland.ogc.om.values.ComplexValue},
+ * {@link org.n52.shetland.ogc.om.values.SweDataArrayValue} and
+ * {@link org.n52.shetland.ogc.om.values.UnknownValue}) and does not store
+ * result qualities, whose ISO 19115 representations are equally open ended.
+ * Observations containing either are rejected by the writer.
+ *
+ * @since 1.0.0
+ */
+public final class BinaryObservationFormat {
+
+    /**
+     * The magic bytes of a stream.
+     */
+    public static final byte[] MAGIC = { 'N', '5', '2', 'O' };
+
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+
+    static final int END = 0;
+    static final int RECORD_OBSERVATION = 1;
+
+    static final int STRING_NULL = 0;
+    static final int STRING_LITERAL = 1;
+    static final int STRING_REFERENCE_OFFSET = 2;
+
+    static final int TIME_NULL = 0;
+    static final int TIME_INSTANT = 1;
+    static final int TIME_PERIOD = 2;
+
+    static final int FEATURE_NULL = 0;
+    static final int FEATURE_GENERIC = 1;
+    static final int FEATURE_SAMPLING = 2;
+    static final int FEATURE_PROCEDURE = 3;
+
+    static final int PHENOMENON_NULL = 0;
+    static final int PHENOMENON_OBSERVABLE_PROPERTY = 1;
+    static final int PHENOMENON_COMPOSITE = 2;
+
+    static final int OBSERVATION_VALUE_NULL = 0;
+    static final int OBSERVATION_VALUE_SINGLE = 1;
+    static final int OBSERVATION_VALUE_MULTI = 2;
+
+    static final int VALUE_NULL = 0;
+    static final int VALUE_BOOLEAN = 1;
+    static final int VALUE_CATEGORY = 2;
+    static final int VALUE_COUNT = 3;
+    static final int VALUE_GEOMETRY = 4;
+    static final int VALUE_HREF_ATTRIBUTE = 5;
+    static final int VALUE_NIL_TEMPLATE = 6;
+    static final int VALUE_QUANTITY = 7;
+    static final int VALUE_REFERENCE = 8;
+    static final int VALUE_TVP = 9;
+    static final int VALUE_TLVT = 10;
+    static final int VALUE_TEXT = 11;
+    static final int VALUE_CV_DISCRETE_POINT_COVERAGE = 12;
+    static final int VALUE_MULTI_POINT_COVERAGE = 13;
+    static final int VALUE_RECTIFIED_GRID_COVERAGE = 14;
+    static final int VALUE_PROFILE = 15;
+
+    private BinaryObservationFormat() {
+    }
+}
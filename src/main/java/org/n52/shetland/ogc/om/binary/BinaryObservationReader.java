@@ -0,0 +1,658 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.AbstractPhenomenon;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.ObservationValue;
+import org.n52.shetland.ogc.om.OmCompositePhenomenon;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.BooleanValue;
+import org.n52.shetland.ogc.om.values.CategoryValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.CvDiscretePointCoverage;
+import org.n52.shetland.ogc.om.values.GeometryValue;
+import org.n52.shetland.ogc.om.values.HrefAttributeValue;
+import org.n52.shetland.ogc.om.values.MultiPointCoverage;
+import org.n52.shetland.ogc.om.values.MultiValue;
+import org.n52.shetland.ogc.om.values.NilTemplateValue;
+import org.n52.shetland.ogc.om.values.ProfileLevel;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.ReferenceValue;
+import org.n52.shetland.ogc.om.values.TLVTValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.w3c.xlink.W3CHrefAttribute;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+
+/**
+ * Reads observations, values, times and geometries written by a
+ * {@link BinaryObservationWriter}.
+ *
+ * @since 1.0.0
+ */
+public class BinaryObservationReader implements Closeable {
+
+    private static final int TIME_GML_ID = 1;
+    private static final int TIME_FORMAT = 1 << 1;
+    private static final int TIME_REFERENCE = 1 << 2;
+    private static final int TIME_NIL_REASON = 1 << 3;
+    private static final int TIME_VALUE = 1 << 4;
+    private static final int TIME_INDETERMINATE = 1 << 5;
+    private static final int TIME_REQUESTED_LENGTH = 1 << 6;
+    private static final int TIME_END = 1 << 7;
+    private static final int TIME_END_INDETERMINATE = 1 << 8;
+    private static final int TIME_DURATION = 1 << 9;
+    private static final int TIME_INTERVAL = 1 << 10;
+    private static final IndeterminateValue[] INDETERMINATE_VALUES = {
+        IndeterminateValue.AFTER, IndeterminateValue.BEFORE, IndeterminateValue.NOW,
+        IndeterminateValue.UNKNOWN, IndeterminateValue.TEMPLATE
+    };
+
+    private final DataInputStream in;
+    private final List<String> dictionary = new ArrayList<>();
+    private final WKBReader wkbReader = new WKBReader(new GeometryFactory());
+    private long previousTime;
+    private boolean ended;
+
+    /**
+     * Creates a new reader and checks the header of the format.
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException if the stream is not in a supported version of the
+     *                     format
+     */
+    public BinaryObservationReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[BinaryObservationFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, BinaryObservationFormat.MAGIC)) {
+            throw new IOException("Not a binary observation stream");
+        }
+        int version = (int) readVarint();
+        if (version != BinaryObservationFormat.VERSION) {
+            throw new IOException("Unsupported binary observation format version " + version);
+        }
+    }
+
+    /**
+     * Decodes the observations.
+     *
+     * @param bytes the encoded observations
+     *
+     * @return the observations
+     *
+     * @throws IOException if the observations can not be decoded
+     */
+    public static List<OmObservation> decode(byte[] bytes) throws IOException {
+        List<OmObservation> observations = new ArrayList<>();
+        try (BinaryObservationReader reader = new BinaryObservationReader(new ByteArrayInputStream(bytes))) {
+            OmObservation observation;
+            while ((observation = reader.read()) != null) {
+                observations.add(observation);
+            }
+        }
+        return observations;
+    }
+
+    /**
+     * Reads the next observation record.
+     *
+     * @return the observation or {@code null} if the end of the stream is
+     *         reached
+     *
+     * @throws IOException if the observation can not be read
+     */
+    public OmObservation read() throws IOException {
+        if (this.ended) {
+            return null;
+        }
+        int record;
+        try {
+            record = (int) readVarint();
+        } catch (EOFException e) {
+            record = BinaryObservationFormat.END;
+        }
+        if (record == BinaryObservationFormat.END) {
+            this.ended = true;
+            return null;
+        } else if (record != BinaryObservationFormat.RECORD_OBSERVATION) {
+            throw new IOException("Unknown record type " + record);
+        }
+        OmObservation observation = new OmObservation();
+        observation.setIdentifier(readCodeWithAuthority());
+        readFeatureProperties(observation);
+        observation.setObservationID(readString());
+        observation.setObservationConstellation(readObservationConstellation());
+        observation.setResultTime((TimeInstant) readTime());
+        observation.setValidTime((TimePeriod) readTime());
+        observation.setResultType(readString());
+        observation.setTokenSeparator(readString());
+        observation.setTupleSeparator(readString());
+        observation.setDecimalSeparator(readString());
+        observation.setNoDataValue(readString());
+        observation.setAdditionalMergeIndicator(readString());
+        int parameters = readSize();
+        for (int i = 0; i < parameters; i++) {
+            observation.addParameter(createNamedValue(readReference(), readValue()));
+        }
+        observation.setValue(readObservationValue());
+        return observation;
+    }
+
+    /**
+     * Reads an observation constellation.
+     *
+     * @return the constellation, may be {@code null}
+     *
+     * @throws IOException if the constellation can not be read
+     */
+    public OmObservationConstellation readObservationConstellation() throws IOException {
+        if (!readPresence()) {
+            return null;
+        }
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(readFeature(true));
+        constellation.setObservableProperty(readPhenomenon());
+        constellation.setFeatureOfInterest(readFeature(false));
+        int offerings = readSize();
+        Set<String> set = new LinkedHashSet<>(offerings);
+        for (int i = 0; i < offerings; i++) {
+            set.add(readString());
+        }
+        constellation.setOfferings(set);
+        constellation.setObservationType(readString());
+        return constellation;
+    }
+
+    /**
+     * Reads a value.
+     *
+     * @return the value, may be {@code null}
+     *
+     * @throws IOException if the value can not be read
+     */
+    public Value<?> readValue() throws IOException {
+        int type = (int) readVarint();
+        if (type == BinaryObservationFormat.VALUE_NULL) {
+            return null;
+        }
+        UoM unit = readUnit();
+        Value<?> value = readValueContent(type);
+        if (unit != null) {
+            value.setUnit(unit);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a time.
+     *
+     * @return the time, may be {@code null}
+     *
+     * @throws IOException if the time can not be read
+     */
+    public Time readTime() throws IOException {
+        int type = (int) readVarint();
+        if (type == BinaryObservationFormat.TIME_NULL) {
+            return null;
+        }
+        int flags = (int) readVarint();
+        Time time;
+        if (type == BinaryObservationFormat.TIME_INSTANT) {
+            TimeInstant instant = new TimeInstant();
+            readTimeProperties(instant, flags);
+            if ((flags & TIME_VALUE) != 0) {
+                instant.setValue(readDateTime());
+            }
+            if ((flags & TIME_INDETERMINATE) != 0) {
+                instant.setIndeterminateValue(readIndeterminateValue());
+            }
+            if ((flags & TIME_REQUESTED_LENGTH) != 0) {
+                instant.setRequestedTimeLength((int) readSignedVarint());
+            }
+            time = instant;
+        } else if (type == BinaryObservationFormat.TIME_PERIOD) {
+            TimePeriod period = new TimePeriod();
+            readTimeProperties(period, flags);
+            if ((flags & TIME_VALUE) != 0) {
+                period.setStart(readDateTime());
+            }
+            if ((flags & TIME_INDETERMINATE) != 0) {
+                period.setStartIndet(readIndeterminateValue());
+            }
+            if ((flags & TIME_END) != 0) {
+                period.setEnd(readDateTime());
+            }
+            if ((flags & TIME_END_INDETERMINATE) != 0) {
+                period.setEndIndet(readIndeterminateValue());
+            }
+            if ((flags & TIME_DURATION) != 0) {
+                period.setDuration(Period.parse(readString()));
+            }
+            if ((flags & TIME_INTERVAL) != 0) {
+                period.setInterval(readString());
+            }
+            time = period;
+        } else {
+            throw new IOException("Unknown time type " + type);
+        }
+        return time;
+    }
+
+    /**
+     * Reads a geometry.
+     *
+     * @return the geometry, may be {@code null}
+     *
+     * @throws IOException if the geometry can not be read
+     */
+    public Geometry readGeometry() throws IOException {
+        int length = readSize();
+        if (length == 0) {
+            return null;
+        }
+        byte[] wkb = new byte[length - 1];
+        this.in.readFully(wkb);
+        try {
+            return this.wkbReader.read(wkb);
+        } catch (ParseException e) {
+            throw new IOException("Invalid WKB geometry", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    private void readTimeProperties(Time time, int flags) throws IOException {
+        if ((flags & TIME_GML_ID) != 0) {
+            time.setGmlId(readString());
+        }
+        if ((flags & TIME_FORMAT) != 0) {
+            time.setTimeFormat(Time.TimeFormat.valueOf(readString()));
+        }
+        if ((flags & TIME_REFERENCE) != 0) {
+            time.setReference(readString());
+        }
+        if ((flags & TIME_NIL_REASON) != 0) {
+            time.setNilReason(Time.NilReason.valueOf(readString()));
+        }
+    }
+
+    private DateTime readDateTime() throws IOException {
+        long millis = this.previousTime + readSignedVarint();
+        this.previousTime = millis;
+        return new DateTime(millis, DateTimeZone.forID(readString()));
+    }
+
+    private IndeterminateValue readIndeterminateValue() throws IOException {
+        String value = readString();
+        int size = readSize();
+        List<String> alias = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String a = readString();
+            if (!a.equals(value)) {
+                alias.add(a);
+            }
+        }
+        if (alias.isEmpty()) {
+            for (IndeterminateValue known : INDETERMINATE_VALUES) {
+                if (known.getValue().equals(value) && known.getAlias().size() == 1) {
+                    return known;
+                }
+            }
+        }
+        return new IndeterminateValue(value, alias.toArray(new String[alias.size()]));
+    }
+
+    private ObservationValue<?> readObservationValue() throws IOException {
+        int type = (int) readVarint();
+        switch (type) {
+            case BinaryObservationFormat.OBSERVATION_VALUE_NULL:
+                return null;
+            case BinaryObservationFormat.OBSERVATION_VALUE_SINGLE: {
+                Time phenomenonTime = readTime();
+                return createSingleObservationValue(phenomenonTime, readValue());
+            }
+            case BinaryObservationFormat.OBSERVATION_VALUE_MULTI: {
+                Time phenomenonTime = readTime();
+                MultiObservationValues<?> value = createMultiObservationValues(readValue());
+                value.setPhenomenonTime(phenomenonTime);
+                return value;
+            }
+            default:
+                throw new IOException("Unknown observation value type " + type);
+        }
+    }
+
+    private AbstractFeature readFeature(boolean procedure) throws IOException {
+        int type = (int) readVarint();
+        if (type == BinaryObservationFormat.FEATURE_NULL) {
+            return null;
+        }
+        CodeWithAuthority identifier = readCodeWithAuthority();
+        if (type == BinaryObservationFormat.FEATURE_PROCEDURE ||
+            type == BinaryObservationFormat.FEATURE_GENERIC && procedure) {
+            SosProcedureDescriptionUnknownType feature = new SosProcedureDescriptionUnknownType(
+                    identifier == null ? null : identifier.getValue());
+            feature.setIdentifier(identifier);
+            readFeatureProperties(feature);
+            if (type == BinaryObservationFormat.FEATURE_PROCEDURE) {
+                feature.setDescriptionFormat(readString());
+            }
+            return feature;
+        } else if (type == BinaryObservationFormat.FEATURE_SAMPLING ||
+                   type == BinaryObservationFormat.FEATURE_GENERIC) {
+            SamplingFeature feature = new SamplingFeature(identifier);
+            readFeatureProperties(feature);
+            if (type == BinaryObservationFormat.FEATURE_SAMPLING) {
+                feature.setFeatureType(readString());
+                feature.setGeometry(readGeometry());
+            }
+            return feature;
+        }
+        throw new IOException("Unknown feature type " + type);
+    }
+
+    private void readFeatureProperties(AbstractFeature feature) throws IOException {
+        int names = readSize();
+        for (int i = 0; i < names; i++) {
+            String name = readString();
+            String codeSpace = readString();
+            feature.addName(new CodeType(name, codeSpace == null ? null : URI.create(codeSpace)));
+        }
+        feature.setDescription(readString());
+        feature.setGmlId(readString());
+    }
+
+    private AbstractPhenomenon readPhenomenon() throws IOException {
+        int type = (int) readVarint();
+        switch (type) {
+            case BinaryObservationFormat.PHENOMENON_NULL:
+                return null;
+            case BinaryObservationFormat.PHENOMENON_OBSERVABLE_PROPERTY:
+                return readObservableProperty();
+            case BinaryObservationFormat.PHENOMENON_COMPOSITE: {
+                OmCompositePhenomenon composite = new OmCompositePhenomenon(readString(), readString());
+                int components = readSize();
+                for (int i = 0; i < components; i++) {
+                    composite.addPhenomenonComponent(readObservableProperty());
+                }
+                return composite;
+            }
+            default:
+                throw new IOException("Unknown phenomenon type " + type);
+        }
+    }
+
+    private OmObservableProperty readObservableProperty() throws IOException {
+        return new OmObservableProperty(readString(), readString(), readString(), readString());
+    }
+
+    private CodeWithAuthority readCodeWithAuthority() throws IOException {
+        if (!readPresence()) {
+            return null;
+        }
+        return new CodeWithAuthority(readString(), readString());
+    }
+
+    private ReferenceType readReference() throws IOException {
+        if (!readPresence()) {
+            return null;
+        }
+        ReferenceType reference = new ReferenceType();
+        String href = readString();
+        if (href != null) {
+            reference.setHref(href);
+        }
+        reference.setTitle(readString());
+        reference.setRole(readString());
+        return reference;
+    }
+
+    private UoM readUnit() throws IOException {
+        if (!readPresence()) {
+            return null;
+        }
+        UoM unit = new UoM(readString());
+        unit.setName(readString());
+        unit.setLink(readString());
+        return unit;
+    }
+
+    private PointValuePair readPointValuePair() throws IOException {
+        if (!readPresence()) {
+            return null;
+        }
+        Point point = (Point) readGeometry();
+        return new PointValuePair(point, readValue());
+    }
+
+    private Value<?> readValueContent(int type) throws IOException {
+        switch (type) {
+            case BinaryObservationFormat.VALUE_BOOLEAN: {
+                int b = this.in.readByte();
+                return new BooleanValue(b == 0 ? null : b == 2);
+            }
+            case BinaryObservationFormat.VALUE_CATEGORY:
+                return new CategoryValue(readString());
+            case BinaryObservationFormat.VALUE_COUNT:
+                return new CountValue(readPresence() ? (int) readSignedVarint() : null);
+            case BinaryObservationFormat.VALUE_GEOMETRY:
+                return new GeometryValue(readGeometry());
+            case BinaryObservationFormat.VALUE_HREF_ATTRIBUTE:
+                return new HrefAttributeValue(readPresence() ? new W3CHrefAttribute(readString()) : null);
+            case BinaryObservationFormat.VALUE_NIL_TEMPLATE:
+                return new NilTemplateValue().setValue(readString());
+            case BinaryObservationFormat.VALUE_QUANTITY:
+                return new QuantityValue(readPresence() ? this.in.readDouble() : null);
+            case BinaryObservationFormat.VALUE_REFERENCE:
+                return new ReferenceValue(readReference());
+            case BinaryObservationFormat.VALUE_TVP:
+                return readTVPValue();
+            case BinaryObservationFormat.VALUE_TLVT:
+                return readTLVTValue();
+            case BinaryObservationFormat.VALUE_TEXT:
+                return new TextValue(readString());
+            case BinaryObservationFormat.VALUE_CV_DISCRETE_POINT_COVERAGE: {
+                CvDiscretePointCoverage coverage = new CvDiscretePointCoverage(readString());
+                coverage.setDomainExtent(readString());
+                coverage.setRangeType(readReference());
+                return coverage.setValue(readPointValuePair());
+            }
+            case BinaryObservationFormat.VALUE_MULTI_POINT_COVERAGE: {
+                MultiPointCoverage coverage = new MultiPointCoverage(readString());
+                int size = readSize();
+                for (int i = 0; i < size; i++) {
+                    coverage.addValue(readPointValuePair());
+                }
+                return coverage;
+            }
+            case BinaryObservationFormat.VALUE_RECTIFIED_GRID_COVERAGE: {
+                RectifiedGridCoverage coverage = new RectifiedGridCoverage(readString());
+                int size = readSize();
+                for (int i = 0; i < size; i++) {
+                    double key = this.in.readDouble();
+                    coverage.addValue(key, readValue());
+                }
+                return coverage;
+            }
+            case BinaryObservationFormat.VALUE_PROFILE:
+                return readProfileValue();
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private TVPValue readTVPValue() throws IOException {
+        TVPValue tvp = new TVPValue();
+        int size = readSize();
+        List<TimeValuePair> pairs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Time time = readTime();
+            pairs.add(new TimeValuePair(time, readValue()));
+        }
+        tvp.addValues(pairs);
+        return tvp;
+    }
+
+    private TLVTValue readTLVTValue() throws IOException {
+        TLVTValue tlvt = new TLVTValue();
+        int size = readSize();
+        List<TimeLocationValueTriple> triples = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Time time = readTime();
+            Value<?> value = readValue();
+            triples.add(new TimeLocationValueTriple(time, value, readGeometry()));
+        }
+        tlvt.addValues(triples);
+        return tlvt;
+    }
+
+    private ProfileValue readProfileValue() throws IOException {
+        ProfileValue profile = new ProfileValue(readCodeWithAuthority(), readString());
+        profile.setFromLevel((QuantityValue) readValue());
+        profile.setToLevel((QuantityValue) readValue());
+        int size = readSize();
+        for (int i = 0; i < size; i++) {
+            ProfileLevel level = new ProfileLevel();
+            level.setLevelStart((QuantityValue) readValue());
+            level.setLevelEnd((QuantityValue) readValue());
+            level.setLocation(readGeometry());
+            int values = readSize();
+            for (int j = 0; j < values; j++) {
+                level.addValue(readValue());
+            }
+            profile.addValue(level);
+        }
+        return profile;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static NamedValue<?> createNamedValue(ReferenceType name, Value<?> value) {
+        return new NamedValue(name, value);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static SingleObservationValue<?> createSingleObservationValue(Time time, Value<?> value) {
+        return new SingleObservationValue(time, value);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static MultiObservationValues<?> createMultiObservationValues(Value<?> value) throws IOException {
+        if (value != null && !(value instanceof MultiValue)) {
+            throw new IOException("Multi observation value is not a multi value");
+        }
+        MultiObservationValues values = new MultiObservationValues();
+        values.setValue((MultiValue) value);
+        return values;
+    }
+
+    private boolean readPresence() throws IOException {
+        return this.in.readByte() != 0;
+    }
+
+    private int readSize() throws IOException {
+        long size = readVarint();
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid size " + size);
+        }
+        return (int) size;
+    }
+
+    private String readString() throws IOException {
+        int tag = readSize();
+        if (tag == BinaryObservationFormat.STRING_NULL) {
+            return null;
+        } else if (tag == BinaryObservationFormat.STRING_LITERAL) {
+            byte[] bytes = new byte[readSize()];
+            this.in.readFully(bytes);
+            String string = new String(bytes, StandardCharsets.UTF_8);
+            this.dictionary.add(string);
+            return string;
+        }
+        int index = tag - BinaryObservationFormat.STRING_REFERENCE_OFFSET;
+        if (index >= this.dictionary.size()) {
+            throw new IOException("Invalid string reference " + index);
+        }
+        return this.dictionary.get(index);
+    }
+
+    private long readSignedVarint() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = this.in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,738 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.binary;
+
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.END;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.FEATURE_GENERIC;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.FEATURE_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.FEATURE_PROCEDURE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.FEATURE_SAMPLING;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.MAGIC;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.OBSERVATION_VALUE_MULTI;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.OBSERVATION_VALUE_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.OBSERVATION_VALUE_SINGLE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.PHENOMENON_COMPOSITE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.PHENOMENON_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.PHENOMENON_OBSERVABLE_PROPERTY;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.RECORD_OBSERVATION;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.STRING_LITERAL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.STRING_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.STRING_REFERENCE_OFFSET;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.TIME_INSTANT;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.TIME_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.TIME_PERIOD;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_BOOLEAN;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_CATEGORY;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_COUNT;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_CV_DISCRETE_POINT_COVERAGE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_GEOMETRY;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_HREF_ATTRIBUTE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_MULTI_POINT_COVERAGE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_NIL_TEMPLATE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_NULL;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_PROFILE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_QUANTITY;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_RECTIFIED_GRID_COVERAGE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_REFERENCE;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_TEXT;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_TLVT;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VALUE_TVP;
+import static org.n52.shetland.ogc.om.binary.BinaryObservationFormat.VERSION;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.joda.time.DateTime;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.AbstractPhenomenon;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.ObservationValue;
+import org.n52.shetland.ogc.om.OmCompositePhenomenon;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.BooleanValue;
+import org.n52.shetland.ogc.om.values.CategoryValue;
+import org.n52.shetland.ogc.om.values.ComplexValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.CvDiscretePointCoverage;
+import org.n52.shetland.ogc.om.values.GeometryValue;
+import org.n52.shetland.ogc.om.values.HrefAttributeValue;
+import org.n52.shetland.ogc.om.values.MultiPointCoverage;
+import org.n52.shetland.ogc.om.values.NilTemplateValue;
+import org.n52.shetland.ogc.om.values.ProfileLevel;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.ReferenceValue;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.om.values.TLVTValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.UnknownValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.om.values.visitor.ValueVisitor;
+import org.n52.shetland.ogc.sos.SosProcedureDescription;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Writes observations, values, times and geometries in the compact binary
+ * format described by {@link BinaryObservationFormat}.
+ * <p>
+ * The string dictionary and the time stamp deltas are shared by everything
+ * written to the same writer, so a {@link BinaryObservationReader} has to read
+ * the stream in the same order. The values and observations that can not be
+ * written (see {@link BinaryObservationFormat}) are rejected with an
+ * {@link IOException} instead of being written incompletely.
+ *
+ * @since 1.0.0
+ */
+public class BinaryObservationWriter implements Closeable, Flushable {
+
+    private static final int TIME_GML_ID = 1;
+    private static final int TIME_FORMAT = 1 << 1;
+    private static final int TIME_REFERENCE = 1 << 2;
+    private static final int TIME_NIL_REASON = 1 << 3;
+    private static final int TIME_VALUE = 1 << 4;
+    private static final int TIME_INDETERMINATE = 1 << 5;
+    private static final int TIME_REQUESTED_LENGTH = 1 << 6;
+    private static final int TIME_END = 1 << 7;
+    private static final int TIME_END_INDETERMINATE = 1 << 8;
+    private static final int TIME_DURATION = 1 << 9;
+    private static final int TIME_INTERVAL = 1 << 10;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final ValueWriter valueWriter = new ValueWriter();
+    private final WKBWriter wkbWriter2D = new WKBWriter(2, true);
+    private final WKBWriter wkbWriter3D = new WKBWriter(3, true);
+    private long previousTime;
+
+    /**
+     * Creates a new writer and writes the header of the format.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the header could not be written
+     */
+    public BinaryObservationWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.write(MAGIC);
+        writeVarint(VERSION);
+    }
+
+    /**
+     * Encodes the observations.
+     *
+     * @param observations the observations
+     *
+     * @return the encoded observations
+     *
+     * @throws IOException if an observation can not be encoded
+     */
+    public static byte[] encode(Collection<OmObservation> observations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryObservationWriter writer = new BinaryObservationWriter(bytes)) {
+            for (OmObservation observation : observations) {
+                writer.write(observation);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes an observation record.
+     *
+     * @param observation the observation
+     *
+     * @throws IOException if the observation can not be written
+     */
+    public void write(OmObservation observation) throws IOException {
+        checkResultQuality(observation);
+        writeVarint(RECORD_OBSERVATION);
+        writeFeatureProperties(observation);
+        writeString(observation.getObservationID());
+        writeObservationConstellation(observation.getObservationConstellation());
+        writeTime(observation.getResultTime());
+        writeTime(observation.getValidTime());
+        writeString(observation.getResultType());
+        writeString(observation.getTokenSeparator());
+        writeString(observation.getTupleSeparator());
+        writeString(observation.getDecimalSeparator());
+        writeString(observation.getNoDataValue());
+        writeString(observation.getAdditionalMergeIndicator());
+        Collection<NamedValue<?>> parameters = observation.getParameter();
+        writeVarint(parameters.size());
+        for (NamedValue<?> parameter : parameters) {
+            writeReference(parameter.getName());
+            writeValue(parameter.getValue());
+        }
+        writeObservationValue(observation.getValue());
+    }
+
+    /**
+     * Writes an observation constellation.
+     *
+     * @param constellation the constellation
+     *
+     * @throws IOException if the constellation can not be written
+     */
+    public void writeObservationConstellation(OmObservationConstellation constellation) throws IOException {
+        if (!writePresence(constellation)) {
+            return;
+        }
+        writeFeature(constellation.getProcedure());
+        writePhenomenon(constellation.getObservableProperty());
+        writeFeature(constellation.getFeatureOfInterest());
+        Set<String> offerings = constellation.getOfferings();
+        writeVarint(offerings == null ? 0 : offerings.size());
+        if (offerings != null) {
+            for (String offering : offerings) {
+                writeString(offering);
+            }
+        }
+        writeString(constellation.getObservationType());
+    }
+
+    /**
+     * Writes a value.
+     *
+     * @param value the value, may be {@code null}
+     *
+     * @throws IOException if the value can not be written
+     */
+    public void writeValue(Value<?> value) throws IOException {
+        if (value == null) {
+            writeVarint(VALUE_NULL);
+        } else {
+            value.accept(this.valueWriter);
+        }
+    }
+
+    /**
+     * Writes a time.
+     *
+     * @param time the time, may be {@code null}
+     *
+     * @throws IOException if the time can not be written
+     */
+    public void writeTime(Time time) throws IOException {
+        if (time == null) {
+            writeVarint(TIME_NULL);
+            return;
+        }
+        int flags = 0;
+        flags |= time.isSetGmlId() ? TIME_GML_ID : 0;
+        flags |= time.getTimeFormat() != null && time.getTimeFormat() != Time.TimeFormat.NOT_SET ? TIME_FORMAT : 0;
+        flags |= time.isSetReference() ? TIME_REFERENCE : 0;
+        flags |= time.isSetNilReason() ? TIME_NIL_REASON : 0;
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            flags |= instant.isSetValue() ? TIME_VALUE : 0;
+            flags |= instant.isSetIndeterminateValue() ? TIME_INDETERMINATE : 0;
+            flags |= instant.getRequestedTimeLength() != 0 ? TIME_REQUESTED_LENGTH : 0;
+            writeVarint(TIME_INSTANT);
+            writeVarint(flags);
+            writeTimeProperties(time, flags);
+            if ((flags & TIME_VALUE) != 0) {
+                writeDateTime(instant.getValue());
+            }
+            if ((flags & TIME_INDETERMINATE) != 0) {
+                writeIndeterminateValue(instant.getIndeterminateValue());
+            }
+            if ((flags & TIME_REQUESTED_LENGTH) != 0) {
+                writeSignedVarint(instant.getRequestedTimeLength());
+            }
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            flags |= period.getStart() != null ? TIME_VALUE : 0;
+            flags |= period.getStartIndet() != null ? TIME_INDETERMINATE : 0;
+            flags |= period.getEnd() != null ? TIME_END : 0;
+            flags |= period.getEndIndet() != null ? TIME_END_INDETERMINATE : 0;
+            flags |= period.getDuration() != null ? TIME_DURATION : 0;
+            flags |= period.getInterval() != null ? TIME_INTERVAL : 0;
+            writeVarint(TIME_PERIOD);
+            writeVarint(flags);
+            writeTimeProperties(time, flags);
+            if ((flags & TIME_VALUE) != 0) {
+                writeDateTime(period.getStart());
+            }
+            if ((flags & TIME_INDETERMINATE) != 0) {
+                writeIndeterminateValue(period.getStartIndet());
+            }
+            if ((flags & TIME_END) != 0) {
+                writeDateTime(period.getEnd());
+            }
+            if ((flags & TIME_END_INDETERMINATE) != 0) {
+                writeIndeterminateValue(period.getEndIndet());
+            }
+            if ((flags & TIME_DURATION) != 0) {
+                writeString(period.getDuration().toString());
+            }
+            if ((flags & TIME_INTERVAL) != 0) {
+                writeString(period.getInterval());
+            }
+        } else {
+            throw new IOException("Unsupported time type " + time.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes a geometry as extended WKB.
+     *
+     * @param geometry the geometry, may be {@code null}
+     *
+     * @throws IOException if the geometry can not be written
+     */
+    public void writeGeometry(Geometry geometry) throws IOException {
+        if (geometry == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] wkb = (hasZ(geometry) ? this.wkbWriter3D : this.wkbWriter2D).write(geometry);
+        writeVarint(wkb.length + 1);
+        this.out.write(wkb);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Writes the end marker and closes the underlying stream.
+     *
+     * @throws IOException if the stream can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeVarint(END);
+        } finally {
+            this.out.close();
+        }
+    }
+
+    private void writeTimeProperties(Time time, int flags) throws IOException {
+        if ((flags & TIME_GML_ID) != 0) {
+            writeString(time.getGmlId());
+        }
+        if ((flags & TIME_FORMAT) != 0) {
+            writeString(time.getTimeFormat().name());
+        }
+        if ((flags & TIME_REFERENCE) != 0) {
+            writeString(time.getReference());
+        }
+        if ((flags & TIME_NIL_REASON) != 0) {
+            writeString(time.getNilReason().name());
+        }
+    }
+
+    private void writeDateTime(DateTime dateTime) throws IOException {
+        long millis = dateTime.getMillis();
+        writeSignedVarint(millis - this.previousTime);
+        this.previousTime = millis;
+        writeString(dateTime.getZone().getID());
+    }
+
+    private void writeIndeterminateValue(IndeterminateValue value) throws IOException {
+        writeString(value.getValue());
+        Set<String> alias = value.getAlias();
+        writeVarint(alias.size());
+        for (String a : alias) {
+            writeString(a);
+        }
+    }
+
+    private static void checkResultQuality(OmObservation observation) throws IOException {
+        boolean quality = observation.isSetResultQuality();
+        if (observation.getValue() instanceof SingleObservationValue) {
+            quality |= ((SingleObservationValue<?>) observation.getValue()).isSetQualityList();
+        }
+        if (quality) {
+            throw new IOException(String.format(
+                    "Observation %s has result qualities, which the binary observation format does not support",
+                    observation.getObservationID()));
+        }
+    }
+
+    private void writeObservationValue(ObservationValue<?> value) throws IOException {
+        if (value == null) {
+            writeVarint(OBSERVATION_VALUE_NULL);
+        } else if (value instanceof SingleObservationValue) {
+            writeVarint(OBSERVATION_VALUE_SINGLE);
+            writeTime(value.getPhenomenonTime());
+            writeValue(value.getValue());
+        } else if (value instanceof MultiObservationValues) {
+            writeVarint(OBSERVATION_VALUE_MULTI);
+            writeTime(value.getPhenomenonTime());
+            writeValue(value.getValue());
+        } else {
+            throw new IOException("Unsupported observation value type " + value.getClass().getName());
+        }
+    }
+
+    private void writeFeature(AbstractFeature feature) throws IOException {
+        if (feature == null) {
+            writeVarint(FEATURE_NULL);
+        } else if (feature instanceof SamplingFeature) {
+            SamplingFeature samplingFeature = (SamplingFeature) feature;
+            writeVarint(FEATURE_SAMPLING);
+            writeFeatureProperties(feature);
+            writeString(samplingFeature.getFeatureType());
+            writeGeometry(samplingFeature.getGeometry());
+        } else if (feature instanceof SosProcedureDescription) {
+            writeVarint(FEATURE_PROCEDURE);
+            writeFeatureProperties(feature);
+            writeString(((SosProcedureDescription<?>) feature).getDescriptionFormat());
+        } else {
+            writeVarint(FEATURE_GENERIC);
+            writeFeatureProperties(feature);
+        }
+    }
+
+    private void writeFeatureProperties(AbstractFeature feature) throws IOException {
+        writeCodeWithAuthority(feature.getIdentifierCodeWithAuthority());
+        List<CodeType> names = feature.getName();
+        writeVarint(names == null ? 0 : names.size());
+        if (names != null) {
+            for (CodeType name : names) {
+                writeString(name.getValue());
+                writeString(name.isSetCodeSpace() ? name.getCodeSpace().toString() : null);
+            }
+        }
+        writeString(feature.getDescription());
+        writeString(feature.getGmlId());
+    }
+
+    private void writePhenomenon(AbstractPhenomenon phenomenon) throws IOException {
+        if (phenomenon == null) {
+            writeVarint(PHENOMENON_NULL);
+        } else if (phenomenon instanceof OmCompositePhenomenon) {
+            OmCompositePhenomenon composite = (OmCompositePhenomenon) phenomenon;
+            writeVarint(PHENOMENON_COMPOSITE);
+            writeString(composite.getIdentifier());
+            writeString(composite.getDescription());
+            List<OmObservableProperty> components = composite.getPhenomenonComponents();
+            writeVarint(components.size());
+            for (OmObservableProperty component : components) {
+                writeObservableProperty(component);
+            }
+        } else {
+            writeVarint(PHENOMENON_OBSERVABLE_PROPERTY);
+            if (phenomenon instanceof OmObservableProperty) {
+                writeObservableProperty((OmObservableProperty) phenomenon);
+            } else {
+                writeObservableProperty(new OmObservableProperty(phenomenon.getIdentifier(),
+                                                                 phenomenon.getDescription(), null, null));
+            }
+        }
+    }
+
+    private void writeObservableProperty(OmObservableProperty property) throws IOException {
+        writeString(property.getIdentifier());
+        writeString(property.getDescription());
+        writeString(property.getUnit());
+        writeString(property.getValueType());
+    }
+
+    private void writeCodeWithAuthority(CodeWithAuthority code) throws IOException {
+        if (writePresence(code)) {
+            writeString(code.getValue());
+            writeString(code.getCodeSpace());
+        }
+    }
+
+    private void writeReference(ReferenceType reference) throws IOException {
+        if (writePresence(reference)) {
+            writeString(reference.getHref());
+            writeString(reference.getTitle());
+            writeString(reference.getRole());
+        }
+    }
+
+    private void writeUnit(UoM unit) throws IOException {
+        if (writePresence(unit)) {
+            writeString(unit.getUom());
+            writeString(unit.getName());
+            writeString(unit.getLink());
+        }
+    }
+
+    private void writePointValuePair(PointValuePair pair) throws IOException {
+        if (writePresence(pair)) {
+            writeGeometry(pair.getPoint());
+            writeValue(pair.getValue());
+        }
+    }
+
+    private boolean writePresence(Object object) throws IOException {
+        this.out.writeByte(object == null ? 0 : 1);
+        return object != null;
+    }
+
+    private void writeString(String string) throws IOException {
+        if (string == null) {
+            writeVarint(STRING_NULL);
+            return;
+        }
+        Integer index = this.dictionary.get(string);
+        if (index != null) {
+            writeVarint(index + STRING_REFERENCE_OFFSET);
+            return;
+        }
+        this.dictionary.put(string, this.dictionary.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(STRING_LITERAL);
+        writeVarint(bytes.length);
+        this.out.write(bytes);
+    }
+
+    private void writeSignedVarint(long value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            this.out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        this.out.writeByte((int) v);
+    }
+
+    private static boolean hasZ(Geometry geometry) {
+        for (Coordinate coordinate : geometry.getCoordinates()) {
+            if (!Double.isNaN(coordinate.z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the type, unit and content of values.
+     */
+    private class ValueWriter implements ValueVisitor<Void, IOException> {
+
+        private void writeHeader(int type, Value<?> value) throws IOException {
+            writeVarint(type);
+            writeUnit(value.getUnitObject());
+        }
+
+        @Override
+        public Void visit(BooleanValue value) throws IOException {
+            writeHeader(VALUE_BOOLEAN, value);
+            out.writeByte(value.getValue() == null ? 0 : value.getValue() ? 2 : 1);
+            return null;
+        }
+
+        @Override
+        public Void visit(CategoryValue value) throws IOException {
+            writeHeader(VALUE_CATEGORY, value);
+            writeString(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(ComplexValue value) throws IOException {
+            throw unsupported(value);
+        }
+
+        @Override
+        public Void visit(CountValue value) throws IOException {
+            writeHeader(VALUE_COUNT, value);
+            if (writePresence(value.getValue())) {
+                writeSignedVarint(value.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(GeometryValue value) throws IOException {
+            writeHeader(VALUE_GEOMETRY, value);
+            writeGeometry(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(HrefAttributeValue value) throws IOException {
+            writeHeader(VALUE_HREF_ATTRIBUTE, value);
+            if (writePresence(value.getValue())) {
+                writeString(value.getValue().getHref());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(NilTemplateValue value) throws IOException {
+            writeHeader(VALUE_NIL_TEMPLATE, value);
+            writeString(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(QuantityValue value) throws IOException {
+            writeHeader(VALUE_QUANTITY, value);
+            if (writePresence(value.getValue())) {
+                out.writeDouble(value.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceValue value) throws IOException {
+            writeHeader(VALUE_REFERENCE, value);
+            writeReference(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(SweDataArrayValue value) throws IOException {
+            throw unsupported(value);
+        }
+
+        @Override
+        public Void visit(TVPValue value) throws IOException {
+            writeHeader(VALUE_TVP, value);
+            List<TimeValuePair> pairs = value.getValue();
+            writeVarint(pairs.size());
+            for (TimeValuePair pair : pairs) {
+                writeTime(pair.getTime());
+                writeValue(pair.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TLVTValue value) throws IOException {
+            writeHeader(VALUE_TLVT, value);
+            List<TimeLocationValueTriple> triples = value.getValue();
+            writeVarint(triples.size());
+            for (TimeLocationValueTriple triple : triples) {
+                writeTime(triple.getTime());
+                writeValue(triple.getValue());
+                writeGeometry(triple.getLocation());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TextValue value) throws IOException {
+            writeHeader(VALUE_TEXT, value);
+            writeString(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(CvDiscretePointCoverage value) throws IOException {
+            writeHeader(VALUE_CV_DISCRETE_POINT_COVERAGE, value);
+            writeString(value.getGmlId());
+            writeString(value.getDomainExtent());
+            writeReference(value.getRangeType());
+            writePointValuePair(value.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(MultiPointCoverage value) throws IOException {
+            writeHeader(VALUE_MULTI_POINT_COVERAGE, value);
+            writeString(value.getGmlId());
+            List<PointValuePair> pairs = value.getValue();
+            writeVarint(pairs.size());
+            for (PointValuePair pair : pairs) {
+                writePointValuePair(pair);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(RectifiedGridCoverage value) throws IOException {
+            writeHeader(VALUE_RECTIFIED_GRID_COVERAGE, value);
+            writeString(value.getGmlId());
+            SortedMap<Double, Value<?>> grid = value.getValue();
+            writeVarint(grid.size());
+            for (Map.Entry<Double, Value<?>> entry : grid.entrySet()) {
+                out.writeDouble(entry.getKey());
+                writeValue(entry.getValue());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ProfileValue value) throws IOException {
+            writeHeader(VALUE_PROFILE, value);
+            writeCodeWithAuthority(value.getIdentifierCodeWithAuthority());
+            writeString(value.getGmlId());
+            writeValue(value.getFromLevel() instanceof QuantityValue ? (QuantityValue) value.getFromLevel() : null);
+            writeValue(value.getToLevel() instanceof QuantityValue ? (QuantityValue) value.getToLevel() : null);
+            List<ProfileLevel> levels = value.getValue();
+            writeVarint(levels.size());
+            for (ProfileLevel level : levels) {
+                writeValue(level.getLevelStart());
+                writeValue(level.getLevelEnd());
+                writeGeometry(level.getLocation());
+                List<Value<?>> values = level.getValue();
+                writeVarint(values.size());
+                for (Value<?> v : values) {
+                    writeValue(v);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(UnknownValue value) throws IOException {
+            throw unsupported(value);
+        }
+
+        private IOException unsupported(Value<?> value) {
+            return new IOException(String.format(
+                    "%s is not supported by the binary observation format, as it carries an arbitrary SWE "
+                    + "component tree or object", value.getClass().getSimpleName()));
+        }
+    }
+}
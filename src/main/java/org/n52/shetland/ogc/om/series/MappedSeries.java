@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.series;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+
+/**
+ * Read-only, memory-mapped view of a series of a {@link MappedSeriesStore}.
+ * <p>
+ * The view covers the values that were committed when it was opened. Values
+ * are read directly from the mapped time, value and quality columns; nothing
+ * but the header is copied onto the heap. Times are sorted, so ranges are
+ * looked up by binary search on the time column.
+ *
+ * @since 1.0.0
+ */
+public class MappedSeries implements Closeable {
+
+    static final int MAGIC = 0x4E353253;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final String HEADER_SUFFIX = ".hdr";
+    static final String TIME_SUFFIX = ".time";
+    static final String VALUE_SUFFIX = ".value";
+    static final String QUALITY_SUFFIX = ".quality";
+
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final String id;
+    private final Header header;
+    private final Column times;
+    private final Column values;
+    private final Column qualities;
+    private volatile boolean closed;
+
+    MappedSeries(Path directory, String id) throws IOException {
+        this.id = id;
+        this.header = Header.read(directory.resolve(id + HEADER_SUFFIX));
+        this.times = new Column(directory.resolve(id + TIME_SUFFIX), header.count, Long.BYTES);
+        this.values = new Column(directory.resolve(id + VALUE_SUFFIX), header.count, Long.BYTES);
+        this.qualities = new Column(directory.resolve(id + QUALITY_SUFFIX), header.count, Integer.BYTES);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ValueType getValueType() {
+        return header.valueType;
+    }
+
+    public String getUnit() {
+        return header.unit;
+    }
+
+    /**
+     * @return the number of values in this view
+     */
+    public long size() {
+        return header.count;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the first time in milliseconds since the epoch
+     */
+    public long getFirstTime() {
+        return header.firstTime;
+    }
+
+    /**
+     * @return the last time in milliseconds since the epoch
+     */
+    public long getLastTime() {
+        return header.lastTime;
+    }
+
+    public long getTime(long index) {
+        return times.getLong(checkIndex(index));
+    }
+
+    public double getDouble(long index) {
+        long bits = values.getLong(checkIndex(index));
+        return header.valueType == ValueType.QUANTITY ? Double.longBitsToDouble(bits) : bits;
+    }
+
+    public long getLong(long index) {
+        long bits = values.getLong(checkIndex(index));
+        return header.valueType == ValueType.QUANTITY ? (long) Double.longBitsToDouble(bits) : bits;
+    }
+
+    public boolean getBoolean(long index) {
+        return getLong(index) != 0;
+    }
+
+    public int getQuality(long index) {
+        return qualities.getInt(checkIndex(index));
+    }
+
+    /**
+     * Get the index of the first value with a time not before {@code time}.
+     *
+     * @param time the time in milliseconds since the epoch
+     *
+     * @return the index, {@link #size()} if there is no such value
+     */
+    public long lowerBound(long time) {
+        checkOpen();
+        long low = 0;
+        long high = size();
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (times.getLong(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the index of the first value with a time after {@code time}.
+     *
+     * @param time the time in milliseconds since the epoch
+     *
+     * @return the index, {@link #size()} if there is no such value
+     */
+    public long upperBound(long time) {
+        checkOpen();
+        long low = 0;
+        long high = size();
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (times.getLong(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the range of values with times in the closed interval between
+     * {@code start} and {@code end}.
+     *
+     * @param start the start, {@code null} for an open interval
+     * @param end   the end, {@code null} for an open interval
+     *
+     * @return the range
+     */
+    public Range range(DateTime start, DateTime end) {
+        long from = start == null ? 0 : lowerBound(start.getMillis());
+        long to = end == null ? size() : upperBound(end.getMillis());
+        return new Range(from, Math.max(from, to));
+    }
+
+    /**
+     * Drops the references to the mapped segments. The mappings themselves are
+     * released once the buffers are garbage collected, so they are not kept
+     * alive by a closed series that is still referenced. Any further access
+     * fails with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        times.clear();
+        values.clear();
+        qualities.clear();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Series " + id + " is closed");
+        }
+    }
+
+    private long checkIndex(long index) {
+        checkOpen();
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return index;
+    }
+
+    /**
+     * The type of the values of a series.
+     */
+    public enum ValueType {
+        QUANTITY,
+        COUNT,
+        BOOLEAN
+    }
+
+    /**
+     * A range of indices of a series.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the first index (inclusive)
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return the last index (exclusive)
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        public long size() {
+            return end - start;
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+    }
+
+    /**
+     * The header of a series.
+     */
+    static final class Header {
+        private final ValueType valueType;
+        private final String unit;
+        private final long count;
+        private final long firstTime;
+        private final long lastTime;
+
+        Header(ValueType valueType, String unit, long count, long firstTime, long lastTime) {
+            this.valueType = valueType;
+            this.unit = unit;
+            this.count = count;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+
+        ValueType getValueType() {
+            return valueType;
+        }
+
+        String getUnit() {
+            return unit;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getFirstTime() {
+            return firstTime;
+        }
+
+        long getLastTime() {
+            return lastTime;
+        }
+
+        Header withValues(long newCount, long newFirstTime, long newLastTime) {
+            return new Header(valueType, unit, newCount, newFirstTime, newLastTime);
+        }
+
+        static Header read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                    throw new IOException("Not a series header: " + path);
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported series version " + version + ": " + path);
+                }
+                ValueType valueType = ValueType.values()[buffer.getInt()];
+                int unitLength = buffer.getInt();
+                long count = buffer.getLong();
+                long firstTime = buffer.getLong();
+                long lastTime = buffer.getLong();
+                String unit = null;
+                if (unitLength >= 0) {
+                    byte[] bytes = new byte[unitLength];
+                    buffer.get(bytes);
+                    unit = new String(bytes, StandardCharsets.UTF_8);
+                }
+                return new Header(valueType, unit, count, firstTime, lastTime);
+            }
+        }
+
+        void write(FileChannel channel) throws IOException {
+            byte[] bytes = unit == null ? new byte[0] : unit.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bytes.length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(valueType.ordinal())
+                    .putInt(unit == null ? -1 : bytes.length)
+                    .putLong(count).putLong(firstTime).putLong(lastTime).put(bytes);
+            buffer.flip();
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * A mapped column of fixed size entries, split into segments so columns
+     * can exceed the 2 GiB limit of a single mapping.
+     */
+    private static final class Column {
+        private final MappedByteBuffer[] segments;
+        private final int width;
+
+        Column(Path path, long count, int width) throws IOException {
+            this.width = width;
+            int segmentCount = (int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            this.segments = new MappedByteBuffer[segmentCount];
+            if (count == 0) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() < count * width) {
+                    throw new IOException("Truncated series column: " + path);
+                }
+                for (int i = 0; i < segmentCount; i++) {
+                    long first = (long) i << SEGMENT_SHIFT;
+                    long entries = Math.min(count - first, 1L << SEGMENT_SHIFT);
+                    this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * width, entries * width);
+                }
+            }
+        }
+
+        long getLong(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) ((index & SEGMENT_MASK) * width));
+        }
+
+        int getInt(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].getInt((int) ((index & SEGMENT_MASK) * width));
+        }
+
+        void clear() {
+            Arrays.fill(segments, null);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.series;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.series.MappedSeries.Header;
+import org.n52.shetland.ogc.om.series.MappedSeries.ValueType;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Append-only store of time series in a local directory.
+ * <p>
+ * Every series consists of a small header file holding the value type, the
+ * unit, the number of values and the first and last time, and of three column
+ * files holding the times (milliseconds since the epoch), the values and
+ * integer quality flags. Series are read through memory-mapped
+ * {@link MappedSeries} views and written through a {@link MappedSeriesWriter}.
+ *
+ * @since 1.0.0
+ */
+public class MappedSeriesStore {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private final Path directory;
+    private final boolean sync;
+
+    /**
+     * Creates a new store that does not force flushed values to the storage
+     * device.
+     *
+     * @param directory the directory of the store
+     *
+     * @throws IOException if the directory could not be created
+     */
+    public MappedSeriesStore(Path directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * Creates a new store.
+     *
+     * @param directory the directory of the store
+     * @param sync      if flushed values should be forced to the storage
+     *                  device
+     *
+     * @throws IOException if the directory could not be created
+     */
+    public MappedSeriesStore(Path directory, boolean sync) throws IOException {
+        this.directory = Files.createDirectories(Objects.requireNonNull(directory));
+        this.sync = sync;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Checks if the series exists.
+     *
+     * @param id the series identifier
+     *
+     * @return if the series exists
+     */
+    public boolean contains(String id) {
+        return Files.exists(directory.resolve(checkId(id) + MappedSeries.HEADER_SUFFIX));
+    }
+
+    /**
+     * Creates a new, empty series.
+     *
+     * @param id        the series identifier
+     * @param valueType the value type
+     * @param unit      the unit, may be {@code null}
+     *
+     * @throws IOException if the series already exists or could not be
+     *                     created
+     */
+    public void create(String id, ValueType valueType, String unit) throws IOException {
+        Path path = directory.resolve(checkId(id) + MappedSeries.HEADER_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            new Header(Objects.requireNonNull(valueType), unit, 0, 0, 0).write(channel);
+            if (sync) {
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Opens a read-only view of the values currently committed to the series.
+     *
+     * @param id the series identifier
+     *
+     * @return the view
+     *
+     * @throws IOException if the series does not exist or could not be mapped
+     */
+    public MappedSeries open(String id) throws IOException {
+        return new MappedSeries(directory, checkId(id));
+    }
+
+    /**
+     * Opens a writer for the series.
+     *
+     * @param id the series identifier
+     *
+     * @return the writer
+     *
+     * @throws IOException if the series does not exist or could not be opened
+     */
+    public MappedSeriesWriter openWriter(String id) throws IOException {
+        return new MappedSeriesWriter(directory, checkId(id), sync);
+    }
+
+    /**
+     * Creates a stable series identifier for the procedure, observable
+     * property, feature of interest and offerings of the constellation.
+     *
+     * @param constellation the constellation
+     *
+     * @return the identifier
+     */
+    public static String getSeriesId(OmObservationConstellation constellation) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putString(hasher, constellation.getProcedureIdentifier());
+        putString(hasher, constellation.getObservablePropertyIdentifier());
+        putString(hasher, constellation.getFeatureOfInterestIdentifier());
+        if (constellation.isSetOfferings()) {
+            for (String offering : new TreeSet<>(constellation.getOfferings())) {
+                putString(hasher, offering);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        String string = Strings.nullToEmpty(value);
+        hasher.putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+    }
+
+    private static String checkId(String id) {
+        if (id == null || !ID_PATTERN.matcher(id).matches() || id.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid series identifier: " + id);
+        }
+        return id;
+    }
+}
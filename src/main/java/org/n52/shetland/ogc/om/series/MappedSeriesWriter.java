@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.series;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.n52.shetland.ogc.om.series.MappedSeries.Header;
+import org.n52.shetland.ogc.om.series.MappedSeries.ValueType;
+
+/**
+ * Appends values to a series of a {@link MappedSeriesStore}.
+ * <p>
+ * Values have to be appended in chronological order. Appended values are
+ * buffered and become visible to newly opened {@link MappedSeries} once they
+ * are {@linkplain #flush() flushed}: the columns are written first and the
+ * header with the new count afterwards, so a series never references values
+ * that were not completely written. Values beyond the count of the header
+ * (e.g. after a crash) are discarded when the series is opened for writing.
+ * A series must only be written by a single writer at a time.
+ *
+ * @since 1.0.0
+ */
+public class MappedSeriesWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_ENTRIES = 4096;
+
+    private final FileChannel header;
+    private final FileChannel times;
+    private final FileChannel values;
+    private final FileChannel qualities;
+    private final ByteBuffer timeBuffer = ByteBuffer.allocate(BUFFER_ENTRIES * Long.BYTES);
+    private final ByteBuffer valueBuffer = ByteBuffer.allocate(BUFFER_ENTRIES * Long.BYTES);
+    private final ByteBuffer qualityBuffer = ByteBuffer.allocate(BUFFER_ENTRIES * Integer.BYTES);
+    private final boolean sync;
+    private Header state;
+    private long count;
+    private long firstTime;
+    private long lastTime;
+
+    MappedSeriesWriter(Path directory, String id, boolean sync) throws IOException {
+        this.sync = sync;
+        this.header = FileChannel.open(directory.resolve(id + MappedSeries.HEADER_SUFFIX),
+                                       StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.state = Header.read(directory.resolve(id + MappedSeries.HEADER_SUFFIX));
+        this.count = state.getCount();
+        this.firstTime = state.getFirstTime();
+        this.lastTime = state.getLastTime();
+        this.times = openColumn(directory.resolve(id + MappedSeries.TIME_SUFFIX), Long.BYTES);
+        this.values = openColumn(directory.resolve(id + MappedSeries.VALUE_SUFFIX), Long.BYTES);
+        this.qualities = openColumn(directory.resolve(id + MappedSeries.QUALITY_SUFFIX), Integer.BYTES);
+    }
+
+    public ValueType getValueType() {
+        return state.getValueType();
+    }
+
+    /**
+     * @return the number of values including the not yet flushed ones
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Append a quantity.
+     *
+     * @param time    the time in milliseconds since the epoch
+     * @param value   the value
+     * @param quality the quality flag
+     *
+     * @throws IOException if the value could not be written
+     */
+    public void append(long time, double value, int quality) throws IOException {
+        appendBits(time, state.getValueType() == ValueType.QUANTITY
+                         ? Double.doubleToLongBits(value) : (long) value, quality);
+    }
+
+    /**
+     * Append a count or boolean ({@code 0} or {@code 1}).
+     *
+     * @param time    the time in milliseconds since the epoch
+     * @param value   the value
+     * @param quality the quality flag
+     *
+     * @throws IOException if the value could not be written
+     */
+    public void append(long time, long value, int quality) throws IOException {
+        appendBits(time, state.getValueType() == ValueType.QUANTITY
+                         ? Double.doubleToLongBits(value) : value, quality);
+    }
+
+    public void append(long time, boolean value, int quality) throws IOException {
+        append(time, value ? 1L : 0L, quality);
+    }
+
+    private void appendBits(long time, long bits, int quality) throws IOException {
+        if (count > 0 && time < lastTime) {
+            throw new IllegalArgumentException(String.format(
+                    "Time %d is before the last time %d of the series", time, lastTime));
+        }
+        if (!timeBuffer.hasRemaining()) {
+            writeBuffers();
+        }
+        timeBuffer.putLong(time);
+        valueBuffer.putLong(bits);
+        qualityBuffer.putInt(quality);
+        if (count == 0) {
+            firstTime = time;
+        }
+        lastTime = time;
+        count++;
+    }
+
+    /**
+     * Write the buffered values and make them visible to new readers.
+     *
+     * @throws IOException if the values could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffers();
+        if (sync) {
+            times.force(false);
+            values.force(false);
+            qualities.force(false);
+        }
+        state = state.withValues(count, firstTime, lastTime);
+        state.write(header);
+        if (sync) {
+            header.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            times.close();
+            values.close();
+            qualities.close();
+            header.close();
+        }
+    }
+
+    private FileChannel openColumn(Path path, int width) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(count * width);
+        channel.position(count * width);
+        return channel;
+    }
+
+    private void writeBuffers() throws IOException {
+        write(times, timeBuffer);
+        write(values, valueBuffer);
+        write(qualities, qualityBuffer);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
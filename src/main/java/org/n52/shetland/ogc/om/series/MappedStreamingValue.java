@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.series;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.StreamingValue;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.quality.OmResultQuality;
+import org.n52.shetland.ogc.om.values.SimpleBooleanValue;
+import org.n52.shetland.ogc.om.values.SimpleCountValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+/**
+ * {@link StreamingValue} that streams a range of a {@link MappedSeries}
+ * directly from the mapped columns.
+ *
+ * @since 1.0.0
+ */
+public class MappedStreamingValue extends StreamingValue<TimeValuePair> {
+
+    private final MappedSeries series;
+    private final MappedSeries.Range range;
+    private final IntFunction<OmResultQuality> qualityMapper;
+    private long position;
+
+    /**
+     * Creates a new streaming value for the values of the series between
+     * {@code start} and {@code end}.
+     *
+     * @param series   the series
+     * @param start    the start, {@code null} for an open interval
+     * @param end      the end, {@code null} for an open interval
+     * @param template the observation template
+     */
+    public MappedStreamingValue(MappedSeries series, DateTime start, DateTime end, OmObservation template) {
+        this(series, series.range(start, end), template, null);
+    }
+
+    /**
+     * Creates a new streaming value.
+     *
+     * @param series        the series
+     * @param range         the range of the series to stream
+     * @param template      the observation template
+     * @param qualityMapper the mapper for quality flags, may be {@code null}
+     */
+    public MappedStreamingValue(MappedSeries series, MappedSeries.Range range, OmObservation template,
+                                IntFunction<OmResultQuality> qualityMapper) {
+        this.series = Objects.requireNonNull(series);
+        this.range = Objects.requireNonNull(range);
+        this.qualityMapper = qualityMapper;
+        this.position = range.getStart();
+        setObservationTemplate(template);
+    }
+
+    @Override
+    public boolean hasNextValue() {
+        return position < range.getEnd();
+    }
+
+    /**
+     * Moves the stream directly to the value with the supplied index within
+     * the range. Series are append-only, so the index is stable across
+     * requests, even if several values share the same time.
+     */
+    @Override
+    protected boolean seek(long index) {
+        this.position = range.getStart() + Math.min(range.size(), Math.max(0, index));
+        return true;
+    }
+
+    /**
+     * @return the identifier of the series
+     */
+    @Override
+    public String getPagingKey(OmObservationConstellation constellation) {
+        return series.getId();
+    }
+
+    @Override
+    public TimeValuePair nextEntity() throws OwsExceptionReport {
+        return nextValue();
+    }
+
+    /**
+     * @return a {@link QualifiedTimeValuePair} that carries the result quality
+     *         of the value
+     */
+    @Override
+    public TimeValuePair nextValue() throws OwsExceptionReport {
+        long index = next();
+        return emitValue(new QualifiedTimeValuePair(getTime(index), getValue(index), getQuality(index)));
+    }
+
+    @Override
+    public OmObservation nextSingleObservation() throws OwsExceptionReport {
+        checkMaxNumberOfReturnedValues(1);
+        long index = next();
+        TimeInstant time = getTime(index);
+        OmObservation observation = getObservationTemplate().cloneTemplate();
+        observation.setResultTime(isSetResultTime() ? getResultTime() : time);
+        if (isSetValidTime() && getValidTime() instanceof TimePeriod) {
+            observation.setValidTime((TimePeriod) getValidTime());
+        }
+        observation.setValue(new SingleObservationValue<>(time, getValue(index), getQuality(index)));
+        checkForModifications(observation);
+        return observation;
+    }
+
+    @Override
+    protected void queryTimes() {
+        if (!range.isEmpty()) {
+            long first = series.getTime(range.getStart());
+            long last = series.getTime(range.getEnd() - 1);
+            Time time = first == last ? new TimeInstant(toDateTime(first))
+                                : new TimePeriod(toDateTime(first), toDateTime(last));
+            setPhenomenonTime(time);
+        }
+    }
+
+    @Override
+    protected void queryUnit() {
+        setUnit(series.getUnit());
+    }
+
+    private long next() throws OwsExceptionReport {
+        if (!hasNextValue()) {
+            throw new NoApplicableCodeException().withMessage("No more values in series %s", series.getId());
+        }
+        return position++;
+    }
+
+    private TimeInstant getTime(long index) {
+        return new TimeInstant(toDateTime(series.getTime(index)));
+    }
+
+    private Value<?> getValue(long index) {
+        switch (series.getValueType()) {
+            case COUNT:
+                return new SimpleCountValue((int) series.getLong(index));
+            case BOOLEAN:
+                return new SimpleBooleanValue(series.getBoolean(index));
+            case QUANTITY:
+            default:
+                return new SimpleQuantityValue(series.getDouble(index), series.getUnit());
+        }
+    }
+
+    private Set<OmResultQuality> getQuality(long index) {
+        Set<OmResultQuality> qualities = new HashSet<>(1);
+        OmResultQuality quality = qualityMapper == null ? null : qualityMapper.apply(series.getQuality(index));
+        if (quality != null) {
+            qualities.add(quality);
+        }
+        return qualities;
+    }
+
+    private static DateTime toDateTime(long millis) {
+        return new DateTime(millis, DateTimeZone.UTC);
+    }
+
+    /**
+     * {@link TimeValuePair} with the result quality of the value.
+     */
+    public static final class QualifiedTimeValuePair extends TimeValuePair {
+        private final Set<OmResultQuality> quality;
+
+        public QualifiedTimeValuePair(Time time, Value<?> value, Set<OmResultQuality> quality) {
+            super(time, value);
+            this.quality = Objects.requireNonNull(quality);
+        }
+
+        /**
+         * @return the result quality, may be empty
+         */
+        public Set<OmResultQuality> getQuality() {
+            return quality;
+        }
+
+        @Override
+        public int hashCode() {
+            return 37 * super.hashCode() + quality.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return super.equals(obj) && quality.equals(((QualifiedTimeValuePair) obj).quality);
+        }
+    }
+}
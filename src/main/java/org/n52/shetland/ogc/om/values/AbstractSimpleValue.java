@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.util.Objects;
+
+import org.n52.shetland.ogc.UoM;
+
+/**
+ * Base class for simple values that hold only the value and the unit of
+ * measure and do not carry the state of a SWE data component. The
+ * corresponding SWE backed value is created on demand by
+ * {@link #toSweValue()}.
+ *
+ * @param <T> the value type
+ *
+ * @since 1.0.0
+ */
+public abstract class AbstractSimpleValue<T> implements Value<T> {
+
+    private T value;
+    private UoM unit;
+
+    public AbstractSimpleValue(T value) {
+        this.value = value;
+    }
+
+    public AbstractSimpleValue(T value, UoM unit) {
+        this.value = value;
+        this.unit = unit;
+    }
+
+    @Override
+    public AbstractSimpleValue<T> setValue(T value) {
+        this.value = value;
+        return this;
+    }
+
+    @Override
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public void setUnit(String unit) {
+        this.unit = unit == null ? null : new UoM(unit);
+    }
+
+    @Override
+    public AbstractSimpleValue<T> setUnit(UoM unit) {
+        this.unit = unit;
+        return this;
+    }
+
+    @Override
+    public UoM getUnitObject() {
+        return unit;
+    }
+
+    @Override
+    public String getUnit() {
+        return isSetUnit() ? unit.getUom() : null;
+    }
+
+    /**
+     * Creates the SWE backed value for this value.
+     *
+     * @return the SWE backed value
+     */
+    public abstract Value<T> toSweValue();
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getClass(), value, unit);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        AbstractSimpleValue<?> other = (AbstractSimpleValue<?>) obj;
+        return Objects.equals(value, other.value) && Objects.equals(unit, other.unit);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s [value=%s, unit=%s]", getClass().getSimpleName(), getValue(), getUnit());
+    }
+}
@@ -0,0 +1,870 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.swe.SweAbstractDataComponent;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweCategory;
+import org.n52.shetland.ogc.swe.simpleType.SweCount;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * {@link ProfileValue} that stores the level boundaries and the level values
+ * in primitive columns instead of {@link ProfileLevel} objects.
+ * <p>
+ * Level boundaries are kept in {@code double} arrays ({@code NaN} if not set),
+ * every value column in a typed array. The minimum level start and maximum
+ * level end are maintained on insert. {@link #getValue()} returns a read-only
+ * view that creates the {@link ProfileLevel}s on access, and
+ * {@link #asDataArray()} returns a {@link SweDataArray} whose blocks are
+ * formatted on access.
+ *
+ * @since 1.0.0
+ */
+public class ColumnarProfileValue extends ProfileValue {
+
+    private static final String LEVEL_START = "levelStart";
+    private static final String LEVEL_END = "levelEnd";
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<Column> columns = new ArrayList<>();
+    private double[] levelStarts = new double[INITIAL_CAPACITY];
+    private double[] levelEnds = new double[INITIAL_CAPACITY];
+    private Geometry[] locations;
+    private int size;
+    private double minLevelStart = Double.NaN;
+    private double maxLevelEnd = Double.NaN;
+    private UoM levelUnit;
+    private String levelStartName = LEVEL_START;
+    private String levelStartDefinition;
+    private String levelEndName = LEVEL_END;
+    private String levelEndDefinition;
+
+    public ColumnarProfileValue(String identifier) {
+        super(identifier);
+    }
+
+    public ColumnarProfileValue(CodeWithAuthority identifier) {
+        super(identifier);
+    }
+
+    public ColumnarProfileValue(CodeWithAuthority identifier, String gmlId) {
+        super(identifier, gmlId);
+    }
+
+    /**
+     * @return the unit of the level boundaries
+     */
+    public UoM getLevelUnit() {
+        return levelUnit;
+    }
+
+    /**
+     * @param levelUnit
+     *            the unit of the level boundaries
+     * @return {@code this}
+     */
+    public ColumnarProfileValue setLevelUnit(UoM levelUnit) {
+        this.levelUnit = levelUnit;
+        return this;
+    }
+
+    /**
+     * @param levelUnit
+     *            the unit of the level boundaries
+     * @return {@code this}
+     */
+    public ColumnarProfileValue setLevelUnit(String levelUnit) {
+        return setLevelUnit(levelUnit == null ? null : new UoM(levelUnit));
+    }
+
+    /**
+     * Adds a new value column. Levels that were added before have no value in
+     * this column.
+     *
+     * @param type
+     *            the column type
+     * @param name
+     *            the name of the column
+     * @param definition
+     *            the definition of the column, may be {@code null}
+     * @param unit
+     *            the unit (the code space for categories), may be
+     *            {@code null}
+     * @return the index of the column
+     */
+    public int addColumn(ColumnType type, String name, String definition, String unit) {
+        Column column;
+        switch (Objects.requireNonNull(type)) {
+            case QUANTITY:
+                column = new QuantityColumn();
+                break;
+            case COUNT:
+                column = new CountColumn();
+                break;
+            case BOOLEAN:
+                column = new BooleanColumn();
+                break;
+            case CATEGORY:
+            case TEXT:
+                column = new TextColumn(type);
+                break;
+            default:
+                throw new IllegalArgumentException(type.name());
+        }
+        column.name = Objects.requireNonNull(name);
+        column.definition = definition;
+        column.unit = unit == null ? null : new UoM(unit);
+        column.ensureCapacity(levelStarts.length);
+        columns.add(column);
+        return columns.size() - 1;
+    }
+
+    /**
+     * Adds a new level without values.
+     *
+     * @param levelStart
+     *            the level start, {@code NaN} if not set
+     * @param levelEnd
+     *            the level end, {@code NaN} if not set
+     * @return the index of the level
+     */
+    public int addLevel(double levelStart, double levelEnd) {
+        if (size == levelStarts.length) {
+            int capacity = size + (size >> 1);
+            levelStarts = Arrays.copyOf(levelStarts, capacity);
+            levelEnds = Arrays.copyOf(levelEnds, capacity);
+            if (locations != null) {
+                locations = Arrays.copyOf(locations, capacity);
+            }
+            for (Column column : columns) {
+                column.ensureCapacity(capacity);
+            }
+        }
+        levelStarts[size] = levelStart;
+        levelEnds[size] = levelEnd;
+        if (!Double.isNaN(levelStart) && !(levelStart >= minLevelStart)) {
+            minLevelStart = levelStart;
+        }
+        if (!Double.isNaN(levelEnd) && !(levelEnd <= maxLevelEnd)) {
+            maxLevelEnd = levelEnd;
+        }
+        return size++;
+    }
+
+    public ColumnarProfileValue setLocation(int level, Geometry location) {
+        checkLevel(level);
+        if (locations == null) {
+            if (location == null) {
+                return this;
+            }
+            locations = new Geometry[levelStarts.length];
+        }
+        locations[level] = location;
+        return this;
+    }
+
+    public ColumnarProfileValue setQuantity(int level, int column, double value) {
+        ((QuantityColumn) getColumn(column, ColumnType.QUANTITY)).set(checkLevel(level), value);
+        return this;
+    }
+
+    public ColumnarProfileValue setCount(int level, int column, int value) {
+        ((CountColumn) getColumn(column, ColumnType.COUNT)).set(checkLevel(level), value);
+        return this;
+    }
+
+    public ColumnarProfileValue setBoolean(int level, int column, boolean value) {
+        ((BooleanColumn) getColumn(column, ColumnType.BOOLEAN)).set(checkLevel(level), value);
+        return this;
+    }
+
+    public ColumnarProfileValue setCategory(int level, int column, String value) {
+        ((TextColumn) getColumn(column, ColumnType.CATEGORY)).set(checkLevel(level), value);
+        return this;
+    }
+
+    public ColumnarProfileValue setText(int level, int column, String value) {
+        ((TextColumn) getColumn(column, ColumnType.TEXT)).set(checkLevel(level), value);
+        return this;
+    }
+
+    /**
+     * @return the number of levels
+     */
+    public int getLevelCount() {
+        return size;
+    }
+
+    /**
+     * @return the number of value columns
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columns.get(column).type;
+    }
+
+    public String getColumnName(int column) {
+        return columns.get(column).name;
+    }
+
+    public String getColumnDefinition(int column) {
+        return columns.get(column).definition;
+    }
+
+    /**
+     * @param level
+     *            the level index
+     * @return the level start or {@code NaN} if not set
+     */
+    public double getLevelStart(int level) {
+        return levelStarts[checkLevel(level)];
+    }
+
+    /**
+     * @param level
+     *            the level index
+     * @return the level end or {@code NaN} if not set
+     */
+    public double getLevelEnd(int level) {
+        return levelEnds[checkLevel(level)];
+    }
+
+    public boolean isSetColumnValue(int level, int column) {
+        return columns.get(column).present.get(checkLevel(level));
+    }
+
+    /**
+     * @param level
+     *            the level index
+     * @param column
+     *            the column index
+     * @return the value or {@code null} if not set
+     */
+    public Value<?> getColumnValue(int level, int column) {
+        Column c = columns.get(column);
+        int index = checkLevel(level);
+        return c.present.get(index) ? c.createValue(index) : null;
+    }
+
+    /**
+     * Adds the level. The values of the level are assigned to the first column
+     * with matching type and name (or definition if the value has no name).
+     * Values without name and definition are assigned to the first column of
+     * matching type that has no value for this level yet. Missing columns are
+     * created.
+     *
+     * @param value
+     *            the level
+     * @return {@code this}
+     */
+    @Override
+    public ColumnarProfileValue addValue(ProfileLevel value) {
+        if (value.isSetLevelStart()) {
+            adoptLevelDescription(value.getLevelStart(), true);
+        }
+        if (value.isSetLevelEnd()) {
+            adoptLevelDescription(value.getLevelEnd(), false);
+        }
+        int level = addLevel(toDouble(value.getLevelStart()), toDouble(value.getLevelEnd()));
+        setLocation(level, value.getLocation());
+        if (value.getValue() != null) {
+            for (Value<?> v : value.getValue()) {
+                ColumnType type = ColumnType.of(v);
+                if (type != null && v.isSetValue()) {
+                    columns.get(getOrAddColumn(level, type, getComponentName(v), v)).set(level, v);
+                }
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public ColumnarProfileValue setValue(List<ProfileLevel> value) {
+        clear();
+        value.forEach(this::addValue);
+        return this;
+    }
+
+    /**
+     * Removes all levels. The columns are retained.
+     *
+     * @return {@code this}
+     */
+    public ColumnarProfileValue clear() {
+        size = 0;
+        levelStarts = new double[INITIAL_CAPACITY];
+        levelEnds = new double[INITIAL_CAPACITY];
+        locations = null;
+        minLevelStart = Double.NaN;
+        maxLevelEnd = Double.NaN;
+        for (Column column : columns) {
+            column.clear(INITIAL_CAPACITY);
+        }
+        return this;
+    }
+
+    /**
+     * @return a read-only view of the levels that creates the
+     *         {@link ProfileLevel}s on access; the levels reject modifications
+     *         and their values are copies of the column values
+     */
+    @Override
+    public List<ProfileLevel> getValue() {
+        return new AbstractList<ProfileLevel>() {
+            @Override
+            public ProfileLevel get(int index) {
+                return createLevel(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public boolean isSetValue() {
+        return size > 0;
+    }
+
+    @Override
+    public SweQuantity getFromLevel() {
+        SweQuantity fromLevel = super.getFromLevel();
+        if (fromLevel != null || Double.isNaN(minLevelStart)) {
+            return fromLevel;
+        }
+        return createLevelValue(minLevelStart, levelStartName, levelStartDefinition);
+    }
+
+    @Override
+    public SweQuantity getToLevel() {
+        SweQuantity toLevel = super.getToLevel();
+        if (toLevel != null || Double.isNaN(maxLevelEnd)) {
+            return toLevel;
+        }
+        return createLevelValue(maxLevelEnd, levelEndName, levelEndDefinition);
+    }
+
+    /**
+     * Creates a data record with one field per level. The level records are
+     * created from the columns when accessed, so the read-only field list
+     * always reflects the current levels.
+     */
+    @Override
+    public SweDataRecord asDataRecord() {
+        SweDataRecord dataRecord = new SweDataRecord();
+        if (isSetIdentifier()) {
+            dataRecord.setIdentifier(getIdentifier());
+        }
+        if (isSetName()) {
+            dataRecord.setName(getName());
+        }
+        if (isSetDescription()) {
+            dataRecord.setDescription(getDescription());
+        }
+        dataRecord.setFields(Collections.unmodifiableList(new AbstractList<SweField>() {
+            @Override
+            public SweField get(int index) {
+                return new SweField("level_" + index, createLevelRecord(checkLevel(index)));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }));
+        return dataRecord;
+    }
+
+    /**
+     * Creates a data array with one block per level. The blocks contain the
+     * level start, the level end and the values of all columns, an empty token
+     * for absent values, and are formatted when accessed.
+     *
+     * @return the data array
+     */
+    public SweDataArray asDataArray() {
+        SweDataRecord elementType = new SweDataRecord();
+        elementType.addField(new SweField(levelStartName, createLevelComponent(levelStartDefinition)));
+        elementType.addField(new SweField(levelEndName, createLevelComponent(levelEndDefinition)));
+        for (Column column : columns) {
+            elementType.addField(new SweField(column.name, column.createComponent()));
+        }
+        SweDataArray dataArray = new SweDataArray();
+        dataArray.setElementType(elementType);
+        dataArray.setValues(Collections.unmodifiableList(new AbstractList<List<String>>() {
+            @Override
+            public List<String> get(int index) {
+                return createBlock(checkLevel(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }));
+        return dataArray;
+    }
+
+    private List<String> createBlock(int level) {
+        List<String> block = new ArrayList<>(columns.size() + 2);
+        block.add(format(levelStarts[level]));
+        block.add(format(levelEnds[level]));
+        for (Column column : columns) {
+            block.add(column.present.get(level) ? column.format(level) : "");
+        }
+        return block;
+    }
+
+    private ProfileLevel createLevel(int level) {
+        checkLevel(level);
+        List<Value<?>> values = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            if (column.present.get(level)) {
+                values.add(createColumnValue(column, level));
+            }
+        }
+        return new ReadOnlyProfileLevel(createLevelStart(level), createLevelEnd(level), values,
+                                        locations == null ? null : locations[level]);
+    }
+
+    private SweDataRecord createLevelRecord(int level) {
+        SweDataRecord record = new SweDataRecord();
+        QuantityValue start = createLevelStart(level);
+        if (start != null) {
+            record.addField(new SweField(levelStartName, start));
+        }
+        QuantityValue end = createLevelEnd(level);
+        if (end != null) {
+            record.addField(new SweField(levelEndName, end));
+        }
+        for (Column column : columns) {
+            if (column.present.get(level)) {
+                SweAbstractDataComponent component = column.createComponent(level);
+                component.setName(column.name);
+                component.setDefinition(column.definition);
+                record.addField(new SweField(column.name, component));
+            }
+        }
+        return record;
+    }
+
+    private Value<?> createColumnValue(Column column, int level) {
+        Value<?> value = column.createValue(level);
+        if (value instanceof SweAbstractDataComponent) {
+            SweAbstractDataComponent component = (SweAbstractDataComponent) value;
+            component.setName(column.name);
+            component.setDefinition(column.definition);
+        }
+        return value;
+    }
+
+    private QuantityValue createLevelStart(int level) {
+        return Double.isNaN(levelStarts[level]) ? null
+                : createLevelValue(levelStarts[level], levelStartName, levelStartDefinition);
+    }
+
+    private QuantityValue createLevelEnd(int level) {
+        return Double.isNaN(levelEnds[level]) ? null
+                : createLevelValue(levelEnds[level], levelEndName, levelEndDefinition);
+    }
+
+    private QuantityValue createLevelValue(double value, String name, String definition) {
+        QuantityValue quantity = new QuantityValue(value, levelUnit);
+        quantity.setName(name);
+        quantity.setDefinition(definition);
+        return quantity;
+    }
+
+    private SweQuantity createLevelComponent(String definition) {
+        SweQuantity quantity = new SweQuantity();
+        quantity.setUom(levelUnit);
+        quantity.setDefinition(definition);
+        return quantity;
+    }
+
+    private void adoptLevelDescription(QuantityValue value, boolean start) {
+        if (levelUnit == null && value.isSetUnit()) {
+            levelUnit = value.getUnitObject();
+        }
+        if (start) {
+            if (value.isSetName()) {
+                levelStartName = value.getName().getValue();
+            }
+            if (value.isSetDefinition()) {
+                levelStartDefinition = value.getDefinition();
+            }
+        } else {
+            if (value.isSetName()) {
+                levelEndName = value.getName().getValue();
+            }
+            if (value.isSetDefinition()) {
+                levelEndDefinition = value.getDefinition();
+            }
+        }
+    }
+
+    private int getOrAddColumn(int level, ColumnType type, String name, Value<?> value) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (column.type == type && (name == null ? !column.present.get(level) : column.name.equals(name))) {
+                return i;
+            }
+        }
+        String definition = null;
+        if (value instanceof SweAbstractDataComponent) {
+            definition = ((SweAbstractDataComponent) value).getDefinition();
+        }
+        return addColumn(type, name == null ? "component_" + columns.size() : name, definition,
+                         value.isSetUnit() ? value.getUnit() : null);
+    }
+
+    private Column getColumn(int column, ColumnType type) {
+        Column c = columns.get(column);
+        if (c.type != type) {
+            throw new IllegalArgumentException(String.format("Column %d is of type %s", column, c.type));
+        }
+        return c;
+    }
+
+    private int checkLevel(int level) {
+        if (level < 0 || level >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(level));
+        }
+        return level;
+    }
+
+    private static String getComponentName(Value<?> value) {
+        if (value instanceof SweAbstractDataComponent) {
+            SweAbstractDataComponent component = (SweAbstractDataComponent) value;
+            if (component.isSetName()) {
+                return component.getName().getValue();
+            } else if (component.isSetDefinition()) {
+                return component.getDefinition();
+            }
+        }
+        return null;
+    }
+
+    private static double toDouble(QuantityValue value) {
+        return value == null || !value.isSetValue() ? Double.NaN : value.getValue();
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "" : Double.toString(value);
+    }
+
+    /**
+     * The type of a value column.
+     */
+    public enum ColumnType {
+        QUANTITY,
+        COUNT,
+        BOOLEAN,
+        CATEGORY,
+        TEXT;
+
+        static ColumnType of(Value<?> value) {
+            if (value instanceof QuantityValue || value instanceof SimpleQuantityValue) {
+                return QUANTITY;
+            } else if (value instanceof CountValue || value instanceof SimpleCountValue) {
+                return COUNT;
+            } else if (value instanceof BooleanValue || value instanceof SimpleBooleanValue) {
+                return BOOLEAN;
+            } else if (value instanceof CategoryValue || value instanceof SimpleCategoryValue) {
+                return CATEGORY;
+            } else if (value instanceof TextValue || value instanceof SimpleTextValue) {
+                return TEXT;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * {@link ProfileLevel} created from the columns that rejects
+     * modifications, as they would not be written back.
+     */
+    private static final class ReadOnlyProfileLevel extends ProfileLevel {
+        ReadOnlyProfileLevel(QuantityValue levelStart, QuantityValue levelEnd, List<Value<?>> values,
+                             Geometry location) {
+            super(levelStart, levelEnd, Collections.unmodifiableList(values));
+            super.setLocation(location);
+        }
+
+        @Override
+        public ProfileLevel setLevelStart(QuantityValue levelStart) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProfileLevel setLevelEnd(QuantityValue levelEnd) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProfileLevel setValue(List<Value<?>> value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProfileLevel addValue(Value<?> value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProfileLevel setLocation(Geometry location) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private abstract static class Column {
+        final ColumnType type;
+        String name;
+        String definition;
+        UoM unit;
+        BitSet present = new BitSet();
+
+        Column(ColumnType type) {
+            this.type = type;
+        }
+
+        void clear(int capacity) {
+            this.present = new BitSet();
+            ensureCapacity(capacity);
+        }
+
+        abstract void ensureCapacity(int capacity);
+
+        abstract void set(int index, Value<?> value);
+
+        abstract Value<?> createValue(int index);
+
+        abstract SweAbstractDataComponent createComponent();
+
+        SweAbstractDataComponent createComponent(int index) {
+            return (SweAbstractDataComponent) createValue(index);
+        }
+
+        abstract String format(int index);
+    }
+
+    private static class QuantityColumn extends Column {
+        private double[] values = new double[0];
+
+        QuantityColumn() {
+            super(ColumnType.QUANTITY);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        void set(int index, double value) {
+            values[index] = value;
+            present.set(index);
+        }
+
+        @Override
+        void set(int index, Value<?> value) {
+            set(index, ((Number) value.getValue()).doubleValue());
+        }
+
+        @Override
+        Value<?> createValue(int index) {
+            return new QuantityValue(values[index], unit);
+        }
+
+        @Override
+        SweAbstractDataComponent createComponent() {
+            return new SweQuantity().setUom(unit).setDefinition(definition);
+        }
+
+        @Override
+        String format(int index) {
+            return Double.toString(values[index]);
+        }
+    }
+
+    private static class CountColumn extends Column {
+        private int[] values = new int[0];
+
+        CountColumn() {
+            super(ColumnType.COUNT);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+            present.set(index);
+        }
+
+        @Override
+        void set(int index, Value<?> value) {
+            set(index, ((Number) value.getValue()).intValue());
+        }
+
+        @Override
+        Value<?> createValue(int index) {
+            return new CountValue(values[index]).setUnit(unit);
+        }
+
+        @Override
+        SweAbstractDataComponent createComponent() {
+            return new SweCount().setDefinition(definition);
+        }
+
+        @Override
+        String format(int index) {
+            return Integer.toString(values[index]);
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+        private final BitSet values = new BitSet();
+
+        BooleanColumn() {
+            super(ColumnType.BOOLEAN);
+        }
+
+        @Override
+        void clear(int capacity) {
+            super.clear(capacity);
+            values.clear();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            // bit sets grow on demand
+        }
+
+        void set(int index, boolean value) {
+            values.set(index, value);
+            present.set(index);
+        }
+
+        @Override
+        void set(int index, Value<?> value) {
+            set(index, (Boolean) value.getValue());
+        }
+
+        @Override
+        Value<?> createValue(int index) {
+            return new BooleanValue(values.get(index));
+        }
+
+        @Override
+        SweAbstractDataComponent createComponent() {
+            return new SweBoolean().setDefinition(definition);
+        }
+
+        @Override
+        SweAbstractDataComponent createComponent(int index) {
+            return new SweBoolean().setValue(values.get(index));
+        }
+
+        @Override
+        String format(int index) {
+            return Boolean.toString(values.get(index));
+        }
+    }
+
+    private static class TextColumn extends Column {
+        private String[] values = new String[0];
+
+        TextColumn(ColumnType type) {
+            super(type);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        void clear(int capacity) {
+            values = new String[0];
+            super.clear(capacity);
+        }
+
+        void set(int index, String value) {
+            values[index] = value;
+            present.set(index, value != null);
+        }
+
+        @Override
+        void set(int index, Value<?> value) {
+            set(index, (String) value.getValue());
+        }
+
+        @Override
+        Value<?> createValue(int index) {
+            if (type == ColumnType.CATEGORY) {
+                return new CategoryValue(values[index], unit);
+            }
+            return new TextValue(values[index]);
+        }
+
+        @Override
+        SweAbstractDataComponent createComponent() {
+            if (type == ColumnType.CATEGORY) {
+                SweCategory category = new SweCategory();
+                if (unit != null) {
+                    category.setCodeSpace(unit.getUom());
+                }
+                return category.setDefinition(definition);
+            }
+            return new SweText().setDefinition(definition);
+        }
+
+        @Override
+        String format(int index) {
+            return values[index];
+        }
+    }
+}
@@ -16,8 +16,6 @@
  */
 package org.n52.shetland.ogc.om.values;
 
-import static java.util.stream.Collectors.toList;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -31,6 +29,7 @@ import org.n52.shetland.util.JavaHelper;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
@@ -138,36 +137,57 @@ public class MultiPointCoverage implements DiscreteCoverage<List<PointValuePair>
         return CollectionHelper.isNotEmpty(getValue());
     }
 
+    /**
+     * Get the envelope of all {@link Point}s
+     *
+     * @return The envelope, a null envelope if there are no points
+     */
+    public Envelope getEnvelope() {
+        Envelope envelope = new Envelope();
+        for (PointValuePair pointValuePair : value) {
+            if (pointValuePair.isSetPoint()) {
+                envelope.expandToInclude(pointValuePair.getPoint().getCoordinate());
+            }
+        }
+        return envelope;
+    }
+
     /**
      * Get the extent of all {@link Point}s
      *
-     * @return The extent as {@link Polygon}
+     * @return The extent as {@link Polygon} of the envelope of all points or
+     *         {@code null} if there are no points
      */
     public Polygon getExtent() {
-        if (isSetValue()) {
-            int srid = -1;
-            List<Coordinate> coordinates = Lists.newLinkedList();
-            for (PointValuePair pointValuePair : getValue()) {
-                Point point = pointValuePair.getPoint();
-                coordinates.add(point.getCoordinate());
-                if (point.getSRID() != srid) {
-                    srid = point.getSRID();
-                }
-            }
-            GeometryFactory geometryFactory;
-            if (srid > 0) {
-                geometryFactory = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING), srid);
-            } else {
-                geometryFactory = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING));
+        Envelope envelope = getEnvelope();
+        if (envelope.isNull()) {
+            return null;
+        }
+        GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING), getSrid());
+        return geometryFactory.createPolygon(new Coordinate[] {
+            new Coordinate(envelope.getMinX(), envelope.getMinY()),
+            new Coordinate(envelope.getMinX(), envelope.getMaxY()),
+            new Coordinate(envelope.getMaxX(), envelope.getMaxY()),
+            new Coordinate(envelope.getMaxX(), envelope.getMinY()),
+            new Coordinate(envelope.getMinX(), envelope.getMinY())
+        });
+    }
+
+    /**
+     * @return the SRID of the points or {@code 0} if not set
+     */
+    protected int getSrid() {
+        for (PointValuePair pointValuePair : value) {
+            if (pointValuePair.isSetPoint() && pointValuePair.getPoint().getSRID() > 0) {
+                return pointValuePair.getPoint().getSRID();
             }
-            return geometryFactory.createPolygon(coordinates.toArray(new Coordinate[coordinates.size()]));
         }
-        return null;
+        return 0;
     }
 
     @Override
     public List<Value<?>> getRangeSet() {
-        return getPointValue().getValues();
+        return Collections.unmodifiableList(Lists.transform(getValue(), PointValuePair::getValue));
     }
 
     @Override
@@ -187,8 +207,12 @@ public class MultiPointCoverage implements DiscreteCoverage<List<PointValuePair>
         private final List<Value<?>> values;
 
         public PointValueLists(List<PointValuePair> pointValuePairs) {
-            this.points = pointValuePairs.stream().map(PointValuePair::getPoint).collect(toList());
-            this.values = pointValuePairs.stream().map(PointValuePair::getValue).collect(toList());
+            this.points = new ArrayList<>(pointValuePairs.size());
+            this.values = new ArrayList<>(pointValuePairs.size());
+            for (PointValuePair pointValuePair : pointValuePairs) {
+                this.points.add(pointValuePair.getPoint());
+                this.values.add(pointValuePair.getValue());
+            }
         }
 
         /**
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.nio.DoubleBuffer;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+import org.n52.shetland.ogc.om.PointValuePair;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * {@link MultiPointCoverage} that stores the points as interleaved
+ * coordinates and the values in a packed column instead of
+ * {@link PointValuePair}s.
+ * <p>
+ * The envelope is maintained on insert. {@link Point}s and
+ * {@link PointValuePair}s are only created when accessed through
+ * {@link #getValue()}, {@link #getPoint(int)} or
+ * {@link #getPointValue()}; {@link #getValue()} is read-only.
+ *
+ * @since 1.0.0
+ */
+public class PackedMultiPointCoverage extends MultiPointCoverage {
+
+    private final PackedPoints points = new PackedPoints(false);
+
+    public PackedMultiPointCoverage(String gmlId) {
+        super(gmlId);
+    }
+
+    /**
+     * @param srid
+     *            the SRID of the points, defaults to the SRID of the first
+     *            added {@link Point}
+     * @return {@code this}
+     */
+    public PackedMultiPointCoverage setSrid(int srid) {
+        points.setSrid(srid);
+        return this;
+    }
+
+    @Override
+    protected int getSrid() {
+        return points.getSrid();
+    }
+
+    @Override
+    public void addValue(PointValuePair value) {
+        points.add(value.getPoint(), value.getValue());
+    }
+
+    @Override
+    public void addValues(List<PointValuePair> values) {
+        values.forEach(this::addValue);
+    }
+
+    @Override
+    public PackedMultiPointCoverage setValue(List<PointValuePair> value) {
+        points.clear();
+        addValues(value);
+        return this;
+    }
+
+    /**
+     * Adds a value at the location.
+     *
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param z
+     *            the z coordinate, {@code NaN} for two dimensional points
+     * @param value
+     *            the value
+     * @return {@code this}
+     */
+    public PackedMultiPointCoverage add(double x, double y, double z, Value<?> value) {
+        points.add(x, y, z, value);
+        return this;
+    }
+
+    /**
+     * Adds a quantity at the location. The unit of the quantity is the unit of
+     * the first added {@link QuantityValue}.
+     *
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param z
+     *            the z coordinate, {@code NaN} for two dimensional points
+     * @param value
+     *            the value
+     * @return {@code this}
+     */
+    public PackedMultiPointCoverage addQuantity(double x, double y, double z, double value) {
+        points.addQuantity(x, y, z, value);
+        return this;
+    }
+
+    /**
+     * @return the number of points
+     */
+    public int size() {
+        return points.size();
+    }
+
+    public Point getPoint(int index) {
+        return points.createPoint(index);
+    }
+
+    public Value<?> getRangeValue(int index) {
+        return points.createValue(index);
+    }
+
+    /**
+     * @return a read-only view of the interleaved x/y/z coordinates
+     */
+    public DoubleBuffer getCoordinates() {
+        return points.getCoordinates();
+    }
+
+    /**
+     * @return a read-only view of the points, sorted by location
+     */
+    @Override
+    public List<PointValuePair> getValue() {
+        int[] order = points.sortedOrder();
+        return new AbstractList<PointValuePair>() {
+            @Override
+            public PointValuePair get(int position) {
+                int index = order == null ? position : order[position];
+                return new PointValuePair(points.createPoint(index), points.createValue(index));
+            }
+
+            @Override
+            public int size() {
+                return points.size();
+            }
+        };
+    }
+
+    @Override
+    public List<Value<?>> getRangeSet() {
+        int[] order = points.sortedOrder();
+        return Collections.unmodifiableList(new AbstractList<Value<?>>() {
+            @Override
+            public Value<?> get(int position) {
+                return points.createValue(order == null ? position : order[position]);
+            }
+
+            @Override
+            public int size() {
+                return points.size();
+            }
+        });
+    }
+
+    @Override
+    public boolean isSetValue() {
+        return points.size() > 0;
+    }
+
+    @Override
+    public Envelope getEnvelope() {
+        return points.getEnvelope();
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * Packed storage of located (and optionally timed) values.
+ * <p>
+ * Coordinates are stored interleaved as x/y/z ({@code NaN} for two
+ * dimensional points) in a single array, times as milliseconds since the epoch
+ * and values in a {@code double} array as long as all values are
+ * {@link QuantityValue}s or {@link SimpleQuantityValue}s with the same unit,
+ * in a {@link Value} array otherwise. The envelope and the time extent are maintained on insert.
+ *
+ * @since 1.0.0
+ */
+final class PackedPoints {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int STRIDE = 3;
+
+    private final boolean timed;
+    private double[] coordinates = new double[INITIAL_CAPACITY * STRIDE];
+    private long[] startTimes;
+    private long[] endTimes;
+    private double[] quantities = new double[INITIAL_CAPACITY];
+    private Value<?>[] values;
+    private UoM quantityUnit;
+    private final Envelope envelope = new Envelope();
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private int srid;
+    private GeometryFactory geometryFactory;
+    private boolean sorted = true;
+    private int[] order;
+    private int size;
+
+    PackedPoints(boolean timed) {
+        this.timed = timed;
+        if (timed) {
+            this.startTimes = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getSrid() {
+        return srid;
+    }
+
+    void setSrid(int srid) {
+        this.srid = srid;
+        this.geometryFactory = null;
+    }
+
+    /**
+     * Adds a value at the location.
+     *
+     * @param location the location, has to be a {@link Point}
+     * @param value    the value
+     *
+     * @return the index of the value
+     */
+    int add(Geometry location, Value<?> value) {
+        Coordinate coordinate = getCoordinate(location);
+        return add(coordinate.x, coordinate.y, coordinate.z, value);
+    }
+
+    int add(double x, double y, double z, Value<?> value) {
+        int index = prepare(x, y, z);
+        setValue(index, value);
+        return size++;
+    }
+
+    int addQuantity(double x, double y, double z, double value) {
+        int index = prepare(x, y, z);
+        if (values == null) {
+            quantities[index] = value;
+        } else {
+            values[index] = new QuantityValue(value, quantityUnit);
+        }
+        return size++;
+    }
+
+    /**
+     * Adds a value at the location and time.
+     *
+     * @param time     the time, has to be a {@link TimeInstant} or a
+     *                 {@link TimePeriod} with determinate positions
+     * @param location the location, has to be a {@link Point}
+     * @param value    the value
+     *
+     * @return the index of the value
+     */
+    int add(Time time, Geometry location, Value<?> value) {
+        long start;
+        long end;
+        if (time instanceof TimeInstant && ((TimeInstant) time).isSetValue()) {
+            start = end = ((TimeInstant) time).getValue().getMillis();
+        } else if (time instanceof TimePeriod && ((TimePeriod) time).isSetStart() && ((TimePeriod) time).isSetEnd()) {
+            start = ((TimePeriod) time).getStart().getMillis();
+            end = ((TimePeriod) time).getEnd().getMillis();
+        } else {
+            throw new IllegalArgumentException("Unsupported time: " + time);
+        }
+        Coordinate coordinate = getCoordinate(location);
+        return add(start, end, coordinate.x, coordinate.y, coordinate.z, value);
+    }
+
+    int add(long start, long end, double x, double y, double z, Value<?> value) {
+        if (!timed) {
+            throw new IllegalStateException("Points are not timed");
+        }
+        if (start != end && endTimes == null) {
+            endTimes = Arrays.copyOf(startTimes, startTimes.length);
+        }
+        if (size > 0 && sorted && start < startTimes[size - 1]) {
+            sorted = false;
+        }
+        int index = prepare(x, y, z);
+        startTimes[index] = start;
+        if (endTimes != null) {
+            endTimes[index] = end;
+        }
+        minTime = Math.min(minTime, start);
+        maxTime = Math.max(maxTime, end);
+        setValue(index, value);
+        return size++;
+    }
+
+    double getX(int index) {
+        return coordinates[checkIndex(index) * STRIDE];
+    }
+
+    double getY(int index) {
+        return coordinates[checkIndex(index) * STRIDE + 1];
+    }
+
+    double getZ(int index) {
+        return coordinates[checkIndex(index) * STRIDE + 2];
+    }
+
+    long getStartTime(int index) {
+        return startTimes[checkIndex(index)];
+    }
+
+    long getEndTime(int index) {
+        return endTimes == null ? startTimes[checkIndex(index)] : endTimes[checkIndex(index)];
+    }
+
+    Point createPoint(int index) {
+        int offset = checkIndex(index) * STRIDE;
+        return getGeometryFactory()
+                .createPoint(new Coordinate(coordinates[offset], coordinates[offset + 1], coordinates[offset + 2]));
+    }
+
+    Time createTime(int index) {
+        long start = getStartTime(index);
+        long end = getEndTime(index);
+        if (start == end) {
+            return new TimeInstant(new DateTime(start, DateTimeZone.UTC));
+        }
+        return new TimePeriod(new DateTime(start, DateTimeZone.UTC), new DateTime(end, DateTimeZone.UTC));
+    }
+
+    Value<?> createValue(int index) {
+        if (values != null) {
+            return values[checkIndex(index)];
+        }
+        return new QuantityValue(quantities[checkIndex(index)], quantityUnit);
+    }
+
+    boolean isQuantityColumn() {
+        return values == null;
+    }
+
+    double getQuantity(int index) {
+        if (values != null) {
+            throw new IllegalStateException("Values are not stored as quantities");
+        }
+        return quantities[checkIndex(index)];
+    }
+
+    /**
+     * @return a read-only view of the interleaved x/y/z coordinates
+     */
+    DoubleBuffer getCoordinates() {
+        return DoubleBuffer.wrap(coordinates, 0, size * STRIDE).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the (start) times
+     */
+    LongBuffer getTimes() {
+        if (!timed) {
+            throw new IllegalStateException("Points are not timed");
+        }
+        return LongBuffer.wrap(startTimes, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the envelope of all points
+     */
+    Envelope getEnvelope() {
+        return new Envelope(envelope);
+    }
+
+    TimePeriod getTimeExtent() {
+        if (size == 0 || !timed) {
+            return new TimePeriod();
+        }
+        return new TimePeriod(new DateTime(minTime, DateTimeZone.UTC), new DateTime(maxTime, DateTimeZone.UTC));
+    }
+
+    /**
+     * Returns the order of the points by time (if timed) and location. The
+     * storage itself is left untouched, so indices stay stable across calls.
+     *
+     * @return the indices of the points in sorted order, {@code null} if the
+     *         points were added in order
+     */
+    int[] sortedOrder() {
+        if (sorted) {
+            return null;
+        }
+        int[] cached = order;
+        if (cached != null && cached.length == size) {
+            return cached;
+        }
+        Integer[] boxed = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = i;
+        }
+        Comparator<Integer> comparator = Comparator.comparingDouble(i -> coordinates[i * STRIDE]);
+        comparator = comparator.thenComparingDouble(i -> coordinates[i * STRIDE + 1]);
+        if (timed) {
+            Comparator<Integer> byTime = Comparator.comparingLong(i -> startTimes[i]);
+            comparator = byTime.thenComparing(comparator);
+        }
+        Arrays.sort(boxed, comparator);
+        cached = new int[size];
+        for (int i = 0; i < size; i++) {
+            cached[i] = boxed[i];
+        }
+        order = cached;
+        return cached;
+    }
+
+    void clear() {
+        size = 0;
+        coordinates = new double[INITIAL_CAPACITY * STRIDE];
+        startTimes = timed ? new long[INITIAL_CAPACITY] : null;
+        endTimes = null;
+        quantities = new double[INITIAL_CAPACITY];
+        values = null;
+        quantityUnit = null;
+        envelope.setToNull();
+        minTime = Long.MAX_VALUE;
+        maxTime = Long.MIN_VALUE;
+        sorted = true;
+        order = null;
+    }
+
+    private int prepare(double x, double y, double z) {
+        if (size == quantities.length) {
+            int capacity = size + (size >> 1);
+            coordinates = Arrays.copyOf(coordinates, capacity * STRIDE);
+            quantities = Arrays.copyOf(quantities, capacity);
+            if (startTimes != null) {
+                startTimes = Arrays.copyOf(startTimes, capacity);
+            }
+            if (endTimes != null) {
+                endTimes = Arrays.copyOf(endTimes, capacity);
+            }
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+        if (!timed && size > 0 && sorted) {
+            int previous = (size - 1) * STRIDE;
+            double px = coordinates[previous];
+            sorted = px < x || px == x && coordinates[previous + 1] <= y;
+        }
+        int offset = size * STRIDE;
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        coordinates[offset + 2] = z;
+        envelope.expandToInclude(x, y);
+        return size;
+    }
+
+    private void setValue(int index, Value<?> value) {
+        if (values == null && isPackable(value)) {
+            if (quantityUnit == null) {
+                quantityUnit = value.getUnitObject();
+            }
+            quantities[index] = ((Number) value.getValue()).doubleValue();
+        } else {
+            if (values == null) {
+                values = new Value<?>[quantities.length];
+                for (int i = 0; i < index; i++) {
+                    values[i] = new QuantityValue(quantities[i], quantityUnit);
+                }
+            }
+            values[index] = value;
+        }
+    }
+
+    private boolean isPackable(Value<?> value) {
+        if (value == null || !value.isSetValue()) {
+            return false;
+        }
+        if (value instanceof QuantityValue) {
+            QuantityValue quantity = (QuantityValue) value;
+            if (quantity.isSetName() || quantity.isSetDefinition()) {
+                return false;
+            }
+        } else if (!(value instanceof SimpleQuantityValue)) {
+            return false;
+        }
+        return size == 0 && quantityUnit == null || Objects.equals(quantityUnit, value.getUnitObject());
+    }
+
+    private Coordinate getCoordinate(Geometry location) {
+        if (!(location instanceof Point) || location.isEmpty()) {
+            throw new IllegalArgumentException("Location is not a point: " + location);
+        }
+        if (size == 0 && srid == 0) {
+            setSrid(location.getSRID());
+        }
+        return location.getCoordinate();
+    }
+
+    private GeometryFactory getGeometryFactory() {
+        if (geometryFactory == null) {
+            geometryFactory = new GeometryFactory(new PrecisionModel(PrecisionModel.FLOATING), srid);
+        }
+        return geometryFactory;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return index;
+    }
+}
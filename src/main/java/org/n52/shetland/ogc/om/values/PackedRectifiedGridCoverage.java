@@ -0,0 +1,617 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.google.common.primitives.Doubles;
+
+/**
+ * {@link RectifiedGridCoverage} that stores the domain in a {@code double}
+ * array and the range in an array of the range type instead of a
+ * {@code TreeMap} of boxed keys and {@link Value} objects.
+ * <p>
+ * Domain values are kept in ascending order and looked up by binary search.
+ * {@link #slice(double, double)}, {@link #getDomainSet()},
+ * {@link #getDomainBuffer()} and the range buffers share the arrays of this
+ * coverage. Slices are read-only views: like the sub lists of an
+ * {@code ArrayList} they fail with a {@link ConcurrentModificationException}
+ * once the coverage they were created from is modified. {@link #getValue()} and
+ * {@link #getRangeSet()} are views that create the {@link Value}s on access,
+ * so existing consumers of the {@link SortedMap} API keep working.
+ *
+ * @since 1.0.0
+ */
+public class PackedRectifiedGridCoverage extends RectifiedGridCoverage {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final RangeType rangeType;
+    private final boolean readOnly;
+    private final PackedRectifiedGridCoverage parent;
+    private final int expectedModCount;
+    private int modCount;
+    private double[] domain;
+    private double[] quantities;
+    private int[] counts;
+    private boolean[] booleans;
+    private String[] categories;
+    private int offset;
+    private int size;
+
+    /**
+     * Creates a new, empty coverage.
+     *
+     * @param gmlId
+     *            the gml id
+     * @param rangeType
+     *            the type of the range values
+     */
+    public PackedRectifiedGridCoverage(String gmlId, RangeType rangeType) {
+        super(gmlId);
+        this.rangeType = Objects.requireNonNull(rangeType);
+        this.readOnly = false;
+        this.parent = null;
+        this.expectedModCount = 0;
+        this.domain = new double[INITIAL_CAPACITY];
+        allocateRange(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new quantity coverage that wraps the arrays without copying.
+     *
+     * @param gmlId
+     *            the gml id
+     * @param domain
+     *            the strictly ascending domain values
+     * @param range
+     *            the range values
+     */
+    public PackedRectifiedGridCoverage(String gmlId, double[] domain, double[] range) {
+        this(gmlId, RangeType.QUANTITY, domain, range.length);
+        this.quantities = range;
+    }
+
+    /**
+     * Creates a new count coverage that wraps the arrays without copying.
+     *
+     * @param gmlId
+     *            the gml id
+     * @param domain
+     *            the strictly ascending domain values
+     * @param range
+     *            the range values
+     */
+    public PackedRectifiedGridCoverage(String gmlId, double[] domain, int[] range) {
+        this(gmlId, RangeType.COUNT, domain, range.length);
+        this.counts = range;
+    }
+
+    private PackedRectifiedGridCoverage(String gmlId, RangeType rangeType, double[] domain, int rangeLength) {
+        super(gmlId);
+        if (domain.length != rangeLength) {
+            throw new IllegalArgumentException(String.format("Domain and range differ in length: %d != %d",
+                                                             domain.length, rangeLength));
+        }
+        for (int i = 1; i < domain.length; i++) {
+            if (!(domain[i] > domain[i - 1])) {
+                throw new IllegalArgumentException("Domain values are not strictly ascending at index " + i);
+            }
+        }
+        this.rangeType = rangeType;
+        this.readOnly = false;
+        this.parent = null;
+        this.expectedModCount = 0;
+        this.domain = domain;
+        this.size = domain.length;
+    }
+
+    private PackedRectifiedGridCoverage(PackedRectifiedGridCoverage source, int from, int to) {
+        super(source.getGmlId());
+        this.rangeType = source.rangeType;
+        this.readOnly = true;
+        this.parent = source.parent == null ? source : source.parent;
+        this.expectedModCount = this.parent.modCount;
+        this.domain = source.domain;
+        this.quantities = source.quantities;
+        this.counts = source.counts;
+        this.booleans = source.booleans;
+        this.categories = source.categories;
+        this.offset = source.offset + from;
+        this.size = to - from;
+        setUnit(source.getUnitObject());
+    }
+
+    public RangeType getRangeType() {
+        return rangeType;
+    }
+
+    /**
+     * @return the number of grid cells
+     */
+    public int size() {
+        checkForComodification();
+        return size;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public PackedRectifiedGridCoverage addQuantity(double domainValue, double rangeValue) {
+        int index = prepareInsert(domainValue, RangeType.QUANTITY);
+        quantities[index] = rangeValue;
+        return this;
+    }
+
+    public PackedRectifiedGridCoverage addCount(double domainValue, int rangeValue) {
+        int index = prepareInsert(domainValue, RangeType.COUNT);
+        counts[index] = rangeValue;
+        return this;
+    }
+
+    public PackedRectifiedGridCoverage addBoolean(double domainValue, boolean rangeValue) {
+        int index = prepareInsert(domainValue, RangeType.BOOLEAN);
+        booleans[index] = rangeValue;
+        return this;
+    }
+
+    public PackedRectifiedGridCoverage addCategory(double domainValue, String rangeValue) {
+        int index = prepareInsert(domainValue, RangeType.CATEGORY);
+        categories[index] = rangeValue;
+        return this;
+    }
+
+    /**
+     * Adds the value. Appending in ascending domain order is the fast path,
+     * other keys are inserted at their position and existing keys are
+     * replaced. Any value with a matching value type is accepted, e.g. a
+     * {@link QuantityValue} or a {@link SimpleQuantityValue} for a quantity
+     * range. Missing quantities are stored as {@code NaN} and missing
+     * categories as {@code null}; count and boolean ranges have no
+     * representation for missing values and reject them.
+     *
+     * @throws IllegalArgumentException
+     *             if a count or boolean value is missing
+     */
+    @Override
+    public void addValue(Double key, Value<?> value) {
+        switch (rangeType) {
+            case QUANTITY:
+                Number quantity = value == null ? null : (Number) value.getValue();
+                addQuantity(key, quantity == null ? Double.NaN : quantity.doubleValue());
+                break;
+            case COUNT:
+                addCount(key, ((Number) checkPresent(key, value).getValue()).intValue());
+                break;
+            case BOOLEAN:
+                addBoolean(key, (Boolean) checkPresent(key, value).getValue());
+                break;
+            case CATEGORY:
+            default:
+                addCategory(key, value == null ? null : (String) value.getValue());
+                break;
+        }
+    }
+
+    @Override
+    public void addValue(SortedMap<Double, Value<?>> value) {
+        value.forEach(this::addValue);
+    }
+
+    @Override
+    public PackedRectifiedGridCoverage setValue(SortedMap<Double, Value<?>> value) {
+        checkWritable();
+        this.size = 0;
+        this.modCount++;
+        addValue(value);
+        return this;
+    }
+
+    /**
+     * @param domainValue
+     *            the domain value
+     * @return the index of the domain value or {@code -(insertion point) - 1}
+     *         if it is not contained
+     */
+    public int indexOf(double domainValue) {
+        checkForComodification();
+        int index = Arrays.binarySearch(domain, offset, offset + size, domainValue);
+        return index >= 0 ? index - offset : index + offset;
+    }
+
+    public double getDomain(int index) {
+        return domain[offset + checkIndex(index)];
+    }
+
+    public double getQuantity(int index) {
+        checkRangeType(RangeType.QUANTITY);
+        return quantities[offset + checkIndex(index)];
+    }
+
+    public int getCount(int index) {
+        checkRangeType(RangeType.COUNT);
+        return counts[offset + checkIndex(index)];
+    }
+
+    public boolean getBoolean(int index) {
+        checkRangeType(RangeType.BOOLEAN);
+        return booleans[offset + checkIndex(index)];
+    }
+
+    public String getCategory(int index) {
+        checkRangeType(RangeType.CATEGORY);
+        return categories[offset + checkIndex(index)];
+    }
+
+    /**
+     * @param index
+     *            the cell index
+     * @return a new {@link Value} for the range value of the cell
+     */
+    public Value<?> getRangeValue(int index) {
+        int i = offset + checkIndex(index);
+        switch (rangeType) {
+            case QUANTITY:
+                return new QuantityValue(quantities[i], getUnitObject());
+            case COUNT:
+                return new CountValue(counts[i]);
+            case BOOLEAN:
+                return new BooleanValue(booleans[i]);
+            case CATEGORY:
+            default:
+                return new CategoryValue(categories[i], getUnitObject());
+        }
+    }
+
+    /**
+     * Creates a read-only view of the cells with domain values in
+     * {@code [from, to)}.
+     *
+     * @param from
+     *            the inclusive lower bound
+     * @param to
+     *            the exclusive upper bound
+     * @return the slice
+     */
+    public PackedRectifiedGridCoverage slice(double from, double to) {
+        int start = lowerBound(from);
+        return slice(start, Math.max(start, lowerBound(to)));
+    }
+
+    private PackedRectifiedGridCoverage slice(int from, int to) {
+        return new PackedRectifiedGridCoverage(this, from, to);
+    }
+
+    /**
+     * @return a read-only view of the domain values
+     */
+    public DoubleBuffer getDomainBuffer() {
+        checkForComodification();
+        return DoubleBuffer.wrap(domain, offset, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the quantity range values
+     */
+    public DoubleBuffer getQuantityBuffer() {
+        checkRangeType(RangeType.QUANTITY);
+        checkForComodification();
+        return DoubleBuffer.wrap(quantities, offset, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the count range values
+     */
+    public IntBuffer getCountBuffer() {
+        checkRangeType(RangeType.COUNT);
+        checkForComodification();
+        return IntBuffer.wrap(counts, offset, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only view of the domain values
+     */
+    @Override
+    public List<Double> getDomainSet() {
+        checkForComodification();
+        return Collections.unmodifiableList(Doubles.asList(domain).subList(offset, offset + size));
+    }
+
+    /**
+     * @return a read-only view of the range values
+     */
+    @Override
+    public Collection<Value<?>> getRangeSet() {
+        return new AbstractList<Value<?>>() {
+            @Override
+            public Value<?> get(int index) {
+                return getRangeValue(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @return a read-only {@link SortedMap} view of the cells
+     */
+    @Override
+    public SortedMap<Double, Value<?>> getValue() {
+        return new SortedMapView();
+    }
+
+    @Override
+    public boolean isSetValue() {
+        return size > 0;
+    }
+
+    private int lowerBound(double domainValue) {
+        int index = indexOf(domainValue);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int prepareInsert(double domainValue, RangeType type) {
+        checkWritable();
+        checkRangeType(type);
+        if (Double.isNaN(domainValue)) {
+            throw new IllegalArgumentException("Domain value is NaN");
+        }
+        modCount++;
+        if (size == 0 || domainValue > domain[size - 1]) {
+            ensureCapacity(size + 1);
+            domain[size] = domainValue;
+            return size++;
+        }
+        int index = Arrays.binarySearch(domain, 0, size, domainValue);
+        if (index >= 0) {
+            return index;
+        }
+        index = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(domain, index, domain, index + 1, size - index);
+        shiftRange(index);
+        domain[index] = domainValue;
+        size++;
+        return index;
+    }
+
+    private void shiftRange(int index) {
+        switch (rangeType) {
+            case QUANTITY:
+                System.arraycopy(quantities, index, quantities, index + 1, size - index);
+                break;
+            case COUNT:
+                System.arraycopy(counts, index, counts, index + 1, size - index);
+                break;
+            case BOOLEAN:
+                System.arraycopy(booleans, index, booleans, index + 1, size - index);
+                break;
+            case CATEGORY:
+            default:
+                System.arraycopy(categories, index, categories, index + 1, size - index);
+                break;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > domain.length) {
+            int newCapacity = Math.max(capacity, domain.length + (domain.length >> 1) + 1);
+            domain = Arrays.copyOf(domain, newCapacity);
+            switch (rangeType) {
+                case QUANTITY:
+                    quantities = Arrays.copyOf(quantities, newCapacity);
+                    break;
+                case COUNT:
+                    counts = Arrays.copyOf(counts, newCapacity);
+                    break;
+                case BOOLEAN:
+                    booleans = Arrays.copyOf(booleans, newCapacity);
+                    break;
+                case CATEGORY:
+                default:
+                    categories = Arrays.copyOf(categories, newCapacity);
+                    break;
+            }
+        }
+    }
+
+    private void allocateRange(int capacity) {
+        switch (rangeType) {
+            case QUANTITY:
+                quantities = new double[capacity];
+                break;
+            case COUNT:
+                counts = new int[capacity];
+                break;
+            case BOOLEAN:
+                booleans = new boolean[capacity];
+                break;
+            case CATEGORY:
+            default:
+                categories = new String[capacity];
+                break;
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Coverage slices are read-only");
+        }
+    }
+
+    private void checkRangeType(RangeType type) {
+        if (rangeType != type) {
+            throw new IllegalStateException(String.format("Range type is %s, not %s", rangeType, type));
+        }
+    }
+
+    private static Value<?> checkPresent(Double key, Value<?> value) {
+        if (value == null || !value.isSetValue()) {
+            throw new IllegalArgumentException("Missing range value at " + key);
+        }
+        return value;
+    }
+
+    private void checkForComodification() {
+        if (parent != null && parent.modCount != expectedModCount) {
+            throw new ConcurrentModificationException("The coverage was modified after the slice was created");
+        }
+    }
+
+    private int checkIndex(int index) {
+        checkForComodification();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return index;
+    }
+
+    /**
+     * The type of the range values.
+     */
+    public enum RangeType {
+        QUANTITY,
+        COUNT,
+        BOOLEAN,
+        CATEGORY
+    }
+
+    private class SortedMapView extends AbstractMap<Double, Value<?>> implements SortedMap<Double, Value<?>> {
+        private final PackedRectifiedGridCoverage coverage;
+
+        SortedMapView() {
+            this(PackedRectifiedGridCoverage.this);
+        }
+
+        SortedMapView(PackedRectifiedGridCoverage coverage) {
+            this.coverage = coverage;
+        }
+
+        @Override
+        public int size() {
+            return coverage.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Double && coverage.indexOf((Double) key) >= 0;
+        }
+
+        @Override
+        public Value<?> get(Object key) {
+            if (key instanceof Double) {
+                int index = coverage.indexOf((Double) key);
+                if (index >= 0) {
+                    return coverage.getRangeValue(index);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Comparator<? super Double> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<Double, Value<?>> subMap(Double fromKey, Double toKey) {
+            if (fromKey > toKey) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new SortedMapView(coverage.slice(fromKey, toKey));
+        }
+
+        @Override
+        public SortedMap<Double, Value<?>> headMap(Double toKey) {
+            return new SortedMapView(coverage.slice(0, coverage.lowerBound(toKey)));
+        }
+
+        @Override
+        public SortedMap<Double, Value<?>> tailMap(Double fromKey) {
+            return new SortedMapView(coverage.slice(coverage.lowerBound(fromKey), coverage.size()));
+        }
+
+        @Override
+        public Double firstKey() {
+            if (coverage.size() == 0) {
+                throw new NoSuchElementException();
+            }
+            return coverage.getDomain(0);
+        }
+
+        @Override
+        public Double lastKey() {
+            if (coverage.size() == 0) {
+                throw new NoSuchElementException();
+            }
+            return coverage.getDomain(coverage.size() - 1);
+        }
+
+        @Override
+        public Set<Map.Entry<Double, Value<?>>> entrySet() {
+            return new AbstractSet<Map.Entry<Double, Value<?>>>() {
+                @Override
+                public Iterator<Map.Entry<Double, Value<?>>> iterator() {
+                    return new Iterator<Map.Entry<Double, Value<?>>>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < coverage.size();
+                        }
+
+                        @Override
+                        public Map.Entry<Double, Value<?>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<Double, Value<?>> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                    coverage.getDomain(index), coverage.getRangeValue(index));
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return coverage.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.List;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * {@link TLVTValue} that stores a trajectory as interleaved coordinates,
+ * times in milliseconds since the epoch and the values in a packed column
+ * instead of {@link TimeLocationValueTriple}s.
+ * <p>
+ * Only {@link Point} locations and determinate times are supported; times are
+ * returned in UTC. The envelope and the phenomenon time are maintained on
+ * insert. {@link TimeLocationValueTriple}s are only created when accessed
+ * through the read-only {@link #getValue()}.
+ *
+ * @since 1.0.0
+ */
+public class PackedTLVTValue extends TLVTValue {
+
+    private final PackedPoints points = new PackedPoints(true);
+
+    /**
+     * @param srid
+     *            the SRID of the locations, defaults to the SRID of the first
+     *            added {@link Point}
+     * @return {@code this}
+     */
+    public PackedTLVTValue setSrid(int srid) {
+        points.setSrid(srid);
+        return this;
+    }
+
+    public int getSrid() {
+        return points.getSrid();
+    }
+
+    @Override
+    public void addValue(TimeLocationValueTriple value) {
+        points.add(value.getTime(), value.getLocation(), value.getValue());
+    }
+
+    @Override
+    public void addValues(List<TimeLocationValueTriple> values) {
+        values.forEach(this::addValue);
+    }
+
+    @Override
+    public PackedTLVTValue setValue(List<TimeLocationValueTriple> value) {
+        points.clear();
+        addValues(value);
+        return this;
+    }
+
+    /**
+     * Adds a value at the location and time.
+     *
+     * @param time
+     *            the time in milliseconds since the epoch
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param z
+     *            the z coordinate, {@code NaN} for two dimensional points
+     * @param value
+     *            the value
+     * @return {@code this}
+     */
+    public PackedTLVTValue add(long time, double x, double y, double z, Value<?> value) {
+        points.add(time, time, x, y, z, value);
+        return this;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return points.size();
+    }
+
+    public Point getLocation(int index) {
+        return points.createPoint(index);
+    }
+
+    public Time getTime(int index) {
+        return points.createTime(index);
+    }
+
+    public Value<?> getRangeValue(int index) {
+        return points.createValue(index);
+    }
+
+    /**
+     * @return a read-only view of the interleaved x/y/z coordinates
+     */
+    public DoubleBuffer getCoordinates() {
+        return points.getCoordinates();
+    }
+
+    /**
+     * @return a read-only view of the (start) times in milliseconds since the
+     *         epoch
+     */
+    public LongBuffer getTimes() {
+        return points.getTimes();
+    }
+
+    /**
+     * @return the envelope of all locations, a null envelope if empty
+     */
+    public Envelope getEnvelope() {
+        return points.getEnvelope();
+    }
+
+    /**
+     * @return a read-only view of the values, sorted by time and location
+     */
+    @Override
+    public List<TimeLocationValueTriple> getValue() {
+        int[] order = points.sortedOrder();
+        return new AbstractList<TimeLocationValueTriple>() {
+            @Override
+            public TimeLocationValueTriple get(int position) {
+                int index = order == null ? position : order[position];
+                return new TimeLocationValueTriple(points.createTime(index), points.createValue(index),
+                                                   points.createPoint(index));
+            }
+
+            @Override
+            public int size() {
+                return points.size();
+            }
+        };
+    }
+
+    @Override
+    public Time getPhenomenonTime() {
+        return points.getTimeExtent();
+    }
+
+    @Override
+    public boolean isSetValue() {
+        return points.size() > 0;
+    }
+}
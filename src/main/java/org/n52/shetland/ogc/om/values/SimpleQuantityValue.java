@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.om.values.visitor.ValueVisitor;
+
+/**
+ * Simple quantity value that does not carry the state of a SWE data component.
+ *
+ * @see QuantityValue
+ * @since 1.0.0
+ */
+public class SimpleQuantityValue extends AbstractSimpleValue<Double> {
+
+    public SimpleQuantityValue(Double value) {
+        super(value);
+    }
+
+    public SimpleQuantityValue(Double value, UoM unit) {
+        super(value, unit);
+    }
+
+    public SimpleQuantityValue(Double value, String unit) {
+        super(value, unit == null ? null : new UoM(unit));
+    }
+
+    @Override
+    public SimpleQuantityValue setValue(Double value) {
+        super.setValue(value);
+        return this;
+    }
+
+    @Override
+    public SimpleQuantityValue setUnit(UoM unit) {
+        super.setUnit(unit);
+        return this;
+    }
+
+    @Override
+    public QuantityValue toSweValue() {
+        return new QuantityValue(getValue(), getUnitObject());
+    }
+
+    @Override
+    public <X, E extends Exception> X accept(ValueVisitor<X, E> visitor) throws E {
+        return visitor.visit(this);
+    }
+}
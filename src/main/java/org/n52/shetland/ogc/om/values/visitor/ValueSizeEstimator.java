@@ -0,0 +1,336 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values.visitor;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.BooleanValue;
+import org.n52.shetland.ogc.om.values.CategoryValue;
+import org.n52.shetland.ogc.om.values.ComplexValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.CvDiscretePointCoverage;
+import org.n52.shetland.ogc.om.values.GeometryValue;
+import org.n52.shetland.ogc.om.values.HrefAttributeValue;
+import org.n52.shetland.ogc.om.values.MultiPointCoverage;
+import org.n52.shetland.ogc.om.values.NilTemplateValue;
+import org.n52.shetland.ogc.om.values.PackedMultiPointCoverage;
+import org.n52.shetland.ogc.om.values.PackedRectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.PackedTLVTValue;
+import org.n52.shetland.ogc.om.values.ProfileLevel;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.ReferenceValue;
+import org.n52.shetland.ogc.om.values.SimpleBooleanValue;
+import org.n52.shetland.ogc.om.values.SimpleCategoryValue;
+import org.n52.shetland.ogc.om.values.SimpleCountValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.SimpleTextValue;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.om.values.TLVTValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.UnknownValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweField;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Estimates the encoded size of a {@link Value} in bytes. The estimates are
+ * based on the XML encoding of the values and are meant to limit the size of
+ * responses before they are encoded, not to be exact.
+ *
+ * @since 1.0.0
+ */
+public class ValueSizeEstimator implements ValueVisitor<Long, RuntimeException> {
+    /**
+     * Size of the element wrapping a value including the unit of measure.
+     */
+    public static final long ELEMENT = 64;
+    /**
+     * Size of an encoded number.
+     */
+    public static final long NUMBER = 24;
+    /**
+     * Size of an encoded time instant.
+     */
+    public static final long TIME = 96;
+    /**
+     * Size of a geometry without its coordinates.
+     */
+    public static final long GEOMETRY = 128;
+    /**
+     * Size of a single coordinate tuple.
+     */
+    public static final long COORDINATE = 2 * NUMBER;
+    /**
+     * Size of a data record field without its value.
+     */
+    public static final long FIELD = 192;
+
+    private static final ValueSizeEstimator INSTANCE = new ValueSizeEstimator();
+
+    /**
+     * Estimate the size of the supplied value.
+     *
+     * @param value the value, may be {@code null}
+     *
+     * @return the estimated size in bytes
+     */
+    public static long estimate(Value<?> value) {
+        return value == null ? 0 : value.accept(INSTANCE);
+    }
+
+    /**
+     * Estimate the size of the supplied geometry.
+     *
+     * @param geometry the geometry, may be {@code null}
+     *
+     * @return the estimated size in bytes
+     */
+    public static long estimate(Geometry geometry) {
+        return geometry == null ? 0 : GEOMETRY + geometry.getNumPoints() * COORDINATE;
+    }
+
+    /**
+     * Estimate the size of the supplied string.
+     *
+     * @param string the string, may be {@code null}
+     *
+     * @return the estimated size in bytes
+     */
+    public static long estimate(CharSequence string) {
+        return string == null ? 0 : string.length();
+    }
+
+    @Override
+    public Long visit(BooleanValue value) {
+        return ELEMENT + 5;
+    }
+
+    @Override
+    public Long visit(CategoryValue value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    @Override
+    public Long visit(ComplexValue value) {
+        long size = ELEMENT;
+        if (value.isSetValue() && value.getValue().getFields() != null) {
+            for (SweField field : value.getValue().getFields()) {
+                size += FIELD;
+                if (field.getElement() instanceof Value) {
+                    size += estimate((Value<?>) field.getElement());
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(CountValue value) {
+        return ELEMENT + NUMBER;
+    }
+
+    @Override
+    public Long visit(GeometryValue value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    @Override
+    public Long visit(HrefAttributeValue value) {
+        return ELEMENT + (value.isSetValue() ? estimate(value.getValue().getHref()) : 0);
+    }
+
+    @Override
+    public Long visit(NilTemplateValue value) {
+        return ELEMENT;
+    }
+
+    @Override
+    public Long visit(QuantityValue value) {
+        return ELEMENT + NUMBER;
+    }
+
+    @Override
+    public Long visit(ReferenceValue value) {
+        long size = ELEMENT;
+        if (value.isSetValue()) {
+            ReferenceType reference = value.getValue();
+            size += estimate(reference.getHref()) + estimate(reference.getTitle());
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(SweDataArrayValue value) {
+        long size = ELEMENT;
+        if (value.isSetValue()) {
+            SweDataArray array = value.getValue();
+            if (array.getElementType() != null) {
+                size += FIELD;
+            }
+            if (array.getValues() != null) {
+                for (List<String> block : array.getValues()) {
+                    // one separator per token
+                    size += block.size();
+                    for (String token : block) {
+                        size += estimate(token);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(TVPValue value) {
+        long size = ELEMENT;
+        if (value.isSetValue()) {
+            for (TimeValuePair tvp : value.getValue()) {
+                size += TIME + estimate(tvp.getValue());
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(TLVTValue value) {
+        long size = ELEMENT;
+        if (value instanceof PackedTLVTValue) {
+            PackedTLVTValue packed = (PackedTLVTValue) value;
+            for (int i = 0; i < packed.size(); i++) {
+                size += TIME + GEOMETRY + COORDINATE + estimate(packed.getRangeValue(i));
+            }
+        } else if (value.isSetValue()) {
+            for (TimeLocationValueTriple tlvt : value.getValue()) {
+                size += TIME + estimate(tlvt.getLocation()) + estimate(tlvt.getValue());
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(TextValue value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    @Override
+    public Long visit(CvDiscretePointCoverage value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    @Override
+    public Long visit(MultiPointCoverage value) {
+        long size = ELEMENT;
+        if (value instanceof PackedMultiPointCoverage) {
+            PackedMultiPointCoverage packed = (PackedMultiPointCoverage) value;
+            for (int i = 0; i < packed.size(); i++) {
+                size += GEOMETRY + COORDINATE + estimate(packed.getRangeValue(i));
+            }
+        } else if (value.isSetValue()) {
+            for (PointValuePair pvp : value.getValue()) {
+                size += estimate(pvp);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(RectifiedGridCoverage value) {
+        long size = ELEMENT;
+        if (value instanceof PackedRectifiedGridCoverage) {
+            PackedRectifiedGridCoverage packed = (PackedRectifiedGridCoverage) value;
+            switch (packed.getRangeType()) {
+                case QUANTITY:
+                case COUNT:
+                    return size + packed.size() * (2 * NUMBER + ELEMENT);
+                case BOOLEAN:
+                    return size + packed.size() * (NUMBER + ELEMENT + 5);
+                case CATEGORY:
+                default:
+                    for (int i = 0; i < packed.size(); i++) {
+                        size += NUMBER + ELEMENT + estimate(packed.getCategory(i));
+                    }
+                    return size;
+            }
+        } else if (value.isSetValue()) {
+            Collection<Value<?>> range = value.getValue().values();
+            for (Value<?> v : range) {
+                size += NUMBER + estimate(v);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(ProfileValue value) {
+        long size = ELEMENT;
+        if (value.isSetValue()) {
+            for (ProfileLevel level : value.getValue()) {
+                size += ELEMENT + 2 * NUMBER + estimate(level.getLocation());
+                if (level.isSetValue()) {
+                    for (Value<?> v : level.getValue()) {
+                        size += estimate(v);
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Long visit(UnknownValue value) {
+        return ELEMENT;
+    }
+
+    @Override
+    public Long visit(SimpleQuantityValue value) {
+        return ELEMENT + NUMBER;
+    }
+
+    @Override
+    public Long visit(SimpleCountValue value) {
+        return ELEMENT + NUMBER;
+    }
+
+    @Override
+    public Long visit(SimpleBooleanValue value) {
+        return ELEMENT + 5;
+    }
+
+    @Override
+    public Long visit(SimpleCategoryValue value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    @Override
+    public Long visit(SimpleTextValue value) {
+        return ELEMENT + estimate(value.getValue());
+    }
+
+    private static long estimate(PointValuePair pvp) {
+        return pvp == null ? 0 : estimate(pvp.getPoint()) + estimate(pvp.getValue());
+    }
+}
@@ -29,6 +29,11 @@ import org.n52.shetland.ogc.om.values.ProfileValue;
 import org.n52.shetland.ogc.om.values.QuantityValue;
 import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
 import org.n52.shetland.ogc.om.values.ReferenceValue;
+import org.n52.shetland.ogc.om.values.SimpleBooleanValue;
+import org.n52.shetland.ogc.om.values.SimpleCategoryValue;
+import org.n52.shetland.ogc.om.values.SimpleCountValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.SimpleTextValue;
 import org.n52.shetland.ogc.om.values.SweDataArrayValue;
 import org.n52.shetland.ogc.om.values.TLVTValue;
 import org.n52.shetland.ogc.om.values.TVPValue;
@@ -97,6 +102,79 @@ public interface ValueVisitor<T, X extends Exception> {
     T visit(UnknownValue value)
             throws X;
 
+    /**
+     * Visits a simple quantity value. Defaults to visiting the SWE backed
+     * value; implementations can override this to avoid the conversion.
+     *
+     * @param value the value
+     *
+     * @return the result
+     *
+     * @throws X if the visit fails
+     */
+    default T visit(SimpleQuantityValue value)
+            throws X {
+        return visit(value.toSweValue());
+    }
+
+    /**
+     * Visits a simple count value. Defaults to visiting the SWE backed value.
+     *
+     * @param value the value
+     *
+     * @return the result
+     *
+     * @throws X if the visit fails
+     */
+    default T visit(SimpleCountValue value)
+            throws X {
+        return visit(value.toSweValue());
+    }
+
+    /**
+     * Visits a simple boolean value. Defaults to visiting the SWE backed
+     * value.
+     *
+     * @param value the value
+     *
+     * @return the result
+     *
+     * @throws X if the visit fails
+     */
+    default T visit(SimpleBooleanValue value)
+            throws X {
+        return visit(value.toSweValue());
+    }
+
+    /**
+     * Visits a simple category value. Defaults to visiting the SWE backed
+     * value.
+     *
+     * @param value the value
+     *
+     * @return the result
+     *
+     * @throws X if the visit fails
+     */
+    default T visit(SimpleCategoryValue value)
+            throws X {
+        return visit(value.toSweValue());
+    }
+
+    /**
+     * Visits a simple text value. Defaults to visiting the SWE backed value.
+     *
+     * @param value the value
+     *
+     * @return the result
+     *
+     * @throws X if the visit fails
+     */
+    default T visit(SimpleTextValue value)
+            throws X {
+        return visit(value.toSweValue());
+    }
+
 //    T visit(XmlValue value)
 //            throws X;
 }
@@ -23,6 +23,7 @@ import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import org.n52.janmayen.Copyable;
 import org.n52.shetland.util.CollectionHelper;
 
 import com.google.common.base.Strings;
@@ -32,7 +33,7 @@ import com.google.common.base.Strings;
  *
  * @author Christian Autermann
  */
-public class OwsCapabilities {
+public class OwsCapabilities implements Copyable<OwsCapabilities> {
     private Optional<String> service;
     private String version;
     private Optional<String> updateSequence;
@@ -135,4 +136,16 @@ public class OwsCapabilities {
         this.extensions = CollectionHelper.newSortedSet(extensions);
     }
 
+    /**
+     * Creates a copy of these capabilities, whose properties can be set
+     * independently of these capabilities. The sections are shared.
+     * Subclasses have to override this method to copy their own properties.
+     *
+     * @return the copy
+     */
+    @Override
+    public OwsCapabilities copy() {
+        return new OwsCapabilities(this);
+    }
+
 }
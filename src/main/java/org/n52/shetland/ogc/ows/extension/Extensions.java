@@ -18,7 +18,9 @@ package org.n52.shetland.ogc.ows.extension;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -26,9 +28,20 @@ import java.util.stream.Stream;
 
 import com.google.common.base.Strings;
 
+/**
+ * Collection of {@link Extension}s. Extensions are looked up case-insensitive
+ * by their definition or identifier using an index that is maintained when
+ * extensions are added. If more than one extension matches, the one added
+ * first is returned. The definition and identifier of an extension should
+ * therefore not be changed after it was added.
+ *
+ * @since 1.0.0
+ */
 public class Extensions {
 
-    private final Set<Extension<?>> extensions = new HashSet<>();
+    private final Set<Extension<?>> extensions = new LinkedHashSet<>();
+    private final Map<String, Extension<?>> index = new HashMap<>();
+
     /**
      * @param extensionName
      *
@@ -36,20 +49,8 @@ public class Extensions {
      * <tt>extensionName</tt> is holding a {@link Boolean} and is set to
      * <tt>true</tt>.
      */
-    @SuppressWarnings("rawtypes")
     public boolean isBooleanExtensionSet(final String extensionName) {
-        for (final Extension<?> extension : getExtensions()) {
-            if (isExtensionNameEquals(extensionName, (Extension<?>) extension)) {
-                final Object value = extension.getValue();
-                if (value instanceof Boolean) {
-                    return (Boolean) value;
-                } else if (value instanceof Value && ((Value) value).getValue() instanceof Boolean) {
-                    return (Boolean) ((Value) value).getValue();
-                }
-                return false;
-            }
-        }
-        return false;
+        return getBooleanValue(extensionName).orElse(false);
     }
 
     public boolean addExtension(Extensions extensions) {
@@ -63,7 +64,16 @@ public class Extensions {
     }
 
     public boolean addExtension(Extension<?> extensions) {
-        return this.extensions.add(Objects.requireNonNull(extensions));
+        if (!this.extensions.add(Objects.requireNonNull(extensions))) {
+            return false;
+        }
+        if (extensions.isSetDefinition()) {
+            this.index.putIfAbsent(fold(extensions.getDefinition()), extensions);
+        }
+        if (extensions.isSetIdentifier()) {
+            this.index.putIfAbsent(fold(extensions.getIdentifier()), extensions);
+        }
+        return true;
     }
 
     public Set<Extension<?>> getExtensions() {
@@ -80,9 +90,7 @@ public class Extensions {
     }
 
     public boolean containsExtension(String identifier) {
-        return this.extensions.stream()
-                .filter(e -> isExtensionNameEquals(identifier, e))
-                .findAny().isPresent();
+        return getExtension(identifier).isPresent();
     }
 
     @SuppressWarnings("rawtypes")
@@ -91,9 +99,66 @@ public class Extensions {
     }
 
     public Optional<Extension<?>> getExtension(String identifier) {
-        return this.extensions.stream()
-                .filter(e -> isExtensionNameEquals(identifier, e))
-                .findFirst();
+        if (Strings.isNullOrEmpty(identifier)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(this.index.get(fold(identifier)));
+    }
+
+    /**
+     * Get the value of the extension with the supplied definition or
+     * identifier. Values wrapped in a {@link Value} are unwrapped.
+     *
+     * @param <T>        the value type
+     * @param identifier the definition or identifier
+     * @param type       the value type
+     *
+     * @return the value, or empty if there is no such extension or the value
+     *         is not of the requested type
+     */
+    public <T> Optional<T> getValue(String identifier, Class<T> type) {
+        return getExtension(identifier).map(Extension::getValue).map(Extensions::unwrap)
+                .filter(type::isInstance).map(type::cast);
+    }
+
+    @SuppressWarnings("rawtypes")
+    public <T> Optional<T> getValue(Enum identifier, Class<T> type) {
+        return getValue(identifier.name(), type);
+    }
+
+    public Optional<Boolean> getBooleanValue(String identifier) {
+        return getValue(identifier, Boolean.class);
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Optional<Boolean> getBooleanValue(Enum identifier) {
+        return getBooleanValue(identifier.name());
+    }
+
+    /**
+     * Get the string value of the extension with the supplied definition or
+     * identifier. For values wrapped in a {@link Value} the
+     * {@link Value#getStringValue() string value} is returned.
+     *
+     * @param identifier the definition or identifier
+     *
+     * @return the string value, or empty if there is no such extension or it
+     *         has no string value
+     */
+    public Optional<String> getStringValue(String identifier) {
+        return getExtension(identifier).map(Extension::getValue).map(value -> {
+            if (value instanceof Value<?, ?>) {
+                return ((Value<?, ?>) value).getStringValue();
+            } else if (value instanceof String) {
+                return (String) value;
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Optional<String> getStringValue(Enum identifier) {
+        return getStringValue(identifier.name());
     }
 
     public boolean isEmpty() {
@@ -105,23 +170,42 @@ public class Extensions {
         return String.format("Extensions [extensions=%s]", getExtensions());
     }
 
+    /**
+     * Checks if the extension matches the supplied name.
+     *
+     * @param extensionName the definition or identifier
+     * @param extension     the extension
+     *
+     * @return if the definition or identifier of the extension equals the name
+     *         ignoring case
+     *
+     * @deprecated lookups use the case-insensitive index of definitions and
+     *             identifiers; this method is no longer consulted, so
+     *             overriding it has no effect
+     */
+    @Deprecated
     protected boolean isExtensionNameEquals(String extensionName, Extension<?> extension) {
-        return checkExtensionDefinition(extensionName, extension) ||
-               checkExtensionIdentifier(extensionName, extension) ||
-               checkExtensionValue(extensionName, extension);
+        return !Strings.isNullOrEmpty(extensionName) && extension != null &&
+               (extension.isSetDefinition() && extension.getDefinition().equalsIgnoreCase(extensionName) ||
+                extension.isSetIdentifier() && extension.getIdentifier().equalsIgnoreCase(extensionName));
     }
 
-    private boolean checkExtensionValue(String extensionName, Extension<?> extension) {
-        return (extension.isSetDefinition() && extension.getDefinition().equalsIgnoreCase(extensionName)) ||
-               (extension.isSetIdentifier() && extension.getIdentifier().equalsIgnoreCase(extensionName));
+    private static Object unwrap(Object value) {
+        return value instanceof Value<?, ?> ? ((Value<?, ?>) value).getValue() : value;
     }
 
-    private boolean checkExtensionIdentifier(String extensionName, Extension<?> extension) {
-        return Strings.emptyToNull(extensionName) != null && extension.isSetIdentifier() && extension.getIdentifier().equalsIgnoreCase(extensionName);
-    }
-
-    private boolean checkExtensionDefinition(String extensionName, Extension<?> extension) {
-        return extensionName != null && extension != null && extension.isSetDefinition() && extension.getDefinition().equalsIgnoreCase(extensionName);
+    /**
+     * Folds the case of the supplied string consistent with
+     * {@link String#equalsIgnoreCase(String)}: every character is converted
+     * to upper and then to lower case on its own, so characters like
+     * {@code 'ß'} are not expanded.
+     */
+    private static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.ows.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * {@link StreamingMetrics} that simply counts the recorded events. Instances
+ * are thread safe and can be shared between requests.
+ *
+ * @since 1.0.0
+ */
+public class CountingStreamingMetrics implements StreamingMetrics {
+    private final LongAdder values = new LongAdder();
+    private final LongAdder observations = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private final LongAdder mergeNanos = new LongAdder();
+    private final LongAdder crsTransforms = new LongAdder();
+    private final LongAdder limitsExceeded = new LongAdder();
+
+    @Override
+    public void valuesStreamed(int count) {
+        values.add(count);
+    }
+
+    @Override
+    public void observationEmitted() {
+        observations.increment();
+    }
+
+    @Override
+    public void fetchTime(long nanos) {
+        fetches.increment();
+        fetchNanos.add(nanos);
+    }
+
+    @Override
+    public void mergeTime(long nanos) {
+        mergeNanos.add(nanos);
+    }
+
+    @Override
+    public void crsTransformed() {
+        crsTransforms.increment();
+    }
+
+    @Override
+    public void limitExceeded() {
+        limitsExceeded.increment();
+    }
+
+    public long getValuesStreamed() {
+        return values.sum();
+    }
+
+    public long getObservationsEmitted() {
+        return observations.sum();
+    }
+
+    /**
+     * @return the number of timed fetches
+     */
+    public long getFetches() {
+        return fetches.sum();
+    }
+
+    public long getFetchNanos() {
+        return fetchNanos.sum();
+    }
+
+    public long getMergeNanos() {
+        return mergeNanos.sum();
+    }
+
+    public long getCrsTransforms() {
+        return crsTransforms.sum();
+    }
+
+    public long getLimitsExceeded() {
+        return limitsExceeded.sum();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("values", getValuesStreamed())
+                .add("observations", getObservationsEmitted())
+                .add("fetches", getFetches())
+                .add("fetchNanos", getFetchNanos())
+                .add("mergeNanos", getMergeNanos())
+                .add("crsTransforms", getCrsTransforms())
+                .add("limitsExceeded", getLimitsExceeded())
+                .toString();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.ows.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.n52.shetland.ogc.ows.OWSConstants.CapabilitiesSection;
+import org.n52.shetland.ogc.ows.OwsCapabilities;
+import org.n52.shetland.ogc.ows.exception.InvalidUpdateSequenceException;
+import org.n52.shetland.ogc.ows.exception.MissingVersionParameterException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache of prebuilt {@link OwsCapabilities} per service, version, requested
+ * sections and language.
+ * <p>
+ * The cache is bound to the current update sequence of the service: as soon
+ * as the update sequence changes, all cached capabilities are discarded.
+ * Capabilities are built by a {@link Factory} that only has to create the
+ * requested sections, so a request for {@code ServiceIdentification} never
+ * builds the {@code Contents}. Requests whose {@code updateSequence} equals
+ * the current update sequence are answered without any section and requests
+ * with a greater {@code updateSequence} are rejected with an
+ * {@link InvalidUpdateSequenceException}. Every response contains its own
+ * {@linkplain OwsCapabilities#copy() copy} of the cached capabilities.
+ *
+ * @since 1.0.0
+ */
+public class GetCapabilitiesCache {
+
+    private static final SortedSet<String> ALL
+            = Collections.unmodifiableSortedSet(new TreeSet<>(Collections.singleton(CapabilitiesSection.All.name())));
+
+    private final Factory factory;
+    private final Supplier<String> updateSequence;
+    private final long maximumSize;
+    private volatile Generation generation;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param factory        the factory for the capabilities
+     * @param updateSequence the supplier of the current update sequence
+     * @param maximumSize    the maximum number of cached capabilities per
+     *                       update sequence
+     */
+    public GetCapabilitiesCache(Factory factory, Supplier<String> updateSequence, long maximumSize) {
+        this.factory = Objects.requireNonNull(factory);
+        this.updateSequence = Objects.requireNonNull(updateSequence);
+        this.maximumSize = maximumSize;
+        this.generation = new Generation(null, maximumSize);
+    }
+
+    /**
+     * Get the response to the request.
+     *
+     * @param request the request
+     *
+     * @return the response
+     *
+     * @throws OwsExceptionReport if the update sequence of the request is
+     *                            invalid or the capabilities could not be
+     *                            created
+     */
+    public GetCapabilitiesResponse get(GetCapabilitiesRequest request) throws OwsExceptionReport {
+        String version = getVersion(request);
+        Generation current = getGeneration();
+        GetCapabilitiesResponse response = new GetCapabilitiesResponse(request.getService(), version);
+        if (request.isSetUpdateSequence() && current.updateSequence != null) {
+            int comparison = compare(request.getUpdateSequence(), current.updateSequence);
+            if (comparison > 0) {
+                throw new InvalidUpdateSequenceException()
+                        .withMessage("The requested updateSequence '%s' is greater than the current '%s'",
+                                     request.getUpdateSequence(), current.updateSequence);
+            } else if (comparison == 0) {
+                return response.setCapabilities(new OwsCapabilities(request.getService(), version,
+                                                                    current.updateSequence,
+                                                                    null, null, null, null, null));
+            }
+        }
+        Key key = new Key(new OwsServiceKey(request.getService(), version), getSections(request),
+                          Strings.nullToEmpty(request.getRequestedLanguage()));
+        return response.setCapabilities(current.get(key, factory).copy());
+    }
+
+    /**
+     * Discard all cached capabilities.
+     */
+    public void invalidate() {
+        this.generation = new Generation(this.updateSequence.get(), this.maximumSize);
+    }
+
+    private Generation getGeneration() {
+        String sequence = this.updateSequence.get();
+        Generation current = this.generation;
+        if (!Objects.equals(current.updateSequence, sequence)) {
+            synchronized (this) {
+                current = this.generation;
+                if (!Objects.equals(current.updateSequence, sequence)) {
+                    current = new Generation(sequence, this.maximumSize);
+                    this.generation = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static String getVersion(GetCapabilitiesRequest request) throws OwsExceptionReport {
+        if (request.isSetVersion()) {
+            return request.getVersion();
+        }
+        if (request.isSetAcceptVersions()) {
+            return request.getAcceptVersions().get(0);
+        }
+        throw new MissingVersionParameterException();
+    }
+
+    private static SortedSet<String> getSections(GetCapabilitiesRequest request) {
+        if (!request.isSetSections()) {
+            return ALL;
+        }
+        SortedSet<String> sections = new TreeSet<>();
+        for (String section : request.getSections()) {
+            Optional<CapabilitiesSection> known = CapabilitiesSection.from(section);
+            if (known.isPresent() && known.get() == CapabilitiesSection.All) {
+                return ALL;
+            }
+            sections.add(known.map(CapabilitiesSection::name).orElse(section));
+        }
+        return Collections.unmodifiableSortedSet(sections);
+    }
+
+    /**
+     * Compares update sequences numerically if possible, lexicographically
+     * otherwise (e.g. ISO 8601 time stamps).
+     */
+    private static int compare(String requested, String current) {
+        try {
+            return Long.compare(Long.parseLong(requested), Long.parseLong(current));
+        } catch (NumberFormatException e) {
+            return requested.compareTo(current);
+        }
+    }
+
+    /**
+     * Factory for the capabilities of a set of sections.
+     */
+    @FunctionalInterface
+    public interface Factory {
+        /**
+         * Create the capabilities containing the requested sections.
+         *
+         * @param service  the service and version
+         * @param sections the requested sections, {@code All} if all sections
+         *                 are requested
+         * @param language the requested language, may be empty
+         *
+         * @return the capabilities
+         *
+         * @throws OwsExceptionReport if the capabilities can not be created
+         */
+        OwsCapabilities create(OwsServiceKey service, Set<String> sections, String language)
+                throws OwsExceptionReport;
+    }
+
+    /**
+     * The cached capabilities of a single update sequence.
+     */
+    private static final class Generation {
+        private final String updateSequence;
+        private final Cache<Key, OwsCapabilities> capabilities;
+
+        Generation(String updateSequence, long maximumSize) {
+            this.updateSequence = updateSequence;
+            this.capabilities = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+        }
+
+        OwsCapabilities get(Key key, Factory factory) throws OwsExceptionReport {
+            try {
+                return this.capabilities.get(key, () -> factory.create(key.service, key.sections, key.language));
+            } catch (ExecutionException | UncheckedExecutionException e) {
+                if (e.getCause() instanceof OwsExceptionReport) {
+                    throw (OwsExceptionReport) e.getCause();
+                }
+                throw new NoApplicableCodeException().causedBy(e.getCause())
+                        .withMessage("Error creating capabilities");
+            }
+        }
+    }
+
+    private static final class Key {
+        private final OwsServiceKey service;
+        private final SortedSet<String> sections;
+        private final String language;
+
+        Key(OwsServiceKey service, SortedSet<String> sections, String language) {
+            this.service = service;
+            this.sections = sections;
+            this.language = language;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(service, sections, language);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return Objects.equals(this.service, that.service) &&
+                   Objects.equals(this.sections, that.sections) &&
+                   Objects.equals(this.language, that.language);
+        }
+    }
+}
@@ -26,7 +26,6 @@ import org.n52.shetland.ogc.ows.exception.MissingServiceParameterException;
 import org.n52.shetland.ogc.ows.exception.MissingVersionParameterException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.extension.Extensions;
-import org.n52.shetland.ogc.ows.extension.Value;
 
 import com.google.common.base.Strings;
 
@@ -103,16 +102,7 @@ public abstract class OwsServiceRequest
     }
 
     public String getRequestedLanguage() {
-        return getExtension(OWSConstants.AdditionalRequestParams.language)
-                .map(e -> e.getValue()).map(value -> {
-            if (value instanceof Value<?, ?>) {
-                return ((Value<?, ?>) value).getStringValue();
-            } else if (value instanceof String) {
-                return (String) value;
-            } else {
-                return "";
-            }
-        }).orElse("");
+        return getExtensions().getStringValue(OWSConstants.AdditionalRequestParams.language).orElse("");
     }
 
     public Optional<String> getOriginalRequest() {
@@ -53,6 +53,7 @@ public class OwsServiceRequestContext {
     private Optional<ProxyChain> proxyChain = Optional.empty();
     private Optional<String> contentType = Optional.empty();
     private Optional<List<MediaType>> acceptType = Optional.empty();
+    private StreamingMetrics streamingMetrics = StreamingMetrics.NOOP;
 
     public Optional<IPAddress> getIPAddress() {
         return address;
@@ -107,6 +108,18 @@ public class OwsServiceRequestContext {
         this.acceptType = Optional.ofNullable(list);
     }
 
+    /**
+     * @return the metrics used to instrument streaming of this request,
+     *         {@link StreamingMetrics#NOOP} if none are set
+     */
+    public StreamingMetrics getStreamingMetrics() {
+        return streamingMetrics;
+    }
+
+    public void setStreamingMetrics(StreamingMetrics streamingMetrics) {
+        this.streamingMetrics = streamingMetrics == null ? StreamingMetrics.NOOP : streamingMetrics;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this).omitNullValues()
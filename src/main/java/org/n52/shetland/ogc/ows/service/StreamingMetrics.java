@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.ows.service;
+
+/**
+ * Service provider interface to collect per request metrics of streaming
+ * observation values. Implementations may delegate to a metrics library like
+ * Micrometer or Dropwizard Metrics. All methods take primitive arguments so
+ * that the instrumented code paths do not allocate, and callers should check
+ * {@link #isEnabled()} before taking timings.
+ *
+ * @since 1.0.0
+ */
+public interface StreamingMetrics {
+
+    /**
+     * Metrics implementation that discards everything.
+     */
+    StreamingMetrics NOOP = new StreamingMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "StreamingMetrics.NOOP";
+        }
+    };
+
+    /**
+     * @return if this instance records anything, {@code false} lets callers
+     *         skip the timing of streaming operations
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * The time source of the recorded timings. Implementations may override
+     * this to use the clock of the metrics library.
+     *
+     * @return the current value of the time source in nanoseconds
+     */
+    default long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Called for values read from the underlying stream.
+     *
+     * @param count the number of values
+     */
+    default void valuesStreamed(int count) {
+    }
+
+    /**
+     * Called for every single observation or time value pair created by the
+     * stream.
+     */
+    default void observationEmitted() {
+    }
+
+    /**
+     * Records the time spent to fetch the next single observation or time
+     * value pair from the stream.
+     *
+     * @param nanos the elapsed time in nanoseconds
+     */
+    default void fetchTime(long nanos) {
+    }
+
+    /**
+     * Records the time spent to merge the fetched observations.
+     *
+     * @param nanos the elapsed time in nanoseconds
+     */
+    default void mergeTime(long nanos) {
+    }
+
+    /**
+     * Called for every geometry transformed to the requested CRS.
+     */
+    default void crsTransformed() {
+    }
+
+    /**
+     * Called if a stream exceeded the maximum number of returned values.
+     */
+    default void limitExceeded() {
+    }
+}
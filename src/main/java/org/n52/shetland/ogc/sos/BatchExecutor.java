@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.BatchResponse.ExceptionOrResponse;
+
+/**
+ * Executes the requests of a {@link BatchRequest} concurrently.
+ * <p>
+ * At most {@code parallelism} requests of a batch are processed at the same
+ * time. The responses are returned in the order of the requests, each
+ * carrying the time it took to process it. If the batch
+ * {@linkplain BatchRequest#isStopAtFailure() stops at failures}, requests
+ * following the first failed request are cancelled and the response contains
+ * the responses up to and including the first failure, just as if the
+ * requests were processed one after another.
+ *
+ * @since 1.0.0
+ */
+public class BatchExecutor {
+
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Creates a new executor.
+     *
+     * @param executor    the executor to run the requests on
+     * @param parallelism the maximum number of concurrently processed requests
+     *                    of a single batch
+     */
+    public BatchExecutor(Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism < 1");
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Execute the batch.
+     *
+     * @param request the request
+     * @param handler the handler for the single requests
+     *
+     * @return the ordered response
+     *
+     * @throws OwsExceptionReport if the execution was interrupted
+     */
+    public BatchResponse execute(BatchRequest request, Handler handler) throws OwsExceptionReport {
+        Objects.requireNonNull(handler);
+        List<OwsServiceRequest> requests = request.getRequests();
+        Execution execution = new Execution(requests.size(), request.isStopAtFailure());
+        try {
+            for (int i = 0; i < requests.size() && !execution.isStopped(i); i++) {
+                execution.submit(i, requests.get(i), handler);
+            }
+            return new BatchResponse(request.getService(), request.getVersion(), execution.collect());
+        } catch (InterruptedException e) {
+            execution.cancel(-1);
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Batch execution was interrupted");
+        }
+    }
+
+    /**
+     * Handler for a single request of a batch.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Handle the request.
+         *
+         * @param request the request
+         *
+         * @return the response
+         *
+         * @throws OwsExceptionReport if the request failed
+         */
+        OwsServiceResponse handle(OwsServiceRequest request) throws OwsExceptionReport;
+    }
+
+    /**
+     * The state of a single batch execution.
+     */
+    private class Execution {
+        private final List<FutureTask<ExceptionOrResponse>> tasks;
+        private final Semaphore permits = new Semaphore(parallelism);
+        private final AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        private final boolean stopAtFailure;
+
+        Execution(int size, boolean stopAtFailure) {
+            this.tasks = new ArrayList<>(size);
+            this.stopAtFailure = stopAtFailure;
+        }
+
+        boolean isStopped(int index) {
+            return index > firstFailure.get();
+        }
+
+        void submit(int index, OwsServiceRequest request, Handler handler) throws InterruptedException {
+            FutureTask<ExceptionOrResponse> task = new FutureTask<>(() -> {
+                try {
+                    return isStopped(index) ? null : process(index, request, handler);
+                } finally {
+                    permits.release();
+                }
+            });
+            permits.acquire();
+            synchronized (tasks) {
+                tasks.add(task);
+            }
+            try {
+                executor.execute(task);
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private ExceptionOrResponse process(int index, OwsServiceRequest request, Handler handler) {
+            long start = System.nanoTime();
+            OwsExceptionReport exception;
+            try {
+                OwsServiceResponse response = handler.handle(request);
+                return new ExceptionOrResponse(response, Duration.ofNanos(System.nanoTime() - start));
+            } catch (OwsExceptionReport e) {
+                exception = e;
+            } catch (RuntimeException e) {
+                exception = new NoApplicableCodeException().causedBy(e)
+                        .withMessage("Error processing request %d of batch", index);
+            }
+            if (stopAtFailure) {
+                fail(index);
+            }
+            return new ExceptionOrResponse(exception, Duration.ofNanos(System.nanoTime() - start));
+        }
+
+        private void fail(int index) {
+            if (firstFailure.accumulateAndGet(index, Math::min) == index) {
+                cancel(index);
+            }
+        }
+
+        void cancel(int after) {
+            synchronized (tasks) {
+                for (int i = after + 1; i < tasks.size(); i++) {
+                    tasks.get(i).cancel(true);
+                }
+            }
+        }
+
+        List<ExceptionOrResponse> collect() throws InterruptedException {
+            List<ExceptionOrResponse> responses = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size() && !isStopped(i); i++) {
+                FutureTask<ExceptionOrResponse> task;
+                synchronized (tasks) {
+                    task = tasks.get(i);
+                }
+                try {
+                    ExceptionOrResponse response = task.get();
+                    if (response != null) {
+                        responses.add(response);
+                    }
+                } catch (CancellationException e) {
+                    // cancelled because of a preceding failure
+                } catch (ExecutionException e) {
+                    responses.add(new ExceptionOrResponse(new NoApplicableCodeException().causedBy(e.getCause())
+                            .withMessage("Error processing request %d of batch", i)));
+                }
+            }
+            return responses;
+        }
+    }
+}
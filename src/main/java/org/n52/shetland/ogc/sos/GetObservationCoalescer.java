@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.RequestCanonicalizer;
+import org.n52.shetland.ogc.sos.request.RequestKey;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+
+/**
+ * Coalesces concurrent identical {@code GetObservation} requests.
+ * <p>
+ * Requests are identified by their {@link RequestKey}. The first request
+ * starts the computation of the response on the executor, identical requests
+ * arriving while it is in flight wait for the same computation. Every caller
+ * receives its own {@linkplain GetObservationResponse#createCopy() copy} of
+ * the response. Streaming data is merged before the
+ * response is shared.
+ * <p>
+ * Every caller waits at most {@code timeout} for the response. If all callers
+ * of a computation gave up, because they timed out or were interrupted, the
+ * computation is cancelled. Completed computations are not retained.
+ *
+ * @since 1.0.0
+ */
+public class GetObservationCoalescer {
+
+    private final ConcurrentMap<RequestKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final RequestCanonicalizer canonicalizer;
+    private final Duration timeout;
+
+    /**
+     * Creates a new coalescer.
+     *
+     * @param executor      the executor to compute the responses on
+     * @param canonicalizer the canonicalizer to create the request keys
+     * @param timeout       the maximum time a caller waits for a response
+     */
+    public GetObservationCoalescer(Executor executor, RequestCanonicalizer canonicalizer, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout <= 0");
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.canonicalizer = Objects.requireNonNull(canonicalizer);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Get the response for the request, either by joining an identical
+     * request in flight or by starting a new computation.
+     *
+     * @param request the request
+     * @param handler the handler computing the response
+     *
+     * @return the response
+     *
+     * @throws OwsExceptionReport if the computation failed, timed out or the
+     *                            caller was interrupted
+     */
+    public GetObservationResponse execute(GetObservationRequest request, Handler handler)
+            throws OwsExceptionReport {
+        Objects.requireNonNull(handler);
+        RequestKey key = canonicalizer.canonicalize(request);
+        Flight[] created = new Flight[1];
+        Flight flight = inFlight.compute(key, (k, existing) -> {
+            if (existing == null || existing.task.isCancelled()) {
+                created[0] = new Flight(k, request, handler);
+                return created[0];
+            }
+            existing.waiters++;
+            return existing;
+        });
+        if (created[0] != null) {
+            try {
+                executor.execute(flight.task);
+            } catch (RuntimeException e) {
+                inFlight.remove(key, flight);
+                throw new NoApplicableCodeException().causedBy(e).withMessage("Could not execute GetObservation");
+            }
+        } else {
+            joined(key);
+        }
+        return flight.await();
+    }
+
+    /**
+     * Called after a request joined an identical request in flight. Does
+     * nothing by default, subclasses may override it to monitor the
+     * coalescing.
+     *
+     * @param key the key of the request
+     */
+    protected void joined(RequestKey key) {
+    }
+
+    /**
+     * Get the number of computations currently in flight.
+     *
+     * @return the number of computations
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Handler computing the response of a request.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Handle the request.
+         *
+         * @param request the request
+         *
+         * @return the response
+         *
+         * @throws OwsExceptionReport if the request failed
+         */
+        GetObservationResponse handle(GetObservationRequest request) throws OwsExceptionReport;
+    }
+
+    /**
+     * A computation in flight. The number of waiters is only modified while
+     * holding the lock of the map entry.
+     */
+    private class Flight {
+        private final RequestKey key;
+        private final FutureTask<GetObservationResponse> task;
+        private int waiters = 1;
+
+        Flight(RequestKey key, GetObservationRequest request, Handler handler) {
+            this.key = key;
+            this.task = new FutureTask<>(() -> {
+                try {
+                    GetObservationResponse response = handler.handle(request);
+                    if (response.hasStreamingData()) {
+                        response.mergeStreamingData();
+                    }
+                    return response;
+                } finally {
+                    inFlight.remove(key, this);
+                }
+            });
+        }
+
+        GetObservationResponse await() throws OwsExceptionReport {
+            try {
+                return task.get(timeout.toNanos(), TimeUnit.NANOSECONDS).createCopy();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof OwsExceptionReport) {
+                    throw (OwsExceptionReport) e.getCause();
+                }
+                throw new NoApplicableCodeException().causedBy(e.getCause())
+                        .withMessage("Error processing GetObservation");
+            } catch (TimeoutException e) {
+                leave();
+                throw new NoApplicableCodeException().causedBy(e)
+                        .withMessage("GetObservation did not complete within %s", timeout);
+            } catch (InterruptedException e) {
+                leave();
+                Thread.currentThread().interrupt();
+                throw new NoApplicableCodeException().causedBy(e).withMessage("GetObservation was interrupted");
+            } catch (CancellationException e) {
+                throw new NoApplicableCodeException().causedBy(e).withMessage("GetObservation was cancelled");
+            }
+        }
+
+        private void leave() {
+            boolean[] abandoned = new boolean[1];
+            inFlight.computeIfPresent(key, (k, flight) -> {
+                if (flight != this || --waiters > 0) {
+                    return flight;
+                }
+                abandoned[0] = true;
+                return null;
+            });
+            if (abandoned[0]) {
+                task.cancel(true);
+            }
+        }
+    }
+}
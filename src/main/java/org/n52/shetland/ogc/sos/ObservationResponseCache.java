@@ -0,0 +1,627 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetResultRequest;
+import org.n52.shetland.ogc.sos.request.RequestCanonicalizer;
+import org.n52.shetland.ogc.sos.request.RequestKey;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+import org.n52.shetland.ogc.sos.response.ResponseSizeBudget;
+import org.n52.shetland.util.CollectionHelper;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterables;
+
+/**
+ * Cache of {@code GetObservation} and {@code GetResult} responses keyed by
+ * the {@link RequestKey} of the request.
+ * <p>
+ * The cache is bounded by the estimated size of the cached responses in bytes.
+ * Responses of requests whose temporal filters lie completely in the past are
+ * kept for the historical time to live, all other responses, e.g. for
+ * requests without temporal filter or with temporal filters referring to
+ * {@code now}, {@link ExtendedIndeterminateTime#LATEST latest} or the future,
+ * only for the current time to live. Expired responses are removed when
+ * responses are added or the size is queried, so they do not count against
+ * the size bound.
+ * <p>
+ * Inserting observations should be reported using
+ * {@link #invalidate(OmObservationConstellation)}, which removes only the
+ * responses of requests that may contain the observations. The responses are
+ * indexed by the identifiers the requests were restricted to, so only these
+ * responses have to be checked. Every invalidation advances the generations of
+ * the identifiers of the constellation. Callers capture the
+ * {@linkplain #generation(GetObservationRequest) generation} of a request
+ * before computing the response, and the response is only cached if no
+ * invalidation affecting the request happened in the meantime.
+ * <p>
+ * The cache stores copies of the responses passed to it and returns
+ * independent copies, so callers keep ownership of their responses. The
+ * cache is split into {@value #CONCURRENCY_LEVEL} segments that share the
+ * maximum size; responses larger than a segment are not cached.
+ *
+ * @since 1.0.0
+ */
+public class ObservationResponseCache {
+    /**
+     * Estimated size of a cached response without its observations.
+     */
+    private static final long RESPONSE = 256;
+    /**
+     * Generation advanced by every invalidation and index key of unrestricted
+     * requests.
+     */
+    private static final String UNRESTRICTED = "*";
+    /**
+     * Generation advanced by {@link #invalidateAll()}.
+     */
+    private static final String ALL = "**";
+    private static final int CONCURRENCY_LEVEL = 4;
+
+    private final Cache<RequestKey, Entry> cache;
+    private final ConcurrentMap<String, ConcurrentMap<RequestKey, Entry>> index = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Queue<Expiry> historicalExpiries = new ArrayDeque<>();
+    private final Queue<Expiry> currentExpiries = new ArrayDeque<>();
+    private final RequestCanonicalizer canonicalizer;
+    private final Ticker ticker;
+    private final long historicalTtl;
+    private final long currentTtl;
+    private final long maximumEntryBytes;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param canonicalizer the canonicalizer to create the request keys
+     * @param maximumBytes  the maximum estimated size of all cached responses
+     * @param historicalTtl the time to live of responses to requests for the
+     *                      past
+     * @param currentTtl    the time to live of responses to requests that
+     *                      touch the present
+     */
+    public ObservationResponseCache(RequestCanonicalizer canonicalizer, long maximumBytes,
+                                    Duration historicalTtl, Duration currentTtl) {
+        this(canonicalizer, maximumBytes, historicalTtl, currentTtl, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param canonicalizer the canonicalizer to create the request keys
+     * @param maximumBytes  the maximum estimated size of all cached responses
+     * @param historicalTtl the time to live of responses to requests for the
+     *                      past
+     * @param currentTtl    the time to live of responses to requests that
+     *                      touch the present
+     * @param ticker        the time source
+     */
+    public ObservationResponseCache(RequestCanonicalizer canonicalizer, long maximumBytes,
+                                    Duration historicalTtl, Duration currentTtl, Ticker ticker) {
+        this.canonicalizer = Objects.requireNonNull(canonicalizer);
+        this.ticker = Objects.requireNonNull(ticker);
+        this.historicalTtl = historicalTtl.toNanos();
+        this.currentTtl = currentTtl.toNanos();
+        this.maximumEntryBytes = maximumBytes / CONCURRENCY_LEVEL;
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(CONCURRENCY_LEVEL)
+                .maximumWeight(maximumBytes)
+                .weigher((RequestKey key, Entry entry) -> entry.weight)
+                .removalListener((RemovalNotification<RequestKey, Entry> notification) ->
+                        unindex(notification.getKey(), notification.getValue()))
+                .build();
+    }
+
+    /**
+     * Get the cached response of the request.
+     *
+     * @param request the request
+     *
+     * @return a copy of the cached response or empty if there is no valid
+     *         cached response
+     */
+    public Optional<GetObservationResponse> get(GetObservationRequest request) {
+        return get(canonicalizer.canonicalize(request))
+                .map(entry -> ((GetObservationResponse) entry.response).createCopy());
+    }
+
+    /**
+     * Get the cached response of the request.
+     *
+     * @param request the request
+     *
+     * @return a copy of the cached response or empty if there is no valid
+     *         cached response
+     */
+    public Optional<GetResultResponse> get(GetResultRequest request) {
+        return get(canonicalizer.canonicalize(request)).map(entry -> copy((GetResultResponse) entry.response));
+    }
+
+    /**
+     * Get the current generation of the request. It has to be captured before
+     * the response is computed and passed to
+     * {@link #put(GetObservationRequest, Generation, GetObservationResponse)}.
+     *
+     * @param request the request
+     *
+     * @return the generation
+     */
+    public Generation generation(GetObservationRequest request) {
+        return generation(scope(request));
+    }
+
+    /**
+     * Get the current generation of the request. It has to be captured before
+     * the response is computed and passed to
+     * {@link #put(GetResultRequest, Generation, GetResultResponse)}.
+     *
+     * @param request the request
+     *
+     * @return the generation
+     */
+    public Generation generation(GetResultRequest request) {
+        return generation(scope(request));
+    }
+
+    /**
+     * Cache the response of the request, unless observations the request may
+     * contain were invalidated since the generation was captured. Streaming
+     * data of the response is merged before and a
+     * {@linkplain GetObservationResponse#createCopy() copy} of the response is
+     * cached, so the caller may still modify and encode the response.
+     *
+     * @param request    the request
+     * @param generation the generation of the request captured before the
+     *                   response was computed
+     * @param response   the response
+     *
+     * @return if the response was cached
+     *
+     * @throws OwsExceptionReport if the streaming data could not be merged
+     */
+    public boolean put(GetObservationRequest request, Generation generation, GetObservationResponse response)
+            throws OwsExceptionReport {
+        if (response.hasStreamingData()) {
+            response.mergeStreamingData();
+        }
+        long bytes = RESPONSE;
+        if (response.isSetObservationCollection()) {
+            for (OmObservation observation : response.getObservationCollection()) {
+                bytes += ResponseSizeBudget.estimate(observation);
+            }
+        }
+        return put(canonicalizer.canonicalize(request), scope(request), generation, response::createCopy, bytes,
+                   isHistorical(request.getTemporalFilters()));
+    }
+
+    /**
+     * Cache the response of the request, unless observations the request may
+     * contain were invalidated since the generation was captured.
+     *
+     * @param request    the request
+     * @param generation the generation of the request captured before the
+     *                   response was computed
+     * @param response   the response
+     *
+     * @return if the response was cached
+     */
+    public boolean put(GetResultRequest request, Generation generation, GetResultResponse response) {
+        long bytes = RESPONSE;
+        if (response.hasResultValues()) {
+            bytes += response.getResultValues().length();
+        }
+        return put(canonicalizer.canonicalize(request), scope(request), generation, () -> copy(response), bytes,
+                   isHistorical(request.getTemporalFilter()));
+    }
+
+    /**
+     * Remove all responses of requests that may contain observations of the
+     * constellation.
+     *
+     * @param constellation the constellation of inserted or deleted
+     *                      observations
+     */
+    public void invalidate(OmObservationConstellation constellation) {
+        List<String> keys = Scope.invalidationKeys(constellation);
+        // advance the generations before removing, so concurrent puts either
+        // see the new generation or have been indexed already
+        keys.forEach(key -> generations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet());
+        Collection<ConcurrentMap<RequestKey, Entry>> buckets;
+        if (keys.stream().anyMatch(Scope::isWildcard)) {
+            buckets = index.values();
+        } else {
+            buckets = keys.stream().map(index::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+        for (ConcurrentMap<RequestKey, Entry> bucket : buckets) {
+            bucket.forEach((key, entry) -> {
+                if (entry.scope.matches(constellation)) {
+                    cache.asMap().remove(key, entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Remove all responses.
+     */
+    public void invalidateAll() {
+        generations.computeIfAbsent(ALL, k -> new AtomicLong()).incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the number of cached responses
+     */
+    public long size() {
+        expire();
+        return cache.size();
+    }
+
+    private boolean put(RequestKey key, Scope scope, Generation generation, Supplier<?> response, long bytes,
+                        boolean historical) {
+        if (!generation.keys.equals(scope.generationKeys())) {
+            throw new IllegalArgumentException("generation was not captured for the request");
+        }
+        expire();
+        // larger responses would be evicted right after insertion
+        if (bytes > maximumEntryBytes || !isCurrent(generation)) {
+            return false;
+        }
+        long now = ticker.read();
+        Entry entry = new Entry(response.get(), bytes, now + (historical ? historicalTtl : currentTtl), scope);
+        for (String indexKey : scope.indexKeys()) {
+            index.compute(indexKey, (k, bucket) -> {
+                ConcurrentMap<RequestKey, Entry> b = bucket == null ? new ConcurrentHashMap<>() : bucket;
+                b.put(key, entry);
+                return b;
+            });
+        }
+        cache.put(key, entry);
+        Queue<Expiry> expiries = historical ? historicalExpiries : currentExpiries;
+        synchronized (expiries) {
+            expiries.add(new Expiry(key, entry.expiry));
+        }
+        // an invalidation may have missed the entry while it was inserted
+        if (!isCurrent(generation)) {
+            cache.asMap().remove(key, entry);
+            return false;
+        }
+        // the entry may have been evicted right away
+        return cache.asMap().get(key) == entry;
+    }
+
+    private Generation generation(Scope scope) {
+        List<String> keys = scope.generationKeys();
+        return new Generation(keys, keys.stream().mapToLong(this::generationOf).toArray());
+    }
+
+    private boolean isCurrent(Generation generation) {
+        for (int i = 0; i < generation.values.length; i++) {
+            if (generationOf(generation.keys.get(i)) != generation.values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long generationOf(String key) {
+        AtomicLong generation = generations.get(key);
+        return generation == null ? 0 : generation.get();
+    }
+
+    private void unindex(RequestKey key, Entry entry) {
+        for (String indexKey : entry.scope.indexKeys()) {
+            index.computeIfPresent(indexKey, (k, bucket) -> {
+                bucket.remove(key, entry);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    private Optional<Entry> get(RequestKey key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (isExpired(entry.expiry)) {
+            cache.asMap().remove(key, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Removes the expired responses. The expiries of each time to live are
+     * queued in insertion order, so only the heads have to be checked.
+     */
+    private void expire() {
+        expire(historicalExpiries);
+        expire(currentExpiries);
+    }
+
+    private void expire(Queue<Expiry> expiries) {
+        while (true) {
+            Expiry expiry;
+            synchronized (expiries) {
+                expiry = expiries.peek();
+                if (expiry == null || !isExpired(expiry.expiry)) {
+                    return;
+                }
+                expiries.remove();
+            }
+            Entry entry = cache.asMap().get(expiry.key);
+            if (entry != null && isExpired(entry.expiry)) {
+                cache.asMap().remove(expiry.key, entry);
+            }
+        }
+    }
+
+    private boolean isExpired(long expiry) {
+        return ticker.read() - expiry > 0;
+    }
+
+    private static Scope scope(GetObservationRequest request) {
+        return new Scope(request.getOfferings(), request.getProcedures(), request.getObservedProperties(),
+                         request.getFeatureIdentifiers());
+    }
+
+    private static Scope scope(GetResultRequest request) {
+        return new Scope(Collections.singleton(request.getOffering()), null,
+                         Collections.singleton(request.getObservedProperty()), request.getFeatureIdentifiers());
+    }
+
+    private static boolean isHistorical(Collection<TemporalFilter> filters) {
+        boolean historical = CollectionHelper.isNotEmpty(filters);
+        if (historical) {
+            DateTime now = DateTime.now();
+            for (TemporalFilter filter : filters) {
+                if (!isBefore(filter.getTime(), now)) {
+                    historical = false;
+                    break;
+                }
+            }
+        }
+        return historical;
+    }
+
+    /**
+     * Checks if the time has a determinate end that lies before {@code now}.
+     */
+    private static boolean isBefore(Time time, DateTime now) {
+        if (time instanceof TimeInstant) {
+            TimeInstant instant = (TimeInstant) time;
+            return !instant.isSetIndeterminateValue() && instant.isSetValue() && instant.getValue().isBefore(now);
+        } else if (time instanceof TimePeriod) {
+            TimePeriod period = (TimePeriod) time;
+            return period.getEndIndet() == null && period.isSetEnd() && period.getEnd().isBefore(now);
+        }
+        return false;
+    }
+
+    private static GetResultResponse copy(GetResultResponse response) {
+        GetResultResponse copy = new GetResultResponse(response.getService(), response.getVersion(),
+                                                       response.getOperationName());
+        copy.setResultValues(response.getResultValues());
+        copy.setContentType(response.getContentType());
+        Extensions extensions = new Extensions();
+        if (response.getExtensions() != null) {
+            extensions.addExtension(response.getExtensions());
+        }
+        copy.setExtensions(extensions);
+        return copy;
+    }
+
+    /**
+     * The generation of a request, captured before its response is computed.
+     */
+    public static final class Generation {
+        private final List<String> keys;
+        private final long[] values;
+
+        Generation(List<String> keys, long[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    /**
+     * The expiry of a cached response.
+     */
+    private static final class Expiry {
+        private final RequestKey key;
+        private final long expiry;
+
+        Expiry(RequestKey key, long expiry) {
+            this.key = key;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    private static final class Entry {
+        private final Object response;
+        private final int weight;
+        private final long expiry;
+        private final Scope scope;
+
+        Entry(Object response, long bytes, long expiry, Scope scope) {
+            this.response = response;
+            this.weight = (int) Math.min(bytes, Integer.MAX_VALUE);
+            this.expiry = expiry;
+            this.scope = scope;
+        }
+    }
+
+    /**
+     * The identifiers a request was restricted to. Empty sets match every
+     * identifier. Requests are indexed by the identifiers of the first
+     * restricted dimension; the index keys are prefixed by the dimension, the
+     * dimension itself is the wildcard key of constellations lacking an
+     * identifier for it.
+     */
+    private static final class Scope {
+        private static final String PROCEDURE = "procedure";
+        private static final String OBSERVED_PROPERTY = "observedProperty";
+        private static final String FEATURE = "feature";
+        private static final String OFFERING = "offering";
+        private static final String SEPARATOR = "|";
+        private final Set<String> offerings;
+        private final Set<String> procedures;
+        private final Set<String> observedProperties;
+        private final Set<String> features;
+        private final List<String> indexKeys;
+        private final List<String> generationKeys;
+
+        Scope(Collection<String> offerings, Collection<String> procedures, Collection<String> observedProperties,
+              Collection<String> features) {
+            this.offerings = copy(offerings);
+            this.procedures = copy(procedures);
+            this.observedProperties = copy(observedProperties);
+            this.features = copy(features);
+            String dimension;
+            Set<String> identifiers;
+            if (!this.procedures.isEmpty()) {
+                dimension = PROCEDURE;
+                identifiers = this.procedures;
+            } else if (!this.observedProperties.isEmpty()) {
+                dimension = OBSERVED_PROPERTY;
+                identifiers = this.observedProperties;
+            } else if (!this.features.isEmpty()) {
+                dimension = FEATURE;
+                identifiers = this.features;
+            } else if (!this.offerings.isEmpty()) {
+                dimension = OFFERING;
+                identifiers = this.offerings;
+            } else {
+                dimension = null;
+                identifiers = null;
+            }
+            if (dimension == null) {
+                this.indexKeys = ImmutableList.of(UNRESTRICTED);
+                this.generationKeys = ImmutableList.of(ALL, UNRESTRICTED);
+            } else {
+                this.indexKeys = keys(dimension, identifiers);
+                this.generationKeys = ImmutableList.<String>builder()
+                        .add(ALL).add(dimension).addAll(this.indexKeys).build();
+            }
+        }
+
+        /**
+         * @return the keys the request is indexed by
+         */
+        List<String> indexKeys() {
+            return indexKeys;
+        }
+
+        /**
+         * @return the keys of the generations invalidations of the request
+         *         advance
+         */
+        List<String> generationKeys() {
+            return generationKeys;
+        }
+
+        boolean matches(OmObservationConstellation constellation) {
+            return matches(procedures, constellation.getProcedureIdentifier()) &&
+                   matches(observedProperties, constellation.getObservablePropertyIdentifier()) &&
+                   matches(features, constellation.getFeatureOfInterestIdentifier()) &&
+                   matches(offerings, constellation.getOfferings());
+        }
+
+        /**
+         * Get the keys of the generations advanced by the invalidation of the
+         * constellation. These are the index keys of the identifiers of the
+         * constellation, the wildcard keys of the dimensions the
+         * constellation has no identifier for and the unrestricted key.
+         */
+        static List<String> invalidationKeys(OmObservationConstellation constellation) {
+            ImmutableList.Builder<String> keys = ImmutableList.builder();
+            keys.add(UNRESTRICTED);
+            keys.add(key(PROCEDURE, constellation.getProcedureIdentifier()));
+            keys.add(key(OBSERVED_PROPERTY, constellation.getObservablePropertyIdentifier()));
+            keys.add(key(FEATURE, constellation.getFeatureOfInterestIdentifier()));
+            if (CollectionHelper.isEmptyOrNull(constellation.getOfferings())) {
+                keys.add(OFFERING);
+            } else {
+                keys.addAll(keys(OFFERING, constellation.getOfferings()));
+            }
+            return keys.build();
+        }
+
+        static boolean isWildcard(String key) {
+            return !key.equals(UNRESTRICTED) && !key.contains(SEPARATOR);
+        }
+
+        private static String key(String dimension, String identifier) {
+            return identifier == null ? dimension : dimension + SEPARATOR + identifier;
+        }
+
+        private static List<String> keys(String dimension, Collection<String> identifiers) {
+            return identifiers.stream().filter(Objects::nonNull).map(identifier -> key(dimension, identifier))
+                    .collect(Collectors.collectingAndThen(Collectors.toList(), ImmutableList::copyOf));
+        }
+
+        private static boolean matches(Set<String> restriction, String identifier) {
+            return restriction.isEmpty() || identifier == null || restriction.contains(identifier);
+        }
+
+        private static boolean matches(Set<String> restriction, Set<String> identifiers) {
+            return restriction.isEmpty() || CollectionHelper.isEmptyOrNull(identifiers) ||
+                   identifiers.stream().anyMatch(restriction::contains);
+        }
+
+        private static Set<String> copy(Collection<String> identifiers) {
+            if (identifiers == null) {
+                return Collections.emptySet();
+            }
+            return ImmutableSortedSet.copyOf(Iterables.filter(identifiers, Objects::nonNull));
+        }
+    }
+}
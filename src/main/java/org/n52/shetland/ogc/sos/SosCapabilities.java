@@ -32,6 +32,8 @@ import org.n52.shetland.ogc.ows.OwsServiceIdentification;
 import org.n52.shetland.ogc.ows.OwsServiceProvider;
 import org.n52.shetland.util.CollectionHelper;
 
+import com.google.common.collect.ImmutableSortedSet;
+
 /**
  * Class which represents the Capabilities.
  *
@@ -63,7 +65,7 @@ public class SosCapabilities extends OwsCapabilities {
     public SosCapabilities(OwsCapabilities owsCapabilities, FilterCapabilities filterCapabilities, Collection<SosObservationOffering> contents) {
         super(owsCapabilities);
         this.filterCapabilities = Optional.ofNullable(filterCapabilities);
-        this.contents = Optional.ofNullable(contents).map(CollectionHelper::newSortedSet);
+        this.contents = Optional.ofNullable(contents).map(SosCapabilities::toSortedSet);
     }
 
     public SosCapabilities(String service, String version, String updateSequence,
@@ -74,7 +76,7 @@ public class SosCapabilities extends OwsCapabilities {
                            Collection<OwsCapabilitiesExtension> extensions) {
         super(SosConstants.SOS, version, updateSequence, serviceIdentification, serviceProvider, operationsMetadata, languages, extensions);
         this.filterCapabilities = Optional.ofNullable(filterCapabilities);
-        this.contents = Optional.ofNullable(contents).map(CollectionHelper::newSortedSet);
+        this.contents = Optional.ofNullable(contents).map(SosCapabilities::toSortedSet);
     }
 
     /**
@@ -99,7 +101,26 @@ public class SosCapabilities extends OwsCapabilities {
         return this.contents.map(Collections::unmodifiableSortedSet);
     }
 
+    /**
+     * Set the contents. Immutable sorted sets, e.g. snapshots of
+     * {@link SosCapabilitiesContents}, are used as they are, all other
+     * collections are copied.
+     *
+     * @param contents the contents
+     */
     public void setContents(Collection<SosObservationOffering> contents) {
-        this.contents = Optional.ofNullable(contents).map(CollectionHelper::newSortedSet);
+        this.contents = Optional.ofNullable(contents).map(SosCapabilities::toSortedSet);
+    }
+
+    private static SortedSet<SosObservationOffering> toSortedSet(Collection<SosObservationOffering> contents) {
+        if (contents instanceof ImmutableSortedSet) {
+            return (SortedSet<SosObservationOffering>) contents;
+        }
+        return CollectionHelper.newSortedSet(contents);
+    }
+
+    @Override
+    public SosCapabilities copy() {
+        return new SosCapabilities(this);
     }
 }
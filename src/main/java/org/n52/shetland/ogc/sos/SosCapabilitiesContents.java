@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.util.ReferencedEnvelope;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Concurrent container of the {@link SosObservationOffering}s of the
+ * capabilities contents section.
+ * <p>
+ * The offerings are kept in a sorted concurrent map, so changes to a single
+ * offering only copy the affected offering and replace it in the map. Writers
+ * are serialized and publish a new immutable snapshot after every change that
+ * shares the untouched offerings with the previous one. The map is ordered by
+ * the offering identifier like the snapshot, so building it is a linear copy.
+ * Readers never block: {@link #getContents()} returns the current snapshot,
+ * which can be passed to {@link SosCapabilities#setContents(Collection)}
+ * without copying.
+ * <p>
+ * Offerings contained in a snapshot must not be modified,
+ * {@link #getOffering(String)} returns copies.
+ *
+ * @since 1.0.0
+ */
+public class SosCapabilitiesContents {
+
+    private final ConcurrentNavigableMap<String, SosObservationOffering> offerings = new ConcurrentSkipListMap<>();
+    private volatile SortedSet<SosObservationOffering> contents = ImmutableSortedSet.of();
+
+    public SosCapabilitiesContents() {
+    }
+
+    public SosCapabilitiesContents(Collection<SosObservationOffering> offerings) {
+        setOfferings(offerings);
+    }
+
+    /**
+     * @return the current contents snapshot
+     */
+    public SortedSet<SosObservationOffering> getContents() {
+        return this.contents;
+    }
+
+    /**
+     * @param identifier the offering identifier
+     *
+     * @return a copy of the current offering
+     */
+    public Optional<SosObservationOffering> getOffering(String identifier) {
+        return Optional.ofNullable(this.offerings.get(identifier)).map(SosObservationOffering::copy);
+    }
+
+    /**
+     * Replace all offerings.
+     *
+     * @param offerings the offerings
+     */
+    public synchronized void setOfferings(Collection<SosObservationOffering> offerings) {
+        Map<String, SosObservationOffering> map = new HashMap<>(offerings.size());
+        offerings.forEach(offering -> map.put(identifier(offering), offering));
+        change(() -> {
+            this.offerings.keySet().retainAll(map.keySet());
+            this.offerings.putAll(map);
+        });
+    }
+
+    /**
+     * Add or replace an offering.
+     *
+     * @param offering the offering
+     */
+    public synchronized void putOffering(SosObservationOffering offering) {
+        String identifier = identifier(offering);
+        change(() -> this.offerings.put(identifier, offering));
+    }
+
+    /**
+     * Remove an offering.
+     *
+     * @param identifier the offering identifier
+     */
+    public synchronized void removeOffering(String identifier) {
+        change(() -> this.offerings.remove(identifier));
+    }
+
+    /**
+     * Apply a change to a copy of the offering and publish it. Nothing
+     * happens if the offering does not exist.
+     *
+     * @param identifier the offering identifier
+     * @param change     the change
+     */
+    public synchronized void update(String identifier, Consumer<? super SosObservationOffering> change) {
+        SosObservationOffering offering = this.offerings.get(identifier);
+        if (offering != null) {
+            SosObservationOffering copy = offering.copy();
+            change.accept(copy);
+            change(() -> this.offerings.put(identifier, copy));
+        }
+    }
+
+    public void addProcedure(String offering, String procedure) {
+        update(offering, o -> o.setProcedures(with(o.getProcedures(), procedure)));
+    }
+
+    public void removeProcedure(String offering, String procedure) {
+        update(offering, o -> o.setProcedures(without(o.getProcedures(), procedure)));
+    }
+
+    public void addFeatureOfInterest(String offering, String featureOfInterest) {
+        update(offering, o -> o.setFeatureOfInterest(with(o.getFeatureOfInterest(), featureOfInterest)));
+    }
+
+    public void removeFeatureOfInterest(String offering, String featureOfInterest) {
+        update(offering, o -> o.setFeatureOfInterest(without(o.getFeatureOfInterest(), featureOfInterest)));
+    }
+
+    public void addObservableProperty(String offering, String observableProperty) {
+        update(offering, o -> o.setObservableProperties(with(o.getObservableProperties(), observableProperty)));
+    }
+
+    public void removeObservableProperty(String offering, String observableProperty) {
+        update(offering, o -> o.setObservableProperties(without(o.getObservableProperties(), observableProperty)));
+    }
+
+    public void addObservationType(String offering, String observationType) {
+        update(offering, o -> o.setObservationTypes(with(o.getObservationTypes(), observationType)));
+    }
+
+    public void removeObservationType(String offering, String observationType) {
+        update(offering, o -> o.setObservationTypes(without(o.getObservationTypes(), observationType)));
+    }
+
+    public void addFeatureOfInterestType(String offering, String featureOfInterestType) {
+        update(offering, o -> o.setFeatureOfInterestTypes(with(o.getFeatureOfInterestTypes(),
+                                                               featureOfInterestType)));
+    }
+
+    public void removeFeatureOfInterestType(String offering, String featureOfInterestType) {
+        update(offering, o -> o.setFeatureOfInterestTypes(without(o.getFeatureOfInterestTypes(),
+                                                                  featureOfInterestType)));
+    }
+
+    /**
+     * Extend the observed area of the offering to contain the envelope.
+     *
+     * @param offering the offering identifier
+     * @param envelope the envelope
+     */
+    public void extendObservedArea(String offering, ReferencedEnvelope envelope) {
+        if (ReferencedEnvelope.isNotNullOrEmpty(envelope)) {
+            update(offering, o -> {
+                ReferencedEnvelope area;
+                if (o.isSetObservedArea()) {
+                    area = new ReferencedEnvelope(new Envelope(o.getObservedArea().getEnvelope()),
+                                                  o.getObservedArea().getSrid());
+                    area.expandToInclude(envelope);
+                } else {
+                    area = new ReferencedEnvelope(new Envelope(envelope.getEnvelope()), envelope.getSrid());
+                }
+                o.setObservedArea(area);
+            });
+        }
+    }
+
+    /**
+     * Extend the phenomenon time of the offering to contain the time.
+     *
+     * @param offering the offering identifier
+     * @param time     the time
+     */
+    public void extendPhenomenonTime(String offering, Time time) {
+        if (time != null) {
+            update(offering, o -> o.setPhenomenonTime(extend(o.getPhenomenonTime(), time)));
+        }
+    }
+
+    /**
+     * Extend the result time of the offering to contain the time.
+     *
+     * @param offering the offering identifier
+     * @param time     the time
+     */
+    public void extendResultTime(String offering, Time time) {
+        if (time != null) {
+            update(offering, o -> o.setResultTime(extend(o.getResultTime(), time)));
+        }
+    }
+
+    /**
+     * Apply the change to the map and publish the new snapshot. Has to be
+     * called while holding the lock.
+     */
+    private void change(Runnable change) {
+        try {
+            change.run();
+        } finally {
+            // the values are already ordered, so sorting them is a single pass
+            this.contents = ImmutableSortedSet.copyOf(this.offerings.values());
+        }
+    }
+
+    private static String identifier(SosObservationOffering offering) {
+        if (!offering.isSetOffering() || offering.getOffering().getIdentifier() == null) {
+            throw new IllegalArgumentException("offering identifier is missing");
+        }
+        return offering.getOffering().getIdentifier();
+    }
+
+    private static Time extend(Time current, Time time) {
+        TimePeriod period = new TimePeriod();
+        if (current instanceof TimePeriod) {
+            period.extendToContain((TimePeriod) current);
+        } else if (current instanceof TimeInstant) {
+            period.extendToContain((TimeInstant) current);
+        }
+        period.extendToContain(time);
+        return period;
+    }
+
+    private static <T> Set<T> with(SortedSet<T> set, T value) {
+        Set<T> copy = new TreeSet<>(set);
+        copy.add(value);
+        return copy;
+    }
+
+    private static <T> Set<T> without(SortedSet<T> set, T value) {
+        Set<T> copy = new TreeSet<>(set);
+        copy.remove(value);
+        return copy;
+    }
+}
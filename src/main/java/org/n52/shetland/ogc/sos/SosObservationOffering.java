@@ -28,6 +28,7 @@ import java.util.TreeSet;
 import javax.xml.namespace.QName;
 
 import org.n52.janmayen.Comparables;
+import org.n52.janmayen.Copyable;
 import org.n52.janmayen.function.Functions;
 import org.n52.shetland.ogc.gml.time.Time;
 import org.n52.shetland.ogc.swes.AbstractSWES;
@@ -39,7 +40,8 @@ import org.n52.shetland.util.ReferencedEnvelope;
  *
  * @since 4.0.0
  */
-public class SosObservationOffering extends AbstractSWES implements Comparable<SosObservationOffering> {
+public class SosObservationOffering extends AbstractSWES
+        implements Comparable<SosObservationOffering>, Copyable<SosObservationOffering> {
 
     /**
      * offering identifier for this contents sub section.
@@ -502,6 +504,38 @@ public class SosObservationOffering extends AbstractSWES implements Comparable<S
         return "SosObservationOffering [offering=" + offering + "]";
     }
 
+    /**
+     * Creates a copy of this offering. The collections are copied, while the
+     * offering, observed area, times and extensions are shared with this
+     * offering.
+     *
+     * @return the copy
+     */
+    @Override
+    public SosObservationOffering copy() {
+        SosObservationOffering copy = new SosObservationOffering();
+        copyTo(copy);
+        copy.setExtensions(getExtensions());
+        copy.offering = this.offering;
+        copy.observedArea = this.observedArea;
+        copy.phenomenonTime = this.phenomenonTime;
+        copy.resultTime = this.resultTime;
+        copy.observableProperties.addAll(this.observableProperties);
+        copy.compositePhenomena.addAll(this.compositePhenomena);
+        this.phens4CompPhens.forEach((k, v) -> copy.phens4CompPhens.put(k, new TreeSet<>(v)));
+        copy.featureOfInterest.addAll(this.featureOfInterest);
+        this.relatedFeatures.forEach((k, v) -> copy.relatedFeatures.put(k, new TreeSet<>(v)));
+        copy.procedures.addAll(this.procedures);
+        copy.resultModels.addAll(this.resultModels);
+        copy.observationTypes.addAll(this.observationTypes);
+        copy.featureOfInterestTypes.addAll(this.featureOfInterestTypes);
+        this.observationResultTypes.forEach((k, v) -> copy.observationResultTypes.put(k, new TreeSet<>(v)));
+        copy.responseFormats.addAll(this.responseFormats);
+        copy.responseModes.addAll(this.responseModes);
+        copy.procedureDescriptionFormats.addAll(this.procedureDescriptionFormats);
+        return copy;
+    }
+
     /**
      * clear and add collection to sorted set.
      *
@@ -35,4 +35,9 @@ public class ResponseExceedsSizeLimitException extends CodedSosException {
         withMessage("The request matched %d observations, which exceeds this server's limit of %d", size, limit);
         return this;
     }
+
+    public ResponseExceedsSizeLimitException forByteLimit(final long size, final long limit) {
+        withMessage("The response size of at least %d bytes exceeds this server's limit of %d bytes", size, limit);
+        return this;
+    }
 }
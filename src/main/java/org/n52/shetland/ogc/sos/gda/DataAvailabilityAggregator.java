@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.gda;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.FormatDescriptor;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationFormatDescriptor;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ProcedureDescriptionFormatDescriptor;
+
+/**
+ * Aggregates {@link DataAvailability} records that share the same
+ * constellation of procedure, observed property, feature of interest and,
+ * optionally, offering.
+ * <p>
+ * Records are grouped in a hash map by their constellation, so the
+ * aggregation is linear in the number of records. Phenomenon times are
+ * extended, counts are summed and result times as well as format descriptors
+ * are united. The input records are not modified.
+ *
+ * @since 1.0.0
+ */
+public final class DataAvailabilityAggregator {
+
+    private DataAvailabilityAggregator() {
+    }
+
+    /**
+     * Aggregate the data availabilities.
+     *
+     * @param dataAvailabilities the data availabilities
+     * @param includeOffering    if the offering is part of the constellation
+     * @param parallel           if the aggregation should run in parallel
+     *
+     * @return the aggregated data availabilities in encounter order of their
+     *         constellations
+     */
+    public static List<DataAvailability> aggregate(Collection<? extends DataAvailability> dataAvailabilities,
+                                                   boolean includeOffering, boolean parallel) {
+        Stream<? extends DataAvailability> stream = parallel
+                                                    ? dataAvailabilities.parallelStream()
+                                                    : dataAvailabilities.stream();
+        return aggregate(stream, includeOffering);
+    }
+
+    /**
+     * Aggregate the data availabilities. Parallel streams are aggregated in
+     * parallel.
+     *
+     * @param dataAvailabilities the data availabilities
+     * @param includeOffering    if the offering is part of the constellation
+     *
+     * @return the aggregated data availabilities in encounter order of their
+     *         constellations
+     */
+    public static List<DataAvailability> aggregate(Stream<? extends DataAvailability> dataAvailabilities,
+                                                   boolean includeOffering) {
+        return dataAvailabilities.collect(collector(includeOffering));
+    }
+
+    /**
+     * Create a {@link Collector} that aggregates data availabilities.
+     *
+     * @param includeOffering if the offering is part of the constellation
+     *
+     * @return the collector
+     */
+    public static Collector<DataAvailability, ?, List<DataAvailability>> collector(boolean includeOffering) {
+        Collector<DataAvailability, Accumulator, Accumulator> merging
+                = Collector.of(Accumulator::new, Accumulator::add, Accumulator::combine);
+        return Collectors.collectingAndThen(
+                Collectors.groupingBy(da -> new ConstellationKey(da, includeOffering), LinkedHashMap::new, merging),
+                map -> {
+                    List<DataAvailability> result = new ArrayList<>(map.size());
+                    map.values().forEach(accumulator -> result.add(accumulator.toDataAvailability()));
+                    return result;
+                });
+    }
+
+    /**
+     * Create a response containing the aggregated data availabilities.
+     *
+     * @param request            the request
+     * @param dataAvailabilities the data availabilities
+     * @param includeOffering    if the offering is part of the constellation
+     *
+     * @return the response
+     */
+    public static GetDataAvailabilityResponse toResponse(GetDataAvailabilityRequest request,
+                                                         Stream<? extends DataAvailability> dataAvailabilities,
+                                                         boolean includeOffering) {
+        GetDataAvailabilityResponse response = new GetDataAvailabilityResponse(request.getService(),
+                                                                               request.getVersion());
+        response.setResponseFormat(request.getResponseFormat());
+        response.setNamespace(request.getNamespace());
+        response.setDataAvailabilities(aggregate(dataAvailabilities, includeOffering));
+        return response;
+    }
+
+    /**
+     * Hash key of a data availability constellation.
+     */
+    private static final class ConstellationKey {
+        private final ReferenceType procedure;
+        private final ReferenceType observedProperty;
+        private final ReferenceType featureOfInterest;
+        private final ReferenceType offering;
+        private final int hash;
+
+        ConstellationKey(DataAvailability dataAvailability, boolean includeOffering) {
+            this.procedure = dataAvailability.getProcedure();
+            this.observedProperty = dataAvailability.getObservedProperty();
+            this.featureOfInterest = dataAvailability.getFeatureOfInterest();
+            this.offering = includeOffering ? dataAvailability.getOffering() : null;
+            this.hash = Objects.hash(procedure, observedProperty, featureOfInterest, offering);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ConstellationKey)) {
+                return false;
+            }
+            ConstellationKey that = (ConstellationKey) obj;
+            return this.hash == that.hash &&
+                   Objects.equals(this.procedure, that.procedure) &&
+                   Objects.equals(this.observedProperty, that.observedProperty) &&
+                   Objects.equals(this.featureOfInterest, that.featureOfInterest) &&
+                   Objects.equals(this.offering, that.offering);
+        }
+    }
+
+    /**
+     * Mutable merge state of a single constellation.
+     */
+    private static final class Accumulator {
+        private DataAvailability first;
+        private TimePeriod phenomenonTime;
+        private long count = -1;
+        private final Set<TimeInstant> resultTimes = new LinkedHashSet<>();
+        private ProcedureDescriptionFormatDescriptor procedureDescriptionFormat;
+        private final Map<String, Set<String>> observationTypes = new LinkedHashMap<>();
+        private boolean formatDescriptors;
+        private final Map<String, NamedValue<?>> metadata = new LinkedHashMap<>();
+
+        void add(DataAvailability da) {
+            if (first == null) {
+                first = da;
+            }
+            TimePeriod time = da.getPhenomenonTime();
+            if (time != null) {
+                if (phenomenonTime == null) {
+                    phenomenonTime = new TimePeriod(time.getStart(), time.getEnd());
+                } else {
+                    phenomenonTime.extendToContain(time);
+                }
+            }
+            if (da.isSetCount()) {
+                count = count < 0 ? da.getCount() : count + da.getCount();
+            }
+            if (da.isSetResultTime()) {
+                resultTimes.addAll(da.getResultTimes());
+            }
+            if (da.isSetFormatDescriptors()) {
+                FormatDescriptor fd = da.getFormatDescriptor();
+                formatDescriptors = true;
+                if (procedureDescriptionFormat == null) {
+                    procedureDescriptionFormat = fd.getProcedureDescriptionFormatDescriptor();
+                }
+                if (fd.getObservationFormatDescriptors() != null) {
+                    for (ObservationFormatDescriptor ofd : fd.getObservationFormatDescriptors()) {
+                        Set<String> types = observationTypes
+                                .computeIfAbsent(ofd.getResponseFormat(), k -> new LinkedHashSet<>());
+                        if (ofd.getObservationTypes() != null) {
+                            types.addAll(ofd.getObservationTypes());
+                        }
+                    }
+                }
+            }
+            if (da.isSetMetadata()) {
+                da.getMetadata().forEach(metadata::putIfAbsent);
+            }
+        }
+
+        Accumulator combine(Accumulator other) {
+            if (other.first == null) {
+                return this;
+            }
+            if (first == null) {
+                return other;
+            }
+            if (other.phenomenonTime != null) {
+                if (phenomenonTime == null) {
+                    phenomenonTime = other.phenomenonTime;
+                } else {
+                    phenomenonTime.extendToContain(other.phenomenonTime);
+                }
+            }
+            if (other.count >= 0) {
+                count = count < 0 ? other.count : count + other.count;
+            }
+            resultTimes.addAll(other.resultTimes);
+            formatDescriptors |= other.formatDescriptors;
+            if (procedureDescriptionFormat == null) {
+                procedureDescriptionFormat = other.procedureDescriptionFormat;
+            }
+            other.observationTypes.forEach((format, types) -> observationTypes
+                    .computeIfAbsent(format, k -> new LinkedHashSet<>()).addAll(types));
+            other.metadata.forEach(metadata::putIfAbsent);
+            return this;
+        }
+
+        DataAvailability toDataAvailability() {
+            DataAvailability da = new DataAvailability(first.getProcedure(), first.getObservedProperty(),
+                                                       first.getFeatureOfInterest(), first.getOffering(),
+                                                       phenomenonTime, count);
+            if (!resultTimes.isEmpty()) {
+                da.setResultTimes(new ArrayList<>(resultTimes));
+            }
+            if (formatDescriptors) {
+                Set<ObservationFormatDescriptor> ofds = new LinkedHashSet<>(observationTypes.size());
+                observationTypes.forEach((format, types) -> ofds.add(new ObservationFormatDescriptor(format, types)));
+                da.setFormatDescriptor(new FormatDescriptor(procedureDescriptionFormat, ofds));
+            }
+            if (!metadata.isEmpty()) {
+                da.setMetadata(metadata);
+            }
+            return da;
+        }
+    }
+}
@@ -0,0 +1,683 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.gda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.MultiObservationValues;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.shetland.ogc.sos.request.DeleteObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+import org.n52.shetland.ogc.sos.response.DeleteObservationResponse;
+import org.n52.shetland.util.CollectionHelper;
+
+/**
+ * In-memory index of the data availability per procedure, observed property,
+ * feature of interest and offering.
+ * <p>
+ * The index stores the phenomenon time extent, the value count and the
+ * distinct result times of every constellation and is updated incrementally
+ * from the payloads of {@link InsertObservationRequest},
+ * {@link InsertResultRequest} and {@link DeleteObservationRequest}. Every
+ * constellation is stored as an immutable entry that is replaced atomically
+ * on updates, so reads never block and always see a consistent state of each
+ * constellation. Deleted observations without offerings are removed from all
+ * offerings of their constellation, as inserted observations may have been
+ * assigned to the offerings of their request.
+ * <p>
+ * Deleting an observation that defines the phenomenon time extent of a
+ * constellation can not shrink the extent without knowing the remaining
+ * observations. The extent is kept in that case and the constellation is
+ * reported by {@link #getInexactDataAvailabilities()} until it is reloaded
+ * using {@link #put(DataAvailability)}.
+ *
+ * @since 1.0.0
+ */
+public class DataAvailabilityIndex {
+
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Key>> byProcedure = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Key>> byObservedProperty = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Key>> byFeatureOfInterest = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Key>> byOffering = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, OmObservationConstellation> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Add the observations of the request to the index.
+     *
+     * @param request the request
+     */
+    public void insert(InsertObservationRequest request) {
+        if (request.isSetObservation()) {
+            List<String> offerings = request.isSetOfferings()
+                                     ? request.getOfferings()
+                                     : Collections.<String>emptyList();
+            apply(request.getObservations(), o -> o.getObservationConstellation(), offerings, 1);
+        }
+    }
+
+    /**
+     * Register the observation template of the request, so that subsequent
+     * {@link InsertResultRequest}s can be assigned to their constellation.
+     *
+     * @param request the request
+     */
+    public void registerTemplate(InsertResultTemplateRequest request) {
+        if (request.getIdentifier() != null && request.isSetObservatioTenmplate()) {
+            this.templates.put(request.getIdentifier().getValue(), request.getObservationTemplate());
+        }
+    }
+
+    /**
+     * Add the decoded result values of the request to the index. The
+     * constellation of the observations is taken from the template that was
+     * registered with {@link #registerTemplate(InsertResultTemplateRequest)}.
+     *
+     * @param request      the request
+     * @param observations the observations decoded from the result values
+     *
+     * @throws IllegalArgumentException if the template is not registered
+     */
+    public void insert(InsertResultRequest request, Collection<OmObservation> observations) {
+        OmObservationConstellation template = this.templates.get(request.getTemplateIdentifier());
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown result template: " + request.getTemplateIdentifier());
+        }
+        apply(observations, o -> template, Collections.<String>emptyList(), 1);
+    }
+
+    /**
+     * Remove the observation deleted by the request from the index. The
+     * observation has to be the one identified by the request, as removing
+     * another observation would corrupt the counts of its constellation.
+     *
+     * @param request the request
+     * @param deleted the deleted observation
+     *
+     * @throws IllegalArgumentException if the request identifies another
+     *                                  observation
+     */
+    public void delete(DeleteObservationRequest request, OmObservation deleted) {
+        String identifier = request.getObservationIdentifier();
+        if (identifier == null ||
+            !identifier.equals(deleted.getIdentifier()) && !identifier.equals(deleted.getObservationID())) {
+            throw new IllegalArgumentException(String.format(
+                    "Observation %s was not deleted by the request for %s", deleted.getIdentifier(), identifier));
+        }
+        apply(Collections.singleton(deleted), o -> o.getObservationConstellation(),
+              Collections.<String>emptyList(), -1);
+    }
+
+    /**
+     * Remove the observation deleted by a DeleteObservation operation from the index.
+     *
+     * @param response the response containing the deleted observation
+     */
+    public void delete(DeleteObservationResponse response) {
+        if (response.getDeletedObservation() != null) {
+            apply(Collections.singleton(response.getDeletedObservation()), o -> o.getObservationConstellation(),
+                  Collections.<String>emptyList(), -1);
+        }
+    }
+
+    /**
+     * Replace the indexed state of a constellation, e.g. to initialize the
+     * index from a database or to reload an inexact constellation.
+     *
+     * @param dataAvailability the data availability of the constellation
+     */
+    public void put(DataAvailability dataAvailability) {
+        Key key = new Key(href(dataAvailability.getProcedure()), href(dataAvailability.getObservedProperty()),
+                          href(dataAvailability.getFeatureOfInterest()), href(dataAvailability.getOffering()));
+        Delta delta = new Delta(1);
+        TimePeriod time = dataAvailability.getPhenomenonTime();
+        if (time != null) {
+            delta.add(millis(time.getStart()), millis(time.getEnd()), NOT_SET, 0);
+        }
+        delta.count = Math.max(dataAvailability.getCount(), 0);
+        if (dataAvailability.isSetResultTime()) {
+            dataAvailability.getResultTimes().forEach(t -> delta.resultTimes.merge(millis(t.getValue()), 1, Integer::sum));
+        }
+        this.entries.compute(key, (k, old) -> {
+            Entry entry = new Entry(delta);
+            if (old == null) {
+                index(k);
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Remove all constellations from the index.
+     */
+    public void clear() {
+        this.entries.keySet().forEach(key -> this.entries.computeIfPresent(key, (k, old) -> {
+            unindex(k);
+            return null;
+        }));
+    }
+
+    /**
+     * @return the number of indexed constellations
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the constellations whose phenomenon time extent may be too large
+     * because observations at the bounds of the extent were deleted.
+     *
+     * @return the inexact data availabilities
+     */
+    public List<DataAvailability> getInexactDataAvailabilities() {
+        List<DataAvailability> result = new ArrayList<>();
+        this.entries.forEach((key, entry) -> {
+            if (!entry.exact) {
+                result.add(entry.toDataAvailability(key, false));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Answer the request from the index. Result times are included for
+     * GetDataAvailability 2.0 requests.
+     *
+     * @param request the request
+     *
+     * @return the response
+     */
+    public GetDataAvailabilityResponse query(GetDataAvailabilityRequest request) {
+        boolean resultTimes = GetDataAvailabilityConstants.NS_GDA_20.equals(request.getNamespace());
+        GetDataAvailabilityResponse response = new GetDataAvailabilityResponse(request.getService(),
+                                                                               request.getVersion());
+        response.setResponseFormat(request.getResponseFormat());
+        response.setNamespace(request.getNamespace());
+        response.setDataAvailabilities(getDataAvailabilities(request, resultTimes));
+        return response;
+    }
+
+    /**
+     * Get the data availabilities matching the procedure, observed property,
+     * feature of interest and offering parameters of the request.
+     *
+     * @param request     the request
+     * @param resultTimes if the result times should be included
+     *
+     * @return the data availabilities
+     */
+    public List<DataAvailability> getDataAvailabilities(GetDataAvailabilityRequest request, boolean resultTimes) {
+        Set<String> procedures = asSet(request.getProcedures());
+        Set<String> observedProperties = asSet(request.getObservedProperties());
+        Set<String> featuresOfInterest = asSet(request.getFeaturesOfInterest());
+        Set<String> offerings = asSet(request.getOfferings());
+
+        Collection<Key> candidates = candidates(procedures, byProcedure, null);
+        candidates = candidates(observedProperties, byObservedProperty, candidates);
+        candidates = candidates(featuresOfInterest, byFeatureOfInterest, candidates);
+        candidates = candidates(offerings, byOffering, candidates);
+        if (candidates == null) {
+            candidates = this.entries.keySet();
+        }
+
+        List<DataAvailability> result = new ArrayList<>(candidates.size());
+        for (Key key : candidates) {
+            if (matches(procedures, key.procedure) &&
+                matches(observedProperties, key.observedProperty) &&
+                matches(featuresOfInterest, key.featureOfInterest) &&
+                matches(offerings, key.offering)) {
+                Entry entry = this.entries.get(key);
+                if (entry != null) {
+                    result.add(entry.toDataAvailability(key, resultTimes));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Select the smaller of the candidate sets.
+     */
+    private static Collection<Key> candidates(Set<String> values, Map<String, Set<Key>> index,
+                                              Collection<Key> current) {
+        if (values == null) {
+            return current;
+        }
+        int size = 0;
+        for (String value : values) {
+            Set<Key> keys = index.get(value);
+            size += keys == null ? 0 : keys.size();
+        }
+        if (current != null && current.size() <= size) {
+            return current;
+        }
+        List<Key> keys = new ArrayList<>(size);
+        for (String value : values) {
+            keys.addAll(index.getOrDefault(value, Collections.emptySet()));
+        }
+        return keys;
+    }
+
+    private static boolean matches(Set<String> values, String value) {
+        return values == null || values.contains(value);
+    }
+
+    private static Set<String> asSet(List<String> values) {
+        return CollectionHelper.isEmpty(values) ? null : new HashSet<>(values);
+    }
+
+    private void apply(Collection<OmObservation> observations,
+                       Function<OmObservation, OmObservationConstellation> constellation,
+                       List<String> defaultOfferings, int sign) {
+        Map<Key, Delta> deltas = new HashMap<>();
+        for (OmObservation observation : observations) {
+            OmObservationConstellation oc = constellation.apply(observation);
+            if (oc == null) {
+                continue;
+            }
+            String procedure = oc.getProcedure() == null ? null : oc.getProcedureIdentifier();
+            String observedProperty = oc.getObservableProperty() == null ? null : oc.getObservablePropertyIdentifier();
+            String featureOfInterest = oc.getFeatureOfInterest() == null ? null : oc.getFeatureOfInterestIdentifier();
+            Collection<String> offerings = CollectionHelper.isNotEmpty(oc.getOfferings())
+                                           ? oc.getOfferings()
+                                           : defaultOfferings;
+            if (offerings.isEmpty() && sign < 0) {
+                // inserted observations may have been assigned to the offerings of their request
+                offerings = offerings(procedure, observedProperty, featureOfInterest);
+            }
+            if (offerings.isEmpty()) {
+                offerings = Collections.singleton(null);
+            }
+            for (String offering : offerings) {
+                Key key = new Key(procedure, observedProperty, featureOfInterest, offering);
+                add(deltas.computeIfAbsent(key, k -> new Delta(sign)), observation);
+            }
+        }
+        deltas.forEach((key, delta) -> this.entries.compute(key, (k, old) -> {
+            Entry entry;
+            if (old == null) {
+                if (sign < 0) {
+                    return null;
+                }
+                entry = new Entry(delta);
+                index(k);
+            } else {
+                entry = old.apply(delta);
+                if (entry == null) {
+                    unindex(k);
+                }
+            }
+            return entry;
+        }));
+    }
+
+    /**
+     * Get the offerings indexed for the constellation.
+     */
+    private Set<String> offerings(String procedure, String observedProperty, String featureOfInterest) {
+        Collection<Key> keys = procedure == null
+                               ? this.entries.keySet()
+                               : this.byProcedure.getOrDefault(procedure, Collections.emptySet());
+        Set<String> offerings = new HashSet<>();
+        for (Key key : keys) {
+            if (Objects.equals(key.procedure, procedure) &&
+                Objects.equals(key.observedProperty, observedProperty) &&
+                Objects.equals(key.featureOfInterest, featureOfInterest)) {
+                offerings.add(key.offering);
+            }
+        }
+        return offerings;
+    }
+
+    private static void add(Delta delta, OmObservation observation) {
+        long resultTime = observation.isSetResultTime() ? millis(observation.getResultTime().getValue()) : NOT_SET;
+        if (observation.getValue() instanceof MultiObservationValues &&
+            observation.getValue().getValue() instanceof TVPValue) {
+            List<TimeValuePair> values = ((TVPValue) observation.getValue().getValue()).getValue();
+            for (TimeValuePair value : values) {
+                delta.add(start(value.getTime()), end(value.getTime()), resultTime, 1);
+            }
+        } else {
+            Time time = observation.getValue() == null ? null : observation.getPhenomenonTime();
+            delta.add(start(time), end(time), resultTime, 1);
+        }
+    }
+
+    private void index(Key key) {
+        add(byProcedure, key.procedure, key);
+        add(byObservedProperty, key.observedProperty, key);
+        add(byFeatureOfInterest, key.featureOfInterest, key);
+        add(byOffering, key.offering, key);
+    }
+
+    private void unindex(Key key) {
+        remove(byProcedure, key.procedure, key);
+        remove(byObservedProperty, key.observedProperty, key);
+        remove(byFeatureOfInterest, key.featureOfInterest, key);
+        remove(byOffering, key.offering, key);
+    }
+
+    private static void add(ConcurrentMap<String, Set<Key>> index, String value, Key key) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private static void remove(ConcurrentMap<String, Set<Key>> index, String value, Key key) {
+        if (value != null) {
+            index.computeIfPresent(value, (v, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static String href(ReferenceType reference) {
+        return reference == null ? null : reference.getHref();
+    }
+
+    private static long start(Time time) {
+        if (time instanceof TimeInstant) {
+            return millis(((TimeInstant) time).getValue());
+        } else if (time instanceof TimePeriod) {
+            return millis(((TimePeriod) time).getStart());
+        }
+        return NOT_SET;
+    }
+
+    private static long end(Time time) {
+        if (time instanceof TimeInstant) {
+            return millis(((TimeInstant) time).getValue());
+        } else if (time instanceof TimePeriod) {
+            return millis(((TimePeriod) time).getEnd());
+        }
+        return NOT_SET;
+    }
+
+    private static long millis(DateTime time) {
+        return time == null ? NOT_SET : time.getMillis();
+    }
+
+    private static DateTime dateTime(long millis) {
+        return millis == NOT_SET ? null : new DateTime(millis, DateTimeZone.UTC);
+    }
+
+    private static final class Key {
+        private final String procedure;
+        private final String observedProperty;
+        private final String featureOfInterest;
+        private final String offering;
+        private final int hash;
+
+        Key(String procedure, String observedProperty, String featureOfInterest, String offering) {
+            this.procedure = procedure;
+            this.observedProperty = observedProperty;
+            this.featureOfInterest = featureOfInterest;
+            this.offering = offering;
+            this.hash = Objects.hash(procedure, observedProperty, featureOfInterest, offering);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.hash == that.hash &&
+                   Objects.equals(this.procedure, that.procedure) &&
+                   Objects.equals(this.observedProperty, that.observedProperty) &&
+                   Objects.equals(this.featureOfInterest, that.featureOfInterest) &&
+                   Objects.equals(this.offering, that.offering);
+        }
+    }
+
+    /**
+     * Changes of a single constellation caused by a single request.
+     */
+    private static final class Delta {
+        private final int sign;
+        private long count;
+        private long minStart = NOT_SET;
+        private int minStartCount;
+        private long maxEnd = NOT_SET;
+        private int maxEndCount;
+        private final List<Long> starts = new ArrayList<>(1);
+        private final List<Long> ends = new ArrayList<>(1);
+        private final TreeMap<Long, Integer> resultTimes = new TreeMap<>();
+
+        Delta(int sign) {
+            this.sign = sign;
+        }
+
+        void add(long start, long end, long resultTime, int values) {
+            this.count += values;
+            if (start != NOT_SET) {
+                if (sign < 0) {
+                    this.starts.add(start);
+                }
+                if (minStart == NOT_SET || start < minStart) {
+                    minStart = start;
+                    minStartCount = 1;
+                } else if (start == minStart) {
+                    minStartCount++;
+                }
+            }
+            if (end != NOT_SET) {
+                if (sign < 0) {
+                    this.ends.add(end);
+                }
+                if (maxEnd == NOT_SET || end > maxEnd) {
+                    maxEnd = end;
+                    maxEndCount = 1;
+                } else if (end == maxEnd) {
+                    maxEndCount++;
+                }
+            }
+            if (resultTime != NOT_SET) {
+                this.resultTimes.merge(resultTime, values, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Immutable state of a single constellation. The number of observations
+     * sharing the minimum start and maximum end time are tracked to detect
+     * deletions that affect the phenomenon time extent.
+     */
+    private static final class Entry {
+        private final long count;
+        private final long minStart;
+        private final int minStartCount;
+        private final long maxEnd;
+        private final int maxEndCount;
+        private final boolean exact;
+        private final long[] resultTimes;
+        private final int[] resultTimeCounts;
+
+        Entry(Delta delta) {
+            this(delta.count, delta.minStart, delta.minStartCount, delta.maxEnd, delta.maxEndCount, true,
+                 keys(delta.resultTimes), values(delta.resultTimes));
+        }
+
+        Entry(long count, long minStart, int minStartCount, long maxEnd, int maxEndCount, boolean exact,
+              long[] resultTimes, int[] resultTimeCounts) {
+            this.count = count;
+            this.minStart = minStart;
+            this.minStartCount = minStartCount;
+            this.maxEnd = maxEnd;
+            this.maxEndCount = maxEndCount;
+            this.exact = exact;
+            this.resultTimes = resultTimes;
+            this.resultTimeCounts = resultTimeCounts;
+        }
+
+        /**
+         * @return the new entry or {@code null} if the constellation has no values left
+         */
+        Entry apply(Delta delta) {
+            return delta.sign > 0 ? insert(delta) : delete(delta);
+        }
+
+        private Entry insert(Delta delta) {
+            long newMinStart = minStart;
+            int newMinStartCount = minStartCount;
+            if (delta.minStart != NOT_SET) {
+                if (newMinStart == NOT_SET || delta.minStart < newMinStart) {
+                    newMinStart = delta.minStart;
+                    newMinStartCount = delta.minStartCount;
+                } else if (delta.minStart == newMinStart) {
+                    newMinStartCount += delta.minStartCount;
+                }
+            }
+            long newMaxEnd = maxEnd;
+            int newMaxEndCount = maxEndCount;
+            if (delta.maxEnd != NOT_SET) {
+                if (newMaxEnd == NOT_SET || delta.maxEnd > newMaxEnd) {
+                    newMaxEnd = delta.maxEnd;
+                    newMaxEndCount = delta.maxEndCount;
+                } else if (delta.maxEnd == newMaxEnd) {
+                    newMaxEndCount += delta.maxEndCount;
+                }
+            }
+            long[][] times = merge(delta.resultTimes, 1);
+            return new Entry(count + delta.count, newMinStart, newMinStartCount, newMaxEnd, newMaxEndCount, exact,
+                             times[0], toInt(times[1]));
+        }
+
+        private Entry delete(Delta delta) {
+            long newCount = count - delta.count;
+            if (newCount <= 0) {
+                return null;
+            }
+            boolean newExact = exact;
+            int newMinStartCount = minStartCount;
+            for (long start : delta.starts) {
+                if (start == minStart && --newMinStartCount <= 0) {
+                    newExact = false;
+                }
+            }
+            int newMaxEndCount = maxEndCount;
+            for (long end : delta.ends) {
+                if (end == maxEnd && --newMaxEndCount <= 0) {
+                    newExact = false;
+                }
+            }
+            long[][] times = merge(delta.resultTimes, -1);
+            return new Entry(newCount, minStart, Math.max(newMinStartCount, 0), maxEnd, Math.max(newMaxEndCount, 0),
+                             newExact, times[0], toInt(times[1]));
+        }
+
+        /**
+         * Merge the sorted result time changes into the sorted result times of
+         * this entry in a single pass.
+         */
+        private long[][] merge(TreeMap<Long, Integer> changes, int sign) {
+            long[] times = new long[resultTimes.length + changes.size()];
+            long[] counts = new long[times.length];
+            int i = 0;
+            int n = 0;
+            for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                long time = change.getKey();
+                while (i < resultTimes.length && resultTimes[i] < time) {
+                    times[n] = resultTimes[i];
+                    counts[n++] = resultTimeCounts[i++];
+                }
+                long count = sign * change.getValue();
+                if (i < resultTimes.length && resultTimes[i] == time) {
+                    count += resultTimeCounts[i++];
+                }
+                if (count > 0) {
+                    times[n] = time;
+                    counts[n++] = count;
+                }
+            }
+            while (i < resultTimes.length) {
+                times[n] = resultTimes[i];
+                counts[n++] = resultTimeCounts[i++];
+            }
+            return new long[][] { Arrays.copyOf(times, n), Arrays.copyOf(counts, n) };
+        }
+
+        DataAvailability toDataAvailability(Key key, boolean includeResultTimes) {
+            DataAvailability da = new DataAvailability(reference(key.procedure),
+                                                       reference(key.observedProperty),
+                                                       reference(key.featureOfInterest),
+                                                       reference(key.offering),
+                                                       new TimePeriod(dateTime(minStart), dateTime(maxEnd)),
+                                                       count);
+            if (includeResultTimes && resultTimes.length > 0) {
+                List<TimeInstant> times = new ArrayList<>(resultTimes.length);
+                Arrays.stream(resultTimes).forEach(t -> times.add(new TimeInstant(dateTime(t))));
+                da.setResultTimes(times);
+            }
+            return da;
+        }
+
+        private static ReferenceType reference(String href) {
+            return href == null ? null : new ReferenceType(href);
+        }
+
+        private static long[] keys(TreeMap<Long, Integer> map) {
+            return map.keySet().stream().mapToLong(Long::longValue).toArray();
+        }
+
+        private static int[] values(TreeMap<Long, Integer> map) {
+            return map.values().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static int[] toInt(long[] values) {
+            return Arrays.stream(values).mapToInt(Math::toIntExact).toArray();
+        }
+    }
+}
@@ -316,7 +316,8 @@ public class GetDataAvailabilityResponse extends OwsServiceResponse implements R
         @Override
         public boolean equals(Object o) {
             if (o instanceof DataAvailability) {
-                return hashCode() == o.hashCode();
+                DataAvailability that = (DataAvailability) o;
+                return sameConstellation(that) && Objects.equal(this.offering, that.offering);
             }
             return false;
         }
@@ -329,7 +330,10 @@ public class GetDataAvailabilityResponse extends OwsServiceResponse implements R
 
         public boolean sameConstellation(Object o) {
             if (o instanceof DataAvailability) {
-                return sameConstellationHashCode() == ((DataAvailability) o).sameConstellationHashCode();
+                DataAvailability that = (DataAvailability) o;
+                return Objects.equal(this.procedure, that.procedure) &&
+                       Objects.equal(this.observedProperty, that.observedProperty) &&
+                       Objects.equal(this.featureOfInterest, that.featureOfInterest);
             }
             return false;
         }
@@ -365,11 +369,18 @@ public class GetDataAvailabilityResponse extends OwsServiceResponse implements R
         }
 
         private void mergeFormatDescriptors(FormatDescriptor fdToMerge) {
-            getFormatDescriptor().getObservationFormatDescriptors().forEach(fd
-                    -> fdToMerge.getObservationFormatDescriptors().stream()
-                            .filter(fd2 -> fd.getResponseFormat().equals(fd2.getResponseFormat()))
-                            .forEachOrdered(fd2 -> fd.getObservationTypes().addAll(fd2.getObservationTypes()))
-            );
+            if (!isSetFormatDescriptors() || fdToMerge == null) {
+                return;
+            }
+            Map<String, ObservationFormatDescriptor> byResponseFormat = Maps.newHashMap();
+            getFormatDescriptor().getObservationFormatDescriptors()
+                    .forEach(fd -> byResponseFormat.putIfAbsent(fd.getResponseFormat(), fd));
+            fdToMerge.getObservationFormatDescriptors().forEach(fd2 -> {
+                ObservationFormatDescriptor fd = byResponseFormat.get(fd2.getResponseFormat());
+                if (fd != null) {
+                    fd.getObservationTypes().addAll(fd2.getObservationTypes());
+                }
+            });
         }
     }
 
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.request;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.n52.shetland.ogc.filter.Filter;
+import org.n52.shetland.ogc.filter.FilterNormalizer;
+import org.n52.shetland.ogc.ows.extension.Extension;
+import org.n52.shetland.ogc.ows.extension.Value;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+
+/**
+ * Creates {@link RequestKey}s for {@code GetObservation}, {@code GetResult}
+ * and {@code GetDataAvailability} requests. Identifier lists are sorted and
+ * deduplicated, filters are normalized using the {@link FilterNormalizer} and
+ * extensions are ordered by their definition or identifier. Parameters that do
+ * not affect the result, like namespace declarations or the request context,
+ * are ignored.
+ *
+ * @since 1.0.0
+ */
+public class RequestCanonicalizer {
+
+    private static final String NULL = "-";
+
+    private final Predicate<Extension<?>> relevantExtensions;
+
+    /**
+     * Creates a canonicalizer that includes all extensions of a request.
+     */
+    public RequestCanonicalizer() {
+        this(extension -> true);
+    }
+
+    /**
+     * Creates a canonicalizer that includes only the extensions that affect
+     * the result.
+     *
+     * @param relevantExtensions the predicate selecting the extensions to
+     *                           include in the key
+     */
+    public RequestCanonicalizer(Predicate<Extension<?>> relevantExtensions) {
+        this.relevantExtensions = relevantExtensions;
+    }
+
+    /**
+     * Create the key of the {@code GetObservation} request.
+     *
+     * @param request the request
+     *
+     * @return the key
+     */
+    public RequestKey canonicalize(GetObservationRequest request) {
+        KeyBuilder key = new KeyBuilder(request)
+                .add("offering", request.getOfferings())
+                .add("procedure", request.getProcedures())
+                .add("observedProperty", request.getObservedProperties())
+                .add("featureOfInterest", request.getFeatureIdentifiers())
+                .addFilters("temporalFilter", request.getTemporalFilters())
+                .add("spatialFilter", request.getSpatialFilter())
+                .add("resultFilter", request.getResultFilter())
+                .add("responseFormat", request.getResponseFormat())
+                .add("responseMode", request.getResponseMode())
+                .add("resultModel", request.getResultModel())
+                .add("srsName", request.getSrsName())
+                .add("merge", request.isSetMergeObservationValues());
+        return key.build();
+    }
+
+    /**
+     * Create the key of the {@code GetResult} request.
+     *
+     * @param request the request
+     *
+     * @return the key
+     */
+    public RequestKey canonicalize(GetResultRequest request) {
+        KeyBuilder key = new KeyBuilder(request)
+                .add("template", request.getObservationTemplateIdentifier())
+                .add("offering", request.getOffering())
+                .add("observedProperty", request.getObservedProperty())
+                .add("featureOfInterest", request.getFeatureIdentifiers())
+                .addFilters("temporalFilter", request.getTemporalFilter())
+                .add("spatialFilter", request.getSpatialFilter());
+        return key.build();
+    }
+
+    /**
+     * Create the key of the {@code GetDataAvailability} request.
+     *
+     * @param request the request
+     *
+     * @return the key
+     */
+    public RequestKey canonicalize(GetDataAvailabilityRequest request) {
+        KeyBuilder key = new KeyBuilder(request)
+                .add("offering", request.getOfferings())
+                .add("procedure", request.getProcedures())
+                .add("observedProperty", request.getObservedProperties())
+                .add("featureOfInterest", request.getFeaturesOfInterest())
+                .add("responseFormat", request.getResponseFormat())
+                .add("namespace", request.getNamespace());
+        return key.build();
+    }
+
+    /**
+     * Length prefixed string representation so that separators inside of
+     * values can not produce ambiguous keys.
+     */
+    private static String value(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        String string = value.toString();
+        return string.length() + ":" + string;
+    }
+
+    private static String filter(Filter<?> filter) {
+        return filter == null ? NULL : FilterNormalizer.canonicalize(filter).getKey();
+    }
+
+    private static String fold(String name) {
+        return name.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private final class KeyBuilder {
+        private final OwsServiceRequest request;
+        private final StringBuilder builder = new StringBuilder();
+
+        KeyBuilder(OwsServiceRequest request) {
+            this.request = request;
+            builder.append(value(request.getOperationName())).append('{')
+                    .append("service=").append(value(request.getService()))
+                    .append(";version=").append(value(request.getVersion()));
+        }
+
+        KeyBuilder add(String name, Object value) {
+            builder.append(';').append(name).append('=').append(value(value));
+            return this;
+        }
+
+        KeyBuilder add(String name, Filter<?> filter) {
+            builder.append(';').append(name).append('=').append(filter(filter));
+            return this;
+        }
+
+        KeyBuilder add(String name, Collection<String> values) {
+            Set<String> sorted = new TreeSet<>();
+            if (values != null) {
+                values.stream().filter(v -> v != null && !v.isEmpty()).forEach(sorted::add);
+            }
+            return addSorted(name, sorted);
+        }
+
+        KeyBuilder addFilters(String name, Collection<? extends Filter<?>> filters) {
+            Set<String> sorted = new TreeSet<>();
+            if (filters != null) {
+                filters.forEach(f -> sorted.add(filter(f)));
+            }
+            return addSorted(name, sorted);
+        }
+
+        private KeyBuilder addSorted(String name, Set<String> values) {
+            builder.append(';').append(name).append("=[");
+            values.forEach(v -> builder.append(value(v)));
+            builder.append(']');
+            return this;
+        }
+
+        private String extension(Extension<?> extension) {
+            String name = extension.isSetDefinition() ? extension.getDefinition()
+                                  : extension.isSetIdentifier() ? extension.getIdentifier() : null;
+            Object value = extension.getValue();
+            if (value instanceof Value<?, ?>) {
+                value = ((Value<?, ?>) value).getStringValue();
+            } else if (value instanceof Filter<?>) {
+                value = filter((Filter<?>) value);
+            }
+            return value(name == null ? null : fold(name)) + "=" + value(value);
+        }
+
+        RequestKey build() {
+            Set<String> extensions = new TreeSet<>();
+            if (request.getExtensions() != null) {
+                request.getExtensions().stream().filter(relevantExtensions)
+                        .forEach(e -> extensions.add(extension(e)));
+            }
+            addSorted("extensions", extensions);
+            return new RequestKey(request.getOperationName(), builder.append('}').toString());
+        }
+    }
+}
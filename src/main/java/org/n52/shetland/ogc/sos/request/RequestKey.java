@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.Hashing;
+
+/**
+ * Immutable key of a request that is equal for semantically identical
+ * requests. It can be used for response caching, to deduplicate requests that
+ * are in flight, or to aggregate metrics.
+ *
+ * @see RequestCanonicalizer
+ * @since 1.0.0
+ */
+public final class RequestKey {
+
+    private final String operation;
+    private final String key;
+    private final long hash;
+
+    RequestKey(String operation, String key) {
+        this.operation = operation;
+        this.key = Objects.requireNonNull(key);
+        this.hash = Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Get the name of the operation of the request.
+     *
+     * @return the operation name
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get the canonical string representation of the request.
+     *
+     * @return the canonical key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get a hash of the canonical key that is stable across JVM instances.
+     *
+     * @return the stable hash
+     */
+    public long getStableHash() {
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RequestKey that = (RequestKey) obj;
+        return this.hash == that.hash && this.key.equals(that.key);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("key", key).toString();
+    }
+}
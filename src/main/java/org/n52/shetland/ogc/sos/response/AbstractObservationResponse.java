@@ -58,6 +58,10 @@ public abstract class AbstractObservationResponse extends OwsServiceResponse imp
         this.observationCollection = observationCollection;
     }
 
+    public boolean isSetObservationCollection() {
+        return observationCollection != null;
+    }
+
     protected OmObservation getFirstObservation() {
         if (observationCollection != null && observationCollection.iterator().hasNext()) {
             return observationCollection.iterator().next();
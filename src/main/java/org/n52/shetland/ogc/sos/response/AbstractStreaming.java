@@ -16,24 +16,32 @@
  */
 package org.n52.shetland.ogc.sos.response;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.TreeSet;
 
 import org.n52.shetland.ogc.om.AbstractObservationValue;
 import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.TimeValuePair;
 import org.n52.shetland.ogc.om.values.Value;
 import org.n52.shetland.ogc.ows.OWSConstants.AdditionalRequestParams;
 import org.n52.shetland.ogc.ows.exception.CodedException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
+import org.n52.shetland.ogc.ows.service.StreamingMetrics;
 import org.n52.shetland.ogc.sos.exception.ResponseExceedsSizeLimitException;
 import org.n52.shetland.util.CollectionHelper;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 public abstract class AbstractStreaming extends AbstractObservationValue<Value<OmObservation>> {
     private final Map<AdditionalRequestParams, Object> additionalRequestParams = Maps.newHashMap();
@@ -44,11 +52,36 @@ public abstract class AbstractStreaming extends AbstractObservationValue<Value<O
 
     private int currentNumberOfValues = 0;
 
+    private StreamingMetrics metrics = StreamingMetrics.NOOP;
+
+    private ResponseSizeBudget responseSizeBudget;
+
+    private PagingCursor resumeFrom;
+
+    private int emittedObservations;
+
+    private long position;
+
+    private long lastPhenomenonTime;
+
+    private String lastObservationId;
+
+    private boolean skipping;
+
     public abstract boolean hasNextValue() throws OwsExceptionReport;
 
+    /**
+     * Get the next observation of this stream. Observations fetched through
+     * {@link #getObservation(int)} or {@link #mergeObservation(int)} are added
+     * to the response size budget, advance the paging position and are
+     * recorded by the {@link StreamingMetrics}.
+     *
+     * @return the next observation
+     *
+     * @throws OwsExceptionReport if the observation could not be fetched
+     */
     public abstract OmObservation nextSingleObservation() throws OwsExceptionReport;
 
-
     /**
      * Check and modify observation for Spatial Filtering Profile and requested
      * crs
@@ -61,7 +94,30 @@ public abstract class AbstractStreaming extends AbstractObservationValue<Value<O
     protected abstract void checkForModifications(OmObservation observation) throws OwsExceptionReport;
 
     public Collection<OmObservation> mergeObservation() throws OwsExceptionReport {
-        List<OmObservation> observations = getObservation();
+        return mergeObservation(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get and merge at most {@code max} further observations.
+     *
+     * @param max the maximum number of single observations to fetch
+     *
+     * @return the merged observations
+     *
+     * @throws OwsExceptionReport if the observations could not be fetched
+     */
+    public Collection<OmObservation> mergeObservation(int max) throws OwsExceptionReport {
+        List<OmObservation> observations = getObservation(max);
+        if (!metrics.isEnabled()) {
+            return mergeObservations(observations);
+        }
+        long start = metrics.nanoTime();
+        Collection<OmObservation> merged = mergeObservations(observations);
+        metrics.mergeTime(metrics.nanoTime() - start);
+        return merged;
+    }
+
+    private Collection<OmObservation> mergeObservations(List<OmObservation> observations) {
         // TODO merge all observations with the same observationContellation
         // FIXME Failed to set the observation type to sweArrayObservation for
         // the merged Observations
@@ -94,13 +150,190 @@ public abstract class AbstractStreaming extends AbstractObservationValue<Value<O
     }
 
     public List<OmObservation> getObservation() throws OwsExceptionReport {
+        return getObservation(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get at most {@code max} further observations.
+     *
+     * @param max the maximum number of observations
+     *
+     * @return the observations
+     *
+     * @throws OwsExceptionReport if the observations could not be fetched
+     */
+    public List<OmObservation> getObservation(int max) throws OwsExceptionReport {
         List<OmObservation> observations = Lists.newArrayList();
+        if (max < 1) {
+            return observations;
+        }
         do {
-            observations.add(nextSingleObservation());
-        } while (hasNextValue());
+            observations.add(fetchObservation());
+        } while (observations.size() < max && hasNextValue());
         return observations;
     }
 
+    private OmObservation fetchObservation() throws OwsExceptionReport {
+        if (!metrics.isEnabled()) {
+            return emitted(checkResponseSize(nextSingleObservation()));
+        }
+        long start = metrics.nanoTime();
+        OmObservation observation = emitted(checkResponseSize(nextSingleObservation()));
+        metrics.fetchTime(metrics.nanoTime() - start);
+        metrics.observationEmitted();
+        return observation;
+    }
+
+    private OmObservation emitted(OmObservation observation) {
+        emittedObservations++;
+        position++;
+        lastPhenomenonTime = PagingCursor.end(observation);
+        lastObservationId = observation.getObservationID();
+        return observation;
+    }
+
+    /**
+     * @return the number of observations fetched from this stream
+     */
+    public int getNumberOfEmittedObservations() {
+        return emittedObservations;
+    }
+
+    /**
+     * Set the position of a paged response this stream should resume from.
+     * This has to be set before the first value is fetched. Streams that can
+     * seek by index override {@link #seek(long)}, streams that can seek by key
+     * override {@link #seekAfter(long, String)}; all other streams read and
+     * discard the observations preceding the position. Discarded observations
+     * do not count against the value limit or the response size budget and
+     * are not recorded by the {@link StreamingMetrics}.
+     *
+     * @param resumeFrom the position, {@code null} to start at the beginning
+     *
+     * @throws OwsExceptionReport if the preceding observations could not be
+     *                            skipped
+     */
+    public void setResumeFrom(PagingCursor resumeFrom) throws OwsExceptionReport {
+        this.resumeFrom = resumeFrom;
+        long index = resumeFrom == null ? 0 : resumeFrom.getIndex();
+        if (index > 0 && !seek(index) &&
+            !seekAfter(resumeFrom.getPhenomenonTime(), resumeFrom.getObservationId())) {
+            skip(index);
+        }
+        this.position = index;
+    }
+
+    /**
+     * Move the stream to the observation with the supplied index, so that it
+     * is returned by the next call of {@link #nextSingleObservation()}.
+     *
+     * @param index the index of the observation within this stream
+     *
+     * @return {@code false} if the stream can not seek by index
+     *
+     * @throws OwsExceptionReport if the stream could not be moved
+     */
+    protected boolean seek(long index) throws OwsExceptionReport {
+        return false;
+    }
+
+    /**
+     * Move the stream behind the last delivered observation, e.g. by
+     * restricting the query of the stream to observations ordered after the
+     * supplied phenomenon time and identifier. The next call of
+     * {@link #nextSingleObservation()} has to return the observation following
+     * the last delivered one.
+     *
+     * @param phenomenonTime the end of the phenomenon time of the last
+     *                       delivered observation in milliseconds since the
+     *                       epoch, {@link Long#MIN_VALUE} if unknown
+     * @param observationId  the identifier of the last delivered observation,
+     *                       may be {@code null}
+     *
+     * @return {@code false} if the stream can not seek by key
+     *
+     * @throws OwsExceptionReport if the stream could not be moved
+     *
+     * @see PagingCursor#getPhenomenonTime()
+     * @see PagingCursor#getObservationId()
+     */
+    protected boolean seekAfter(long phenomenonTime, String observationId) throws OwsExceptionReport {
+        return false;
+    }
+
+    private void skip(long count) throws OwsExceptionReport {
+        // skipped observations were delivered with previous pages
+        StreamingMetrics streamingMetrics = this.metrics;
+        this.metrics = StreamingMetrics.NOOP;
+        this.skipping = true;
+        try {
+            for (long i = 0; i < count && hasNextValue(); i++) {
+                nextSingleObservation();
+            }
+        } finally {
+            this.skipping = false;
+            this.metrics = streamingMetrics;
+        }
+    }
+
+    /**
+     * @return the position this stream should resume from, may be
+     *         {@code null}
+     */
+    public PagingCursor getResumeFrom() {
+        return resumeFrom;
+    }
+
+    /**
+     * Get the key identifying this stream in {@link PagingCursor cursors}. The
+     * key has to be stable across requests. The default implementation hashes
+     * the identifiers of the constellation.
+     *
+     * @param constellation the constellation of the stream
+     *
+     * @return the key
+     */
+    public String getPagingKey(OmObservationConstellation constellation) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        putString(hasher, constellation.getProcedureIdentifier());
+        putString(hasher, constellation.getObservablePropertyIdentifier());
+        putString(hasher, constellation.getFeatureOfInterestIdentifier());
+        if (constellation.isSetOfferings()) {
+            for (String offering : new TreeSet<>(constellation.getOfferings())) {
+                putString(hasher, offering);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        String string = Strings.nullToEmpty(value);
+        hasher.putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the position behind the last fetched observation if this stream has
+     * further values.
+     *
+     * @param constellation the constellation of the stream
+     *
+     * @return the position or empty if the stream is exhausted
+     *
+     * @throws OwsExceptionReport if the stream could not be checked for
+     *                            further values
+     */
+    public Optional<PagingCursor> getNextCursor(OmObservationConstellation constellation)
+            throws OwsExceptionReport {
+        if (!hasNextValue()) {
+            return Optional.empty();
+        }
+        String key = getPagingKey(constellation);
+        if (emittedObservations == 0) {
+            return Optional.of(resumeFrom != null ? resumeFrom : PagingCursor.start(key));
+        }
+        return Optional.of(PagingCursor.after(key, position, lastPhenomenonTime, lastObservationId));
+    }
+
     public void add(AdditionalRequestParams parameter, Object object) {
         additionalRequestParams.put(parameter, object);
     }
@@ -146,6 +379,90 @@ public abstract class AbstractStreaming extends AbstractObservationValue<Value<O
         this.maxNumberOfValues = maxNumberOfValues;
     }
 
+    /**
+     * @return the metrics to record the streaming with, never {@code null}
+     */
+    public StreamingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics the metrics to record the streaming with, {@code null}
+     *                disables the instrumentation
+     */
+    public void setMetrics(StreamingMetrics metrics) {
+        this.metrics = metrics == null ? StreamingMetrics.NOOP : metrics;
+    }
+
+    /**
+     * Use the {@link StreamingMetrics} of the supplied request context.
+     *
+     * @param context the request context, may be {@code null}
+     */
+    public void setMetricsFrom(OwsServiceRequestContext context) {
+        setMetrics(context == null ? null : context.getStreamingMetrics());
+    }
+
+    /**
+     * @return the byte budget of the response, may be {@code null}
+     */
+    public ResponseSizeBudget getResponseSizeBudget() {
+        return responseSizeBudget;
+    }
+
+    /**
+     * Set the byte budget of the response. The budget may be shared with other
+     * parts of the response.
+     *
+     * @param responseSizeBudget the budget, {@code null} disables the limit
+     */
+    public void setResponseSizeBudget(ResponseSizeBudget responseSizeBudget) {
+        this.responseSizeBudget = responseSizeBudget;
+    }
+
+    /**
+     * Add the estimated size of the observation to the response size budget.
+     *
+     * @param observation the observation
+     *
+     * @return the observation
+     *
+     * @throws OwsExceptionReport if the response size limit is exceeded
+     */
+    protected OmObservation checkResponseSize(OmObservation observation) throws OwsExceptionReport {
+        if (!skipping && responseSizeBudget != null && responseSizeBudget.isLimited()) {
+            try {
+                responseSizeBudget.add(observation);
+            } catch (OwsExceptionReport e) {
+                metrics.limitExceeded();
+                throw e;
+            }
+        }
+        return observation;
+    }
+
+    /**
+     * Add the estimated size of the time value pair to the response size
+     * budget.
+     *
+     * @param value the time value pair
+     *
+     * @return the time value pair
+     *
+     * @throws OwsExceptionReport if the response size limit is exceeded
+     */
+    protected TimeValuePair checkResponseSize(TimeValuePair value) throws OwsExceptionReport {
+        if (!skipping && responseSizeBudget != null && responseSizeBudget.isLimited()) {
+            try {
+                responseSizeBudget.add(value);
+            } catch (OwsExceptionReport e) {
+                metrics.limitExceeded();
+                throw e;
+            }
+        }
+        return value;
+    }
+
     /**
      * Check if the max number of returned values is exceeded
      *
@@ -155,9 +472,14 @@ public abstract class AbstractStreaming extends AbstractObservationValue<Value<O
      *             If the size limit is exceeded
      */
     protected void checkMaxNumberOfReturnedValues(int size) throws OwsExceptionReport {
+        if (skipping) {
+            return;
+        }
+        metrics.valuesStreamed(size);
         if (getMaxNumberOfValues() > 0) {
             currentNumberOfValues += size;
             if (currentNumberOfValues > getMaxNumberOfValues()) {
+                metrics.limitExceeded();
                 throw new ResponseExceedsSizeLimitException().at("maxNumberOfReturnedValues");
             }
         }
@@ -16,11 +16,13 @@
  */
 package org.n52.shetland.ogc.sos.response;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
 import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
@@ -86,17 +88,28 @@ public class BatchResponse extends OwsServiceResponse implements Iterable<Except
 
         private final OwsServiceResponse response;
 
-        private ExceptionOrResponse(OwsExceptionReport exception, OwsServiceResponse response) {
+        private final Duration duration;
+
+        private ExceptionOrResponse(OwsExceptionReport exception, OwsServiceResponse response, Duration duration) {
             this.exception = exception;
             this.response = response;
+            this.duration = duration;
         }
 
         public ExceptionOrResponse(OwsServiceResponse response) {
-            this(null, Objects.requireNonNull(response));
+            this(response, null);
         }
 
         public ExceptionOrResponse(OwsExceptionReport exception) {
-            this(Objects.requireNonNull(exception), null);
+            this(exception, null);
+        }
+
+        public ExceptionOrResponse(OwsServiceResponse response, Duration duration) {
+            this(null, Objects.requireNonNull(response), duration);
+        }
+
+        public ExceptionOrResponse(OwsExceptionReport exception, Duration duration) {
+            this(Objects.requireNonNull(exception), null, duration);
         }
 
         public boolean isException() {
@@ -110,5 +123,12 @@ public class BatchResponse extends OwsServiceResponse implements Iterable<Except
         public OwsServiceResponse getResponse() {
             return response;
         }
+
+        /**
+         * @return the time it took to process the request, if it was measured
+         */
+        public Optional<Duration> getDuration() {
+            return Optional.ofNullable(duration);
+        }
     }
 }
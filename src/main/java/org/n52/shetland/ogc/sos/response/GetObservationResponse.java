@@ -17,9 +17,14 @@
 package org.n52.shetland.ogc.sos.response;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
 import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extensions;
 import org.n52.shetland.ogc.sos.SosConstants;
 
 
@@ -30,6 +35,8 @@ import com.google.common.collect.Lists;
  *
  */
 public class GetObservationResponse extends AbstractObservationResponse implements StreamingDataResponse {
+    private Paging paging;
+
     public GetObservationResponse() {
         super(null, null, SosConstants.Operations.GetObservation.name());
     }
@@ -69,8 +76,31 @@ public class GetObservationResponse extends AbstractObservationResponse implemen
         return observation != null && observation.getValue() instanceof AbstractStreaming;
     }
 
+    /**
+     * @return the paging parameters, may be {@code null}
+     */
+    public Paging getPaging() {
+        return paging;
+    }
+
+    /**
+     * Set the paging parameters. If set, {@link #mergeStreamingData()} only
+     * fetches a single page from the streams, starting at the resume position,
+     * and adds the token of the next page as the {@value Paging#NEXT_TOKEN}
+     * extension. The streams have to be in the same order for every page.
+     *
+     * @param paging the paging parameters, {@code null} to fetch everything
+     */
+    public void setPaging(Paging paging) {
+        this.paging = paging;
+    }
+
     @Override
     public void mergeStreamingData() throws OwsExceptionReport {
+        if (paging != null) {
+            mergeStreamingPage();
+            return;
+        }
         List<OmObservation> observations = Lists.newArrayList();
         if (hasStreamingData()) {
             for (OmObservation observation : getObservationCollection()) {
@@ -87,4 +117,83 @@ public class GetObservationResponse extends AbstractObservationResponse implemen
         setObservationCollection(observations);
     }
 
+    private void mergeStreamingPage() throws OwsExceptionReport {
+        List<OmObservation> observations = Lists.newArrayList();
+        PagingCursor next = null;
+        if (hasStreamingData()) {
+            PagingCursor resumeFrom = paging.getResumeFrom().orElse(null);
+            boolean resumed = resumeFrom == null;
+            int remaining = paging.getPageSize();
+            for (OmObservation observation : getObservationCollection()) {
+                OmObservationConstellation constellation = observation.getObservationConstellation();
+                AbstractStreaming values = (AbstractStreaming) observation.getValue();
+                if (!resumed) {
+                    // streams before the resume position were delivered with previous pages
+                    if (!values.getPagingKey(constellation).equals(resumeFrom.getConstellation())) {
+                        continue;
+                    }
+                    resumed = true;
+                    if (!resumeFrom.isStart()) {
+                        values.setResumeFrom(resumeFrom);
+                    }
+                }
+                if (!values.hasNextValue()) {
+                    continue;
+                }
+                if (remaining == 0) {
+                    next = PagingCursor.start(values.getPagingKey(constellation));
+                    break;
+                }
+                int emitted = values.getNumberOfEmittedObservations();
+                if (isSetMergeObservation()) {
+                    observations.addAll(values.mergeObservation(remaining));
+                } else {
+                    observations.addAll(values.getObservation(remaining));
+                }
+                remaining -= values.getNumberOfEmittedObservations() - emitted;
+                Optional<PagingCursor> cursor = values.getNextCursor(constellation);
+                if (cursor.isPresent()) {
+                    next = cursor.get();
+                    break;
+                }
+            }
+            if (!resumed) {
+                throw new InvalidParameterValueException(Paging.RESUME_TOKEN, resumeFrom.encode())
+                        .withMessage("The resume token does not match the requested observations");
+            }
+        }
+        setObservationCollection(observations);
+        if (next != null) {
+            getExtensions().addExtension(Paging.createNextTokenExtension(next));
+        }
+    }
+
+    /**
+     * Creates a copy of this response for a single caller. The observations
+     * are {@linkplain OmObservation#copy() copied}, so the copy can be
+     * modified and encoded independently of this response and of other
+     * copies. Streaming data should be {@linkplain #mergeStreamingData()
+     * merged} before, as the streams can only be consumed once.
+     *
+     * @return the copy
+     */
+    public GetObservationResponse createCopy() {
+        GetObservationResponse copy = new GetObservationResponse(getService(), getVersion(), getOperationName());
+        if (isSetObservationCollection()) {
+            copy.setObservationCollection(getObservationCollection().stream().map(OmObservation::copy)
+                    .collect(Collectors.toList()));
+        }
+        copy.setResponseFormat(getResponseFormat());
+        copy.setResultModel(getResultModel());
+        copy.setMergeObservations(isSetMergeObservation());
+        copy.setGlobalObservationValues(getGlobalObservationValues());
+        copy.setContentType(getContentType());
+        Extensions extensions = new Extensions();
+        if (getExtensions() != null) {
+            extensions.addExtension(getExtensions());
+        }
+        copy.setExtensions(extensions);
+        return copy;
+    }
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import java.util.Optional;
+
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.swes.SwesExtension;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Paging parameters of a {@code GetObservation} request: the maximum number
+ * of observations of a page and the optional position to resume from. The
+ * parameters are passed as request extensions, the token to request the next
+ * page is returned as the response extension {@value #NEXT_TOKEN}.
+ *
+ * @see GetObservationResponse#setPaging(Paging)
+ * @since 1.0.0
+ */
+public class Paging {
+    /**
+     * Request extension containing the page size.
+     */
+    public static final String PAGE_SIZE = "pageSize";
+    /**
+     * Request extension containing the token of the position to resume from.
+     */
+    public static final String RESUME_TOKEN = "resumeToken";
+    /**
+     * Response extension containing the token of the next page.
+     */
+    public static final String NEXT_TOKEN = "nextResumeToken";
+
+    private final int pageSize;
+    private final PagingCursor resumeFrom;
+
+    /**
+     * Creates new paging parameters.
+     *
+     * @param pageSize   the maximum number of observations of the page
+     * @param resumeFrom the position to resume from, {@code null} for the
+     *                   first page
+     */
+    public Paging(int pageSize, PagingCursor resumeFrom) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize < 1");
+        }
+        this.pageSize = pageSize;
+        this.resumeFrom = resumeFrom;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Optional<PagingCursor> getResumeFrom() {
+        return Optional.ofNullable(resumeFrom);
+    }
+
+    /**
+     * Read the paging parameters from the extensions of a request.
+     *
+     * @param extensions the extensions
+     *
+     * @return the paging parameters or empty if no page size was requested
+     *
+     * @throws OwsExceptionReport if the page size or the resume token are
+     *                            invalid
+     */
+    public static Optional<Paging> fromExtensions(Extensions extensions) throws OwsExceptionReport {
+        if (extensions == null) {
+            return Optional.empty();
+        }
+        Optional<String> pageSize = extensions.getValue(PAGE_SIZE, Integer.class).map(String::valueOf);
+        if (!pageSize.isPresent()) {
+            pageSize = extensions.getStringValue(PAGE_SIZE);
+        }
+        if (!pageSize.isPresent()) {
+            return Optional.empty();
+        }
+        int size;
+        try {
+            size = Integer.parseInt(pageSize.get().trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidParameterValueException(PAGE_SIZE, pageSize.get()).causedBy(e);
+        }
+        if (size < 1) {
+            throw new InvalidParameterValueException(PAGE_SIZE, pageSize.get());
+        }
+        Optional<String> token = extensions.getStringValue(RESUME_TOKEN);
+        PagingCursor cursor = token.isPresent() ? PagingCursor.decode(token.get()) : null;
+        return Optional.of(new Paging(size, cursor));
+    }
+
+    /**
+     * Create the response extension carrying the token of the next page.
+     *
+     * @param cursor the position of the next page
+     *
+     * @return the extension
+     */
+    public static SwesExtension<String> createNextTokenExtension(PagingCursor cursor) {
+        return new SwesExtension<>(cursor.encode()).setIdentifier(NEXT_TOKEN).setDefinition(NEXT_TOKEN);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).omitNullValues()
+                .add("pageSize", pageSize)
+                .add("resumeFrom", resumeFrom)
+                .toString();
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Objects;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Position in a paged {@code GetObservation} response. The position consists
+ * of the paging key of the stream, the index of the next observation within
+ * that stream and the end of the phenomenon time and the identifier of the
+ * last delivered observation. The latter allow streams to
+ * {@linkplain AbstractStreaming#seekAfter(long, String) seek by key}. Cursors
+ * are passed to clients as opaque tokens.
+ *
+ * @see Paging
+ * @see AbstractStreaming#getPagingKey(OmObservationConstellation)
+ * @since 1.0.0
+ */
+public final class PagingCursor {
+    private static final byte VERSION = 2;
+    private static final long START = Long.MIN_VALUE;
+
+    private final String constellation;
+    private final long index;
+    private final long phenomenonTime;
+    private final String observationId;
+
+    private PagingCursor(String constellation, long index, long phenomenonTime, String observationId) {
+        this.constellation = Objects.requireNonNull(constellation);
+        this.index = index;
+        this.phenomenonTime = phenomenonTime;
+        this.observationId = observationId;
+    }
+
+    /**
+     * Get the paging key of the stream the cursor refers to.
+     *
+     * @return the key
+     */
+    public String getConstellation() {
+        return constellation;
+    }
+
+    /**
+     * @return if the cursor points to the start of the stream
+     */
+    public boolean isStart() {
+        return index == 0;
+    }
+
+    /**
+     * Get the index of the next observation within the stream, i.e. the
+     * number of observations of the stream that were already delivered.
+     *
+     * @return the index
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the end of the phenomenon time of the last delivered observation.
+     *
+     * @return the time in milliseconds since the epoch, {@link Long#MIN_VALUE}
+     *         if unknown
+     */
+    public long getPhenomenonTime() {
+        return phenomenonTime;
+    }
+
+    /**
+     * Get the identifier of the last delivered observation.
+     *
+     * @return the identifier, may be {@code null}
+     */
+    public String getObservationId() {
+        return observationId;
+    }
+
+    /**
+     * Encode this cursor as an opaque, URL safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(constellation);
+            out.writeLong(index);
+            out.writeLong(phenomenonTime);
+            out.writeBoolean(observationId != null);
+            if (observationId != null) {
+                out.writeUTF(observationId);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a token created by {@link #encode()}.
+     *
+     * @param token the token
+     *
+     * @return the cursor
+     *
+     * @throws InvalidParameterValueException if the token is invalid
+     */
+    public static PagingCursor decode(String token) throws InvalidParameterValueException {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                if (in.readByte() != VERSION) {
+                    throw new InvalidParameterValueException(Paging.RESUME_TOKEN, token);
+                }
+                String constellation = in.readUTF();
+                long index = in.readLong();
+                long phenomenonTime = in.readLong();
+                String observationId = in.readBoolean() ? in.readUTF() : null;
+                if (index < 0 || in.read() >= 0) {
+                    throw new InvalidParameterValueException(Paging.RESUME_TOKEN, token);
+                }
+                return new PagingCursor(constellation, index, phenomenonTime, observationId);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            InvalidParameterValueException ex = new InvalidParameterValueException(Paging.RESUME_TOKEN, token);
+            ex.causedBy(e);
+            throw ex;
+        }
+    }
+
+    /**
+     * Create a cursor pointing to the start of a stream.
+     *
+     * @param key the paging key of the stream
+     *
+     * @return the cursor
+     */
+    public static PagingCursor start(String key) {
+        return new PagingCursor(key, 0, START, null);
+    }
+
+    /**
+     * Create a cursor pointing behind the observation.
+     *
+     * @param key         the paging key of the stream
+     * @param index       the index of the observation following
+     *                    {@code observation} within the stream
+     * @param observation the last delivered observation
+     *
+     * @return the cursor
+     */
+    public static PagingCursor after(String key, long index, OmObservation observation) {
+        return after(key, index, end(observation), observation.getObservationID());
+    }
+
+    static PagingCursor after(String key, long index, long phenomenonTime, String observationId) {
+        return new PagingCursor(key, index, phenomenonTime, observationId);
+    }
+
+    /**
+     * Get the end of the phenomenon time of the observation.
+     */
+    static long end(OmObservation observation) {
+        if (observation.isSetValue() && observation.isSetPhenomenonTime()) {
+            return end(observation.getPhenomenonTime());
+        }
+        return START;
+    }
+
+    private static long end(Time time) {
+        if (time instanceof TimeInstant && ((TimeInstant) time).isSetValue()) {
+            return ((TimeInstant) time).getValue().getMillis();
+        } else if (time instanceof TimePeriod && ((TimePeriod) time).isSetEnd()) {
+            return ((TimePeriod) time).getEnd().getMillis();
+        }
+        return START;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(constellation, index, phenomenonTime, observationId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        PagingCursor that = (PagingCursor) obj;
+        return this.index == that.index &&
+               this.phenomenonTime == that.phenomenonTime &&
+               this.constellation.equals(that.constellation) &&
+               Objects.equals(this.observationId, that.observationId);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).omitNullValues()
+                .add("constellation", constellation)
+                .add("index", index)
+                .add("phenomenonTime", phenomenonTime == START ? null : phenomenonTime)
+                .add("observationId", observationId)
+                .toString();
+    }
+}
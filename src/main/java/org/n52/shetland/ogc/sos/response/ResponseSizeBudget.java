@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.shetland.ogc.gml.AbstractFeature;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.ObservationValue;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.features.FeatureCollection;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.om.values.visitor.ValueSizeEstimator;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.exception.ResponseExceedsSizeLimitException;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Byte budget of a response. Observations, features and result values are
+ * added to the budget before they are collected for the response, so that a
+ * {@link ResponseExceedsSizeLimitException} is raised before the memory for an
+ * oversized response is committed. The sizes are estimated using the
+ * {@link ValueSizeEstimator}.
+ * <p>
+ * A budget is thread-safe and may be shared by the streams of a response that
+ * are consumed concurrently.
+ *
+ * @since 1.0.0
+ */
+public class ResponseSizeBudget {
+    /**
+     * The locator of the exceptions thrown by this budget.
+     */
+    public static final String LOCATOR = "maxResponseSize";
+    /**
+     * Size of an encoded observation without its result and parameters.
+     */
+    public static final long OBSERVATION = 1024;
+    /**
+     * Size of an encoded feature without its geometry.
+     */
+    public static final long FEATURE = 512;
+
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * Creates a new budget.
+     *
+     * @param maxBytes the maximum size of the response in bytes, a value
+     *                 {@code <= 0} disables the limit
+     */
+    public ResponseSizeBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public boolean isLimited() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * @return the remaining bytes, {@link Long#MAX_VALUE} if the budget is not
+     *         limited
+     */
+    public long getRemainingBytes() {
+        return isLimited() ? Math.max(0, maxBytes - usedBytes.get()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Consume the specified number of bytes.
+     *
+     * @param bytes the bytes
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void consume(long bytes) throws OwsExceptionReport {
+        if (isLimited()) {
+            long used = usedBytes.addAndGet(bytes);
+            if (used > maxBytes) {
+                throw new ResponseExceedsSizeLimitException().forByteLimit(used, maxBytes).at(LOCATOR);
+            }
+        }
+    }
+
+    /**
+     * Add the estimated size of the value to the budget.
+     *
+     * @param value the value
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void add(Value<?> value) throws OwsExceptionReport {
+        if (isLimited()) {
+            consume(ValueSizeEstimator.estimate(value));
+        }
+    }
+
+    /**
+     * Add the estimated size of the observation to the budget.
+     *
+     * @param observation the observation
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void add(OmObservation observation) throws OwsExceptionReport {
+        if (isLimited() && observation != null) {
+            consume(estimate(observation));
+        }
+    }
+
+    /**
+     * Add the estimated size of the time value pair to the budget.
+     *
+     * @param value the time value pair
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void add(TimeValuePair value) throws OwsExceptionReport {
+        if (isLimited() && value != null) {
+            consume(ValueSizeEstimator.TIME + ValueSizeEstimator.estimate(value.getValue()));
+        }
+    }
+
+    /**
+     * Add the estimated size of the feature to the budget. The members of
+     * feature collections are added as well.
+     *
+     * @param feature the feature
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void add(AbstractFeature feature) throws OwsExceptionReport {
+        if (isLimited() && feature != null) {
+            if (feature instanceof FeatureCollection) {
+                consume(FEATURE);
+                for (AbstractFeature member : (FeatureCollection) feature) {
+                    add(member);
+                }
+            } else {
+                consume(estimate(feature));
+            }
+        }
+    }
+
+    /**
+     * Add the size of an encoded text block, e.g. the result values of a
+     * GetResult response.
+     *
+     * @param text the text block
+     *
+     * @throws OwsExceptionReport if the budget is exceeded
+     */
+    public void add(CharSequence text) throws OwsExceptionReport {
+        if (isLimited()) {
+            consume(ValueSizeEstimator.estimate(text));
+        }
+    }
+
+    /**
+     * Estimate the encoded size of the observation.
+     *
+     * @param observation the observation
+     *
+     * @return the estimated size in bytes
+     */
+    public static long estimate(OmObservation observation) {
+        long size = OBSERVATION + ValueSizeEstimator.estimate(observation.getObservationID());
+        OmObservationConstellation constellation = observation.getObservationConstellation();
+        if (constellation != null) {
+            size += ValueSizeEstimator.estimate(constellation.getProcedureIdentifier());
+            size += ValueSizeEstimator.estimate(constellation.getObservablePropertyIdentifier());
+            size += ValueSizeEstimator.estimate(constellation.getFeatureOfInterestIdentifier());
+        }
+        if (observation.isSetParameter()) {
+            for (NamedValue<?> parameter : observation.getParameter()) {
+                size += ValueSizeEstimator.estimate(parameter.getValue());
+            }
+        }
+        ObservationValue<?> value = observation.getValue();
+        if (value != null && !(value instanceof AbstractStreaming)) {
+            size += ValueSizeEstimator.estimate(value.getValue());
+        }
+        return size;
+    }
+
+    private static long estimate(AbstractFeature feature) {
+        long size = FEATURE + ValueSizeEstimator.estimate(feature.getIdentifier())
+                + ValueSizeEstimator.estimate(feature.getDescription());
+        if (feature instanceof SamplingFeature) {
+            size += ValueSizeEstimator.estimate(((SamplingFeature) feature).getGeometry());
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("maxBytes", maxBytes)
+                .add("usedBytes", usedBytes.get())
+                .toString();
+    }
+}
@@ -45,6 +45,10 @@ public class JobStatus {
      * The job is running.
      */
     private static final JobStatus RUNNING = new JobStatus("Running");
+    /**
+     * The job has been dismissed by the client.
+     */
+    private static final JobStatus DISMISSED = new JobStatus("Dismissed");
 
     private final String value;
 
@@ -97,6 +101,10 @@ public class JobStatus {
         return RUNNING;
     }
 
+    public static JobStatus dismissed() {
+        return DISMISSED;
+    }
+
 
 
 }
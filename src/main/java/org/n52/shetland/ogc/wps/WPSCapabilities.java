@@ -63,4 +63,8 @@ public class WPSCapabilities extends OwsCapabilities {
         return processOfferings;
     }
 
+    @Override
+    public WPSCapabilities copy() {
+        return new WPSCapabilities(this);
+    }
 }
@@ -18,6 +18,10 @@ package org.n52.shetland.ogc.wps.data;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.n52.shetland.ogc.ows.OwsCode;
 import org.n52.shetland.ogc.wps.Format;
@@ -28,6 +32,7 @@ import org.n52.shetland.ogc.wps.Format;
  * @author Christian Autermann
  */
 public abstract class ValueProcessData extends FormattedProcessData {
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
 
     public ValueProcessData(OwsCode id) {
         this(id, null);
@@ -43,6 +48,43 @@ public abstract class ValueProcessData extends FormattedProcessData {
 
     public abstract InputStream getData() throws IOException;
 
+    /**
+     * Opens a channel to read the data. The default implementation wraps
+     * {@link #getData()}.
+     *
+     * @return the channel
+     *
+     * @throws IOException if the channel can not be opened
+     */
+    public ReadableByteChannel getChannel() throws IOException {
+        return Channels.newChannel(getData());
+    }
+
+    /**
+     * Writes the data to the supplied channel. Implementations override this
+     * to avoid copying the data through the heap where possible.
+     *
+     * @param target the channel to write to
+     *
+     * @return the number of bytes written
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        try (ReadableByteChannel source = getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    transferred += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return transferred;
+    }
+
     @Override
     public boolean isValue() {
         return true;
@@ -18,8 +18,12 @@ package org.n52.shetland.ogc.wps.data.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 
 import org.n52.shetland.ogc.ows.OwsCode;
@@ -45,6 +49,49 @@ public class FileBasedProcessData extends ValueProcessData {
         return Files.newInputStream(this.path);
     }
 
+    @Override
+    public FileChannel getChannel() throws IOException {
+        return FileChannel.open(this.path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Transfers the file using {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the
+     * operating system copy the data without passing it through the heap.
+     */
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        try (FileChannel source = getChannel()) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Maps a region of the file read-only into memory. Files larger than 2 GB have to be mapped in several
+     * regions.
+     *
+     * @param position the position within the file at which the region starts
+     * @param size     the size of the region, at most {@link Integer#MAX_VALUE}
+     *
+     * @return the mapped region
+     *
+     * @throws IOException if the file can not be mapped
+     */
+    public MappedByteBuffer map(long position, long size) throws IOException {
+        try (FileChannel channel = getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+    }
+
+    public long getSize() throws IOException {
+        return Files.size(this.path);
+    }
+
     public Path getPath() {
         return this.path;
     }
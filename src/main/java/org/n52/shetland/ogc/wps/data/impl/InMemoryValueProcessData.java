@@ -17,7 +17,10 @@
 package org.n52.shetland.ogc.wps.data.impl;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -49,6 +52,26 @@ public class InMemoryValueProcessData extends ValueProcessData {
         return new ByteArrayInputStream(this.bytes);
     }
 
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = asByteBuffer();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        return this.bytes.length;
+    }
+
+    /**
+     * @return a read-only view of the data
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.bytes).asReadOnlyBuffer();
+    }
+
+    public int getSize() {
+        return this.bytes.length;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(getId(), getFormat(), this.bytes);
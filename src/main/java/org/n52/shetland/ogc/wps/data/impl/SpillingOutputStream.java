@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.data.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.wps.Format;
+import org.n52.shetland.ogc.wps.data.ValueProcessData;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Stream that buffers written data in memory until it exceeds a threshold and
+ * spills it to a temporary file afterwards. The written data is turned into
+ * {@link ValueProcessData} by {@link #toProcessData(OwsCode, Format)}: small
+ * payloads become {@link InMemoryValueProcessData}, large ones
+ * {@link TemporaryFileProcessData} that have to be closed to delete the file.
+ *
+ * @since 1.0.0
+ */
+public class SpillingOutputStream extends OutputStream {
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+    private static final String PREFIX = "wps-data-";
+    private static final String SUFFIX = ".tmp";
+    private final int threshold;
+    private final Path directory;
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private OutputStream file;
+    private Path path;
+    private boolean closed;
+
+    public SpillingOutputStream() {
+        this(DEFAULT_THRESHOLD, null);
+    }
+
+    /**
+     * Creates a new stream.
+     *
+     * @param threshold the number of bytes kept in memory
+     * @param directory the directory for the temporary file, or {@code null}
+     *                  for the default temporary-file directory
+     */
+    public SpillingOutputStream(int threshold, Path directory) {
+        Preconditions.checkArgument(threshold >= 0, "threshold may not be negative");
+        this.threshold = threshold;
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        getStream(1).write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        getStream(len).write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.file != null) {
+            this.file.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            if (this.file != null) {
+                this.file.close();
+            }
+        }
+    }
+
+    /**
+     * @return if the data was written to a temporary file
+     */
+    public boolean isSpilled() {
+        return this.path != null;
+    }
+
+    /**
+     * Closes this stream and creates the process data from the written bytes.
+     *
+     * @param id     the id of the data
+     * @param format the format of the data
+     *
+     * @return the process data
+     *
+     * @throws IOException if the temporary file can not be closed
+     */
+    public ValueProcessData toProcessData(OwsCode id, Format format) throws IOException {
+        close();
+        if (isSpilled()) {
+            return new TemporaryFileProcessData(id, format, this.path);
+        }
+        return new InMemoryValueProcessData(id, format, this.memory.toByteArray());
+    }
+
+    private OutputStream getStream(int len) throws IOException {
+        if (this.closed) {
+            throw new IOException("stream is closed");
+        }
+        if (this.file == null && this.memory.size() + (long) len > this.threshold) {
+            spill();
+        }
+        return this.file == null ? this.memory : this.file;
+    }
+
+    private void spill() throws IOException {
+        this.path = this.directory == null
+                    ? Files.createTempFile(PREFIX, SUFFIX)
+                    : Files.createTempFile(this.directory, PREFIX, SUFFIX);
+        this.file = new BufferedOutputStream(Files.newOutputStream(this.path));
+        this.memory.writeTo(this.file);
+        this.memory = null;
+    }
+
+    /**
+     * Reads the stream into process data, spilling it to a temporary file if it
+     * exceeds the threshold.
+     *
+     * @param id        the id of the data
+     * @param format    the format of the data
+     * @param in        the stream to read
+     * @param threshold the number of bytes kept in memory
+     *
+     * @return the process data
+     *
+     * @throws IOException if reading the stream fails
+     */
+    public static ValueProcessData read(OwsCode id, Format format, InputStream in, int threshold)
+            throws IOException {
+        SpillingOutputStream out = new SpillingOutputStream(threshold, null);
+        try {
+            ByteStreams.copy(in, out);
+            return out.toProcessData(id, format);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            if (out.isSpilled()) {
+                Files.deleteIfExists(out.path);
+            }
+            throw e;
+        }
+    }
+}
@@ -17,7 +17,10 @@
 package org.n52.shetland.ogc.wps.data.impl;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
@@ -35,6 +38,7 @@ import com.google.common.base.MoreObjects;
 public class StringValueProcessData extends ValueProcessData {
 
     private final String string;
+    private byte[] encoded;
 
     public StringValueProcessData(OwsCode id, String string) {
         this(id, null, string);
@@ -51,10 +55,28 @@ public class StringValueProcessData extends ValueProcessData {
 
     @Override
     public InputStream getData() {
-        return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
+        return new ByteArrayInputStream(getEncoded());
     }
 
-      @Override
+    @Override
+    public long transferTo(WritableByteChannel target) throws IOException {
+        byte[] bytes = getEncoded();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        return bytes.length;
+    }
+
+    private synchronized byte[] getEncoded() {
+        // encode only once, the returned streams do not modify the array
+        if (this.encoded == null) {
+            this.encoded = this.string.getBytes(StandardCharsets.UTF_8);
+        }
+        return this.encoded;
+    }
+
+    @Override
     public int hashCode() {
         return Objects.hash(getId(), getFormat(), this.string);
     }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.data.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.wps.Format;
+
+/**
+ * {@link FileBasedProcessData} backed by a temporary file that is deleted
+ * when the data is closed.
+ *
+ * @since 1.0.0
+ */
+public class TemporaryFileProcessData extends FileBasedProcessData implements Closeable {
+
+    public TemporaryFileProcessData(OwsCode id, Format format, Path path) {
+        super(id, format, path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(getPath());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.io.Closeable;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.wps.Format;
+import org.n52.shetland.ogc.wps.data.impl.FileBasedProcessData;
+
+/**
+ * Process data backed by a document of the {@link ReferenceCache}. Closing it
+ * releases the lease on the document.
+ *
+ * @since 1.0.0
+ */
+class CachedReferenceProcessData extends FileBasedProcessData implements Closeable {
+    private final ReferenceCache.Lease lease;
+
+    CachedReferenceProcessData(OwsCode id, Format format, ReferenceCache.Lease lease) {
+        super(id, format, lease.getPath());
+        this.lease = lease;
+    }
+
+    @Override
+    public void close() {
+        this.lease.close();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.n52.shetland.ogc.wps.JobId;
+
+/**
+ * {@link JobStore} that keeps all jobs in memory.
+ *
+ * @since 1.0.0
+ */
+public class InMemoryJobStore implements JobStore {
+    private final Map<JobId, Job> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Job> get(JobId jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Override
+    public void save(Job job) {
+        jobs.put(job.getJobId(), job);
+    }
+
+    @Override
+    public Optional<Job> remove(JobId jobId) {
+        return Optional.ofNullable(jobs.remove(jobId));
+    }
+
+    @Override
+    public Set<JobId> getJobIds() {
+        return new HashSet<>(jobs.keySet());
+    }
+
+    @Override
+    public Set<JobId> getExpired(OffsetDateTime now) {
+        return jobs.values().stream().filter(job -> job.isExpired(now)).map(Job::getJobId)
+                .collect(Collectors.toSet());
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.JobId;
+import org.n52.shetland.ogc.wps.JobStatus;
+import org.n52.shetland.ogc.wps.Result;
+import org.n52.shetland.ogc.wps.StatusInfo;
+
+/**
+ * Immutable snapshot of a job as kept by a {@link JobStore}.
+ *
+ * @since 1.0.0
+ */
+public final class Job {
+    private final OwsCode processId;
+    private final StatusInfo status;
+    private final Optional<Result> result;
+    private final Optional<OwsExceptionReport> failure;
+
+    private Job(OwsCode processId, StatusInfo status, Result result, OwsExceptionReport failure) {
+        this.processId = Objects.requireNonNull(processId);
+        this.status = copy(Objects.requireNonNull(status));
+        this.result = Optional.ofNullable(result);
+        this.failure = Optional.ofNullable(failure);
+    }
+
+    public JobId getJobId() {
+        return status.getJobId();
+    }
+
+    public OwsCode getProcessId() {
+        return processId;
+    }
+
+    /**
+     * @return a copy of the status of this job
+     */
+    public StatusInfo getStatus() {
+        return copy(status);
+    }
+
+    public Optional<Result> getResult() {
+        return result;
+    }
+
+    public Optional<OwsExceptionReport> getFailure() {
+        return failure;
+    }
+
+    public Optional<OffsetDateTime> getExpirationDate() {
+        return status.getExpirationDate();
+    }
+
+    public boolean isFinished() {
+        return result.isPresent() || failure.isPresent();
+    }
+
+    public boolean isExpired(OffsetDateTime now) {
+        return getExpirationDate().map(now::isAfter).orElse(false);
+    }
+
+    public Job withProgress(Short percentCompleted, OffsetDateTime estimatedCompletion) {
+        StatusInfo s = copy(status);
+        s.setStatus(JobStatus.running());
+        s.setPercentCompleted(percentCompleted);
+        s.setEstimatedCompletion(estimatedCompletion);
+        return new Job(processId, s, null, null);
+    }
+
+    public Job succeeded(Result result, OffsetDateTime expirationDate) {
+        return new Job(processId, finished(JobStatus.succeeded(), expirationDate), Objects.requireNonNull(result),
+                       null);
+    }
+
+    public Job failed(OwsExceptionReport failure, OffsetDateTime expirationDate) {
+        return new Job(processId, finished(JobStatus.failed(), expirationDate), null, Objects.requireNonNull(failure));
+    }
+
+    private StatusInfo finished(JobStatus jobStatus, OffsetDateTime expirationDate) {
+        StatusInfo s = copy(status);
+        s.setStatus(jobStatus);
+        s.setEstimatedCompletion(null);
+        s.setNextPoll(null);
+        s.setExpirationDate(expirationDate);
+        if (jobStatus.equals(JobStatus.succeeded())) {
+            s.setPercentCompleted((short) 100);
+        }
+        return s;
+    }
+
+    public static Job accepted(JobId jobId, OwsCode processId) {
+        StatusInfo s = new StatusInfo();
+        s.setJobId(jobId);
+        s.setStatus(JobStatus.accepted());
+        return new Job(processId, s, null, null);
+    }
+
+    static StatusInfo copy(StatusInfo status) {
+        StatusInfo copy = new StatusInfo();
+        copy.setJobId(status.getJobId());
+        copy.setStatus(status.getStatus());
+        copy.setPercentCompleted(status.getPercentCompleted().orElse(null));
+        copy.setEstimatedCompletion(status.getEstimatedCompletion().orElse(null));
+        copy.setNextPoll(status.getNextPoll().orElse(null));
+        copy.setExpirationDate(status.getExpirationDate().orElse(null));
+        return copy;
+    }
+}
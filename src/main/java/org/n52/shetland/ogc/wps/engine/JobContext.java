@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.time.OffsetDateTime;
+
+import org.n52.shetland.ogc.wps.JobId;
+
+/**
+ * The view a {@link ProcessImplementation} has of the job it is executing.
+ *
+ * @since 1.0.0
+ */
+public interface JobContext {
+
+    JobId getJobId();
+
+    /**
+     * Updates the progress of the job.
+     *
+     * @param percentCompleted the percentage, between {@code 0} and {@code 100}
+     */
+    void setPercentCompleted(int percentCompleted);
+
+    void setEstimatedCompletion(OffsetDateTime estimatedCompletion);
+
+    /**
+     * @return if the job was dismissed and its results will be discarded
+     */
+    boolean isDismissed();
+
+    /**
+     * Convenience method for long running loops.
+     *
+     * @throws InterruptedException if the job was dismissed
+     */
+    default void checkDismissed() throws InterruptedException {
+        if (isDismissed() || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
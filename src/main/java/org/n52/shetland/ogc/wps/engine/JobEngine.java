@@ -0,0 +1,444 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.ows.exception.MissingParameterValueException;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.ExecutionMode;
+import org.n52.shetland.ogc.wps.JobControlOption;
+import org.n52.shetland.ogc.wps.JobId;
+import org.n52.shetland.ogc.wps.JobStatus;
+import org.n52.shetland.ogc.wps.Result;
+import org.n52.shetland.ogc.wps.StatusInfo;
+import org.n52.shetland.ogc.wps.data.ProcessData;
+import org.n52.shetland.ogc.wps.exception.NoSuchJobException;
+import org.n52.shetland.ogc.wps.exception.NoSuchModeException;
+import org.n52.shetland.ogc.wps.exception.NoSuchProcessException;
+import org.n52.shetland.ogc.wps.exception.ResultNotReadyException;
+import org.n52.shetland.ogc.wps.request.AbstractJobIdRequest;
+import org.n52.shetland.ogc.wps.request.DismissRequest;
+import org.n52.shetland.ogc.wps.request.ExecuteRequest;
+import org.n52.shetland.ogc.wps.request.GetResultRequest;
+import org.n52.shetland.ogc.wps.request.GetStatusRequest;
+import org.n52.shetland.ogc.wps.response.DismissResponse;
+import org.n52.shetland.ogc.wps.response.ExecuteResponse;
+import org.n52.shetland.ogc.wps.response.GetResultResponse;
+import org.n52.shetland.ogc.wps.response.GetStatusResponse;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * In-process engine executing WPS jobs on a bounded pool of worker threads.
+ *
+ * Jobs are executed synchronously or asynchronously according to the
+ * requested {@link ExecutionMode} and the {@link JobControlOption job control
+ * options} of the process; {@link ExecutionMode#AUTO} prefers asynchronous
+ * execution. The status of asynchronous jobs is kept in a {@link JobStore}
+ * until their expiration date, after which a background task evicts them.
+ * Dismissing a job interrupts its worker thread and discards the job. Outputs
+ * of discarded jobs that are {@link AutoCloseable}, like
+ * {@link org.n52.shetland.ogc.wps.data.impl.TemporaryFileProcessData}, are
+ * closed.
+ *
+ * @since 1.0.0
+ */
+public class JobEngine implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(JobEngine.class);
+    private static final Duration MAX_EVICTION_INTERVAL = Duration.ofMinutes(1);
+    private static final String JOB_ID = "jobId";
+    private final Map<OwsCode, ProcessImplementation> processes = new ConcurrentHashMap<>();
+    private final Map<JobId, RunningJob> active = new ConcurrentHashMap<>();
+    private final JobStore store;
+    private final Duration retention;
+    private final Clock clock;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService evictor;
+    private volatile ReferenceResolver referenceResolver;
+
+    /**
+     * Creates a new engine.
+     *
+     * @param store         the store for the jobs
+     * @param workers       the number of jobs executed concurrently
+     * @param queueCapacity the number of jobs that may wait for a worker
+     * @param retention     the time the result of a job is kept after it
+     *                      finished
+     */
+    public JobEngine(JobStore store, int workers, int queueCapacity, Duration retention) {
+        this(store, workers, queueCapacity, retention, Clock.systemUTC());
+    }
+
+    public JobEngine(JobStore store, int workers, int queueCapacity, Duration retention, Clock clock) {
+        Preconditions.checkArgument(workers > 0, "workers has to be positive");
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity has to be positive");
+        Preconditions.checkArgument(!retention.isNegative(), "retention may not be negative");
+        this.store = Objects.requireNonNull(store);
+        this.retention = retention;
+        this.clock = Objects.requireNonNull(clock);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity),
+                                               new ThreadFactoryBuilder().setNameFormat("wps-job-%d").build());
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("wps-job-eviction-%d").setDaemon(true).build());
+        long interval = Math.max(1L, Math.min(retention.toMillis(), MAX_EVICTION_INTERVAL.toMillis()));
+        this.evictor.scheduleWithFixedDelay(this::evictExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the resolver used to fetch referenced inputs before a job is
+     * executed. If none is set, processes receive the references unresolved.
+     *
+     * @param referenceResolver the resolver, may be {@code null}
+     */
+    public void setReferenceResolver(ReferenceResolver referenceResolver) {
+        this.referenceResolver = referenceResolver;
+    }
+
+    public void register(OwsCode id, ProcessImplementation process) {
+        this.processes.put(Objects.requireNonNull(id), Objects.requireNonNull(process));
+    }
+
+    public ExecuteResponse execute(ExecuteRequest request) throws OwsExceptionReport {
+        OwsCode processId = request.getId();
+        if (processId == null) {
+            throw new MissingParameterValueException("identifier");
+        }
+        ProcessImplementation process = this.processes.get(processId);
+        if (process == null) {
+            throw new NoSuchProcessException(processId);
+        }
+        boolean async = isAsync(request.getExecutionMode(), process.getJobControlOptions());
+
+        RunningJob job = new RunningJob(new JobId(UUID.randomUUID().toString()), processId, request, process);
+        submit(job);
+
+        if (async) {
+            return new ExecuteResponse(request.getService(), request.getVersion(), job.getSnapshot().getStatus());
+        }
+        Job finished;
+        try {
+            finished = job.await();
+        } catch (OwsExceptionReport e) {
+            // the result will not be delivered
+            this.store.remove(job.getJobId()).ifPresent(JobEngine::release);
+            throw e;
+        }
+        // synchronous results are delivered only once and then owned by the caller
+        this.store.remove(job.getJobId());
+        if (finished.getFailure().isPresent()) {
+            throw finished.getFailure().get();
+        }
+        return new ExecuteResponse(request.getService(), request.getVersion(), finished.getResult().get());
+    }
+
+    public GetStatusResponse getStatus(GetStatusRequest request) throws OwsExceptionReport {
+        Job job = getJob(getJobId(request));
+        return new GetStatusResponse(request.getService(), request.getVersion(), job.getStatus());
+    }
+
+    public GetResultResponse getResult(GetResultRequest request) throws OwsExceptionReport {
+        Job job = getJob(getJobId(request));
+        if (job.getFailure().isPresent()) {
+            throw job.getFailure().get();
+        }
+        Result result = job.getResult().orElseThrow(() -> new ResultNotReadyException(job.getJobId()));
+        return new GetResultResponse(request.getService(), request.getVersion(), result);
+    }
+
+    public DismissResponse dismiss(DismissRequest request) throws OwsExceptionReport {
+        JobId jobId = getJobId(request);
+        RunningJob running = this.active.remove(jobId);
+        if (running != null) {
+            running.dismiss();
+        }
+        release(this.store.remove(jobId).orElseThrow(() -> new NoSuchJobException(jobId)));
+        StatusInfo status = new StatusInfo();
+        status.setJobId(jobId);
+        status.setStatus(JobStatus.dismissed());
+        return new DismissResponse(request.getService(), request.getVersion(), status);
+    }
+
+    /**
+     * Removes all jobs whose expiration date has passed from the store. This
+     * is invoked periodically by the engine.
+     *
+     * @return the number of evicted jobs
+     */
+    public int evictExpired() {
+        int evicted = 0;
+        try {
+            for (JobId jobId : this.store.getExpired(now())) {
+                Optional<Job> job = this.store.remove(jobId);
+                if (job.isPresent()) {
+                    release(job.get());
+                    evicted++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // do not let the exception cancel the scheduled eviction
+            LOG.error("Error evicting expired jobs", e);
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the number of jobs that are queued or running
+     */
+    public int getActiveJobs() {
+        return this.active.size();
+    }
+
+    /**
+     * Stops the engine. Queued and running jobs are dismissed, and the
+     * results held by the store are removed and released.
+     */
+    @Override
+    public void close() {
+        this.evictor.shutdownNow();
+        this.active.values().forEach(RunningJob::dismiss);
+        this.active.clear();
+        this.executor.shutdownNow();
+        for (JobId jobId : this.store.getJobIds()) {
+            this.store.remove(jobId).ifPresent(JobEngine::release);
+        }
+    }
+
+    private void submit(RunningJob job) throws OwsExceptionReport {
+        this.active.put(job.getJobId(), job);
+        this.store.save(job.getSnapshot());
+        try {
+            this.executor.execute(job.getTask());
+        } catch (RejectedExecutionException e) {
+            this.active.remove(job.getJobId());
+            this.store.remove(job.getJobId());
+            throw new NoApplicableCodeException().causedBy(e)
+                    .withMessage("The server is too busy to accept further jobs");
+        }
+    }
+
+    /**
+     * Closes the outputs of the job that hold resources, e.g. temporary files.
+     */
+    private static void release(Job job) {
+        job.getResult().ifPresent(result -> release(job.getJobId(), result.getOutputs()));
+    }
+
+    private static void release(JobId jobId, List<ProcessData> outputs) {
+        outputs.stream().filter(AutoCloseable.class::isInstance).map(AutoCloseable.class::cast)
+                .forEach(output -> {
+                    try {
+                        output.close();
+                    } catch (Exception e) {
+                        LOG.warn("Error releasing output of job " + jobId.getValue(), e);
+                    }
+                });
+    }
+
+    private Job getJob(JobId jobId) throws OwsExceptionReport {
+        return this.store.get(jobId).orElseThrow(() -> new NoSuchJobException(jobId));
+    }
+
+    private OffsetDateTime now() {
+        return OffsetDateTime.now(this.clock);
+    }
+
+    private static JobId getJobId(AbstractJobIdRequest request) throws OwsExceptionReport {
+        if (request.getJobId() == null || request.getJobId().getValue() == null) {
+            throw new MissingParameterValueException(JOB_ID);
+        }
+        return request.getJobId();
+    }
+
+    private static boolean isAsync(ExecutionMode mode, Collection<JobControlOption> options)
+            throws OwsExceptionReport {
+        boolean sync = options.contains(JobControlOption.sync());
+        boolean async = options.contains(JobControlOption.async());
+        if (mode == ExecutionMode.SYNC && !sync || mode == ExecutionMode.ASYNC && !async) {
+            throw new NoSuchModeException(mode);
+        }
+        return mode == ExecutionMode.ASYNC || mode != ExecutionMode.SYNC && async;
+    }
+
+    /**
+     * The state of a job while it is queued or running. All updates of the
+     * store are synchronized with {@link #dismiss()}, so that a dismissed job
+     * will not reappear in the store.
+     */
+    private final class RunningJob implements JobContext, Callable<Job> {
+        private final JobId jobId;
+        private final ExecuteRequest request;
+        private final ProcessImplementation process;
+        private final FutureTask<Job> task;
+        private volatile boolean dismissed;
+        private Job snapshot;
+
+        RunningJob(JobId jobId, OwsCode processId, ExecuteRequest request, ProcessImplementation process) {
+            this.jobId = jobId;
+            this.request = request;
+            this.process = process;
+            this.snapshot = Job.accepted(jobId, processId);
+            this.task = new FutureTask<>(this);
+        }
+
+        @Override
+        public Job call() {
+            try {
+                update(job -> job.withProgress((short) 0, null));
+                List<ProcessData> outputs = execute();
+                OffsetDateTime expirationDate = now().plus(retention);
+                Result result = new Result();
+                result.setJobId(getJobId());
+                result.setResponseMode(this.request.getResponseMode());
+                result.setExpirationDate(expirationDate);
+                outputs.forEach(result::addOutput);
+                synchronized (this) {
+                    if (this.dismissed) {
+                        // the outputs will never be delivered
+                        release(getJobId(), outputs);
+                        return this.snapshot;
+                    }
+                    return update(job -> job.succeeded(result, expirationDate));
+                }
+            } catch (InterruptedException e) {
+                if (this.dismissed) {
+                    LOG.debug("Job {} was dismissed", getJobId().getValue());
+                    return getSnapshot();
+                }
+                return fail(new NoApplicableCodeException().causedBy(e).withMessage("The job was interrupted"));
+            } catch (OwsExceptionReport e) {
+                return fail(e);
+            } catch (RuntimeException e) {
+                LOG.error("Error executing job " + getJobId().getValue(), e);
+                return fail(new NoApplicableCodeException().causedBy(e).withMessage("Error executing the process"));
+            } finally {
+                active.remove(getJobId(), this);
+            }
+        }
+
+        private List<ProcessData> execute() throws OwsExceptionReport, InterruptedException {
+            ReferenceResolver resolver = referenceResolver;
+            if (resolver == null) {
+                return this.process.execute(this.request, this);
+            }
+            ExecuteRequest resolved = resolver.resolve(this.request);
+            try {
+                return this.process.execute(resolved, this);
+            } finally {
+                if (resolved != this.request) {
+                    ReferenceResolver.release(resolved);
+                }
+            }
+        }
+
+        Job await() throws OwsExceptionReport {
+            try {
+                return this.task.get();
+            } catch (InterruptedException e) {
+                // the client is gone, so is the job
+                active.remove(getJobId(), this);
+                dismiss();
+                Thread.currentThread().interrupt();
+                throw new NoApplicableCodeException().causedBy(e).withMessage("Interrupted while executing the job");
+            } catch (CancellationException e) {
+                throw new NoApplicableCodeException().causedBy(e).withMessage("The job was dismissed");
+            } catch (ExecutionException e) {
+                throw new NoApplicableCodeException().causedBy(e.getCause())
+                        .withMessage("Error executing the process");
+            }
+        }
+
+        void dismiss() {
+            synchronized (this) {
+                this.dismissed = true;
+            }
+            this.task.cancel(true);
+            // free the queue slot of a job that has not started yet
+            executor.remove(this.task);
+        }
+
+        FutureTask<Job> getTask() {
+            return this.task;
+        }
+
+        synchronized Job getSnapshot() {
+            return this.snapshot;
+        }
+
+        private Job fail(OwsExceptionReport failure) {
+            return update(job -> job.failed(failure, now().plus(retention)));
+        }
+
+        private synchronized Job update(UnaryOperator<Job> operator) {
+            if (!this.dismissed) {
+                this.snapshot = operator.apply(this.snapshot);
+                store.save(this.snapshot);
+            }
+            return this.snapshot;
+        }
+
+        @Override
+        public JobId getJobId() {
+            return this.jobId;
+        }
+
+        @Override
+        public void setPercentCompleted(int percentCompleted) {
+            Preconditions.checkArgument(percentCompleted >= 0 && percentCompleted <= 100,
+                                        "percentCompleted has to be between 0 and 100");
+            update(job -> job.withProgress((short) percentCompleted,
+                                           job.getStatus().getEstimatedCompletion().orElse(null)));
+        }
+
+        @Override
+        public void setEstimatedCompletion(OffsetDateTime estimatedCompletion) {
+            update(job -> job.withProgress(job.getStatus().getPercentCompleted().orElse(null), estimatedCompletion));
+        }
+
+        @Override
+        public boolean isDismissed() {
+            return this.dismissed;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import org.n52.shetland.ogc.wps.JobId;
+
+/**
+ * Storage of the {@link Job jobs} of a {@link JobEngine}. Implementations have
+ * to be thread safe.
+ *
+ * @since 1.0.0
+ */
+public interface JobStore {
+
+    Optional<Job> get(JobId jobId);
+
+    /**
+     * Stores the job, replacing any previous snapshot with the same id.
+     *
+     * @param job the job
+     */
+    void save(Job job);
+
+    Optional<Job> remove(JobId jobId);
+
+    /**
+     * @return the ids of all stored jobs
+     */
+    Set<JobId> getJobIds();
+
+    /**
+     * @param now the current time
+     *
+     * @return the ids of all jobs whose expiration date lies before {@code now}
+     */
+    Set<JobId> getExpired(OffsetDateTime now);
+}
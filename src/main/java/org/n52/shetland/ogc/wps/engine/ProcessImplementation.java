@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.JobControlOption;
+import org.n52.shetland.ogc.wps.data.ProcessData;
+import org.n52.shetland.ogc.wps.request.ExecuteRequest;
+
+/**
+ * The executable part of a process offered by a {@link JobEngine}.
+ * Implementations should report their progress through the supplied
+ * {@link JobContext} and stop promptly if the executing thread is interrupted.
+ *
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface ProcessImplementation {
+
+    /**
+     * Executes the process.
+     *
+     * @param request the request
+     * @param context the context of the job
+     *
+     * @return the outputs of the process
+     *
+     * @throws OwsExceptionReport   if the execution fails
+     * @throws InterruptedException if the job was dismissed
+     */
+    List<ProcessData> execute(ExecuteRequest request, JobContext context)
+            throws OwsExceptionReport, InterruptedException;
+
+    /**
+     * @return the execution modes supported by this process
+     */
+    default Collection<JobControlOption> getJobControlOptions() {
+        return JobControlOption.defaultOptions();
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.n52.shetland.util.HTTP;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Cache of referenced documents that is shared across jobs. Documents are
+ * fetched once per URI, even by concurrent jobs, streamed to files and
+ * revalidated using {@code ETag} and {@code Last-Modified} headers once they
+ * are older than the revalidation interval. The cache is bounded by the total
+ * size of the documents; a document is deleted once it has been evicted and
+ * all {@link Lease leases} on it have been closed. The cache is split into
+ * {@value #CONCURRENCY_LEVEL} segments that share the maximum size, so
+ * documents larger than a segment are not cached but only leased to the
+ * jobs that requested them.
+ *
+ * @since 1.0.0
+ */
+public class ReferenceCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceCache.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int CONCURRENCY_LEVEL = 4;
+    private static final String PREFIX = "wps-reference-";
+    private static final String SUFFIX = ".tmp";
+    private final LoadingCache<URI, Entry> cache;
+    private final Path directory;
+    private final long maximumResourceSize;
+    private final long maximumCachedSize;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param directory           the directory for the documents, or
+     *                            {@code null} for the default temporary-file
+     *                            directory
+     * @param maximumBytes        the maximum total size of the cached
+     *                            documents
+     * @param maximumResourceSize the maximum size of a single document
+     * @param revalidateAfter     the time after which a document is
+     *                            revalidated
+     */
+    public ReferenceCache(Path directory, long maximumBytes, long maximumResourceSize, Duration revalidateAfter) {
+        this(directory, maximumBytes, maximumResourceSize, revalidateAfter, Ticker.systemTicker());
+    }
+
+    public ReferenceCache(Path directory, long maximumBytes, long maximumResourceSize, Duration revalidateAfter,
+                          Ticker ticker) {
+        Preconditions.checkArgument(maximumResourceSize >= 0, "maximumResourceSize may not be negative");
+        this.directory = directory;
+        this.maximumResourceSize = maximumResourceSize;
+        this.maximumCachedSize = maximumBytes / CONCURRENCY_LEVEL;
+        this.cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .concurrencyLevel(CONCURRENCY_LEVEL)
+                .maximumWeight(maximumBytes)
+                .weigher((URI uri, Entry entry) -> (int) Math.min(entry.getContent().getSize(), Integer.MAX_VALUE))
+                .refreshAfterWrite(revalidateAfter.toNanos(), TimeUnit.NANOSECONDS)
+                .removalListener((RemovalListener<URI, Entry>) n -> n.getValue().getContent().release())
+                .build(new Loader());
+    }
+
+    public long getMaximumResourceSize() {
+        return maximumResourceSize;
+    }
+
+    /**
+     * Gets the document referenced by the URI, fetching or revalidating it if
+     * necessary. The returned lease has to be closed after the document was
+     * read.
+     *
+     * @param uri the URI
+     *
+     * @return the lease on the document
+     *
+     * @throws IOException if the document can not be fetched
+     */
+    public Lease acquire(URI uri) throws IOException {
+        for (int i = 0; i < MAX_ATTEMPTS; ++i) {
+            Entry entry = get(uri);
+            // the first caller takes over the reference reserved by the loader
+            if (entry.claim() || entry.getContent().retain()) {
+                return new Lease(entry.getContent());
+            }
+            // evicted after the lookup, load it again
+        }
+        throw new IOException("Could not acquire " + uri);
+    }
+
+    public void invalidate(URI uri) {
+        this.cache.invalidate(uri);
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    public long size() {
+        return this.cache.size();
+    }
+
+    Path createTempFile() throws IOException {
+        return this.directory == null
+               ? Files.createTempFile(PREFIX, SUFFIX)
+               : Files.createTempFile(this.directory, PREFIX, SUFFIX);
+    }
+
+    private Entry get(URI uri) throws IOException {
+        try {
+            return this.cache.get(uri);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Entry fetch(URI uri, Entry previous) throws IOException {
+        HttpGet request = new HttpGet(uri);
+        if (previous != null) {
+            previous.getETag().ifPresent(etag -> request.setHeader(HttpHeaders.IF_NONE_MATCH, etag));
+            previous.getLastModified().ifPresent(date -> request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, date));
+        }
+        return HTTP.execute(request, response -> handle(previous, response));
+    }
+
+    private Entry handle(Entry previous, HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        if (status == HttpStatus.SC_NOT_MODIFIED && previous != null && previous.getContent().retain()) {
+            LOG.debug("Revalidated cached reference {}", previous.getContent().getPath());
+            return new Entry(previous.getContent(), response, previous);
+        }
+        if (status != HttpStatus.SC_OK) {
+            throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            throw new IOException("Response has no content");
+        }
+        if (entity.getContentLength() > this.maximumResourceSize) {
+            throw new ResourceTooLargeException(this.maximumResourceSize);
+        }
+        Path path = createTempFile();
+        try (InputStream in = entity.getContent();
+             OutputStream out = Files.newOutputStream(path)) {
+            long size = copy(in, out, this.maximumResourceSize);
+            return new Entry(new Content(path, size), response, null);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the stream, failing if it is longer than the limit.
+     */
+    static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        long bound = limit < Long.MAX_VALUE ? limit + 1 : limit;
+        long size = ByteStreams.copy(ByteStreams.limit(in, bound), out);
+        if (size > limit) {
+            throw new ResourceTooLargeException(limit);
+        }
+        return size;
+    }
+
+    /**
+     * Reserves a reference for the caller before the entry is published, so
+     * the document survives if it is evicted right away. This is always the
+     * case for documents larger than a segment of the cache, which are thereby
+     * leased to the waiting callers without being cached.
+     */
+    private Entry reserve(URI uri, Entry entry) {
+        if (entry.getContent().getSize() > this.maximumCachedSize) {
+            LOG.debug("Reference {} exceeds {} bytes and is not cached", uri, this.maximumCachedSize);
+        }
+        entry.reserve();
+        return entry;
+    }
+
+    private final class Loader extends CacheLoader<URI, Entry> {
+        @Override
+        public Entry load(URI uri) throws IOException {
+            return reserve(uri, fetch(uri, null));
+        }
+
+        @Override
+        public ListenableFuture<Entry> reload(URI uri, Entry previous) throws IOException {
+            return Futures.immediateFuture(reserve(uri, fetch(uri, previous)));
+        }
+    }
+
+    /**
+     * A cached document together with the validators of the response that
+     * delivered or revalidated it.
+     */
+    private static final class Entry {
+        private final Content content;
+        private final Optional<String> etag;
+        private final Optional<String> lastModified;
+        private final AtomicBoolean reserved = new AtomicBoolean();
+
+        Entry(Content content, HttpResponse response, Entry previous) {
+            this.content = content;
+            this.etag = header(response, HttpHeaders.ETAG, previous == null ? null : previous.etag);
+            this.lastModified = header(response, HttpHeaders.LAST_MODIFIED,
+                                       previous == null ? null : previous.lastModified);
+        }
+
+        Content getContent() {
+            return content;
+        }
+
+        void reserve() {
+            this.reserved.set(this.content.retain());
+        }
+
+        boolean claim() {
+            return this.reserved.compareAndSet(true, false);
+        }
+
+        Optional<String> getETag() {
+            return etag;
+        }
+
+        Optional<String> getLastModified() {
+            return lastModified;
+        }
+
+        private static Optional<String> header(HttpResponse response, String name, Optional<String> fallback) {
+            Optional<String> value = Optional.ofNullable(response.getFirstHeader(name)).map(Header::getValue);
+            return value.isPresent() || fallback == null ? value : fallback;
+        }
+    }
+
+    /**
+     * The file of a document. It is referenced by the cache entries and the
+     * leases using it, and deleted once the last of them releases it.
+     */
+    private static final class Content {
+        private final Path path;
+        private final long size;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Content(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        boolean retain() {
+            int count;
+            do {
+                count = this.references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!this.references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            if (this.references.decrementAndGet() == 0) {
+                try {
+                    Files.deleteIfExists(this.path);
+                } catch (IOException e) {
+                    LOG.warn("Could not delete cached reference " + this.path, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A lease on a cached document. The file stays available until the lease
+     * is closed.
+     */
+    public static final class Lease implements Closeable {
+        private final Content content;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Content content) {
+            this.content = Objects.requireNonNull(content);
+        }
+
+        public Path getPath() {
+            return this.content.getPath();
+        }
+
+        public long getSize() {
+            return this.content.getSize();
+        }
+
+        @Override
+        public void close() {
+            if (this.closed.compareAndSet(false, true)) {
+                this.content.release();
+            }
+        }
+    }
+
+    /**
+     * Thrown if a referenced document exceeds the size limit.
+     */
+    public static class ResourceTooLargeException extends IOException {
+        private static final long serialVersionUID = -2415872920151430532L;
+        private final long limit;
+
+        public ResourceTooLargeException(long limit) {
+            super("The resource exceeds the limit of " + limit + " bytes");
+            this.limit = limit;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+    }
+}
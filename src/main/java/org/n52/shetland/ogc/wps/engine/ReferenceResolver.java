@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.data.Body;
+import org.n52.shetland.ogc.wps.data.GroupProcessData;
+import org.n52.shetland.ogc.wps.data.ProcessData;
+import org.n52.shetland.ogc.wps.data.ReferenceProcessData;
+import org.n52.shetland.ogc.wps.data.ValueProcessData;
+import org.n52.shetland.ogc.wps.data.impl.SpillingOutputStream;
+import org.n52.shetland.ogc.wps.exception.DataNotAccessibleException;
+import org.n52.shetland.ogc.wps.exception.SizeExceededException;
+import org.n52.shetland.ogc.wps.request.ExecuteRequest;
+import org.n52.shetland.util.HTTP;
+
+/**
+ * Resolves the {@link ReferenceProcessData referenced inputs} of an
+ * {@link ExecuteRequest} to {@link ValueProcessData}. All references of a
+ * request are fetched in parallel. Plain references are served by the shared
+ * {@link ReferenceCache}; references with a request body are posted for every
+ * request and their responses spilled to disk above a threshold. Resolved
+ * inputs hold files and have to be released using
+ * {@link #release(ExecuteRequest)}.
+ *
+ * @since 1.0.0
+ */
+public class ReferenceResolver {
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceResolver.class);
+    private final ReferenceCache cache;
+    private final Executor executor;
+    private final int threshold;
+
+    /**
+     * Creates a new resolver.
+     *
+     * @param cache     the cache for referenced documents
+     * @param executor  the executor fetching the references; it should not be
+     *                  the one executing the jobs
+     * @param threshold the number of bytes of a posted reference's response
+     *                  that are kept in memory
+     */
+    public ReferenceResolver(ReferenceCache cache, Executor executor, int threshold) {
+        this.cache = Objects.requireNonNull(cache);
+        this.executor = Objects.requireNonNull(executor);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Creates a copy of the request in which all referenced inputs are
+     * replaced by their values.
+     *
+     * @param request the request
+     *
+     * @return the resolved request
+     *
+     * @throws OwsExceptionReport if a reference can not be resolved
+     */
+    public ExecuteRequest resolve(ExecuteRequest request) throws OwsExceptionReport {
+        Map<ReferenceProcessData, Fetch> tasks = new IdentityHashMap<>();
+        collect(request.getInputs(), tasks);
+        if (tasks.isEmpty()) {
+            return request;
+        }
+        tasks.values().forEach(fetch -> this.executor.execute(fetch.getTask()));
+
+        ExecuteRequest resolved = copy(request);
+        try {
+            for (ProcessData input : request.getInputs()) {
+                resolved.addInput(replace(input, tasks));
+            }
+        } catch (OwsExceptionReport | RuntimeException e) {
+            tasks.values().forEach(Fetch::abandon);
+            throw e;
+        }
+        return resolved;
+    }
+
+    /**
+     * Releases the resources held by the inputs of a resolved request.
+     *
+     * @param request the resolved request
+     */
+    public static void release(ExecuteRequest request) {
+        release(request.getInputs());
+    }
+
+    private static void release(Collection<? extends ProcessData> inputs) {
+        for (ProcessData input : inputs) {
+            if (input.isGroup()) {
+                release(input.asGroup().getElements());
+            } else if (input instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) input).close();
+                } catch (Exception e) {
+                    LOG.warn("Error releasing input " + input.getId(), e);
+                }
+            }
+        }
+    }
+
+    private void collect(Collection<ProcessData> inputs, Map<ReferenceProcessData, Fetch> tasks) {
+        for (ProcessData input : inputs) {
+            if (input.isGroup()) {
+                collect(input.asGroup().getElements(), tasks);
+            } else if (input.isReference()) {
+                ReferenceProcessData reference = input.asReference();
+                tasks.put(reference, new Fetch(reference));
+            }
+        }
+    }
+
+    private ProcessData replace(ProcessData input, Map<ReferenceProcessData, Fetch> tasks)
+            throws OwsExceptionReport {
+        if (input.isGroup()) {
+            List<ProcessData> elements = new ArrayList<>(input.asGroup().getElements().size());
+            for (ProcessData element : input.asGroup().getElements()) {
+                elements.add(replace(element, tasks));
+            }
+            return new GroupProcessData(input.getId(), elements);
+        } else if (input.isReference()) {
+            return await(input.asReference(), tasks.get(input.asReference()).getTask());
+        } else {
+            return input;
+        }
+    }
+
+    private ValueProcessData await(ReferenceProcessData reference, FutureTask<ValueProcessData> task)
+            throws OwsExceptionReport {
+        String id = reference.getId() == null ? null : reference.getId().getValue();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Interrupted while resolving %s", id);
+        } catch (CancellationException e) {
+            throw new NoApplicableCodeException().causedBy(e).withMessage("Resolving %s was cancelled", id);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ReferenceCache.ResourceTooLargeException) {
+                long limit = ((ReferenceCache.ResourceTooLargeException) e.getCause()).getLimit();
+                throw new SizeExceededException(id, limit);
+            }
+            throw new DataNotAccessibleException(id, reference.getURI()).causedBy(e.getCause());
+        }
+    }
+
+    private ValueProcessData fetch(ReferenceProcessData reference) throws IOException {
+        if (!reference.getBody().isPresent()) {
+            return new CachedReferenceProcessData(reference.getId(), reference.getFormat(),
+                                                  this.cache.acquire(reference.getURI()));
+        }
+        Body body = reference.getBody().get();
+        HttpPost request = new HttpPost(reference.getURI());
+        if (body.isReferenced()) {
+            try (ReferenceCache.Lease lease = this.cache.acquire(body.asReferenced().getHref())) {
+                request.setEntity(new FileEntity(lease.getPath().toFile()));
+                return post(reference, request);
+            }
+        }
+        request.setEntity(new ByteArrayEntity(body.getBody().getBytes(StandardCharsets.UTF_8)));
+        return post(reference, request);
+    }
+
+    private ValueProcessData post(ReferenceProcessData reference, HttpPost request) throws IOException {
+        return HTTP.execute(request, response -> read(reference, response));
+    }
+
+    private ValueProcessData read(ReferenceProcessData reference, HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        if (status != HttpStatus.SC_OK) {
+            throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            throw new IOException("Response has no content");
+        }
+        SpillingOutputStream out = new SpillingOutputStream(this.threshold, null);
+        try (InputStream in = entity.getContent()) {
+            ReferenceCache.copy(in, out, this.cache.getMaximumResourceSize());
+        } catch (IOException | RuntimeException e) {
+            release(Collections.singleton(out.toProcessData(reference.getId(), reference.getFormat())));
+            throw e;
+        }
+        return out.toProcessData(reference.getId(), reference.getFormat());
+    }
+
+    /**
+     * The fetch of a single reference. If the resolution fails, the fetch is
+     * abandoned: a fetch that has not started yet is skipped, a completed one
+     * is released immediately and a running one releases its result as soon
+     * as it completes.
+     */
+    private final class Fetch implements Callable<ValueProcessData> {
+        private final ReferenceProcessData reference;
+        private final FutureTask<ValueProcessData> task;
+        private boolean abandoned;
+        private ValueProcessData result;
+
+        Fetch(ReferenceProcessData reference) {
+            this.reference = reference;
+            this.task = new FutureTask<>(this);
+        }
+
+        FutureTask<ValueProcessData> getTask() {
+            return this.task;
+        }
+
+        @Override
+        public ValueProcessData call() throws IOException {
+            synchronized (this) {
+                if (this.abandoned) {
+                    return null;
+                }
+            }
+            ValueProcessData data = fetch(this.reference);
+            synchronized (this) {
+                if (!this.abandoned) {
+                    this.result = data;
+                    return data;
+                }
+            }
+            release(Collections.singleton(data));
+            return null;
+        }
+
+        void abandon() {
+            ValueProcessData data;
+            synchronized (this) {
+                this.abandoned = true;
+                data = this.result;
+                this.result = null;
+            }
+            if (data != null) {
+                release(Collections.singleton(data));
+            }
+        }
+    }
+
+    private static ExecuteRequest copy(ExecuteRequest request) {
+        ExecuteRequest copy = new ExecuteRequest(request.getService(), request.getVersion(),
+                                                 request.getOperationName());
+        copy.setId(request.getId());
+        copy.setExecutionMode(request.getExecutionMode());
+        copy.setResponseMode(request.getResponseMode());
+        copy.setExtensions(request.getExtensions());
+        copy.setRequestContext(request.getRequestContext());
+        request.getOutputs().forEach(copy::addOutput);
+        return copy;
+    }
+}
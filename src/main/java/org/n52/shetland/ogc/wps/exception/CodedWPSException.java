@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.exception;
+
+import org.n52.shetland.ogc.ows.exception.CodedException;
+
+/**
+ * @since 1.0.0
+ */
+public abstract class CodedWPSException extends CodedException {
+    private static final long serialVersionUID = 3516392784120873160L;
+
+    public CodedWPSException(WPSExceptionCode code) {
+        super(code);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.exception;
+
+import static org.n52.janmayen.http.HTTPStatus.BAD_REQUEST;
+
+import java.net.URI;
+
+/**
+ * @since 1.0.0
+ */
+public class DataNotAccessibleException extends CodedWPSException {
+    private static final long serialVersionUID = 6270952338213040174L;
+
+    public DataNotAccessibleException(String input, URI uri) {
+        super(WPSExceptionCode.DataNotAccessible);
+        withMessage("The data of input '%s' referenced by '%s' is not accessible", input, uri).at(input);
+        setStatus(BAD_REQUEST);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.exception;
+
+import static org.n52.janmayen.http.HTTPStatus.NOT_FOUND;
+
+import org.n52.shetland.ogc.wps.JobId;
+
+/**
+ * @since 1.0.0
+ */
+public class NoSuchJobException extends CodedWPSException {
+    private static final long serialVersionUID = 4659023140312987015L;
+
+    public NoSuchJobException(JobId jobId) {
+        super(WPSExceptionCode.NoSuchJob);
+        withMessage("No job with id '%s' is known to this server", jobId.getValue()).at("jobId");
+        setStatus(NOT_FOUND);
+    }
+}
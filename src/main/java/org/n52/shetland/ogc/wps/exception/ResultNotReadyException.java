@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.exception;
+
+import static org.n52.janmayen.http.HTTPStatus.BAD_REQUEST;
+
+import org.n52.shetland.ogc.wps.JobId;
+
+/**
+ * @since 1.0.0
+ */
+public class ResultNotReadyException extends CodedWPSException {
+    private static final long serialVersionUID = 2384659134072186613L;
+
+    public ResultNotReadyException(JobId jobId) {
+        super(WPSExceptionCode.ResultNotReady);
+        withMessage("The result of job '%s' is not yet available", jobId.getValue()).at("jobId");
+        setStatus(BAD_REQUEST);
+    }
+}
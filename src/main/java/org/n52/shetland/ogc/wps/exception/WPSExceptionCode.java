@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.exception;
+
+import org.n52.shetland.ogc.ows.exception.ExceptionCode;
+
+/**
+ * Exception codes defined by WPS 2.0 that are raised by the job engine.
+ *
+ * @since 1.0.0
+ */
+public enum WPSExceptionCode implements ExceptionCode {
+    NoSuchProcess("One of the identifiers passed does not match with any of the processes offered by this server."),
+    NoSuchMode("The process does not permit the desired execution mode."),
+    DataNotAccessible("One of the referenced input data sets was inaccessible."),
+    SizeExceeded("The size of one of the input parameters was too large for this process to handle."),
+    NoSuchJob("The JobID from the request does not match any of the Jobs running on this server."),
+    ResultNotReady("The result for the requested JobID has not yet been generated.");
+
+    private final String soapFaultReason;
+
+    WPSExceptionCode(String soapFaultReason) {
+        this.soapFaultReason = soapFaultReason;
+    }
+
+    @Override
+    public String getSoapFaultReason() {
+        return this.soapFaultReason;
+    }
+}
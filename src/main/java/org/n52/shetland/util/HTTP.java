@@ -28,6 +28,8 @@ import java.util.Optional;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
@@ -45,9 +47,20 @@ import com.google.common.io.CharStreams;
  * @author Christian Autermann
  */
 public class HTTP {
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int SOCKET_TIMEOUT = 60000;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final int MAX_CONNECTIONS = 100;
     private static final CloseableHttpClient CLIENT = HttpClientBuilder.create()
             .useSystemProperties()
             .setUserAgent("shetland-1.0.0")
+            .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+            .setMaxConnTotal(MAX_CONNECTIONS)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectTimeout(CONNECT_TIMEOUT)
+                    .setConnectionRequestTimeout(CONNECT_TIMEOUT)
+                    .setSocketTimeout(SOCKET_TIMEOUT)
+                    .build())
             .build();
 
     private HTTP() {
@@ -91,6 +104,23 @@ public class HTTP {
         execute(request, out);
     }
 
+    /**
+     * Executes the request and lets the handler process the response. The
+     * response is released after the handler returns.
+     *
+     * @param <T>     the type of the result
+     * @param request the request
+     * @param handler the handler
+     *
+     * @return the result of the handler
+     *
+     * @throws IOException if the request or the handler fail
+     */
+    public static <T> T execute(HttpUriRequest request, ResponseHandler<? extends T> handler)
+            throws IOException {
+        return CLIENT.execute(request, handler);
+    }
+
     private static byte[] execute(HttpUriRequest request)
             throws IOException {
         try (CloseableHttpResponse response = CLIENT.execute(request)) {
@@ -16,6 +16,8 @@
  */
 package org.n52.shetland.w3c.xlink;
 
+import java.util.Objects;
+
 /**
  * Class represents W3C href attribute.
  *
@@ -67,4 +69,20 @@ public class W3CHrefAttribute {
     public boolean isSetHref() {
         return this.href != null && !this.href.isEmpty();
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.href);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return Objects.equals(this.href, ((W3CHrefAttribute) obj).href);
+    }
 }
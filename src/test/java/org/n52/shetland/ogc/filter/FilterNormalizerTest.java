@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.filter;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.filter.FilterConstants.BinaryLogicOperator;
+import org.n52.shetland.ogc.filter.FilterConstants.ComparisonOperator;
+import org.n52.shetland.ogc.filter.FilterConstants.SpatialOperator;
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class FilterNormalizerTest {
+
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private ComparisonFilter comparison(String value) {
+        return new ComparisonFilter(ComparisonOperator.PropertyIsEqualTo, "om:result", value);
+    }
+
+    private TemporalFilter temporal() {
+        return new TemporalFilter(TimeOperator.TM_Equals,
+                                  new TimeInstant(new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC)),
+                                  "om:phenomenonTime");
+    }
+
+    private SpatialFilter spatial() {
+        return new SpatialFilter(SpatialOperator.Intersects,
+                                 geometryFactory.createPoint(new Coordinate(7.0, 52.0)),
+                                 "om:featureOfInterest/*/sams:shape");
+    }
+
+    @Test
+    public void should_remove_double_negation() {
+        ComparisonFilter leaf = comparison("1");
+        Filter<?> normalized = FilterNormalizer.normalize(new UnaryLogicFilter(new UnaryLogicFilter(leaf)));
+        assertThat(normalized, is(sameInstance(leaf)));
+    }
+
+    @Test
+    public void should_unwrap_single_child_nodes() {
+        ComparisonFilter leaf = comparison("1");
+        BinaryLogicFilter filter = new BinaryLogicFilter(BinaryLogicOperator.And)
+                .addFilterPredicates(new BinaryLogicFilter(BinaryLogicOperator.Or).addFilterPredicates(leaf));
+        assertThat(FilterNormalizer.normalize(filter), is(sameInstance(leaf)));
+    }
+
+    @Test
+    public void should_flatten_deduplicate_and_order_by_cost() {
+        SpatialFilter spatial = spatial();
+        TemporalFilter temporal = temporal();
+        ComparisonFilter comparison = comparison("1");
+        BinaryLogicFilter filter = new BinaryLogicFilter(BinaryLogicOperator.And, spatial,
+                new BinaryLogicFilter(BinaryLogicOperator.And, temporal,
+                        new BinaryLogicFilter(BinaryLogicOperator.And, comparison("1"), comparison)));
+        Filter<?> normalized = FilterNormalizer.normalize(filter);
+        assertThat(normalized, is(instanceOf(BinaryLogicFilter.class)));
+        List<Filter<?>> predicates = new ArrayList<>(((BinaryLogicFilter) normalized).getFilterPredicates());
+        assertThat(predicates.size(), is(3));
+        assertThat(predicates.get(0), is(instanceOf(ComparisonFilter.class)));
+        assertThat(predicates.get(1), is(sameInstance(temporal)));
+        assertThat(predicates.get(2), is(sameInstance(spatial)));
+    }
+
+    @Test
+    public void should_apply_de_morgan() {
+        ComparisonFilter a = comparison("a");
+        ComparisonFilter b = comparison("b");
+        Filter<?> normalized = FilterNormalizer
+                .normalize(new UnaryLogicFilter(new BinaryLogicFilter(BinaryLogicOperator.And, a, b)));
+        assertThat(normalized, is(instanceOf(BinaryLogicFilter.class)));
+        BinaryLogicFilter or = (BinaryLogicFilter) normalized;
+        assertThat(or.getOperator(), is(BinaryLogicOperator.Or));
+        for (Filter<?> predicate : or.getFilterPredicates()) {
+            assertThat(predicate, is(instanceOf(UnaryLogicFilter.class)));
+        }
+        List<Filter<?>> negated = new ArrayList<>();
+        or.getFilterPredicates().forEach(p -> negated.add(((UnaryLogicFilter) p).getFilterPredicate()));
+        assertThat(negated, contains(a, b));
+    }
+
+    @Test
+    public void should_produce_equal_canonical_forms_for_equivalent_trees() {
+        CanonicalFilter first = FilterNormalizer.canonicalize(
+                new BinaryLogicFilter(BinaryLogicOperator.Or, spatial(),
+                                      new BinaryLogicFilter(BinaryLogicOperator.Or, comparison("1"), temporal())));
+        CanonicalFilter second = FilterNormalizer.canonicalize(
+                new BinaryLogicFilter(BinaryLogicOperator.Or,
+                                      new UnaryLogicFilter(new UnaryLogicFilter(temporal())),
+                                      new BinaryLogicFilter(BinaryLogicOperator.Or, spatial(), comparison("1"))));
+        CanonicalFilter third = FilterNormalizer.canonicalize(
+                new BinaryLogicFilter(BinaryLogicOperator.And, spatial(),
+                                      new BinaryLogicFilter(BinaryLogicOperator.Or, comparison("1"), temporal())));
+        assertThat(first, is(second));
+        assertThat(first.hashCode(), is(second.hashCode()));
+        assertThat(first.getStableHash(), is(second.getStableHash()));
+        assertThat(first, is(not(third)));
+    }
+}
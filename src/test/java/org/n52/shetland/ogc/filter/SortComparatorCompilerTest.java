@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.filter;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.filter.FilterConstants.SortOrder;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.GmlConstants.SortingOrder;
+import org.n52.shetland.ogc.gml.SortBy;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+
+public class SortComparatorCompilerTest {
+
+    private static final DateTime START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final SortComparatorCompiler<OmObservation> compiler = SortComparatorCompiler.forObservations();
+
+    @Test
+    public void shouldChainSortKeys() throws InvalidParameterValueException {
+        List<OmObservation> observations = Arrays.asList(
+                create("1", "p2", 0, 1.0), create("2", "p1", 0, 2.0),
+                create("3", "p2", 1, 3.0), create("4", "p1", 1, 4.0));
+        FesSortBy sortBy = new FesSortBy(Arrays.asList(
+                new FesSortProperty("om:procedure"),
+                new FesSortProperty("phenomenonTime").setSortOrder(SortOrder.DESC)));
+        assertThat(ids(compiler.compile(sortBy).sort(observations)), contains("4", "2", "3", "1"));
+        List<OmObservation> sorted = new ArrayList<>(observations);
+        sorted.sort(compiler.compile(sortBy));
+        assertThat(ids(sorted), contains("4", "2", "3", "1"));
+        List<SortBy> gmlSortBy = Arrays.asList(new SortBy("om:procedure", SortingOrder.DESC),
+                                               new SortBy("result", SortingOrder.ASC));
+        assertThat(ids(compiler.compile(gmlSortBy).sort(observations)), contains("1", "3", "2", "4"));
+    }
+
+    @Test
+    public void shouldSortMissingKeysLast() throws InvalidParameterValueException {
+        List<OmObservation> observations = Arrays.asList(
+                create("1", "p1", 0, 1.0), create("2", null, 1, Double.NaN), create("3", "p3", 2, 3.0));
+        FesSortBy ascending = new FesSortBy(new FesSortProperty("result").setSortOrder(SortOrder.ASC));
+        FesSortBy descending = new FesSortBy(new FesSortProperty("result").setSortOrder(SortOrder.DESC));
+        assertThat(ids(compiler.compile(ascending).sort(observations)), contains("1", "3", "2"));
+        assertThat(ids(compiler.compile(descending).sort(observations)), contains("3", "1", "2"));
+        FesSortBy procedure = new FesSortBy(new FesSortProperty("procedure").setSortOrder(SortOrder.DESC));
+        assertThat(ids(compiler.compile(procedure).sort(observations)), contains("3", "1", "2"));
+    }
+
+    @Test
+    public void shouldSelectSamePageAsFullSort() throws InvalidParameterValueException {
+        Random random = new Random(42);
+        List<OmObservation> observations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            observations.add(create(String.valueOf(i), "p" + random.nextInt(5), random.nextInt(20),
+                                    random.nextInt(10) == 0 ? Double.NaN : random.nextInt(50)));
+        }
+        SortComparatorCompiler.SortComparator<OmObservation> comparator = compiler.compile(new FesSortBy(
+                Arrays.asList(new FesSortProperty("result").setSortOrder(SortOrder.DESC),
+                              new FesSortProperty("procedure"), new FesSortProperty("phenomenonTime"),
+                              new FesSortProperty("observationId"))));
+        List<String> sorted = ids(comparator.sort(observations));
+        assertThat(ids(comparator.topK(observations, 10, 25)), is(sorted.subList(10, 35)));
+        assertThat(ids(SortComparatorCompiler.topK(observations, comparator, 10, 25)), is(sorted.subList(10, 35)));
+        assertThat(ids(comparator.topK(observations, 190, 25)), is(sorted.subList(190, 200)));
+        assertThat(comparator.topK(observations, 200, 25).isEmpty(), is(true));
+        assertThat(comparator.topK(observations, 0, 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldExtractKeysOncePerElement() throws InvalidParameterValueException {
+        AtomicInteger calls = new AtomicInteger();
+        SortComparatorCompiler<String> lengths = new SortComparatorCompiler<String>()
+                .registerLong("length", s -> {
+                    calls.incrementAndGet();
+                    return s.length();
+                });
+        List<String> elements = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            elements.add(Collections.nCopies(100 - i, "x").stream().collect(Collectors.joining()));
+        }
+        List<String> sorted = lengths.compile(new FesSortBy(new FesSortProperty("length"))).sort(elements);
+        assertThat(calls.get(), is(100));
+        assertThat(sorted.get(0).length(), is(1));
+        assertThat(sorted.get(99).length(), is(100));
+    }
+
+    @Test
+    public void shouldKeepPropertiesOfListConstructor() {
+        List<FesSortProperty> properties = Arrays.asList(new FesSortProperty("result"),
+                                                         new FesSortProperty("procedure"));
+        assertThat(new FesSortBy(properties).getSortProperties(), is(properties));
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldRejectUnsupportedValueReference() throws InvalidParameterValueException {
+        compiler.compile(new FesSortBy(new FesSortProperty("om:unknown")));
+    }
+
+    private static OmObservation create(String id, String procedure, int hour, double value) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        if (procedure != null) {
+            constellation.setProcedure(new SamplingFeature(new CodeWithAuthority(procedure)));
+        }
+        OmObservation observation = new OmObservation();
+        observation.setObservationID(id);
+        observation.setObservationConstellation(constellation);
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(START.plusHours(hour)),
+                                                          new QuantityValue(Double.isNaN(value) ? null : value)));
+        return observation;
+    }
+
+    private static List<String> ids(List<OmObservation> observations) {
+        return observations.stream().map(OmObservation::getObservationID).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.SimpleBooleanValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.SweDataArrayValue;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+import org.n52.shetland.ogc.swe.SweField;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swe.simpleType.SweQuantity;
+import org.n52.shetland.ogc.swe.simpleType.SweText;
+import org.n52.shetland.ogc.swe.simpleType.SweTime;
+import org.n52.shetland.util.DateTimeParseException;
+
+public class ObservationSplitterTest {
+
+    @Test
+    public void shouldSplitBlocksAndValueFields() throws OwsExceptionReport {
+        ObservationSplitter splitter = new ObservationSplitter(createObservation());
+        Iterator<List<OmObservation>> batches = splitter.batches(2);
+        assertThat(batches.next(), hasSize(2));
+        List<OmObservation> second = batches.next();
+        assertThat(second, hasSize(2));
+        assertThat(batches.next(), hasSize(1));
+        assertThat(batches.hasNext(), is(false));
+
+        OmObservation observation = second.get(1);
+        assertThat(observation.getObservationConstellation().getObservablePropertyIdentifier(), is("temperature"));
+        assertThat(observation.getObservationConstellation().getFeatureOfInterestIdentifier(), is("feature2"));
+        assertThat(observation.getObservationConstellation().getProcedureIdentifier(), is("procedure"));
+        assertThat(observation.getValue().getValue(), instanceOf(SimpleQuantityValue.class));
+        assertThat(((SimpleQuantityValue) observation.getValue().getValue()).getValue(), is(3.0));
+        assertThat(((SimpleQuantityValue) observation.getValue().getValue()).getUnit(), is("degC"));
+        assertThat(observation.getPhenomenonTime(), instanceOf(TimeInstant.class));
+        assertThat(observation.getResultTime(), is(observation.getPhenomenonTime()));
+    }
+
+    @Test
+    public void shouldUseFeatureOfTemplateWithoutFeatureColumn() throws OwsExceptionReport {
+        OmObservation template = createObservation();
+        SweDataArray array = ((SweDataArrayValue) template.getValue().getValue()).getValue();
+        ((SweDataRecord) array.getElementType()).getFields()
+                .set(1, new SweField("comment", new SweText().setDefinition("comment")));
+        int count = 0;
+        for (OmObservation observation : new ObservationSplitter(template)) {
+            if (observation.getValue().getValue() instanceof SimpleBooleanValue) {
+                assertThat(observation.getValue().getValue().isSetValue(), is(true));
+                assertThat(observation.getObservationConstellation().getFeatureOfInterestIdentifier(),
+                           is("feature"));
+                assertThat(observation.getObservationConstellation().getObservationType(),
+                           is(OmConstants.OBS_TYPE_TRUTH_OBSERVATION));
+            }
+            count++;
+        }
+        assertThat(count, is(9));
+    }
+
+    @Test
+    public void shouldRejectMalformedTime() {
+        OmObservation observation = createObservation();
+        ((SweDataArrayValue) observation.getValue().getValue()).getValue()
+                .add(Arrays.asList("noon", "feature2", "4.0", "true"));
+        try {
+            new ObservationSplitter(observation).forEachBatch(10, batch -> { });
+            fail("malformed time not detected");
+        } catch (OwsExceptionReport e) {
+            assertThat(e, instanceOf(InvalidParameterValueException.class));
+            assertThat(e.getMessage(), containsString("Invalid time 'noon'"));
+            assertThat(e.getCause().getCause(), instanceOf(DateTimeParseException.class));
+        }
+    }
+
+    private OmObservation createObservation() {
+        SweDataRecord record = new SweDataRecord();
+        record.addField(new SweField("phenomenonTime", new SweTime().setDefinition(OmConstants.PHENOMENON_TIME)));
+        record.addField(new SweField("featureOfInterest",
+                                     new SweText().setDefinition(OmConstants.PHEN_FEATURE_OF_INTEREST)));
+        record.addField(new SweField("temperature", new SweQuantity().setUom("degC").setDefinition("temperature")));
+        record.addField(new SweField("flag", new SweBoolean().setDefinition("flag")));
+        SweDataArray array = new SweDataArray();
+        array.setElementType(record);
+        array.add(Arrays.asList("2017-01-01T00:00:00Z", "feature1", "1.0", "true"));
+        array.add(Arrays.asList("2017-01-01T00:10:00Z", "feature1", "", "false"));
+        array.add(Arrays.asList("2017-01-01T00:20:00Z", "feature2", "3.0", "1"));
+        array.add(Arrays.asList("2017-01-01T00:30:00Z", "feature2", "-", "-"));
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SamplingFeature(new CodeWithAuthority("procedure")));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        constellation.setObservableProperty(new OmObservableProperty("composite"));
+        constellation.addOffering("offering");
+        OmObservation observation = new OmObservation();
+        observation.setObservationConstellation(constellation);
+        observation.setNoDataValue("-");
+        MultiObservationValues<SweDataArray> value = new MultiObservationValues<>();
+        value.setValue(new SweDataArrayValue(array));
+        observation.setValue(value);
+        return observation;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.binary;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.IndeterminateValue;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.NamedValue;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.quality.OmResultQuality;
+import org.n52.shetland.ogc.om.values.BooleanValue;
+import org.n52.shetland.ogc.om.values.CategoryValue;
+import org.n52.shetland.ogc.om.values.ComplexValue;
+import org.n52.shetland.ogc.om.values.CountValue;
+import org.n52.shetland.ogc.om.values.CvDiscretePointCoverage;
+import org.n52.shetland.ogc.om.values.GeometryValue;
+import org.n52.shetland.ogc.om.values.HrefAttributeValue;
+import org.n52.shetland.ogc.om.values.MultiPointCoverage;
+import org.n52.shetland.ogc.om.values.NilTemplateValue;
+import org.n52.shetland.ogc.om.values.ProfileLevel;
+import org.n52.shetland.ogc.om.values.ProfileValue;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.ReferenceValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.SimpleTextValue;
+import org.n52.shetland.ogc.om.values.TLVTValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.sos.SosProcedureDescriptionUnknownType;
+import org.n52.shetland.w3c.xlink.W3CHrefAttribute;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+public class BinaryObservationReaderTest {
+
+    private static final DateTime TIME = new DateTime(2017, 3, 1, 12, 0, DateTimeZone.forOffsetHours(1));
+
+    private final GeometryFactory factory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    @Test
+    public void shouldRoundTripBooleanValue() throws IOException {
+        assertThat(roundTrip(new BooleanValue(true)).getValue(), is((Object) true));
+        assertThat(roundTrip(new BooleanValue(false)).getValue(), is((Object) false));
+        assertThat(roundTrip(new BooleanValue(null)).getValue(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldRoundTripCategoryValue() throws IOException {
+        Value<?> value = roundTrip(new CategoryValue("category", "codespace"));
+        assertThat(value, instanceOf(CategoryValue.class));
+        assertThat(value.getValue(), is((Object) "category"));
+        assertThat(value.getUnit(), is("codespace"));
+    }
+
+    @Test
+    public void shouldRoundTripCountValue() throws IOException {
+        assertThat(roundTrip(new CountValue(-42)).getValue(), is((Object) (-42)));
+        assertThat(roundTrip(new CountValue(Integer.MAX_VALUE)).getValue(), is((Object) Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldEncodeSimpleValuesAsSweValues() throws IOException {
+        Value<?> value = roundTrip(new SimpleQuantityValue(1.5, "m"));
+        assertThat(value, instanceOf(QuantityValue.class));
+        assertThat(value.getValue(), is((Object) 1.5));
+        assertThat(value.getUnit(), is("m"));
+        assertThat(roundTrip(new SimpleTextValue("text")), instanceOf(TextValue.class));
+    }
+
+    @Test
+    public void shouldRoundTripGeometryValue() throws IOException {
+        Point point = factory.createPoint(new Coordinate(52.0, 7.0, 100.0));
+        Value<?> value = roundTrip(new GeometryValue(point));
+        assertThat(value, instanceOf(GeometryValue.class));
+        Point decoded = (Point) value.getValue();
+        assertThat(decoded.equalsExact(point), is(true));
+        assertThat(decoded.getSRID(), is(4326));
+        assertThat(decoded.getCoordinate().z, is(100.0));
+    }
+
+    @Test
+    public void shouldRoundTripHrefAttributeValue() throws IOException {
+        Value<?> value = roundTrip(new HrefAttributeValue(new W3CHrefAttribute("http://example.com")));
+        assertThat(value.getValue(), is((Object) new W3CHrefAttribute("http://example.com")));
+    }
+
+    @Test
+    public void shouldRoundTripNilTemplateValue() throws IOException {
+        Value<?> value = roundTrip(new NilTemplateValue().setValue("template"));
+        assertThat(value, instanceOf(NilTemplateValue.class));
+        assertThat(value.getValue(), is((Object) "template"));
+    }
+
+    @Test
+    public void shouldRoundTripQuantityValue() throws IOException {
+        UoM unit = new UoM("degC");
+        unit.setName("degree Celsius");
+        unit.setLink("http://example.com/degC");
+        Value<?> value = roundTrip(new QuantityValue(21.5, unit));
+        assertThat(value.getValue(), is((Object) 21.5));
+        assertThat(value.getUnitObject(), is(unit));
+    }
+
+    @Test
+    public void shouldRoundTripReferenceValue() throws IOException {
+        ReferenceType reference = new ReferenceType("http://example.com", "title");
+        reference.setRole("role");
+        Value<?> value = roundTrip(new ReferenceValue(reference));
+        assertThat(value.getValue(), is((Object) reference));
+    }
+
+    @Test
+    public void shouldRoundTripTextValue() throws IOException {
+        assertThat(roundTrip(new TextValue("text äöü")).getValue(), is((Object) "text äöü"));
+    }
+
+    @Test
+    public void shouldRoundTripTVPValue() throws IOException {
+        TVPValue tvp = new TVPValue();
+        tvp.setUnit(new UoM("m"));
+        for (int i = 0; i < 100; i++) {
+            tvp.addValue(new TimeValuePair(new TimeInstant(TIME.plusMinutes(i)), new QuantityValue(i * 0.5, "m")));
+        }
+        TVPValue value = (TVPValue) roundTrip(tvp);
+        assertThat(value.getValue(), hasSize(100));
+        assertThat(value.getUnit(), is("m"));
+        for (int i = 0; i < 100; i++) {
+            TimeValuePair pair = value.getValue().get(i);
+            assertThat(pair.getTime(), is((Time) new TimeInstant(TIME.plusMinutes(i))));
+            assertThat(pair.getValue().getValue(), is((Object) (i * 0.5)));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripTLVTValue() throws IOException {
+        TLVTValue tlvt = new TLVTValue();
+        Point point = factory.createPoint(new Coordinate(52.0, 7.0));
+        tlvt.addValue(new TimeLocationValueTriple(new TimeInstant(TIME), new CountValue(1), point));
+        TLVTValue value = (TLVTValue) roundTrip(tlvt);
+        assertThat(value.getValue(), hasSize(1));
+        assertThat(value.getValue().get(0).getLocation().equalsExact(point), is(true));
+        assertThat(value.getValue().get(0).getValue().getValue(), is((Object) 1));
+    }
+
+    @Test
+    public void shouldRoundTripCvDiscretePointCoverage() throws IOException {
+        CvDiscretePointCoverage coverage = new CvDiscretePointCoverage("cv");
+        coverage.setDomainExtent("extent");
+        coverage.setRangeType(new ReferenceType("range"));
+        coverage.setValue(new PointValuePair(factory.createPoint(new Coordinate(1, 2)), new QuantityValue(3.0)));
+        CvDiscretePointCoverage value = (CvDiscretePointCoverage) roundTrip(coverage);
+        assertThat(value.getGmlId(), is(coverage.getGmlId()));
+        assertThat(value.getDomainExtent(), is("extent"));
+        assertThat(value.getRangeType(), is(new ReferenceType("range")));
+        assertThat(value.getValue().getValue().getValue(), is((Object) 3.0));
+    }
+
+    @Test
+    public void shouldRoundTripMultiPointCoverage() throws IOException {
+        MultiPointCoverage coverage = new MultiPointCoverage("mpc");
+        coverage.addValue(new PointValuePair(factory.createPoint(new Coordinate(1, 2)), new QuantityValue(3.0)));
+        coverage.addValue(new PointValuePair(factory.createPoint(new Coordinate(4, 5)), new QuantityValue(6.0)));
+        MultiPointCoverage value = (MultiPointCoverage) roundTrip(coverage);
+        assertThat(value.getGmlId(), is(coverage.getGmlId()));
+        assertThat(value.getValue(), hasSize(2));
+        for (int i = 0; i < 2; i++) {
+            PointValuePair expected = coverage.getValue().get(i);
+            PointValuePair actual = value.getValue().get(i);
+            assertThat(actual.getPoint().equalsExact(expected.getPoint()), is(true));
+            assertThat(actual.getValue().getValue(), is(expected.getValue().getValue()));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripRectifiedGridCoverage() throws IOException {
+        RectifiedGridCoverage coverage = new RectifiedGridCoverage("grid");
+        coverage.addValue(1.0, new QuantityValue(10.0));
+        coverage.addValue(2.0, new TextValue("text"));
+        RectifiedGridCoverage value = (RectifiedGridCoverage) roundTrip(coverage);
+        assertThat(value.getGmlId(), is(coverage.getGmlId()));
+        assertThat(value.getDomainSet(), is(coverage.getDomainSet()));
+        assertThat(value.getValue().get(2.0).getValue(), is((Object) "text"));
+    }
+
+    @Test
+    public void shouldRoundTripProfileValue() throws IOException {
+        ProfileValue profile = new ProfileValue(new CodeWithAuthority("profile", "codespace"), "gmlId");
+        ProfileLevel level = new ProfileLevel(new QuantityValue(0.0, "m"), new QuantityValue(10.0, "m"),
+                                              Collections.singletonList(new QuantityValue(5.0, "degC")));
+        level.setLocation(factory.createPoint(new Coordinate(1, 2)));
+        profile.addValue(level);
+        ProfileValue value = (ProfileValue) roundTrip(profile);
+        assertThat(value.getIdentifierCodeWithAuthority(), is(new CodeWithAuthority("profile", "codespace")));
+        assertThat(value.getGmlId(), is("gmlId"));
+        assertThat(value.getValue(), hasSize(1));
+        ProfileLevel decoded = value.getValue().get(0);
+        assertThat(decoded.getLevelStart().getValue(), is(0.0));
+        assertThat(decoded.getLevelEnd().getUnit(), is("m"));
+        assertThat(decoded.getLocation().equalsExact(level.getLocation()), is(true));
+        assertThat(decoded.getSimpleValue().getValue(), is((Object) 5.0));
+        assertThat(value.getFromLevel().getValue(), is(0.0));
+        assertThat(value.getToLevel().getValue(), is(10.0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectComplexValue() throws IOException {
+        roundTrip(new ComplexValue());
+    }
+
+    @Test
+    public void shouldRejectResultQuality() throws IOException {
+        OmObservation observation = new OmObservation();
+        observation.setObservationID("quality");
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(TIME), new QuantityValue(1.0)));
+        ((SingleObservationValue<?>) observation.getValue()).addQuality(new OmResultQuality() { });
+        try {
+            BinaryObservationWriter.encode(Collections.singleton(observation));
+            fail("result quality not rejected");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("quality"));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripTimes() throws IOException {
+        TimePeriod period = new TimePeriod(TIME, TIME.plusHours(1));
+        period.setGmlId("period");
+        TimeInstant indeterminate = new TimeInstant(IndeterminateValue.NOW);
+        TimePeriod open = new TimePeriod(TIME, null, null, IndeterminateValue.UNKNOWN);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryObservationWriter writer = new BinaryObservationWriter(bytes)) {
+            writer.writeTime(period);
+            writer.writeTime(indeterminate);
+            writer.writeTime(open);
+            writer.writeTime(null);
+        }
+        try (BinaryObservationReader reader = reader(bytes)) {
+            TimePeriod decoded = (TimePeriod) reader.readTime();
+            assertThat(decoded, is(period));
+            assertThat(decoded.getGmlId(), is("period"));
+            assertThat(decoded.getStart().getZone(), is(TIME.getZone()));
+            assertThat(reader.readTime(), is((Time) indeterminate));
+            assertThat(reader.readTime(), is((Time) open));
+            assertThat(reader.readTime(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void shouldRoundTripObservations() throws IOException {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SosProcedureDescriptionUnknownType("procedure"));
+        constellation.setObservableProperty(new OmObservableProperty("property", null, "degC", null));
+        SamplingFeature feature = new SamplingFeature(new CodeWithAuthority("feature"));
+        feature.setGeometry(factory.createPoint(new Coordinate(52, 7)));
+        constellation.setFeatureOfInterest(feature);
+        constellation.addOffering("offering");
+        constellation.setObservationType("type");
+        OmObservation observation = new OmObservation("observation");
+        observation.setObservationConstellation(constellation);
+        observation.setObservationID("1");
+        observation.setResultTime(new TimeInstant(TIME));
+        observation.addParameter(new NamedValue<>(new ReferenceType(OmConstants.PARAMETER_NAME_HEIGHT), new QuantityValue(2.0, "m")));
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(TIME), new QuantityValue(1.0, "degC")));
+
+        List<OmObservation> observations = BinaryObservationReader
+                .decode(BinaryObservationWriter.encode(Collections.nCopies(10, observation)));
+        assertThat(observations, hasSize(10));
+        OmObservation decoded = observations.get(9);
+        assertThat(decoded.getIdentifier(), is("observation"));
+        assertThat(decoded.getObservationID(), is("1"));
+        assertThat(decoded.getObservationConstellation(), is(constellation));
+        assertThat(decoded.getObservationConstellation().getProcedureIdentifier(), is("procedure"));
+        assertThat(((SamplingFeature) decoded.getObservationConstellation().getFeatureOfInterest()).getGeometry()
+                .equalsExact(feature.getGeometry()), is(true));
+        assertThat(decoded.getResultTime(), is(observation.getResultTime()));
+        assertThat(decoded.getPhenomenonTime(), is(observation.getPhenomenonTime()));
+        assertThat(decoded.getHeightParameter().getValue().getValue(), is(2.0));
+        assertThat(decoded.getValue().getValue().getValue(), is((Object) 1.0));
+    }
+
+    @Test
+    public void shouldUseDictionaryForRepeatedStrings() throws IOException {
+        ByteArrayOutputStream once = new ByteArrayOutputStream();
+        try (BinaryObservationWriter writer = new BinaryObservationWriter(once)) {
+            writer.writeValue(new TextValue("a long repeated text value"));
+        }
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        try (BinaryObservationWriter writer = new BinaryObservationWriter(twice)) {
+            writer.writeValue(new TextValue("a long repeated text value"));
+            writer.writeValue(new TextValue("a long repeated text value"));
+        }
+        assertThat(twice.size() - once.size(), is(lessThan(5)));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectUnknownVersion() throws IOException {
+        byte[] bytes = { 'N', '5', '2', 'O', 99 };
+        new BinaryObservationReader(new ByteArrayInputStream(bytes)).close();
+    }
+
+    private Value<?> roundTrip(Value<?> value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinaryObservationWriter writer = new BinaryObservationWriter(bytes)) {
+            writer.writeValue(value);
+        }
+        try (BinaryObservationReader reader = reader(bytes)) {
+            return reader.readValue();
+        }
+    }
+
+    private BinaryObservationReader reader(ByteArrayOutputStream bytes) throws IOException {
+        return new BinaryObservationReader(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
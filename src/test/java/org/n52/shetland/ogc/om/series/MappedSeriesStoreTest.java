@@ -0,0 +1,187 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.series;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.quality.OmResultQuality;
+import org.n52.shetland.ogc.om.series.MappedSeries.ValueType;
+import org.n52.shetland.ogc.om.series.MappedStreamingValue.QualifiedTimeValuePair;
+import org.n52.shetland.ogc.om.values.SimpleCountValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.CountingStreamingMetrics;
+
+public class MappedSeriesStoreTest {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+    private static final long STEP = 60000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedSeriesStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        this.store = new MappedSeriesStore(folder.newFolder().toPath());
+    }
+
+    @Test
+    public void shouldOnlyExposeFlushedValues() throws IOException {
+        store.create("series", ValueType.QUANTITY, "degC");
+        try (MappedSeriesWriter writer = store.openWriter("series")) {
+            writer.append(START, 1.0, 0);
+            writer.append(START + STEP, 2.0, 1);
+            writer.flush();
+            writer.append(START + 2 * STEP, 3.0, 0);
+            MappedSeries series = store.open("series");
+            assertThat(series.size(), is(2L));
+            assertThat(series.getUnit(), is("degC"));
+            assertThat(series.getDouble(1), is(2.0));
+            assertThat(series.getQuality(1), is(1));
+            assertThat(series.getLastTime(), is(START + STEP));
+        }
+        MappedSeries series = store.open("series");
+        assertThat(series.size(), is(3L));
+        assertThat(series.getDouble(2), is(3.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOutOfOrderValues() throws IOException {
+        store.create("series", ValueType.COUNT, null);
+        try (MappedSeriesWriter writer = store.openWriter("series")) {
+            writer.append(START, 1L, 0);
+            writer.append(START - STEP, 2L, 0);
+        }
+    }
+
+    @Test
+    public void shouldStreamRange() throws IOException, OwsExceptionReport {
+        store.create("series", ValueType.QUANTITY, "m");
+        try (MappedSeriesWriter writer = store.openWriter("series")) {
+            for (int i = 0; i < 100; i++) {
+                writer.append(START + i * STEP, (double) i, 0);
+            }
+        }
+        MappedSeries series = store.open("series");
+        MappedSeries.Range range = series.range(new DateTime(START + 10 * STEP, DateTimeZone.UTC),
+                                                new DateTime(START + 19 * STEP, DateTimeZone.UTC));
+        assertThat(range.size(), is(10L));
+
+        MappedStreamingValue value = new MappedStreamingValue(series, range, createTemplate(), null);
+        CountingStreamingMetrics metrics = new CountingStreamingMetrics();
+        value.setMetrics(metrics);
+        assertThat(value.getPhenomenonTime(), instanceOf(TimePeriod.class));
+        assertThat(value.getUnit(), is("m"));
+        TimeValuePair first = value.nextValue();
+        assertThat(((TimeInstant) first.getTime()).getValue().getMillis(), is(START + 10 * STEP));
+        assertThat(((SimpleQuantityValue) first.getValue()).getValue(), is(10.0));
+        List<OmObservation> observations = value.getObservation();
+        assertThat(observations, hasSize(9));
+        assertThat(observations.get(0).getObservationConstellation().getProcedureIdentifier(), is("procedure"));
+        assertThat(value.hasNextValue(), is(false));
+        assertThat(metrics.getObservationsEmitted(), is(9L));
+        assertThat(metrics.getFetches(), is(9L));
+        assertThat(metrics.getValuesStreamed(), is(10L));
+    }
+
+    @Test
+    public void shouldRecordDirectValueIteration() throws IOException, OwsExceptionReport {
+        store.create("series", ValueType.QUANTITY, "m");
+        try (MappedSeriesWriter writer = store.openWriter("series")) {
+            for (int i = 0; i < 5; i++) {
+                writer.append(START + i * STEP, (double) i, 0);
+            }
+        }
+        MappedSeries series = store.open("series");
+        MappedStreamingValue value = new MappedStreamingValue(series, null, null, createTemplate());
+        CountingStreamingMetrics metrics = new CountingStreamingMetrics();
+        value.setMetrics(metrics);
+        while (value.hasNextValue()) {
+            value.nextValue();
+        }
+        assertThat(metrics.getValuesStreamed(), is(5L));
+        assertThat(metrics.getObservationsEmitted(), is(0L));
+    }
+
+    @Test
+    public void shouldStreamQualityAndReleaseSegmentsOnClose() throws IOException, OwsExceptionReport {
+        store.create("series", ValueType.COUNT, null);
+        try (MappedSeriesWriter writer = store.openWriter("series")) {
+            writer.append(START, 1L, 0);
+            writer.append(START + STEP, 2L, 7);
+        }
+        OmResultQuality flagged = new OmResultQuality() { };
+        MappedSeries series = store.open("series");
+        MappedStreamingValue value = new MappedStreamingValue(series, series.range(null, null), createTemplate(),
+                                                              flag -> flag == 0 ? null : flagged);
+        TimeValuePair first = value.nextValue();
+        assertThat(((QualifiedTimeValuePair) first).getQuality(), is(empty()));
+        OmObservation observation = value.nextSingleObservation();
+        assertThat(observation.getValue().getValue(), instanceOf(SimpleCountValue.class));
+        assertThat(observation.getValue().getValue().getValue(), is(2));
+        Set<OmResultQuality> quality = ((SingleObservationValue<?>) observation.getValue()).getQualityList();
+        assertThat(quality, contains(flagged));
+        quality.clear();
+
+        series.close();
+        try {
+            series.getTime(0);
+            fail("closed series accessible");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString("closed"));
+        }
+    }
+
+    private OmObservation createTemplate() {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SamplingFeature(new CodeWithAuthority("procedure")));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        constellation.setObservableProperty(new OmObservableProperty("property"));
+        OmObservation template = new OmObservation();
+        template.setObservationConstellation(constellation);
+        return template;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.CodeType;
+import org.n52.shetland.ogc.om.values.ColumnarProfileValue.ColumnType;
+import org.n52.shetland.ogc.swe.SweDataArray;
+import org.n52.shetland.ogc.swe.SweDataRecord;
+
+public class ColumnarProfileValueTest {
+
+    @Test
+    public void shouldTrackLevelBoundsOnInsert() {
+        ColumnarProfileValue profile = new ColumnarProfileValue("profile").setLevelUnit("m");
+        int temperature = profile.addColumn(ColumnType.QUANTITY, "temperature", "temp", "degC");
+        for (int i = 0; i < 100; i++) {
+            profile.setQuantity(profile.addLevel(i + 1.0, i + 2.0), temperature, 10.0 - i * 0.1);
+        }
+        assertThat(profile.getLevelCount(), is(100));
+        assertThat(profile.getFromLevel().getValue(), is(1.0));
+        assertThat(profile.getFromLevel().getUom(), is("m"));
+        assertThat(profile.getToLevel().getValue(), is(101.0));
+
+        ProfileLevel level = profile.getValue().get(99);
+        assertThat(level.getLevelStart().getValue(), is(100.0));
+        assertThat(level.getValue(), hasSize(1));
+        assertThat(((QuantityValue) level.getSimpleValue()).getUnit(), is("degC"));
+    }
+
+    @Test
+    public void shouldConvertProfileLevels() {
+        ColumnarProfileValue profile = new ColumnarProfileValue("profile");
+        profile.addValue(new ProfileLevel(new QuantityValue(5.0, "m"), new QuantityValue(10.0, "m"),
+                                          Arrays.asList(new QuantityValue(1.5, "degC"), new BooleanValue(true))));
+        profile.addValue(new ProfileLevel(new QuantityValue(0.0, "m"), null,
+                                          Arrays.asList(new BooleanValue(false))));
+        assertThat(profile.getColumnCount(), is(2));
+        assertThat(profile.getColumnType(1), is(ColumnType.BOOLEAN));
+        assertThat(profile.getFromLevel().getValue(), is(0.0));
+        assertThat(profile.getToLevel().getValue(), is(10.0));
+        assertThat(profile.isSetColumnValue(1, 0), is(false));
+        assertThat(profile.getColumnValue(1, 0), is(nullValue()));
+        assertThat(profile.getValue().get(1).getLevelEnd(), is(nullValue()));
+
+        SweDataArray array = profile.asDataArray();
+        assertThat(((SweDataRecord) array.getElementType()).getFields(), hasSize(4));
+        List<List<String>> values = array.getValues();
+        assertThat(values, hasSize(2));
+        assertThat(values.get(0), is(Arrays.asList("5.0", "10.0", "1.5", "true")));
+        assertThat(values.get(1), is(Arrays.asList("0.0", "", "", "false")));
+
+        SweDataRecord record = profile.asDataRecord();
+        assertThat(record.getFields(), hasSize(2));
+        SweDataRecord level = (SweDataRecord) record.getFields().get(0).getElement();
+        assertThat(level.getFields(), hasSize(4));
+        assertThat(level.getFields().get(2).getName().getValue(), is("component_0"));
+        profile.addLevel(20.0, 30.0);
+        assertThat(record.getFields(), hasSize(3));
+        profile.setName(new CodeType("name"));
+        assertThat(profile.asDataRecord().getName().getValue(), is("name"));
+        assertThat(profile.getToLevel(), instanceOf(QuantityValue.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldRejectModifiedLevels() {
+        ColumnarProfileValue profile = new ColumnarProfileValue("profile");
+        profile.addValue(new ProfileLevel(new QuantityValue(5.0, "m"), null,
+                                          Arrays.asList(new QuantityValue(1.5, "degC"))));
+        profile.getValue().get(0).addValue(new BooleanValue(true));
+    }
+
+    @Test
+    public void shouldConvertSimpleValues() {
+        ColumnarProfileValue profile = new ColumnarProfileValue("profile");
+        profile.addValue(new ProfileLevel(new QuantityValue(5.0, "m"), null,
+                                          Arrays.asList(new SimpleQuantityValue(1.5, "degC"),
+                                                        new SimpleCountValue(3),
+                                                        new SimpleBooleanValue(true),
+                                                        new SimpleCategoryValue("category", "codespace"),
+                                                        new SimpleTextValue("text"))));
+        assertThat(profile.getColumnCount(), is(5));
+        assertThat(profile.getColumnType(0), is(ColumnType.QUANTITY));
+        assertThat(profile.getColumnType(4), is(ColumnType.TEXT));
+        assertThat(profile.asDataArray().getValues().get(0),
+                   is(Arrays.asList("5.0", "", "1.5", "3", "true", "category", "text")));
+    }
+}
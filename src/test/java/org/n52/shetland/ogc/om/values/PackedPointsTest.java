@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.TimeLocationValueTriple;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+public class PackedPointsTest {
+
+    private final GeometryFactory factory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    @Test
+    public void shouldComputeEnvelopeExtent() {
+        PackedMultiPointCoverage coverage = new PackedMultiPointCoverage("coverage");
+        coverage.addValue(new PointValuePair(factory.createPoint(new Coordinate(5, 1)), new QuantityValue(1.0, "m")));
+        coverage.addQuantity(1, 2, Double.NaN, 2.0);
+        coverage.addQuantity(3, 7, Double.NaN, 3.0);
+        assertThat(coverage.getEnvelope(), is(new Envelope(1, 5, 1, 7)));
+        Polygon extent = coverage.getExtent();
+        assertThat(extent.getEnvelopeInternal(), is(new Envelope(1, 5, 1, 7)));
+        assertThat(extent.getSRID(), is(4326));
+
+        List<PointValuePair> values = coverage.getValue();
+        assertThat(values.get(0).getPoint().getX(), is(1.0));
+        assertThat(((QuantityValue) values.get(0).getValue()).getValue(), is(2.0));
+        assertThat(((QuantityValue) values.get(0).getValue()).getUnit(), is("m"));
+        assertThat(coverage.getCoordinates().get(3), is(1.0));
+    }
+
+    @Test
+    public void shouldPackTrajectory() {
+        long start = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+        PackedTLVTValue trajectory = new PackedTLVTValue();
+        trajectory.add(start + 1000, 7.0, 51.0, 10.0, new QuantityValue(2.0));
+        trajectory.add(start, 7.1, 51.1, 12.0, new QuantityValue(1.0));
+        trajectory.addValue(new TimeLocationValueTriple(new TimeInstant(new DateTime(start + 2000, DateTimeZone.UTC)),
+                                                        new TextValue("text"),
+                                                        factory.createPoint(new Coordinate(7.2, 50.9))));
+        assertThat(trajectory.size(), is(3));
+        assertThat(trajectory.getEnvelope(), is(new Envelope(7.0, 7.2, 50.9, 51.1)));
+        TimePeriod phenomenonTime = (TimePeriod) trajectory.getPhenomenonTime();
+        assertThat(phenomenonTime.getStart().getMillis(), is(start));
+        assertThat(phenomenonTime.getEnd().getMillis(), is(start + 2000));
+
+        List<TimeLocationValueTriple> values = trajectory.getValue();
+        assertThat(((QuantityValue) values.get(0).getValue()).getValue(), is(1.0));
+        assertThat(values.get(0).getLocation().getCoordinate().z, is(12.0));
+        assertThat(values.get(2).getValue(), instanceOf(TextValue.class));
+        assertThat(trajectory.getTimes().get(1), is(start));
+    }
+
+    @Test
+    public void shouldKeepInsertionOrderWhenReadingSorted() {
+        PackedMultiPointCoverage coverage = new PackedMultiPointCoverage("coverage");
+        coverage.addQuantity(3, 1, Double.NaN, 3.0);
+        coverage.addQuantity(1, 1, Double.NaN, 1.0);
+        coverage.add(2, 1, Double.NaN, new TextValue("two"));
+
+        List<Value<?>> rangeSet = coverage.getRangeSet();
+        assertThat(rangeSet.get(0).getValue(), is(1.0));
+        assertThat(rangeSet.get(1).getValue(), is("two"));
+        assertThat(coverage.getRangeValue(0).getValue(), is(3.0));
+        assertThat(coverage.getPoint(1).getX(), is(1.0));
+        assertThat(coverage.getCoordinates().get(0), is(3.0));
+
+        coverage.addQuantity(0, 1, Double.NaN, 0.0);
+        assertThat(coverage.getValue().get(0).getPoint().getX(), is(0.0));
+        assertThat(coverage.getRangeValue(3).getValue(), is(0.0));
+    }
+
+    @Test
+    public void shouldNotPackMissingValues() {
+        PackedMultiPointCoverage coverage = new PackedMultiPointCoverage("coverage");
+        coverage.add(1, 1, Double.NaN, null);
+        coverage.addQuantity(2, 1, Double.NaN, 2.0);
+        assertThat(coverage.getRangeValue(0), is(nullValue()));
+        assertThat(coverage.getRangeValue(1).getValue(), is(2.0));
+    }
+}
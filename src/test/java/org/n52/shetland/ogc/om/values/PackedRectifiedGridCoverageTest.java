@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.om.values.PackedRectifiedGridCoverage.RangeType;
+
+public class PackedRectifiedGridCoverageTest {
+
+    @Test
+    public void shouldKeepDomainSortedAndReplaceExistingKeys() {
+        PackedRectifiedGridCoverage coverage = new PackedRectifiedGridCoverage("grid", RangeType.QUANTITY);
+        for (int i = 0; i < 20; i++) {
+            coverage.addQuantity(i * 2.0, i);
+        }
+        coverage.addQuantity(3.0, 100.0);
+        coverage.addValue(4.0, new QuantityValue(200.0));
+        assertThat(coverage.size(), is(21));
+        assertThat(coverage.indexOf(3.0), is(2));
+        assertThat(coverage.getQuantity(2), is(100.0));
+        assertThat(coverage.getQuantity(3), is(200.0));
+        assertThat(coverage.indexOf(5.0), is(-5));
+        assertThat(coverage.getDomainSet().subList(0, 4), contains(0.0, 2.0, 3.0, 4.0));
+    }
+
+    @Test
+    public void shouldSliceWithoutCopying() {
+        double[] domain = { 1.0, 2.0, 3.0, 4.0, 5.0 };
+        double[] range = { 10.0, 20.0, 30.0, 40.0, 50.0 };
+        PackedRectifiedGridCoverage coverage = new PackedRectifiedGridCoverage("grid", domain, range);
+        coverage.setUnit("m");
+        PackedRectifiedGridCoverage slice = coverage.slice(2.0, 4.0);
+        assertThat(slice.size(), is(2));
+        assertThat(slice.isReadOnly(), is(true));
+        assertThat(slice.getDomainSet(), contains(2.0, 3.0));
+        assertThat(slice.getQuantityBuffer().get(1), is(30.0));
+        range[2] = 31.0;
+        assertThat(slice.getQuantity(1), is(31.0));
+        assertThat(((QuantityValue) slice.getRangeValue(0)).getUnit(), is("m"));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void shouldInvalidateSlicesOnModification() {
+        PackedRectifiedGridCoverage coverage = new PackedRectifiedGridCoverage("grid", RangeType.QUANTITY);
+        coverage.addQuantity(1.0, 10.0).addQuantity(3.0, 30.0);
+        PackedRectifiedGridCoverage slice = coverage.slice(1.0, 4.0).slice(2.0, 4.0);
+        assertThat(slice.getQuantity(0), is(30.0));
+        coverage.addQuantity(2.0, 20.0);
+        slice.getQuantity(0);
+    }
+
+    @Test
+    public void shouldHandleMissingRangeValues() {
+        PackedRectifiedGridCoverage quantities = new PackedRectifiedGridCoverage("grid", RangeType.QUANTITY);
+        quantities.addValue(1.0, null);
+        assertThat(quantities.getQuantity(0), is(Double.NaN));
+        PackedRectifiedGridCoverage counts = new PackedRectifiedGridCoverage("grid", RangeType.COUNT);
+        try {
+            counts.addValue(1.0, new CountValue(null));
+            fail("missing count accepted");
+        } catch (IllegalArgumentException e) {
+            assertThat(counts.size(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldAcceptSimpleValues() {
+        PackedRectifiedGridCoverage quantities = new PackedRectifiedGridCoverage("grid", RangeType.QUANTITY);
+        quantities.addValue(1.0, new SimpleQuantityValue(10.0));
+        quantities.addValue(2.0, new QuantityValue(20.0));
+        assertThat(quantities.getQuantity(0), is(10.0));
+        assertThat(quantities.getQuantity(1), is(20.0));
+        PackedRectifiedGridCoverage counts = new PackedRectifiedGridCoverage("grid", RangeType.COUNT);
+        counts.addValue(1.0, new SimpleCountValue(3));
+        assertThat(counts.getCount(0), is(3));
+        PackedRectifiedGridCoverage booleans = new PackedRectifiedGridCoverage("grid", RangeType.BOOLEAN);
+        booleans.addValue(1.0, new SimpleBooleanValue(true));
+        assertThat(booleans.getBoolean(0), is(true));
+        PackedRectifiedGridCoverage categories = new PackedRectifiedGridCoverage("grid", RangeType.CATEGORY);
+        categories.addValue(1.0, new SimpleCategoryValue("a"));
+        assertThat(categories.getCategory(0), is("a"));
+    }
+
+    @Test
+    public void shouldAdaptToSortedMap() {
+        PackedRectifiedGridCoverage coverage = new PackedRectifiedGridCoverage("grid", RangeType.COUNT);
+        coverage.addCount(1.0, 1).addCount(2.0, 2).addCount(3.0, 3);
+        SortedMap<Double, Value<?>> map = coverage.getValue();
+        assertThat(map.size(), is(3));
+        assertThat(map.firstKey(), is(1.0));
+        assertThat(map.lastKey(), is(3.0));
+        assertThat(((CountValue) map.get(2.0)).getValue(), is(2));
+        assertThat(map.get(2.5), is(nullValue()));
+        assertThat(map.tailMap(2.0).keySet(), contains(2.0, 3.0));
+        assertThat(map.headMap(2.0).keySet(), contains(1.0));
+        int sum = 0;
+        for (Map.Entry<Double, Value<?>> entry : map.entrySet()) {
+            sum += ((CountValue) entry.getValue()).getValue();
+        }
+        assertThat(sum, is(6));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.om.values;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.UoM;
+import org.n52.shetland.ogc.om.OmConstants;
+import org.n52.shetland.util.OMHelper;
+
+public class SimpleValueTest {
+
+    @Test
+    public void shouldConvertQuantityToSweValue() {
+        QuantityValue quantity = new SimpleQuantityValue(1.5, "m").toSweValue();
+        assertThat(quantity.getValue(), is(1.5));
+        assertThat(quantity.getUnit(), is("m"));
+        QuantityValue unitless = new SimpleQuantityValue(1.5).toSweValue();
+        assertThat(unitless.getValue(), is(1.5));
+        assertThat(unitless.isSetUnit(), is(false));
+        assertThat(new SimpleQuantityValue(null, "m").isSetValue(), is(false));
+        assertThat(new SimpleQuantityValue(null, "m").toSweValue().isSetValue(), is(false));
+    }
+
+    @Test
+    public void shouldConvertCountToSweValue() {
+        CountValue count = new SimpleCountValue(3, "items").toSweValue();
+        assertThat(count.getValue(), is(3));
+        assertThat(count.getUnit(), is("items"));
+        assertThat(new SimpleCountValue(3).toSweValue().isSetUnit(), is(false));
+        assertThat(new SimpleCountValue(null).isSetValue(), is(false));
+        assertThat(new SimpleCountValue(null).toSweValue().isSetValue(), is(false));
+    }
+
+    @Test
+    public void shouldConvertBooleanToSweValue() {
+        BooleanValue bool = new SimpleBooleanValue(true, new UoM("flag")).toSweValue();
+        assertThat(bool.getValue(), is(true));
+        assertThat(bool.getUnit(), is("flag"));
+        assertThat(new SimpleBooleanValue(false).toSweValue().getValue(), is(false));
+        assertThat(new SimpleBooleanValue(false).toSweValue().isSetUnit(), is(false));
+        assertThat(new SimpleBooleanValue(null).isSetValue(), is(false));
+        assertThat(new SimpleBooleanValue(null).toSweValue().isSetValue(), is(false));
+    }
+
+    @Test
+    public void shouldConvertCategoryToSweValue() {
+        CategoryValue category = new SimpleCategoryValue("a", "codespace").toSweValue();
+        assertThat(category.getValue(), is("a"));
+        assertThat(category.getUnit(), is("codespace"));
+        assertThat(new SimpleCategoryValue("a").toSweValue().isSetUnit(), is(false));
+        assertThat(new SimpleCategoryValue("").isSetValue(), is(false));
+        assertThat(new SimpleCategoryValue(null).isSetValue(), is(false));
+        assertThat(new SimpleCategoryValue(null).toSweValue().isSetValue(), is(false));
+    }
+
+    @Test
+    public void shouldConvertTextToSweValue() {
+        TextValue text = new SimpleTextValue("text", "lang").toSweValue();
+        assertThat(text.getValue(), is("text"));
+        assertThat(text.getUnit(), is("lang"));
+        assertThat(new SimpleTextValue("text").toSweValue().isSetUnit(), is(false));
+        assertThat(new SimpleTextValue("").isSetValue(), is(false));
+        assertThat(new SimpleTextValue(null).isSetValue(), is(false));
+        assertThat(new SimpleTextValue(null).toSweValue().isSetValue(), is(false));
+    }
+
+    @Test
+    public void shouldSetUnit() {
+        SimpleQuantityValue quantity = new SimpleQuantityValue(1.0);
+        assertThat(quantity.getUnit(), is(nullValue()));
+        quantity.setUnit("m");
+        assertThat(quantity.getUnitObject(), is(new UoM("m")));
+        quantity.setUnit((String) null);
+        assertThat(quantity.isSetUnit(), is(false));
+        assertThat(quantity.setUnit(new UoM("s")).getUnit(), is("s"));
+    }
+
+    @Test
+    public void shouldCompareValueAndUnit() {
+        assertEqual(new SimpleQuantityValue(1.0, "m"), new SimpleQuantityValue(1.0, new UoM("m")));
+        assertThat(new SimpleQuantityValue(1.0, "m"), is(not(new SimpleQuantityValue(1.0, "s"))));
+        assertThat(new SimpleQuantityValue(1.0, "m"), is(not(new SimpleQuantityValue(1.0))));
+        assertThat(new SimpleQuantityValue(1.0), is(not(new SimpleQuantityValue(2.0))));
+
+        assertEqual(new SimpleCountValue(1), new SimpleCountValue(1));
+        assertThat(new SimpleCountValue(1), is(not(new SimpleCountValue(1, "m"))));
+
+        assertEqual(new SimpleBooleanValue(true, "flag"), new SimpleBooleanValue(true, "flag"));
+        assertThat(new SimpleBooleanValue(true, "flag"), is(not(new SimpleBooleanValue(true, "other"))));
+
+        assertEqual(new SimpleCategoryValue(null), new SimpleCategoryValue(null));
+        assertThat(new SimpleCategoryValue("a", "x"), is(not(new SimpleCategoryValue("a", "y"))));
+
+        assertEqual(new SimpleTextValue("a", "en"), new SimpleTextValue("a", "en"));
+        assertThat(new SimpleTextValue("a", "en"), is(not(new SimpleTextValue("a", "de"))));
+    }
+
+    @Test
+    public void shouldNotEqualOtherValueTypes() {
+        assertThat(new SimpleCategoryValue("a"), is(not((Object) new SimpleTextValue("a"))));
+        assertThat(new SimpleQuantityValue(1.0), is(not((Object) new QuantityValue(1.0))));
+    }
+
+    @Test
+    public void shouldDispatchToSweValueByDefault() {
+        assertThat(OMHelper.getObservationTypeFor(new SimpleQuantityValue(1.0, "m")),
+                   is(OmConstants.OBS_TYPE_MEASUREMENT));
+        assertThat(OMHelper.getObservationTypeFor(new SimpleCountValue(1)),
+                   is(OmConstants.OBS_TYPE_COUNT_OBSERVATION));
+        assertThat(OMHelper.getObservationTypeFor(new SimpleBooleanValue(true)),
+                   is(OmConstants.OBS_TYPE_TRUTH_OBSERVATION));
+        assertThat(OMHelper.getObservationTypeFor(new SimpleCategoryValue("a")),
+                   is(OmConstants.OBS_TYPE_CATEGORY_OBSERVATION));
+        assertThat(OMHelper.getObservationTypeFor(new SimpleTextValue("a")),
+                   is(OmConstants.OBS_TYPE_TEXT_OBSERVATION));
+    }
+
+    private static void assertEqual(Value<?> a, Value<?> b) {
+        assertThat(a, is(b));
+        assertThat(b, is(a));
+        assertThat(a.hashCode(), is(b.hashCode()));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.ows.service;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.ows.OWSConstants.CapabilitiesSection;
+import org.n52.shetland.ogc.ows.OwsCapabilities;
+import org.n52.shetland.ogc.ows.exception.InvalidUpdateSequenceException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.SosCapabilities;
+
+public class GetCapabilitiesCacheTest {
+
+    private final List<Set<String>> created = new ArrayList<>();
+    private final AtomicReference<String> updateSequence = new AtomicReference<>("1");
+    private final GetCapabilitiesCache cache = new GetCapabilitiesCache((service, sections, language) -> {
+        created.add(sections);
+        return new SosCapabilities(new OwsCapabilities(service.getService(), service.getVersion(),
+                                                       updateSequence.get(), null, null, null, null, null));
+    }, updateSequence::get, 10);
+
+    @Test
+    public void shouldCacheCapabilitiesPerSections() throws OwsExceptionReport {
+        OwsCapabilities all = cache.get(request()).getCapabilities();
+        cache.get(request(CapabilitiesSection.All.name()));
+        assertThat(created, contains(Collections.singleton(CapabilitiesSection.All.name())));
+
+        cache.get(request("Contents", "ServiceIdentification"));
+        cache.get(request("ServiceIdentification", "Contents"));
+        assertThat(created.size(), is(2));
+        assertThat(created.get(1), contains("Contents", "ServiceIdentification"));
+        assertThat(all, instanceOf(SosCapabilities.class));
+    }
+
+    @Test
+    public void shouldReturnCopies() throws OwsExceptionReport {
+        OwsCapabilities first = cache.get(request()).getCapabilities();
+        first.setUpdateSequence("changed");
+        OwsCapabilities second = cache.get(request()).getCapabilities();
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second, instanceOf(SosCapabilities.class));
+        assertThat(second.getUpdateSequence().get(), is("1"));
+        assertThat(created.size(), is(1));
+    }
+
+    @Test
+    public void shouldInvalidateOnUpdateSequenceChange() throws OwsExceptionReport {
+        cache.get(request());
+        updateSequence.set("2");
+        assertThat(cache.get(request()).getCapabilities().getUpdateSequence().get(), is("2"));
+        assertThat(created.size(), is(2));
+        cache.invalidate();
+        cache.get(request());
+        assertThat(created.size(), is(3));
+    }
+
+    @Test
+    public void shouldAnswerCurrentUpdateSequenceWithoutSections() throws OwsExceptionReport {
+        GetCapabilitiesRequest request = request();
+        request.setUpdateSequence("1");
+        OwsCapabilities capabilities = cache.get(request).getCapabilities();
+        assertThat(capabilities.getUpdateSequence().get(), is("1"));
+        assertThat(capabilities.getServiceIdentification().isPresent(), is(false));
+        assertThat(created.isEmpty(), is(true));
+    }
+
+    @Test(expected = InvalidUpdateSequenceException.class)
+    public void shouldRejectGreaterUpdateSequence() throws OwsExceptionReport {
+        GetCapabilitiesRequest request = request();
+        request.setUpdateSequence("10");
+        cache.get(request);
+    }
+
+    private static GetCapabilitiesRequest request(String... sections) {
+        GetCapabilitiesRequest request = new GetCapabilitiesRequest("SOS");
+        request.addAcceptVersion("2.0.0");
+        if (sections.length > 0) {
+            request.setSections(Arrays.asList(sections));
+        }
+        return request;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequest;
+import org.n52.shetland.ogc.ows.service.OwsServiceResponse;
+import org.n52.shetland.ogc.sos.request.BatchRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.response.BatchResponse;
+import org.n52.shetland.ogc.sos.response.InsertObservationResponse;
+
+public class BatchExecutorTest {
+
+    private static final int SIZE = 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldKeepOrderOfRequests() throws Exception {
+        BatchResponse response = new BatchExecutor(executor, 4).execute(createBatch(false), this::handle);
+        assertThat(response.getResponses(), hasSize(SIZE));
+        for (int i = 0; i < SIZE; i++) {
+            BatchResponse.ExceptionOrResponse eor = response.getResponses().get(i);
+            assertThat(eor.isException(), is(false));
+            assertThat(eor.getResponse().getVersion(), is(String.valueOf(i)));
+            assertThat(eor.getDuration().isPresent(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldStopAtFirstFailure() throws Exception {
+        BatchResponse response = new BatchExecutor(executor, 4).execute(createBatch(true), this::fail);
+        assertThat(response.getResponses(), hasSize(6));
+        for (int i = 0; i < 5; i++) {
+            assertThat(response.getResponses().get(i).isException(), is(false));
+        }
+        assertThat(response.getResponses().get(5).isException(), is(true));
+    }
+
+    @Test
+    public void shouldContinueAfterFailure() throws Exception {
+        BatchResponse response = new BatchExecutor(executor, 4).execute(createBatch(false), this::fail);
+        assertThat(response.getResponses(), hasSize(SIZE));
+        assertThat(response.getResponses().get(5).isException(), is(true));
+        assertThat(response.getResponses().get(6).isException(), is(false));
+    }
+
+    private BatchRequest createBatch(boolean stopAtFailure) {
+        BatchRequest batch = new BatchRequest();
+        batch.setStopAtFailure(stopAtFailure);
+        for (int i = 0; i < SIZE; i++) {
+            batch.add(new InsertObservationRequest(SosConstants.SOS, String.valueOf(i)));
+        }
+        return batch;
+    }
+
+    private OwsServiceResponse handle(OwsServiceRequest request) {
+        try {
+            // let later requests finish earlier
+            Thread.sleep(SIZE - Integer.parseInt(request.getVersion()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new InsertObservationResponse(request.getService(), request.getVersion());
+    }
+
+    private OwsServiceResponse fail(OwsServiceRequest request) throws NoApplicableCodeException {
+        if (request.getVersion().equals("5")) {
+            throw new NoApplicableCodeException();
+        }
+        return handle(request);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.ows.exception.NoApplicableCodeException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.RequestCanonicalizer;
+import org.n52.shetland.ogc.sos.request.RequestKey;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+
+public class GetObservationCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldShareComputation() throws Exception {
+        CountDownLatch joined = new CountDownLatch(CALLERS - 1);
+        GetObservationCoalescer coalescer = new GetObservationCoalescer(executor, new RequestCanonicalizer(),
+                                                                        Duration.ofSeconds(10)) {
+            @Override
+            protected void joined(RequestKey key) {
+                joined.countDown();
+            }
+        };
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<GetObservationResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            responses.add(executor.submit(() -> coalescer.execute(createRequest(), request -> {
+                computations.incrementAndGet();
+                return createResponse(release);
+            })));
+        }
+        assertThat(joined.await(10, TimeUnit.SECONDS), is(true));
+        release.countDown();
+        GetObservationResponse first = responses.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<GetObservationResponse> response : responses) {
+            GetObservationResponse copy = response.get(10, TimeUnit.SECONDS);
+            assertThat(copy.getObservationCollection(), hasSize(1));
+            if (copy != first) {
+                OmObservation observation = copy.getObservationCollection().get(0);
+                assertThat(observation, is(not(sameInstance(first.getObservationCollection().get(0)))));
+                observation.setObservationID("other");
+                copy.setResponseFormat("other");
+                assertThat(first.getResponseFormat(), is(not("other")));
+                assertThat(first.getObservationCollection().get(0).getObservationID(), is(not("other")));
+            }
+        }
+        assertThat(computations.get(), is(1));
+        assertThat(coalescer.getInFlight(), is(0));
+    }
+
+    @Test
+    public void shouldCancelAbandonedComputation() throws Exception {
+        GetObservationCoalescer coalescer = new GetObservationCoalescer(executor, new RequestCanonicalizer(),
+                                                                        Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try {
+            coalescer.execute(createRequest(), request -> {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return createResponse();
+            });
+        } catch (NoApplicableCodeException e) {
+            assertThat(interrupted.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(coalescer.getInFlight(), is(0));
+            return;
+        }
+        throw new AssertionError("timeout not detected");
+    }
+
+    private static GetObservationRequest createRequest() {
+        GetObservationRequest request = new GetObservationRequest("SOS", "2.0.0");
+        request.setProcedures(Collections.singletonList("procedure"));
+        return request;
+    }
+
+    private static GetObservationResponse createResponse(CountDownLatch latch) throws OwsExceptionReport {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new NoApplicableCodeException().causedBy(e);
+        }
+        return createResponse();
+    }
+
+    private static GetObservationResponse createResponse() {
+        GetObservationResponse response = new GetObservationResponse("SOS", "2.0.0");
+        response.setResponseFormat("format");
+        response.setObservationCollection(Collections.singletonList(new OmObservation()));
+        return response;
+    }
+}
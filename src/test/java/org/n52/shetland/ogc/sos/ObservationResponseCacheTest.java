@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.request.GetObservationRequest;
+import org.n52.shetland.ogc.sos.request.GetResultRequest;
+import org.n52.shetland.ogc.sos.request.RequestCanonicalizer;
+import org.n52.shetland.ogc.sos.response.GetObservationResponse;
+import org.n52.shetland.ogc.sos.response.GetResultResponse;
+
+import com.google.common.base.Ticker;
+
+public class ObservationResponseCacheTest {
+
+    private static final DateTime START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final ManualTicker ticker = new ManualTicker();
+
+    private final ObservationResponseCache cache = new ObservationResponseCache(
+            new RequestCanonicalizer(), 1024 * 1024, Duration.ofHours(1), Duration.ofSeconds(10), ticker);
+
+    @Test
+    public void shouldUseTimeToLiveDependingOnTemporalFilter() throws OwsExceptionReport {
+        GetObservationRequest historical = createRequest("p1");
+        historical.setTemporalFilters(Collections.singletonList(
+                new TemporalFilter(TimeOperator.TM_During, new TimePeriod(START, START.plusDays(1)), "om:resultTime")));
+        GetObservationRequest latest = createRequest("p1");
+        latest.setTemporalFilters(Collections.singletonList(
+                new TemporalFilter(TimeOperator.TM_Equals, new TimeInstant(ExtendedIndeterminateTime.LATEST),
+                                   "om:resultTime")));
+        put(cache, historical, createResponse());
+        put(cache, latest, createResponse());
+        assertThat(cache.get(createRequest("p1")).isPresent(), is(false));
+        assertThat(cache.get(historical).isPresent(), is(true));
+        assertThat(cache.get(latest).isPresent(), is(true));
+        ticker.advance(Duration.ofMinutes(1));
+        assertThat(cache.get(historical).isPresent(), is(true));
+        assertThat(cache.get(latest).isPresent(), is(false));
+        ticker.advance(Duration.ofHours(1));
+        assertThat(cache.get(historical).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldInvalidateSelectively() throws OwsExceptionReport {
+        put(cache, createRequest("p1"), createResponse());
+        put(cache, createRequest("p2"), createResponse());
+        GetResultRequest result = new GetResultRequest("SOS", "2.0.0");
+        result.setOffering("o1");
+        result.setObservedProperty("op");
+        GetResultResponse resultResponse = new GetResultResponse("SOS", "2.0.0");
+        resultResponse.setResultValues("1@2017-01-01T00:00:00Z,1.0");
+        assertThat(cache.put(result, cache.generation(result), resultResponse), is(true));
+        assertThat(cache.size(), is(3L));
+
+        cache.invalidate(createConstellation("p1", "o2"));
+        assertThat(cache.get(createRequest("p1")).isPresent(), is(false));
+        assertThat(cache.get(createRequest("p2")).isPresent(), is(true));
+        assertThat(cache.get(result).get().getResultValues(), is(resultResponse.getResultValues()));
+
+        cache.invalidate(createConstellation("p3", "o1"));
+        assertThat(cache.get(result).isPresent(), is(false));
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void shouldEvictByWeight() throws OwsExceptionReport {
+        ObservationResponseCache small = new ObservationResponseCache(
+                new RequestCanonicalizer(), 8192, Duration.ofHours(1), Duration.ofHours(1), ticker);
+        for (int i = 0; i < 10; i++) {
+            put(small, createRequest("p" + i), createResponse());
+        }
+        assertThat(small.size() < 10, is(true));
+    }
+
+    @Test
+    public void shouldNotCacheResponsesLargerThanASegment() throws OwsExceptionReport {
+        ObservationResponseCache small = new ObservationResponseCache(
+                new RequestCanonicalizer(), 4096, Duration.ofHours(1), Duration.ofHours(1), ticker);
+        GetObservationRequest request = createRequest("p1");
+        assertThat(small.put(request, small.generation(request), createResponse()), is(false));
+        assertThat(small.get(request).isPresent(), is(false));
+        assertThat(small.size(), is(0L));
+    }
+
+    @Test
+    public void shouldNotShareResponsesWithCaller() throws OwsExceptionReport {
+        GetObservationRequest request = createRequest("p1");
+        GetObservationResponse response = createResponse();
+        response.getObservationCollection().get(0).setObservationID("o1");
+        put(cache, request, response);
+        response.getObservationCollection().get(0).setObservationID("modified");
+        assertThat(cache.get(request).get().getObservationCollection().get(0).getObservationID(), is("o1"));
+    }
+
+    @Test
+    public void shouldNotCacheResponsesComputedBeforeInvalidation() throws OwsExceptionReport {
+        GetObservationRequest p1 = createRequest("p1");
+        GetObservationRequest p2 = createRequest("p2");
+        ObservationResponseCache.Generation g1 = cache.generation(p1);
+        ObservationResponseCache.Generation g2 = cache.generation(p2);
+        cache.invalidate(createConstellation("p1", "o1"));
+        assertThat(cache.put(p1, g1, createResponse()), is(false));
+        assertThat(cache.put(p2, g2, createResponse()), is(true));
+        assertThat(cache.get(p1).isPresent(), is(false));
+        assertThat(cache.get(p2).isPresent(), is(true));
+        assertThat(cache.put(p1, cache.generation(p1), createResponse()), is(true));
+
+        GetObservationRequest offering = new GetObservationRequest("SOS", "2.0.0");
+        offering.setOfferings(Collections.singletonList("o1"));
+        ObservationResponseCache.Generation unrestricted = cache.generation(new GetObservationRequest("SOS", "2.0.0"));
+        ObservationResponseCache.Generation restricted = cache.generation(offering);
+        cache.invalidate(createConstellation("p3", "o2"));
+        assertThat(cache.put(new GetObservationRequest("SOS", "2.0.0"), unrestricted, createResponse()), is(false));
+        assertThat(cache.put(offering, restricted, createResponse()), is(true));
+
+        ObservationResponseCache.Generation all = cache.generation(p2);
+        cache.invalidateAll();
+        assertThat(cache.put(p2, all, createResponse()), is(false));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void shouldInvalidateConstellationsWithoutIdentifiers() throws OwsExceptionReport {
+        put(cache, createRequest("p1"), createResponse());
+        GetObservationRequest offering = new GetObservationRequest("SOS", "2.0.0");
+        offering.setOfferings(Collections.singletonList("o1"));
+        put(cache, offering, createResponse());
+        OmObservationConstellation constellation = createConstellation("p2", "o2");
+        constellation.setProcedure(new SamplingFeature(null));
+        cache.invalidate(constellation);
+        assertThat(cache.get(createRequest("p1")).isPresent(), is(false));
+        assertThat(cache.get(offering).isPresent(), is(true));
+    }
+
+    @Test
+    public void shouldExpireResponsesWithoutReadingThem() throws OwsExceptionReport {
+        put(cache, createRequest("p1"), createResponse());
+        assertThat(cache.size(), is(1L));
+        ticker.advance(Duration.ofMinutes(1));
+        assertThat(cache.size(), is(0L));
+        put(cache, createRequest("p2"), createResponse());
+        put(cache, createRequest("p2"), createResponse());
+        assertThat(cache.size(), is(1L));
+    }
+
+    private static void put(ObservationResponseCache cache, GetObservationRequest request,
+                            GetObservationResponse response) throws OwsExceptionReport {
+        assertThat(cache.put(request, cache.generation(request), response), is(true));
+    }
+
+    private static GetObservationRequest createRequest(String procedure) {
+        GetObservationRequest request = new GetObservationRequest("SOS", "2.0.0");
+        request.setProcedures(Collections.singletonList(procedure));
+        return request;
+    }
+
+    private static GetObservationResponse createResponse() {
+        GetObservationResponse response = new GetObservationResponse("SOS", "2.0.0");
+        response.setObservationCollection(Collections.singletonList(new OmObservation()));
+        return response;
+    }
+
+    private static OmObservationConstellation createConstellation(String procedure, String offering) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SamplingFeature(new CodeWithAuthority(procedure)));
+        constellation.setObservableProperty(new OmObservableProperty("op"));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        constellation.addOffering(offering);
+        return constellation;
+    }
+
+    private static class ManualTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(Duration duration) {
+            nanos += duration.toNanos();
+        }
+    }
+}
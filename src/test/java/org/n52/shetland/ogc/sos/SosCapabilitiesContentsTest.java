@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+
+public class SosCapabilitiesContentsTest {
+
+    private static final DateTime START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final SosCapabilitiesContents contents = new SosCapabilitiesContents(
+            Arrays.asList(create("o2"), create("o1"), create("o3")));
+
+    @Test
+    public void shouldPublishChangesInNewSnapshots() {
+        SortedSet<SosObservationOffering> before = contents.getContents();
+        assertThat(identifiers(before), contains("o1", "o2", "o3"));
+        assertThat(contents.getContents(), is(sameInstance(before)));
+
+        contents.addProcedure("o2", "p1");
+        SortedSet<SosObservationOffering> after = contents.getContents();
+        assertThat(after, is(not(sameInstance(before))));
+        assertThat(offering(before, "o2").getProcedures().isEmpty(), is(true));
+        assertThat(offering(after, "o2").getProcedures(), contains("p1"));
+        assertThat(offering(after, "o1"), is(sameInstance(offering(before, "o1"))));
+
+        contents.removeProcedure("o2", "p1");
+        contents.addObservableProperty("o2", "op");
+        contents.addFeatureOfInterest("o2", "f1");
+        contents.addObservationType("o2", "type");
+        contents.addFeatureOfInterestType("o2", "foiType");
+        contents.removeFeatureOfInterestType("o2", "foiType");
+        SosObservationOffering o2 = contents.getOffering("o2").get();
+        assertThat(o2.getProcedures().isEmpty(), is(true));
+        assertThat(o2.getObservableProperties(), contains("op"));
+        assertThat(o2.getFeatureOfInterest(), contains("f1"));
+        assertThat(o2.getObservationTypes(), contains("type"));
+        assertThat(o2.getFeatureOfInterestTypes().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldAddAndRemoveOfferings() {
+        contents.putOffering(create("o0"));
+        contents.removeOffering("o3");
+        contents.addProcedure("unknown", "p1");
+        assertThat(identifiers(contents.getContents()), contains("o0", "o1", "o2"));
+        assertThat(contents.getOffering("o3").isPresent(), is(false));
+        contents.setOfferings(Arrays.asList(create("o4")));
+        assertThat(identifiers(contents.getContents()), contains("o4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOfferingsWithoutIdentifier() {
+        contents.putOffering(new SosObservationOffering());
+    }
+
+    @Test
+    public void shouldReturnCopiesOfOfferings() {
+        SosObservationOffering copy = contents.getOffering("o1").get();
+        copy.setProcedures(Arrays.asList("p1"));
+        assertThat(offering(contents.getContents(), "o1").getProcedures().isEmpty(), is(true));
+        assertThat(contents.getOffering("o1").get().getProcedures().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldExtendTimes() {
+        contents.extendPhenomenonTime("o1", new TimeInstant(START));
+        contents.extendPhenomenonTime("o1", new TimePeriod(START.minusHours(1), START.plusHours(1)));
+        contents.extendResultTime("o1", new TimeInstant(START.plusHours(2)));
+        SosObservationOffering o1 = contents.getOffering("o1").get();
+        TimePeriod phenomenonTime = (TimePeriod) o1.getPhenomenonTime();
+        assertThat(phenomenonTime.getStart(), is(START.minusHours(1)));
+        assertThat(phenomenonTime.getEnd(), is(START.plusHours(1)));
+        assertThat(((TimePeriod) o1.getResultTime()).getEnd(), is(START.plusHours(2)));
+    }
+
+    @Test
+    public void shouldNotBlockReadersDuringChanges() throws Exception {
+        SortedSet<SosObservationOffering> before = contents.getContents();
+        CountDownLatch changing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> contents.update("o1", o -> {
+                changing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                o.setProcedures(Arrays.asList("p1"));
+            }));
+            assertThat(changing.await(10, TimeUnit.SECONDS), is(true));
+            assertThat(contents.getContents(), is(sameInstance(before)));
+            release.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+            assertThat(offering(contents.getContents(), "o1").getProcedures(), contains("p1"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldKeepConcurrentChanges() throws Exception {
+        int writers = 4;
+        int procedures = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                String offering = "o" + (w % 3 + 1);
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < procedures; i++) {
+                        contents.addProcedure(offering, writer + "-" + i);
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < procedures; i++) {
+                        assertThat(contents.getContents(), hasSize(3));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(offering(contents.getContents(), "o1").getProcedures(), hasSize(2 * procedures));
+        assertThat(offering(contents.getContents(), "o2").getProcedures(), hasSize(procedures));
+        assertThat(offering(contents.getContents(), "o3").getProcedures(), hasSize(procedures));
+        assertThat(contents.getOffering("o2").get().getProcedures().stream().map(p -> p.substring(0, 1))
+                .distinct().collect(Collectors.toList()), containsInAnyOrder("1"));
+    }
+
+    private static SosObservationOffering create(String identifier) {
+        SosObservationOffering offering = new SosObservationOffering();
+        offering.setOffering(new SosOffering(identifier, identifier));
+        return offering;
+    }
+
+    private static SosObservationOffering offering(SortedSet<SosObservationOffering> offerings, String identifier) {
+        return offerings.stream().filter(o -> o.getOffering().getIdentifier().equals(identifier)).findFirst().get();
+    }
+
+    private static List<String> identifiers(SortedSet<SosObservationOffering> offerings) {
+        return offerings.stream().map(o -> o.getOffering().getIdentifier()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.gda;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.ReferenceType;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.FormatDescriptor;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.ObservationFormatDescriptor;
+
+import com.google.common.collect.Sets;
+
+public class DataAvailabilityAggregatorTest {
+
+    private static DateTime time(int day) {
+        return new DateTime(2017, 1, day, 0, 0, DateTimeZone.UTC);
+    }
+
+    private static DataAvailability availability(String feature, String offering, int start, int end,
+                                                 String observationType) {
+        DataAvailability da = new DataAvailability(new ReferenceType("procedure"),
+                                                   new ReferenceType("property"),
+                                                   new ReferenceType(feature),
+                                                   new ReferenceType(offering),
+                                                   new TimePeriod(time(start), time(end)), 1);
+        da.setFormatDescriptor(new FormatDescriptor(null, Sets.newHashSet(
+                new ObservationFormatDescriptor("format", Sets.newHashSet(observationType)))));
+        return da;
+    }
+
+    private final List<DataAvailability> input = Arrays.asList(
+            availability("feature1", "offering1", 1, 2, "type1"),
+            availability("feature1", "offering2", 3, 4, "type2"),
+            availability("feature2", "offering1", 5, 6, "type1"),
+            availability("feature1", "offering1", 7, 8, "type3"));
+
+    @Test
+    public void should_aggregate_by_constellation_with_offering() {
+        List<DataAvailability> result = DataAvailabilityAggregator.aggregate(input, true, false);
+        assertThat(result.size(), is(3));
+        DataAvailability first = result.get(0);
+        assertThat(first.getPhenomenonTime().getStart(), is(time(1)));
+        assertThat(first.getPhenomenonTime().getEnd(), is(time(8)));
+        assertThat(first.getCount(), is(2L));
+        assertThat(first.getFormatDescriptor().getObservationFormatDescriptors().iterator().next()
+                .getObservationTypes(), containsInAnyOrder("type1", "type3"));
+        assertThat(input.get(0).getPhenomenonTime().getEnd(), is(time(2)));
+    }
+
+    @Test
+    public void should_aggregate_by_constellation_without_offering() {
+        List<DataAvailability> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.addAll(this.input);
+        }
+        List<DataAvailability> result = DataAvailabilityAggregator.aggregate(input, false, true);
+        assertThat(result.size(), is(2));
+        DataAvailability first = result.get(0);
+        assertThat(first.getFeatureOfInterest().getHref(), is("feature1"));
+        assertThat(first.getCount(), is(3000L));
+        assertThat(first.getPhenomenonTime().getEnd(), is(time(8)));
+        assertThat(first.getFormatDescriptor().getObservationFormatDescriptors().iterator().next()
+                .getObservationTypes(), containsInAnyOrder("type1", "type2", "type3"));
+    }
+}
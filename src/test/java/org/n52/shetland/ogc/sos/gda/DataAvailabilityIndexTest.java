@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.gda;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityResponse.DataAvailability;
+import org.n52.shetland.ogc.sos.request.DeleteObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertObservationRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultRequest;
+import org.n52.shetland.ogc.sos.request.InsertResultTemplateRequest;
+
+public class DataAvailabilityIndexTest {
+
+    private static final DateTime START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final DataAvailabilityIndex index = new DataAvailabilityIndex();
+
+    @Test
+    public void shouldIndexInsertedObservations() {
+        index.insert(insert(create("o1", "p1", "f1", 0, 0), create("o2", "p1", "f1", 2, 2),
+                            create("o3", "p1", "f1", 1, 2), create("o4", "p2", "f2", 5, 5)));
+        assertThat(index.size(), is(2));
+        GetDataAvailabilityRequest request = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        request.setNamespace(GetDataAvailabilityConstants.NS_GDA_20);
+        request.addProcedure("p1");
+        List<DataAvailability> availabilities = index.query(request).getDataAvailabilities();
+        assertThat(availabilities, hasSize(1));
+        DataAvailability p1 = availabilities.get(0);
+        assertThat(p1.getCount(), is(3L));
+        assertThat(p1.getOffering().getHref(), is("offering"));
+        assertThat(p1.getPhenomenonTime().getStart(), is(START));
+        assertThat(p1.getPhenomenonTime().getEnd(), is(START.plusHours(2)));
+        assertThat(p1.getResultTimes().stream().map(TimeInstant::getValue).collect(Collectors.toList()),
+                   contains(START, START.plusHours(2)));
+
+        request.setNamespace(GetDataAvailabilityConstants.NS_GDA);
+        assertThat(index.query(request).getDataAvailabilities().get(0).isSetResultTime(), is(false));
+    }
+
+    @Test
+    public void shouldIndexInsertedResults() {
+        InsertResultTemplateRequest template = new InsertResultTemplateRequest("SOS", "2.0.0");
+        template.setIdentifier("template");
+        template.setObservationTemplate(constellation("p1", "f1"));
+        index.registerTemplate(template);
+        InsertResultRequest result = new InsertResultRequest("SOS", "2.0.0");
+        result.setTemplateIdentifier("template");
+        index.insert(result, Arrays.asList(create("o1", null, null, 0, 0), create("o2", null, null, 1, 1)));
+        List<DataAvailability> availabilities = index.query(new GetDataAvailabilityRequest("SOS", "2.0.0"))
+                .getDataAvailabilities();
+        assertThat(availabilities, hasSize(1));
+        assertThat(availabilities.get(0).getProcedure().getHref(), is("p1"));
+        assertThat(availabilities.get(0).getCount(), is(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectResultsOfUnknownTemplate() {
+        InsertResultRequest result = new InsertResultRequest("SOS", "2.0.0");
+        result.setTemplateIdentifier("unknown");
+        index.insert(result, Collections.singletonList(create("o1", null, null, 0, 0)));
+    }
+
+    @Test
+    public void shouldTrackDeletedObservations() {
+        OmObservation first = create("o1", "p1", "f1", 0, 0);
+        OmObservation middle = create("o2", "p1", "f1", 1, 1);
+        OmObservation last = create("o3", "p1", "f1", 2, 2);
+        index.insert(insert(first, middle, last));
+
+        index.delete(delete("o2"), middle);
+        assertThat(index.getInexactDataAvailabilities(), hasSize(0));
+        DataAvailability availability = index.query(new GetDataAvailabilityRequest("SOS", "2.0.0"))
+                .getDataAvailabilities().get(0);
+        assertThat(availability.getCount(), is(2L));
+
+        index.delete(delete("o1"), first);
+        List<DataAvailability> inexact = index.getInexactDataAvailabilities();
+        assertThat(inexact, hasSize(1));
+        assertThat(inexact.get(0).getCount(), is(1L));
+        assertThat(inexact.get(0).getPhenomenonTime().getStart(), is(START));
+
+        DataAvailability reloaded = new DataAvailability(inexact.get(0).getProcedure(),
+                inexact.get(0).getObservedProperty(), inexact.get(0).getFeatureOfInterest(),
+                inexact.get(0).getOffering(), new TimePeriod(START.plusHours(2), START.plusHours(2)), 1);
+        index.put(reloaded);
+        assertThat(index.getInexactDataAvailabilities(), hasSize(0));
+
+        index.delete(delete("o3"), last);
+        assertThat(index.size(), is(0));
+        assertThat(index.query(new GetDataAvailabilityRequest("SOS", "2.0.0")).getDataAvailabilities(),
+                   hasSize(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectObservationNotDeletedByRequest() {
+        OmObservation observation = create("o1", "p1", "f1", 0, 0);
+        index.insert(insert(observation));
+        index.delete(delete("o2"), observation);
+    }
+
+    @Test
+    public void shouldFilterByAllParameters() {
+        index.insert(insert(create("o1", "p1", "f1", 0, 0), create("o2", "p1", "f2", 0, 0),
+                            create("o3", "p2", "f1", 0, 0), create("o4", "p2", "f2", 0, 0),
+                            create("o5", "p3", "f3", 0, 0)));
+        GetDataAvailabilityRequest request = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        request.setProcedures(Arrays.asList("p1", "p2"));
+        request.addFeatureOfInterest("f2");
+        assertThat(procedures(index.getDataAvailabilities(request, false)), containsInAnyOrder("p1", "p2"));
+
+        request = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        request.addFeatureOfInterest("f1");
+        request.addObservedProperty("op");
+        request.addOffering("offering");
+        assertThat(procedures(index.getDataAvailabilities(request, false)), containsInAnyOrder("p1", "p2"));
+
+        request = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        request.addOffering("other");
+        assertThat(index.getDataAvailabilities(request, false), hasSize(0));
+
+        assertThat(index.getDataAvailabilities(new GetDataAvailabilityRequest("SOS", "2.0.0"), false), hasSize(5));
+        index.clear();
+        assertThat(index.size(), is(0));
+    }
+
+    @Test
+    public void shouldApplyConcurrentUpdates() throws Exception {
+        int threads = 8;
+        int observations = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < observations; i++) {
+                        OmObservation observation = create(thread + "-" + i, "p" + (i % 2), "f1", i, i);
+                        index.insert(insert(observation));
+                        if (i % 5 == 0) {
+                            index.delete(delete(observation.getObservationID()), observation);
+                        }
+                        index.getDataAvailabilities(new GetDataAvailabilityRequest("SOS", "2.0.0"), true);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        List<DataAvailability> availabilities
+                = index.getDataAvailabilities(new GetDataAvailabilityRequest("SOS", "2.0.0"), true);
+        assertThat(availabilities, hasSize(2));
+        long expected = threads * observations / 2 - threads * observations / 10;
+        for (DataAvailability availability : availabilities) {
+            assertThat(availability.getCount(), is(expected));
+            assertThat(availability.getResultTimes().size(), is(observations / 2 - observations / 10));
+        }
+    }
+
+    private static InsertObservationRequest insert(OmObservation... observations) {
+        InsertObservationRequest request = new InsertObservationRequest("SOS", "2.0.0");
+        request.setObservation(Arrays.asList(observations));
+        request.setOfferings(Collections.singletonList("offering"));
+        return request;
+    }
+
+    private static DeleteObservationRequest delete(String identifier) {
+        DeleteObservationRequest request = new DeleteObservationRequest();
+        request.setObservationIdentifier(identifier);
+        return request;
+    }
+
+    private static OmObservation create(String id, String procedure, String feature, int phenomenonHour,
+                                        int resultHour) {
+        OmObservation observation = new OmObservation();
+        observation.setObservationID(id);
+        if (procedure != null) {
+            observation.setObservationConstellation(constellation(procedure, feature));
+        }
+        observation.setResultTime(new TimeInstant(START.plusHours(resultHour)));
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(START.plusHours(phenomenonHour)),
+                                                          new QuantityValue(1.0)));
+        return observation;
+    }
+
+    private static OmObservationConstellation constellation(String procedure, String feature) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SamplingFeature(new CodeWithAuthority(procedure)));
+        constellation.setObservableProperty(new OmObservableProperty("op"));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority(feature)));
+        return constellation;
+    }
+
+    private static List<String> procedures(List<DataAvailability> availabilities) {
+        return availabilities.stream().map(a -> a.getProcedure().getHref()).collect(Collectors.toList());
+    }
+}
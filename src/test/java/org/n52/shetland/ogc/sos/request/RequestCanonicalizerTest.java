@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.request;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import org.n52.shetland.ogc.filter.FilterConstants.TimeOperator;
+import org.n52.shetland.ogc.filter.TemporalFilter;
+import org.n52.shetland.ogc.gml.time.TimePeriod;
+import org.n52.shetland.ogc.sos.gda.GetDataAvailabilityRequest;
+import org.n52.shetland.ogc.swe.simpleType.SweBoolean;
+import org.n52.shetland.ogc.swes.SwesExtension;
+
+public class RequestCanonicalizerTest {
+
+    private static final DateTime START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    private final RequestCanonicalizer canonicalizer = new RequestCanonicalizer();
+
+    @Test
+    public void shouldIgnoreOrderAndDuplicates() {
+        GetObservationRequest first = createRequest("p1", "p2", "p1");
+        first.setTemporalFilters(Arrays.asList(filter(START, START.plusDays(1)), filter(START, START.plusDays(2))));
+        GetObservationRequest second = createRequest("p2", "p1");
+        DateTime start = START.withZone(DateTimeZone.forOffsetHours(2));
+        second.setTemporalFilters(Arrays.asList(filter(start, start.plusDays(2)), filter(start, start.plusDays(1)),
+                                                filter(START, START.plusDays(1))));
+        assertThat(canonicalizer.canonicalize(first), is(canonicalizer.canonicalize(second)));
+    }
+
+    @Test
+    public void shouldDistinguishResultAffectingParameters() {
+        GetObservationRequest first = createRequest("p1");
+        GetObservationRequest second = createRequest("p1");
+        second.setResponseFormat("application/json");
+        assertThat(canonicalizer.canonicalize(first), is(not(canonicalizer.canonicalize(second))));
+        first.setResponseFormat("application/json");
+        assertThat(canonicalizer.canonicalize(first), is(canonicalizer.canonicalize(second)));
+        first.getExtensions().addExtension(new SwesExtension<>(new SweBoolean().setValue(true))
+                .setDefinition("MergeObservationsIntoDataArray"));
+        second.getExtensions().addExtension(new SwesExtension<>(new SweBoolean().setValue(true))
+                .setDefinition("mergeObservationsIntoDataArray"));
+        assertThat(canonicalizer.canonicalize(first), is(canonicalizer.canonicalize(second)));
+        RequestKey withoutExtensions = new RequestCanonicalizer(e -> false).canonicalize(first);
+        assertThat(withoutExtensions, is(not(canonicalizer.canonicalize(first))));
+    }
+
+    @Test
+    public void shouldCanonicalizeDataAvailabilityRequests() {
+        GetDataAvailabilityRequest first = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        first.addProcedure("p2");
+        first.addProcedure("p1");
+        GetDataAvailabilityRequest second = new GetDataAvailabilityRequest("SOS", "2.0.0");
+        second.addProcedure("p1");
+        second.addProcedure("p2");
+        assertThat(canonicalizer.canonicalize(first), is(canonicalizer.canonicalize(second)));
+        assertThat(canonicalizer.canonicalize(first).getStableHash(),
+                   is(canonicalizer.canonicalize(second).getStableHash()));
+        second.addFeatureOfInterest("f1");
+        assertThat(canonicalizer.canonicalize(first), is(not(canonicalizer.canonicalize(second))));
+    }
+
+    private static GetObservationRequest createRequest(String... procedures) {
+        GetObservationRequest request = new GetObservationRequest("SOS", "2.0.0");
+        request.setProcedures(Arrays.asList(procedures));
+        return request;
+    }
+
+    private static TemporalFilter filter(DateTime start, DateTime end) {
+        return new TemporalFilter(TimeOperator.TM_During, new TimePeriod(start, end), "phenomenonTime");
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.service.CountingStreamingMetrics;
+import org.n52.shetland.ogc.ows.service.OwsServiceRequestContext;
+import org.n52.shetland.ogc.ows.service.StreamingMetrics;
+import org.n52.shetland.ogc.sos.exception.ResponseExceedsSizeLimitException;
+
+public class AbstractStreamingTest {
+
+    @Test
+    public void shouldDefaultToNoop() {
+        assertThat(new CountingStreaming(1).getMetrics(), is(StreamingMetrics.NOOP));
+        assertThat(new OwsServiceRequestContext().getStreamingMetrics(), is(StreamingMetrics.NOOP));
+    }
+
+    @Test
+    public void shouldRecordStreaming() throws OwsExceptionReport {
+        CountingStreamingMetrics metrics = new TickingStreamingMetrics();
+        OwsServiceRequestContext context = new OwsServiceRequestContext();
+        context.setStreamingMetrics(metrics);
+        CountingStreaming streaming = new CountingStreaming(3);
+        streaming.setMetricsFrom(context);
+        assertThat(streaming.getObservation(), hasSize(3));
+        assertThat(metrics.getObservationsEmitted(), is(3L));
+        assertThat(metrics.getValuesStreamed(), is(3L));
+        assertThat(metrics.getFetches(), is(3L));
+        assertThat(metrics.getFetchNanos(), is(3L));
+        assertThat(metrics.getLimitsExceeded(), is(0L));
+    }
+
+    @Test
+    public void shouldRecordEveryFetch() throws OwsExceptionReport {
+        CountingStreamingMetrics metrics = new TickingStreamingMetrics();
+        CountingStreaming streaming = new CountingStreaming(3);
+        streaming.setMetrics(metrics);
+        while (streaming.hasNextValue()) {
+            streaming.getObservation(1);
+        }
+        assertThat(metrics.getObservationsEmitted(), is(3L));
+        assertThat(metrics.getFetches(), is(3L));
+        assertThat(streaming.getNumberOfEmittedObservations(), is(3));
+    }
+
+    @Test
+    public void shouldRecordExceededLimit() throws OwsExceptionReport {
+        CountingStreamingMetrics metrics = new CountingStreamingMetrics();
+        CountingStreaming streaming = new CountingStreaming(3);
+        streaming.setMetrics(metrics);
+        streaming.setMaxNumberOfValues(2);
+        try {
+            streaming.mergeObservation();
+            fail("limit not detected");
+        } catch (ResponseExceedsSizeLimitException e) {
+            assertThat(metrics.getLimitsExceeded(), is(1L));
+            assertThat(metrics.getObservationsEmitted(), is(2L));
+        }
+    }
+
+    @Test
+    public void shouldRecordExceededResponseSize() throws OwsExceptionReport {
+        CountingStreamingMetrics metrics = new CountingStreamingMetrics();
+        CountingStreaming streaming = new CountingStreaming(3);
+        streaming.setMetrics(metrics);
+        streaming.setResponseSizeBudget(new ResponseSizeBudget(2 * ResponseSizeBudget.OBSERVATION));
+        try {
+            streaming.getObservation();
+            fail("limit not detected");
+        } catch (ResponseExceedsSizeLimitException e) {
+            assertThat(metrics.getLimitsExceeded(), is(1L));
+            assertThat(streaming.getResponseSizeBudget().getUsedBytes(),
+                       is(greaterThan(2 * ResponseSizeBudget.OBSERVATION)));
+        }
+    }
+
+    @Test
+    public void shouldLimitAcrossFetches() throws OwsExceptionReport {
+        CountingStreaming streaming = new CountingStreaming(3);
+        streaming.setResponseSizeBudget(new ResponseSizeBudget(ResponseSizeBudget.OBSERVATION));
+        streaming.getObservation(1);
+        try {
+            streaming.getObservation(1);
+            fail("limit not detected");
+        } catch (ResponseExceedsSizeLimitException e) {
+            assertThat(streaming.getNumberOfEmittedObservations(), is(1));
+        }
+    }
+
+    /**
+     * Metrics with a clock that advances by one nanosecond on every read.
+     */
+    private static class TickingStreamingMetrics extends CountingStreamingMetrics {
+        private long nanos;
+
+        @Override
+        public long nanoTime() {
+            return nanos++;
+        }
+    }
+
+    private static class CountingStreaming extends AbstractStreaming {
+        private int remaining;
+
+        CountingStreaming(int count) {
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean hasNextValue() {
+            return remaining > 0;
+        }
+
+        @Override
+        public OmObservation nextSingleObservation() throws OwsExceptionReport {
+            checkMaxNumberOfReturnedValues(1);
+            remaining--;
+            return new OmObservation();
+        }
+
+        @Override
+        protected void checkForModifications(OmObservation observation) {
+        }
+
+        @Override
+        public Time getPhenomenonTime() {
+            return null;
+        }
+
+        @Override
+        public void setPhenomenonTime(Time phenomenonTime) {
+        }
+
+        @Override
+        public Value<OmObservation> getValue() {
+            return null;
+        }
+
+        @Override
+        public void setValue(Value<OmObservation> value) {
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.n52.shetland.ogc.gml.CodeWithAuthority;
+import org.n52.shetland.ogc.gml.time.Time;
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservableProperty;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.OmObservationConstellation;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.features.samplingFeatures.SamplingFeature;
+import org.n52.shetland.ogc.om.series.MappedSeries.ValueType;
+import org.n52.shetland.ogc.om.series.MappedSeriesStore;
+import org.n52.shetland.ogc.om.series.MappedSeriesWriter;
+import org.n52.shetland.ogc.om.series.MappedStreamingValue;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.Value;
+import org.n52.shetland.ogc.ows.exception.InvalidParameterValueException;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.ows.extension.Extensions;
+import org.n52.shetland.ogc.swes.SwesExtension;
+
+public class PagingTest {
+
+    private static final long START = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC).getMillis();
+    private static final long STEP = 60000L;
+    private static final String[] PROCEDURES = {"p1", "p2"};
+    private static final int SIZE = 5;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private MappedSeriesStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        this.store = new MappedSeriesStore(folder.newFolder().toPath());
+        for (String procedure : PROCEDURES) {
+            store.create(procedure, ValueType.QUANTITY, "m");
+            try (MappedSeriesWriter writer = store.openWriter(procedure)) {
+                for (int i = 0; i < SIZE; i++) {
+                    writer.append(START + i * STEP, (double) i, 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldResumeAcrossStreams() throws IOException, OwsExceptionReport {
+        List<String> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        page(3, this::createResponse, seen, pageSizes);
+        assertThat(seen.size(), is(PROCEDURES.length * SIZE));
+        assertThat(seen.get(3), is("p1/3.0"));
+        assertThat(seen.get(5), is("p2/0.0"));
+        assertThat(seen.get(9), is("p2/4.0"));
+        assertThat(pageSizes.toString(), is("[3, 3, 3, 1]"));
+    }
+
+    @Test
+    public void shouldResumeWithinRunOfEqualTimes() throws IOException, OwsExceptionReport {
+        store.create("p3", ValueType.QUANTITY, "m");
+        try (MappedSeriesWriter writer = store.openWriter("p3")) {
+            writer.append(START, 0.0, 0);
+            writer.append(START + STEP, 1.0, 0);
+            writer.append(START + STEP, 2.0, 0);
+            writer.append(START + STEP, 3.0, 0);
+            writer.append(START + 2 * STEP, 4.0, 0);
+        }
+        List<String> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        page(2, () -> {
+            OmObservation observation = createTemplate("p3");
+            observation.setValue(new MappedStreamingValue(store.open("p3"), null, null, createTemplate("p3")));
+            return createResponse(observation);
+        }, seen, pageSizes);
+        assertThat(seen.toString(), is("[p3/0.0, p3/1.0, p3/2.0, p3/3.0, p3/4.0]"));
+        assertThat(pageSizes.toString(), is("[2, 2, 1]"));
+    }
+
+    @Test
+    public void shouldSkipInStreamsThatCanNotSeek() throws IOException, OwsExceptionReport {
+        List<String> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        AtomicInteger reads = new AtomicInteger();
+        page(2, () -> {
+            OmObservation observation = createTemplate("p4");
+            observation.setValue(new ListStreaming("p4", 5, reads));
+            return createResponse(observation);
+        }, seen, pageSizes);
+        assertThat(seen.toString(), is("[p4/0.0, p4/1.0, p4/2.0, p4/3.0, p4/4.0]"));
+        assertThat(pageSizes.toString(), is("[2, 2, 1]"));
+        // 2 + (2 skipped + 2) + (4 skipped + 1)
+        assertThat(reads.get(), is(11));
+    }
+
+    @Test
+    public void shouldPagePastValueLimit() throws IOException, OwsExceptionReport {
+        List<String> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        page(2, () -> {
+            OmObservation observation = createTemplate("p4");
+            ListStreaming streaming = new ListStreaming("p4", 5, new AtomicInteger());
+            streaming.setMaxNumberOfValues(3);
+            observation.setValue(streaming);
+            return createResponse(observation);
+        }, seen, pageSizes);
+        assertThat(seen.toString(), is("[p4/0.0, p4/1.0, p4/2.0, p4/3.0, p4/4.0]"));
+        assertThat(pageSizes.toString(), is("[2, 2, 1]"));
+    }
+
+    @Test
+    public void shouldSeekByKey() throws IOException, OwsExceptionReport {
+        List<String> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        AtomicInteger reads = new AtomicInteger();
+        page(2, () -> {
+            OmObservation observation = createTemplate("p4");
+            observation.setValue(new KeysetStreaming("p4", 5, reads));
+            return createResponse(observation);
+        }, seen, pageSizes);
+        assertThat(seen.toString(), is("[p4/0.0, p4/1.0, p4/2.0, p4/3.0, p4/4.0]"));
+        assertThat(pageSizes.toString(), is("[2, 2, 1]"));
+        assertThat(reads.get(), is(5));
+    }
+
+    private static void page(int pageSize, ResponseFactory factory, List<String> seen, List<Integer> pageSizes)
+            throws IOException, OwsExceptionReport {
+        String token = null;
+        do {
+            Extensions extensions = new Extensions();
+            extensions.addExtension(new SwesExtension<>(Integer.toString(pageSize)).setDefinition(Paging.PAGE_SIZE));
+            if (token != null) {
+                extensions.addExtension(new SwesExtension<>(token).setDefinition(Paging.RESUME_TOKEN));
+            }
+            GetObservationResponse response = factory.create();
+            response.setPaging(Paging.fromExtensions(extensions).get());
+            response.mergeStreamingData();
+            pageSizes.add(response.getObservationCollection().size());
+            for (OmObservation observation : response.getObservationCollection()) {
+                seen.add(observation.getObservationConstellation().getProcedureIdentifier() + "/" +
+                         ((SimpleQuantityValue) observation.getValue().getValue()).getValue());
+            }
+            token = response.getExtensions().getStringValue(Paging.NEXT_TOKEN).orElse(null);
+        } while (token != null && seen.size() < 100);
+    }
+
+    @Test
+    public void shouldEncodeCursor() throws InvalidParameterValueException {
+        OmObservation observation = createTemplate("p1");
+        observation.setObservationID("id");
+        observation.setValue(new SingleObservationValue<>(
+                new TimeInstant(new DateTime(START, DateTimeZone.UTC)), new SimpleQuantityValue(1.0)));
+        PagingCursor cursor = PagingCursor.after("p1", 7, observation);
+        assertThat(PagingCursor.decode(cursor.encode()), is(cursor));
+        assertThat(cursor.getIndex(), is(7L));
+        assertThat(cursor.getPhenomenonTime(), is(START));
+        assertThat(cursor.getObservationId(), is("id"));
+    }
+
+    @Test(expected = InvalidParameterValueException.class)
+    public void shouldRejectInvalidToken() throws OwsExceptionReport {
+        Extensions extensions = new Extensions();
+        extensions.addExtension(new SwesExtension<>("10").setDefinition(Paging.PAGE_SIZE));
+        extensions.addExtension(new SwesExtension<>("not a token").setDefinition(Paging.RESUME_TOKEN));
+        Paging.fromExtensions(extensions);
+    }
+
+    private GetObservationResponse createResponse() throws IOException {
+        List<OmObservation> observations = new ArrayList<>();
+        for (String procedure : PROCEDURES) {
+            OmObservation template = createTemplate(procedure);
+            OmObservation observation = createTemplate(procedure);
+            observation.setValue(new MappedStreamingValue(store.open(procedure), null, null, template));
+            observations.add(observation);
+        }
+        return createResponse(observations.toArray(new OmObservation[observations.size()]));
+    }
+
+    private static GetObservationResponse createResponse(OmObservation... observations) {
+        GetObservationResponse response = new GetObservationResponse("SOS", "2.0.0");
+        response.setObservationCollection(new ArrayList<>(Arrays.asList(observations)));
+        return response;
+    }
+
+    private static OmObservation createTemplate(String procedure) {
+        OmObservationConstellation constellation = new OmObservationConstellation();
+        constellation.setProcedure(new SamplingFeature(new CodeWithAuthority(procedure)));
+        constellation.setFeatureOfInterest(new SamplingFeature(new CodeWithAuthority("feature")));
+        constellation.setObservableProperty(new OmObservableProperty("property"));
+        OmObservation template = new OmObservation();
+        template.setObservationConstellation(constellation);
+        return template;
+    }
+
+    @FunctionalInterface
+    private interface ResponseFactory {
+        GetObservationResponse create() throws IOException;
+    }
+
+    /**
+     * Stream without seek support that creates its observations on the fly.
+     */
+    private static class ListStreaming extends AbstractStreaming {
+        private final String procedure;
+        private final int size;
+        private final AtomicInteger reads;
+        protected int next;
+
+        ListStreaming(String procedure, int size, AtomicInteger reads) {
+            this.procedure = procedure;
+            this.size = size;
+            this.reads = reads;
+        }
+
+        @Override
+        public boolean hasNextValue() {
+            return next < size;
+        }
+
+        @Override
+        public OmObservation nextSingleObservation() throws OwsExceptionReport {
+            checkMaxNumberOfReturnedValues(1);
+            reads.incrementAndGet();
+            OmObservation observation = createTemplate(procedure);
+            observation.setObservationID(procedure + "-" + next);
+            observation.setValue(new SingleObservationValue<>(
+                    new TimeInstant(new DateTime(START, DateTimeZone.UTC)), new SimpleQuantityValue((double) next++)));
+            return observation;
+        }
+
+        @Override
+        protected void checkForModifications(OmObservation observation) {
+        }
+
+        @Override
+        public Time getPhenomenonTime() {
+            return null;
+        }
+
+        @Override
+        public void setPhenomenonTime(Time phenomenonTime) {
+        }
+
+        @Override
+        public Value<OmObservation> getValue() {
+            return null;
+        }
+
+        @Override
+        public void setValue(Value<OmObservation> value) {
+        }
+    }
+
+    /**
+     * Stream that seeks by the identifier of the last delivered observation.
+     */
+    private static class KeysetStreaming extends ListStreaming {
+
+        KeysetStreaming(String procedure, int size, AtomicInteger reads) {
+            super(procedure, size, reads);
+        }
+
+        @Override
+        protected boolean seekAfter(long phenomenonTime, String observationId) {
+            next = Integer.parseInt(observationId.substring(observationId.indexOf('-') + 1)) + 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.sos.response;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import org.n52.shetland.ogc.gml.time.TimeInstant;
+import org.n52.shetland.ogc.om.OmObservation;
+import org.n52.shetland.ogc.om.PointValuePair;
+import org.n52.shetland.ogc.om.SingleObservationValue;
+import org.n52.shetland.ogc.om.TimeValuePair;
+import org.n52.shetland.ogc.om.values.MultiPointCoverage;
+import org.n52.shetland.ogc.om.values.PackedMultiPointCoverage;
+import org.n52.shetland.ogc.om.values.PackedRectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.QuantityValue;
+import org.n52.shetland.ogc.om.values.RectifiedGridCoverage;
+import org.n52.shetland.ogc.om.values.SimpleQuantityValue;
+import org.n52.shetland.ogc.om.values.TVPValue;
+import org.n52.shetland.ogc.om.values.TextValue;
+import org.n52.shetland.ogc.om.values.visitor.ValueSizeEstimator;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.sos.exception.ResponseExceedsSizeLimitException;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class ResponseSizeBudgetTest {
+
+    @Test
+    public void shouldEstimateMultiValuesLargerThanScalars() {
+        TVPValue tvp = new TVPValue();
+        for (int i = 0; i < 100; i++) {
+            tvp.addValue(new TimeValuePair(new TimeInstant(), new SimpleQuantityValue((double) i)));
+        }
+        long scalar = ValueSizeEstimator.estimate(new SimpleQuantityValue(1.0));
+        assertThat(ValueSizeEstimator.estimate(tvp), is(greaterThan(100 * scalar)));
+        assertThat(ValueSizeEstimator.estimate(new TextValue("abc")),
+                   is(ValueSizeEstimator.ELEMENT + 3));
+    }
+
+    @Test
+    public void shouldEstimatePackedCoveragesLikeUnpackedOnes() {
+        GeometryFactory factory = new GeometryFactory();
+        PackedRectifiedGridCoverage packedGrid = new PackedRectifiedGridCoverage("grid", new double[] {1.0, 2.0},
+                                                                                 new double[] {3.0, 4.0});
+        RectifiedGridCoverage grid = new RectifiedGridCoverage("grid");
+        grid.addValue(1.0, new QuantityValue(3.0));
+        grid.addValue(2.0, new QuantityValue(4.0));
+        assertThat(ValueSizeEstimator.estimate(packedGrid), is(ValueSizeEstimator.estimate(grid)));
+
+        PackedMultiPointCoverage packedPoints = new PackedMultiPointCoverage("points");
+        packedPoints.addQuantity(1.0, 2.0, Double.NaN, 3.0);
+        MultiPointCoverage points = new MultiPointCoverage("points");
+        points.addValue(new PointValuePair(factory.createPoint(new Coordinate(1.0, 2.0)), new QuantityValue(3.0)));
+        assertThat(ValueSizeEstimator.estimate(packedPoints), is(ValueSizeEstimator.estimate(points)));
+    }
+
+    @Test
+    public void shouldIgnoreUnlimitedBudget() throws OwsExceptionReport {
+        ResponseSizeBudget budget = new ResponseSizeBudget(0);
+        budget.add(new String(new char[10000]));
+        assertThat(budget.getUsedBytes(), is(0L));
+        assertThat(budget.getRemainingBytes(), is(Long.MAX_VALUE));
+    }
+
+    @Test(expected = ResponseExceedsSizeLimitException.class)
+    public void shouldRejectOversizedObservation() throws OwsExceptionReport {
+        TVPValue tvp = new TVPValue();
+        for (int i = 0; i < 100; i++) {
+            tvp.addValue(new TimeValuePair(new TimeInstant(), new SimpleQuantityValue((double) i)));
+        }
+        OmObservation observation = new OmObservation();
+        observation.setValue(new SingleObservationValue<>(new TimeInstant(), new SimpleQuantityValue(1.0)));
+        ResponseSizeBudget budget = new ResponseSizeBudget(4096);
+        budget.add(observation);
+        assertThat(budget.getUsedBytes(), is(greaterThan(ResponseSizeBudget.OBSERVATION)));
+        budget.add(tvp);
+    }
+}
@@ -149,6 +149,39 @@ public class SwesExtensionsTest {
        assertThat(extensions.getExtension(DEFINITION_2).orElse(null).getValue(), instanceOf(VALUE_2.getClass()));
        assertThat(extensions.getExtension(DEFINITION_3).orElse(null).getValue(), instanceOf(VALUE_3.getClass()));
    }
+
+   @Test
+   public void getExtension_should_ignore_case_and_return_first_match() {
+       final Extensions extensions = new Extensions();
+       extensions.addExtension(new SwesExtension<>().setIdentifier(DEFINITION_1).setValue(VALUE_1));
+       extensions.addExtension(new SwesExtension<>().setDefinition(DEFINITION_1.toUpperCase()).setValue(VALUE_2));
+       assertThat(extensions.getExtension(DEFINITION_1.toUpperCase()).orElse(null).getValue(), is((Object) VALUE_1));
+       assertThat(extensions.getStringValue(DEFINITION_1).orElse(null), is(VALUE_1));
+       assertThat(extensions.getValue(DEFINITION_1, Integer.class).isPresent(), is(FALSE));
+   }
+
+   @Test
+   public void getExtension_should_ignore_case_like_equalsIgnoreCase() {
+       final Extensions extensions = new Extensions();
+       extensions.addExtension(new SwesExtension<>().setDefinition("stra\u00dfe").setValue(VALUE_1));
+       extensions.addExtension(new SwesExtension<>().setDefinition("title").setValue(VALUE_2));
+       assertThat(extensions.containsExtension("STRASSE"), is(FALSE));
+       assertThat(extensions.containsExtension("strasse"), is(FALSE));
+       assertThat(extensions.containsExtension("STRA\u00dfE"), is(TRUE));
+       assertThat(extensions.containsExtension("TITLE"), is(TRUE));
+       assertThat(extensions.containsExtension("T\u0130TLE"), is("title".equalsIgnoreCase("T\u0130TLE")));
+   }
+
+   @Test
+   public void getBooleanValue_should_unwrap_values() {
+       final Extensions extensions = new Extensions();
+       extensions.addExtension(new SwesExtension<>().setDefinition(DEFINITION_1).setValue(new SweBoolean().setValue(TRUE)));
+       extensions.addExtension(new SwesExtension<>().setDefinition(DEFINITION_2).setValue(VALUE_2));
+       assertThat(extensions.getBooleanValue(TestDefinitions.definition1).orElse(null), is(TRUE));
+       assertThat(extensions.getBooleanValue(DEFINITION_2).isPresent(), is(FALSE));
+       assertThat(extensions.isBooleanExtensionSet(DEFINITION_3), is(FALSE));
+   }
+
    protected static enum TestDefinitions {
        definition1, definition2, definition3;
    }
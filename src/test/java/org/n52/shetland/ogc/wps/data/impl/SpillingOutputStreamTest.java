@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.data.impl;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.wps.Format;
+import org.n52.shetland.ogc.wps.data.ValueProcessData;
+
+public class SpillingOutputStreamTest {
+    private static final OwsCode ID = new OwsCode("data");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldKeepSmallPayloadsInMemory() throws IOException {
+        byte[] bytes = createBytes(100);
+        SpillingOutputStream out = new SpillingOutputStream(100, folder.getRoot().toPath());
+        out.write(bytes);
+        ValueProcessData data = out.toProcessData(ID, new Format());
+        assertThat(out.isSpilled(), is(false));
+        assertThat(data, instanceOf(InMemoryValueProcessData.class));
+        assertThat(transfer(data), is(bytes));
+        assertThat(folder.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void shouldSpillLargePayloadsToDisk() throws IOException {
+        byte[] bytes = createBytes(10000);
+        SpillingOutputStream out = new SpillingOutputStream(1000, folder.getRoot().toPath());
+        out.write(bytes, 0, 600);
+        out.write(bytes, 600, bytes.length - 600);
+        ValueProcessData data = out.toProcessData(ID, new Format());
+        assertThat(out.isSpilled(), is(true));
+        assertThat(data, instanceOf(TemporaryFileProcessData.class));
+        assertThat(transfer(data), is(bytes));
+
+        TemporaryFileProcessData file = (TemporaryFileProcessData) data;
+        assertThat(file.getSize(), is((long) bytes.length));
+        MappedByteBuffer region = file.map(5000, 10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(region.get(i), is(bytes[5000 + i]));
+        }
+
+        Path path = file.getPath();
+        file.close();
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @Test
+    public void shouldReadStream() throws IOException {
+        byte[] bytes = createBytes(2048);
+        ValueProcessData data = SpillingOutputStream.read(ID, null, new ByteArrayInputStream(bytes), 1024);
+        assertThat(data, instanceOf(TemporaryFileProcessData.class));
+        assertThat(transfer(data), is(bytes));
+        ((TemporaryFileProcessData) data).close();
+    }
+
+    @Test
+    public void shouldTransferStrings() throws IOException {
+        StringValueProcessData data = new StringValueProcessData("äöü");
+        assertThat(transfer(data), is("äöü".getBytes("UTF-8")));
+        assertThat(transfer(data), is("äöü".getBytes("UTF-8")));
+    }
+
+    private static byte[] transfer(ValueProcessData data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long transferred = data.transferTo(Channels.newChannel(out));
+        assertThat(transferred, is((long) out.size()));
+        return out.toByteArray();
+    }
+
+    private static byte[] createBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.ExecutionMode;
+import org.n52.shetland.ogc.wps.JobControlOption;
+import org.n52.shetland.ogc.wps.JobId;
+import org.n52.shetland.ogc.wps.JobStatus;
+import org.n52.shetland.ogc.wps.StatusInfo;
+import org.n52.shetland.ogc.wps.data.ProcessData;
+import org.n52.shetland.ogc.wps.data.impl.TemporaryFileProcessData;
+import org.n52.shetland.ogc.wps.exception.NoSuchJobException;
+import org.n52.shetland.ogc.wps.exception.NoSuchModeException;
+import org.n52.shetland.ogc.wps.exception.ResultNotReadyException;
+import org.n52.shetland.ogc.wps.request.AbstractJobIdRequest;
+import org.n52.shetland.ogc.wps.request.DismissRequest;
+import org.n52.shetland.ogc.wps.request.ExecuteRequest;
+import org.n52.shetland.ogc.wps.request.GetResultRequest;
+import org.n52.shetland.ogc.wps.request.GetStatusRequest;
+import org.n52.shetland.ogc.wps.response.ExecuteResponse;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class JobEngineTest {
+    private static final OwsCode PROCESS = new OwsCode("process");
+    private final InMemoryJobStore store = new InMemoryJobStore();
+    private final MutableClock clock = new MutableClock();
+    private final JobEngine engine = new JobEngine(store, 2, 2, Duration.ofHours(1), clock);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void close() {
+        engine.close();
+    }
+
+    @Test
+    public void shouldExecuteAsynchronously() throws OwsExceptionReport, InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        engine.register(PROCESS, (request, context) -> {
+            context.setPercentCompleted(50);
+            running.countDown();
+            release.await();
+            return Collections.emptyList();
+        });
+        ExecuteResponse response = engine.execute(createRequest(ExecutionMode.AUTO));
+        JobId jobId = response.getStatus().get().getJobId();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        StatusInfo status = engine.getStatus(jobIdRequest(new GetStatusRequest(), jobId)).getStatus();
+        assertThat(status.getStatus(), is(JobStatus.running()));
+        assertThat(status.getPercentCompleted().get(), is((short) 50));
+        try {
+            engine.getResult(jobIdRequest(new GetResultRequest(), jobId));
+            fail("expected ResultNotReadyException");
+        } catch (ResultNotReadyException e) {
+            // expected
+        }
+
+        release.countDown();
+        status = awaitFinished(jobId);
+        assertThat(status.getStatus(), is(JobStatus.succeeded()));
+        assertThat(status.getPercentCompleted().get(), is((short) 100));
+        assertThat(status.getExpirationDate().get(), is(clock.instant().atOffset(ZoneOffset.UTC).plusHours(1)));
+        assertThat(engine.getResult(jobIdRequest(new GetResultRequest(), jobId)).getResult().getJobId().get(),
+                   is(jobId));
+
+        clock.advance(Duration.ofMinutes(59));
+        assertThat(engine.evictExpired(), is(0));
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(engine.evictExpired(), is(1));
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void shouldExecuteSynchronously() throws OwsExceptionReport {
+        engine.register(PROCESS, new SyncProcess());
+        ExecuteResponse response = engine.execute(createRequest(ExecutionMode.AUTO));
+        assertThat(response.getResult().isPresent(), is(true));
+        assertThat(response.getStatus().isPresent(), is(false));
+        assertThat(store.size(), is(0));
+    }
+
+    @Test(expected = NoSuchModeException.class)
+    public void shouldRejectUnsupportedMode() throws OwsExceptionReport {
+        engine.register(PROCESS, new SyncProcess());
+        engine.execute(createRequest(ExecutionMode.ASYNC));
+    }
+
+    @Test
+    public void shouldInterruptDismissedJob() throws OwsExceptionReport, InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        engine.register(PROCESS, (request, context) -> {
+            running.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return Collections.emptyList();
+        });
+        JobId jobId = engine.execute(createRequest(ExecutionMode.ASYNC)).getStatus().get().getJobId();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        StatusInfo status = engine.dismiss(jobIdRequest(new DismissRequest(), jobId)).getStatus();
+        assertThat(status.getStatus(), is(JobStatus.dismissed()));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertThat(store.size(), is(0));
+        try {
+            engine.getStatus(jobIdRequest(new GetStatusRequest(), jobId));
+            fail("expected NoSuchJobException");
+        } catch (NoSuchJobException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldReleaseOutputsOfJobDismissedWhileExecuting()
+            throws OwsExceptionReport, InterruptedException, IOException {
+        Path file = folder.newFile().toPath();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        engine.register(PROCESS, (request, context) -> {
+            running.countDown();
+            // ignores the interrupt and still returns its outputs
+            Uninterruptibles.awaitUninterruptibly(release);
+            return Collections.singletonList(new TemporaryFileProcessData(new OwsCode("out"), null, file));
+        });
+        JobId jobId = engine.execute(createRequest(ExecutionMode.ASYNC)).getStatus().get().getJobId();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        engine.dismiss(jobIdRequest(new DismissRequest(), jobId));
+        release.countDown();
+        for (int i = 0; i < 500 && Files.exists(file); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(Files.exists(file), is(false));
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void shouldReleaseStoredResultsOnClose() throws OwsExceptionReport, InterruptedException, IOException {
+        Path file = folder.newFile().toPath();
+        engine.register(PROCESS, (request, context) ->
+                Collections.singletonList(new TemporaryFileProcessData(new OwsCode("out"), null, file)));
+        JobId jobId = engine.execute(createRequest(ExecutionMode.ASYNC)).getStatus().get().getJobId();
+        assertThat(awaitFinished(jobId).getStatus(), is(JobStatus.succeeded()));
+        assertThat(Files.exists(file), is(true));
+        engine.close();
+        assertThat(Files.exists(file), is(false));
+        assertThat(store.size(), is(0));
+    }
+
+    private StatusInfo awaitFinished(JobId jobId) throws OwsExceptionReport, InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            StatusInfo status = engine.getStatus(jobIdRequest(new GetStatusRequest(), jobId)).getStatus();
+            if (!status.getStatus().equals(JobStatus.running())
+                    && !status.getStatus().equals(JobStatus.accepted())) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("job did not finish");
+    }
+
+    private static ExecuteRequest createRequest(ExecutionMode mode) {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.setId(PROCESS);
+        request.setExecutionMode(mode);
+        return request;
+    }
+
+    private static <T extends AbstractJobIdRequest> T jobIdRequest(T request, JobId jobId) {
+        request.setJobId(jobId);
+        return request;
+    }
+
+    private static class SyncProcess implements ProcessImplementation {
+        @Override
+        public List<ProcessData> execute(ExecuteRequest request, JobContext context) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<JobControlOption> getJobControlOptions() {
+            return Collections.singleton(JobControlOption.sync());
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant = Instant.parse("2017-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
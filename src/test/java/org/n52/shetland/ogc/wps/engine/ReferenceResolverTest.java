@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016-2017 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.shetland.ogc.wps.engine;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.n52.shetland.ogc.ows.OwsCode;
+import org.n52.shetland.ogc.ows.exception.OwsExceptionReport;
+import org.n52.shetland.ogc.wps.Format;
+import org.n52.shetland.ogc.wps.data.Body;
+import org.n52.shetland.ogc.wps.data.GroupProcessData;
+import org.n52.shetland.ogc.wps.data.ProcessData;
+import org.n52.shetland.ogc.wps.data.ReferenceProcessData;
+import org.n52.shetland.ogc.wps.data.ValueProcessData;
+import org.n52.shetland.ogc.wps.data.impl.FileBasedProcessData;
+import org.n52.shetland.ogc.wps.exception.DataNotAccessibleException;
+import org.n52.shetland.ogc.wps.exception.SizeExceededException;
+import org.n52.shetland.ogc.wps.request.ExecuteRequest;
+
+import com.google.common.base.Ticker;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ReferenceResolverTest {
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private final ConcurrentHashMap<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+    private final AtomicInteger revalidations = new AtomicInteger();
+    private final ManualTicker ticker = new ManualTicker();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private final CountDownLatch slow = new CountDownLatch(1);
+    private HttpServer server;
+    private ReferenceCache cache;
+    private ReferenceResolver resolver;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+        cache = new ReferenceCache(folder.getRoot().toPath(), 1024 * 1024, 100, Duration.ofMinutes(5),
+                                   ticker);
+        resolver = new ReferenceResolver(cache, executor, 10);
+    }
+
+    @After
+    public void tearDown() {
+        slow.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void shouldFetchEachDocumentOnce() throws OwsExceptionReport, IOException {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("a"), null, uri("/a")));
+        request.addInput(new ReferenceProcessData(new OwsCode("b"), null, uri("/b")));
+        GroupProcessData group = new GroupProcessData(new OwsCode("group"));
+        group.addElement(new ReferenceProcessData(new OwsCode("a2"), null, uri("/a")));
+        request.addInput(group);
+
+        ExecuteRequest resolved = resolver.resolve(request);
+        List<ProcessData> inputs = resolved.getInputs();
+        assertThat(read(inputs.get(0)), is("/a"));
+        assertThat(read(inputs.get(1)), is("/b"));
+        assertThat(read(inputs.get(2).asGroup().getElements().get(0)), is("/a"));
+        assertThat(downloads.get("/a").get(), is(1));
+        assertThat(downloads.get("/b").get(), is(1));
+
+        Path path = ((FileBasedProcessData) inputs.get(0)).getPath();
+        ReferenceResolver.release(resolved);
+        cache.invalidateAll();
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @Test
+    public void shouldRevalidateDocuments() throws OwsExceptionReport, IOException {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("a"), null, uri("/a")));
+        ReferenceResolver.release(resolver.resolve(request));
+
+        ticker.advance(10, TimeUnit.MINUTES);
+        ExecuteRequest resolved = resolver.resolve(request);
+        assertThat(read(resolved.getInputs().get(0)), is("/a"));
+        assertThat(downloads.get("/a").get(), is(1));
+        assertThat(revalidations.get(), is(1));
+        ReferenceResolver.release(resolved);
+    }
+
+    @Test
+    public void shouldPostBody() throws OwsExceptionReport, IOException {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("a"), Format.TEXT_PLAIN, uri("/echo"),
+                                                  Body.inline("a longer body")));
+        ExecuteRequest resolved = resolver.resolve(request);
+        assertThat(resolved.getInputs().get(0), instanceOf(ValueProcessData.class));
+        assertThat(read(resolved.getInputs().get(0)), is("a longer body"));
+        ReferenceResolver.release(resolved);
+    }
+
+    @Test(expected = SizeExceededException.class)
+    public void shouldLimitSize() throws OwsExceptionReport {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("large"), null, uri("/large")));
+        resolver.resolve(request);
+    }
+
+    @Test(expected = DataNotAccessibleException.class)
+    public void shouldFailForMissingDocuments() throws OwsExceptionReport {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("a"), null, uri("/a")));
+        request.addInput(new ReferenceProcessData(new OwsCode("missing"), null, uri("/missing")));
+        resolver.resolve(request);
+    }
+
+    @Test
+    public void shouldReleaseRunningFetchesOnFailure() throws OwsExceptionReport, InterruptedException {
+        ExecuteRequest request = new ExecuteRequest("WPS", "2.0.0");
+        request.addInput(new ReferenceProcessData(new OwsCode("missing"), null, uri("/missing")));
+        request.addInput(new ReferenceProcessData(new OwsCode("slow"), null, uri("/slow")));
+        try {
+            resolver.resolve(request);
+            fail("expected DataNotAccessibleException");
+        } catch (DataNotAccessibleException e) {
+            // expected
+        }
+        slow.countDown();
+        for (int i = 0; i < 500 && cache.size() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.size(), is(1L));
+        cache.invalidateAll();
+        for (int i = 0; i < 500 && folder.getRoot().list().length > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(folder.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void shouldLeaseDocumentsLargerThanASegment() throws IOException {
+        ReferenceCache small = new ReferenceCache(folder.getRoot().toPath(), 100, 100, Duration.ofMinutes(5),
+                                                  ticker);
+        try (ReferenceCache.Lease lease = small.acquire(uri("/medium"))) {
+            assertThat(lease.getSize(), is(60L));
+            assertThat(Files.size(lease.getPath()), is(60L));
+            assertThat(small.size(), is(0L));
+            assertThat(downloads.get("/medium").get(), is(1));
+            lease.close();
+            assertThat(Files.exists(lease.getPath()), is(false));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body;
+        if (path.equals("/slow")) {
+            try {
+                slow.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (path.equals("/missing")) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        } else if (path.equals("/echo")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                body = ByteStreams.toByteArray(in);
+            }
+        } else if (path.equals("/large")) {
+            body = new byte[1000];
+        } else if (path.equals("/medium")) {
+            downloads.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            body = new byte[60];
+        } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            revalidations.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        } else {
+            downloads.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            body = path.getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static String read(ProcessData data) throws IOException {
+        try (InputStream in = ((ValueProcessData) data).getData()) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class ManualTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}